@@ -0,0 +1,22 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.service.ProductResponseCache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lectura cuya respuesta JSON se guarda ya serializada (y comprimida) en
+ * ProductResponseCache. En un acierto CachedJsonInterceptor escribe los bytes y el
+ * controlador no llega a ejecutarse; en un fallo CachedJsonResponseAdvice guarda el cuerpo.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachedJson {
+
+    ProductResponseCache.Region value();
+}
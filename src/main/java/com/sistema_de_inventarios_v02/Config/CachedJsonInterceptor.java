@@ -0,0 +1,123 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.service.ProductResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sirve desde ProductResponseCache las lecturas marcadas con @CachedJson. Corre después
+ * de los filtros de seguridad, y estas rutas ya exigen rol en SecurityConfig, así que
+ * responder sin pasar por @PreAuthorize no abre nada nuevo.
+ */
+@Component
+public class CachedJsonInterceptor implements HandlerInterceptor {
+
+    static final String KEY_ATTRIBUTE = CachedJsonInterceptor.class.getName() + ".key";
+    static final String GENERATION_ATTRIBUTE = CachedJsonInterceptor.class.getName() + ".generation";
+
+    private final ProductResponseCache responseCache;
+
+    @Autowired
+    public CachedJsonInterceptor(ProductResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod) || !"GET".equals(request.getMethod())) {
+            return true;
+        }
+        CachedJson cachedJson = handlerMethod.getMethodAnnotation(CachedJson.class);
+        if (cachedJson == null || !prefersJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            return true;
+        }
+        String key = key(cachedJson.value(), request);
+        if (key == null) {
+            return true;
+        }
+
+        ProductResponseCache.Entry entry = responseCache.get(key);
+        if (entry == null) {
+            // Fallo: CachedJsonResponseAdvice guarda el cuerpo si no hubo cambios mientras tanto
+            request.setAttribute(KEY_ATTRIBUTE, key);
+            request.setAttribute(GENERATION_ATTRIBUTE, responseCache.generation());
+            return true;
+        }
+
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        byte[] body = gzip ? entry.gzip() : entry.json();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // Validadores de la versión con la que se guardó el cuerpo, no de la actual
+        ConditionalGetInterceptor.writeValidators(request, response, entry.version());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return false;
+    }
+
+    private String key(ProductResponseCache.Region region, HttpServletRequest request) {
+        String variable = switch (region) {
+            case PRODUCT -> "id";
+            case CATEGORY -> "category";
+            default -> null;
+        };
+        if (variable == null) {
+            return responseCache.key(region, null);
+        }
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(variables instanceof Map<?, ?> map) || !(map.get(variable) instanceof String value)) {
+            return null;
+        }
+        return responseCache.key(region, value);
+    }
+
+    /**
+     * Solo JSON está en caché: si el cliente prefiere CBOR o protobuf se sigue el camino normal
+     */
+    static boolean prefersJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType preferred = mediaTypes.get(0);
+            for (MediaType mediaType : mediaTypes) {
+                if (mediaType.getQualityValue() > preferred.getQualityValue()) {
+                    preferred = mediaType;
+                }
+            }
+            return preferred.includes(MediaType.APPLICATION_JSON);
+        } catch (InvalidMediaTypeException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").equalsIgnoreCase("q=0");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sistema_de_inventarios_v02.dto.ProductResponseDTO;
+import com.sistema_de_inventarios_v02.service.ProductResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+
+/**
+ * Guarda en ProductResponseCache la respuesta JSON de una lectura @CachedJson que no
+ * estaba en caché. Solo respuestas 200 con el tipo esperado, nunca cuerpos de error, y
+ * nunca lo leído de una réplica que aún no tiene las revisiones de este nodo.
+ */
+@ControllerAdvice
+public class CachedJsonResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ProductResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public CachedJsonResponseAdvice(ProductResponseCache responseCache, ObjectMapper objectMapper) {
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(CachedJson.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)
+                || servletResponse.getServletResponse().getStatus() != 200
+                || !MediaType.APPLICATION_JSON.isCompatibleWith(selectedContentType)
+                || !(body instanceof ProductResponseDTO || body instanceof List<?>)
+                || !ServedRevision.isShareable()) {
+            return body;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        if (!(httpRequest.getAttribute(CachedJsonInterceptor.KEY_ATTRIBUTE) instanceof String key)
+                || !(httpRequest.getAttribute(CachedJsonInterceptor.GENERATION_ATTRIBUTE) instanceof Long generation)) {
+            return body;
+        }
+        try {
+            responseCache.put(key, generation, objectMapper.writeValueAsBytes(body),
+                    ConditionalGetInterceptor.servedVersion(httpRequest));
+        } catch (JsonProcessingException e) {
+            // Sin caché para esta respuesta; Jackson informará el error al escribirla
+        }
+        return body;
+    }
+}
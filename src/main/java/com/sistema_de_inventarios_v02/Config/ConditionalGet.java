@@ -0,0 +1,27 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca una lectura de productos que admite peticiones condicionales (If-None-Match /
+ * If-Modified-Since). ConditionalGetInterceptor calcula el ETag antes de invocar el
+ * controlador y responde 304 sin tocar las entidades si el cliente ya tiene la versión.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConditionalGet {
+
+    Scope value() default Scope.CATALOG;
+
+    enum Scope {
+        /** Listados: la versión es la última revisión de REVINFO */
+        CATALOG,
+        /** Un producto por {id}: su updated_at y su última revisión */
+        PRODUCT
+    }
+}
@@ -0,0 +1,245 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Resuelve las lecturas marcadas con @ConditionalGet: obtiene la versión del recurso con
+ * una consulta de una fila y, si coincide con If-None-Match / If-Modified-Since, corta la
+ * petición con 304 antes del controlador.
+ * <p>
+ * El ETag y Last-Modified de una respuesta 200 se emiten al escribir el cuerpo
+ * (ConditionalGetResponseAdvice) y solo si lo servido cubre esa versión (ServedRevision):
+ * un cuerpo atrasado con el ETag de la versión actual recibiría 304 para siempre.
+ * <p>
+ * Con el catálogo repartido cada shard tiene su REVINFO: la versión de un producto se lee
+ * en su shard y la del catálogo combina la última revisión de cada uno.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    static final String VALIDATORS_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".validators";
+
+    private final ProductHistoryRepository productHistoryRepository;
+    private final ReplicaConsistency replicaConsistency;
+    private final ShardQueries shardQueries;
+
+    public ConditionalGetInterceptor(ProductHistoryRepository productHistoryRepository) {
+        this(productHistoryRepository, (ReplicaConsistency) null, (ShardQueries) null);
+    }
+
+    public ConditionalGetInterceptor(ProductHistoryRepository productHistoryRepository,
+                                     ObjectProvider<ReplicaConsistency> replicaConsistency) {
+        this(productHistoryRepository, replicaConsistency.getIfAvailable(), (ShardQueries) null);
+    }
+
+    @Autowired
+    public ConditionalGetInterceptor(ProductHistoryRepository productHistoryRepository,
+                                     ObjectProvider<ReplicaConsistency> replicaConsistency,
+                                     ObjectProvider<ShardQueries> shardQueries) {
+        // Solo con réplica configurada (ReadReplicaDataSourceConfig) o con shards (ShardingConfig)
+        this(productHistoryRepository, replicaConsistency.getIfAvailable(), shardQueries.getIfAvailable());
+    }
+
+    private ConditionalGetInterceptor(ProductHistoryRepository productHistoryRepository,
+                                      ReplicaConsistency replicaConsistency,
+                                      ShardQueries shardQueries) {
+        this.productHistoryRepository = productHistoryRepository;
+        this.replicaConsistency = replicaConsistency;
+        this.shardQueries = shardQueries;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        ConditionalGet conditionalGet = handlerMethod.getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null
+                || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return true;
+        }
+
+        Optional<RevisionStampDTO> stamp;
+        String resource;
+        if (conditionalGet.value() == ConditionalGet.Scope.PRODUCT) {
+            Long productId = productId(request);
+            if (productId == null) {
+                return true;
+            }
+            stamp = shardQueries != null
+                    ? shardQueries.onHomeShard(productId, () -> productHistoryRepository.findProductRevision(productId))
+                    : productHistoryRepository.findProductRevision(productId);
+            resource = "product-" + productId;
+        } else {
+            stamp = shardQueries != null
+                    ? catalogRevision(shardQueries.onEveryShard(productHistoryRepository::findLatestCatalogRevision))
+                    : productHistoryRepository.findLatestCatalogRevision();
+            resource = "catalog";
+        }
+        // Sin versión conocida (producto inexistente, catálogo sin revisiones) se responde normal
+        if (stamp.isEmpty()) {
+            return true;
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = etag(resource, stamp.get(), request);
+        long lastModified = stamp.get().getLastModified();
+        // Solo se compara; los validadores de un 200 dependen de la fuente que sirva el cuerpo
+        ServletWebRequest probe = new ServletWebRequest(request, new ValidatorProbe(response));
+        if (probe.checkNotModified(etag, lastModified)) {
+            return !new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+        }
+
+        request.setAttribute(VALIDATORS_ATTRIBUTE, new Validators(resource, stamp.get()));
+        if (streams(handlerMethod)) {
+            // El cuerpo se escribe fuera del ciclo de ResponseBodyAdvice, así que se decide ya.
+            // Las exportaciones leen de la base de datos: solo puede atrasarse la réplica
+            if (replicaConsistency == null || (stamp.get().getRevision() != null
+                    && replicaConsistency.getReplicaRevision() >= stamp.get().getRevision())) {
+                writeValidators(request, response, stamp.get());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Versión del catálogo repartido: una huella del vector de últimas revisiones por shard,
+     * que cambia con una escritura en cualquiera de ellos, y la fecha más reciente. Vacío si
+     * ningún shard tiene revisiones todavía
+     */
+    static Optional<RevisionStampDTO> catalogRevision(List<Optional<RevisionStampDTO>> shards) {
+        if (shards.stream().allMatch(Optional::isEmpty)) {
+            return Optional.empty();
+        }
+        CRC32 crc = new CRC32();
+        long lastModified = -1L;
+        for (Optional<RevisionStampDTO> shard : shards) {
+            long revision = shard.map(RevisionStampDTO::getRevision).orElse(0L);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                crc.update((int) (revision >>> shift));
+            }
+            lastModified = Math.max(lastModified, shard.map(RevisionStampDTO::getLastModified).orElse(-1L));
+        }
+        return Optional.of(new RevisionStampDTO(crc.getValue(), lastModified));
+    }
+
+    /**
+     * Versión que acredita un cuerpo recién leído: la consultada en preHandle si lo servido
+     * la cubre, o null si no hay versión o alguna fuente iba atrasada
+     */
+    static RevisionStampDTO servedVersion(HttpServletRequest request) {
+        if (!(request.getAttribute(VALIDATORS_ATTRIBUTE) instanceof Validators validators)) {
+            return null;
+        }
+        return ServedRevision.covers(request, validators.stamp()) ? validators.stamp() : null;
+    }
+
+    /**
+     * Emite ETag y Last-Modified de la versión servida, si la hay y la petición pasó por
+     * preHandle con una versión conocida
+     */
+    static void writeValidators(HttpServletRequest request, HttpServletResponse response, RevisionStampDTO served) {
+        if (served == null || !(request.getAttribute(VALIDATORS_ATTRIBUTE) instanceof Validators validators)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag(validators.resource(), served, request));
+        if (served.getLastModified() >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, served.getLastModified());
+        }
+    }
+
+    /**
+     * ETag fuerte: recurso, versión y una huella de la URL y del Accept, porque la misma
+     * versión se sirve en varias representaciones (páginas, filtros, JSON/CSV/NDJSON)
+     */
+    static String etag(String resource, RevisionStampDTO stamp, HttpServletRequest request) {
+        String version = stamp.getRevision() != null
+                ? "r" + stamp.getRevision()
+                : "t" + stamp.getLastModified();
+
+        CRC32 crc = new CRC32();
+        crc.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+        crc.update('?');
+        String query = request.getQueryString();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        crc.update((query != null ? query : "").getBytes(StandardCharsets.UTF_8));
+        crc.update('\n');
+        crc.update((accept != null ? accept : "").getBytes(StandardCharsets.UTF_8));
+
+        return "\"" + resource + "-" + version + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private static Long productId(HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(variables instanceof Map<?, ?> map) || !(map.get("id") instanceof String id)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean streams(HandlerMethod handlerMethod) {
+        ResolvableType returnType = ResolvableType.forMethodReturnType(handlerMethod.getMethod());
+        if (ResponseEntity.class.isAssignableFrom(returnType.toClass())) {
+            returnType = returnType.getGeneric(0);
+        }
+        return StreamingResponseBody.class.isAssignableFrom(returnType.toClass());
+    }
+
+    record Validators(String resource, RevisionStampDTO stamp) {
+    }
+
+    /**
+     * Respuesta en la que checkNotModified no deja rastro: solo interesa su resultado
+     */
+    private static final class ValidatorProbe extends HttpServletResponseWrapper {
+
+        private ValidatorProbe(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setStatus(int status) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Emite ETag y Last-Modified en la respuesta 200 de una lectura @ConditionalGet, una vez
+ * que el controlador ya eligió de dónde leer: solo si lo servido cubre la versión que
+ * ConditionalGetInterceptor consultó antes.
+ */
+@ControllerAdvice
+public class ConditionalGetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(ConditionalGet.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse
+                && servletResponse.getServletResponse().getStatus() == 200) {
+            ConditionalGetInterceptor.writeValidators(servletRequest.getServletRequest(),
+                    servletResponse.getServletResponse(),
+                    ConditionalGetInterceptor.servedVersion(servletRequest.getServletRequest()));
+        }
+        return body;
+    }
+}
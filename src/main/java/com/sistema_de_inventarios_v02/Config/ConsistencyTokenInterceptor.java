@@ -0,0 +1,43 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Lee X-Consistency-Token (la revisión devuelta por una escritura anterior del cliente)
+ * y, si la réplica no la alcanza en el tiempo de espera, lee la petición del primario
+ */
+public class ConsistencyTokenInterceptor implements HandlerInterceptor {
+
+    private final ReplicaConsistency consistency;
+
+    public ConsistencyTokenInterceptor(ReplicaConsistency consistency) {
+        this.consistency = consistency;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String token = request.getHeader(ReplicaConsistency.TOKEN_HEADER);
+        if (token == null || token.isBlank()) {
+            return true;
+        }
+        long revision;
+        try {
+            revision = Long.parseLong(token.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException(ReplicaConsistency.TOKEN_HEADER + " inválido: " + token);
+        }
+        if (!consistency.awaitReplica(revision)) {
+            consistency.usePrimaryForCurrentThread();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        consistency.clearCurrentThread();
+    }
+}
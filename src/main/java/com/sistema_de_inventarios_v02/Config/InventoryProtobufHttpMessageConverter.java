@@ -0,0 +1,78 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.google.protobuf.CodedOutputStream;
+import com.sistema_de_inventarios_v02.dto.api.StockMovementDTO;
+import com.sistema_de_inventarios_v02.service.ProductProtobufCodec;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * application/x-protobuf para los DTO de productos y movimientos, sus listas y sus páginas.
+ * Se registra después de Jackson, así que JSON sigue siendo la respuesta por defecto
+ * y protobuf solo se usa cuando el cliente lo pide en Accept.
+ */
+public class InventoryProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public InventoryProtobufHttpMessageConverter() {
+        super(MediaType.parseMediaType(ProductProtobufCodec.PROTOBUF));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ProductProtobufCodec.supports(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type == StockMovementDTO.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (ProductProtobufCodec.supports(clazz)) {
+            return true;
+        }
+        if (List.class.isAssignableFrom(clazz) || Page.class.isAssignableFrom(clazz)) {
+            // Solo colecciones de tipos con esquema; List<Map> (?fields=) o List<String> no
+            Class<?> element = type != null ? ResolvableType.forType(type).getGeneric(0).resolve() : null;
+            return element != null && ProductProtobufCodec.supports(element);
+        }
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputMessage.getBody());
+        ProductProtobufCodec.write(value, out);
+        out.flush();
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        return readInternal(StockMovementDTO.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return ProductProtobufCodec.readStockMovement(inputMessage.getBody());
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Mensaje protobuf inválido: " + e.getMessage(), e, inputMessage);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Pool del primario (spring.datasource.*) y de la réplica (inventory.datasource.replica.*)
+ * detrás de un único DataSource que enruta por transacción. Solo se activa si se configura
+ * inventory.datasource.replica.url; sin ella la aplicación usa el DataSource de Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty(name = "inventory.datasource.replica.url")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("inventory.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${inventory.datasource.replica.url}") String url,
+                                              @Value("${inventory.datasource.replica.username:}") String username,
+                                              @Value("${inventory.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username.isEmpty() ? properties.determineUsername() : username)
+                .password(password.isEmpty() ? properties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaConsistency replicaConsistency(@Qualifier("primaryDataSource") DataSource primary,
+                                                 @Qualifier("replicaDataSource") DataSource replica,
+                                                 @Value("${inventory.datasource.replica.max-wait-ms:200}") long maxWaitMillis,
+                                                 @Value("${inventory.datasource.replica.wait-step-ms:10}") long waitStepMillis) {
+        return new ReplicaConsistency(primary, replica, maxWaitMillis, waitStepMillis);
+    }
+
+    @Bean
+    public ConsistencyTokenInterceptor consistencyTokenInterceptor(ReplicaConsistency consistency) {
+        return new ConsistencyTokenInterceptor(consistency);
+    }
+
+    /**
+     * DataSource de la aplicación (JPA, JdbcTemplate, Flyway): fuera de transacciones de
+     * solo lectura siempre llega al primario
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaConsistency consistency) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, consistency);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
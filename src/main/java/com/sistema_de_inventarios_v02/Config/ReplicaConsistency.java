@@ -0,0 +1,151 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decide si una transacción de solo lectura puede ir a la réplica. La revisión (REV de
+ * REVINFO) exigida es la de cada cliente: tras cada escritura la respuesta lleva la última
+ * revisión en X-Consistency-Token; el cliente la reenvía y ConsistencyTokenInterceptor
+ * espera a la réplica o lee del primario. Sin token la lectura va a la réplica si responde.
+ * <p>
+ * La revisión que este nodo conoce (sus escrituras y las de otros nodos ya aplicadas a
+ * sus caches) no desvía lecturas: solo indica si lo leído de la réplica puede guardarse
+ * en las caches compartidas sin devolverles un estado ya invalidado.
+ */
+public class ReplicaConsistency {
+
+    public static final String TOKEN_HEADER = "X-Consistency-Token";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaConsistency.class);
+    private static final String MAX_REVISION = "SELECT COALESCE(MAX(REV), 0) FROM REVINFO";
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxWaitNanos;
+    private final long waitStepMillis;
+
+    // Última revisión que este nodo conoce
+    private final AtomicLong nodeRevision = new AtomicLong();
+    // Última revisión vista en la réplica; -1 si no responde
+    private volatile long replicaRevision = -1;
+
+    public ReplicaConsistency(DataSource primaryDataSource, DataSource replicaDataSource,
+                              long maxWaitMillis, long waitStepMillis) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.waitStepMillis = waitStepMillis;
+    }
+
+    public boolean shouldReadReplica() {
+        return !isPrimaryForcedForCurrentThread() && replicaRevision >= 0;
+    }
+
+    /**
+     * Verdadero si la réplica ya tiene todas las revisiones que este nodo conoce
+     */
+    public boolean replicaCoversNode() {
+        return replicaRevision >= nodeRevision.get();
+    }
+
+    /**
+     * Envía al primario todas las lecturas del hilo actual hasta clearCurrentThread
+     */
+    public void usePrimaryForCurrentThread() {
+        FORCE_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public void clearCurrentThread() {
+        FORCE_PRIMARY.remove();
+    }
+
+    /**
+     * Verdadero si las lecturas del hilo actual deben ir al primario
+     */
+    public boolean isPrimaryForcedForCurrentThread() {
+        return Boolean.TRUE.equals(FORCE_PRIMARY.get());
+    }
+
+    /**
+     * Espera hasta inventory.datasource.replica.max-wait-ms a que la réplica alcance la revisión
+     */
+    public boolean awaitReplica(long revision) {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        if (replicaRevision < revision) {
+            refreshReplicaRevision();
+        }
+        while (replicaRevision < revision) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(waitStepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            refreshReplicaRevision();
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.datasource.replica.check-interval-ms:100}")
+    public void refreshReplicaRevision() {
+        try {
+            Long revision = replica.queryForObject(MAX_REVISION, Long.class);
+            replicaRevision = revision != null ? revision : 0L;
+        } catch (DataAccessException e) {
+            if (replicaRevision >= 0) {
+                logger.warn("Replica unavailable, reading from primary: {}", e.getMessage());
+            }
+            replicaRevision = -1;
+        }
+    }
+
+    /**
+     * Sube la revisión del nodo antes que el resto de listeners invaliden sus caches y, si
+     * la escritura viene de una petición, devuelve la revisión como token al cliente
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Long revision = primary.queryForObject(MAX_REVISION, Long.class);
+        if (revision == null) {
+            return;
+        }
+        nodeRevision.accumulateAndGet(revision, Math::max);
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletResponse response = servletAttributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(TOKEN_HEADER, Long.toString(revision));
+            }
+        }
+    }
+
+    public long getNodeRevision() {
+        return nodeRevision.get();
+    }
+
+    public long getReplicaRevision() {
+        return replicaRevision;
+    }
+}
@@ -0,0 +1,55 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Envía las transacciones @Transactional(readOnly = true) a la réplica cuando
+ * ReplicaConsistency lo permite y todo lo demás al primario. Debe usarse detrás de un
+ * LazyConnectionDataSourceProxy: la conexión se pide en la primera sentencia, cuando
+ * la transacción ya está marcada como de solo lectura.
+ * <p>
+ * Si la réplica va por detrás de lo que este nodo ya aplicó, la lectura sigue yendo a
+ * ella (cada cliente exige su revisión con el token), pero no llena caches compartidas:
+ * la sesión deja de escribir en la cache de segundo nivel y la petición queda marcada
+ * para ProductQueryCache y ProductResponseCache.
+ */
+public final class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaConsistency consistency;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaConsistency consistency) {
+        this.consistency = consistency;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && consistency.shouldReadReplica()) {
+            ServedRevision.record(consistency.getReplicaRevision());
+            if (!consistency.replicaCoversNode()) {
+                ServedRevision.recordBehindNode();
+                stopSecondLevelCachePuts();
+            }
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    private static void stopSecondLevelCachePuts() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder holder) {
+                holder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+}
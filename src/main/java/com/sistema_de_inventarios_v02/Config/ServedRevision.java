@@ -0,0 +1,123 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+/**
+ * Revisión hasta la que está completo lo que sirvió la petición actual. Las fuentes que
+ * pueden ir por detrás del primario (réplica, modelo de lectura, cachés de consultas) la
+ * anotan al responder; sin anotación la respuesta salió del primario.
+ * ConditionalGetInterceptor solo emite validadores si cubren la versión del recurso.
+ */
+public final class ServedRevision {
+
+    /** Fuente sin revisión conocida: la respuesta nunca lleva validadores */
+    public static final long UNKNOWN = -1L;
+
+    static final String ATTRIBUTE = ServedRevision.class.getName();
+    static final String BEHIND_NODE_ATTRIBUTE = ServedRevision.class.getName() + ".behindNode";
+
+    private static final ThreadLocal<Captured> CAPTURE = new ThreadLocal<>();
+
+    private ServedRevision() {
+    }
+
+    /**
+     * Anota en la petición actual una fuente completa hasta la revisión indicada; se queda
+     * la menor. Fuera de una petición no hace nada.
+     */
+    public static void record(long revision) {
+        Captured captured = CAPTURE.get();
+        if (captured != null) {
+            captured.revision = Math.min(captured.revision, revision);
+            return;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        Object previous = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (previous instanceof Long served && served <= revision) {
+            return;
+        }
+        attributes.setAttribute(ATTRIBUTE, revision, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Anota que la petición actual leyó de una fuente a la que aún le faltan revisiones
+     * que este nodo ya aplicó a sus caches
+     */
+    public static void recordBehindNode() {
+        Captured captured = CAPTURE.get();
+        if (captured != null) {
+            captured.behindNode = true;
+            return;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(BEHIND_NODE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Ejecuta una lectura compartida por varias peticiones (un lote leído en otro hilo) y
+     * guarda lo que anote en lugar de anotarlo en la petición del hilo; cada llamador lo
+     * repite en la suya con Captured.replay
+     */
+    public static <T> T capture(Captured into, Supplier<T> action) {
+        Captured previous = CAPTURE.get();
+        CAPTURE.set(into);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CAPTURE.remove();
+            } else {
+                CAPTURE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Verdadero si lo leído en la petición actual puede guardarse en caches compartidas
+     * con otros clientes: ninguna fuente iba por detrás de este nodo
+     */
+    public static boolean isShareable() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes == null
+                || attributes.getAttribute(BEHIND_NODE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) == null;
+    }
+
+    /**
+     * Verdadero si lo servido incluye la versión: todo del primario, o fuentes que ya
+     * tienen su revisión
+     */
+    static boolean covers(HttpServletRequest request, RevisionStampDTO stamp) {
+        if (!(request.getAttribute(ATTRIBUTE) instanceof Long served)) {
+            return true;
+        }
+        return stamp.getRevision() != null && served >= stamp.getRevision();
+    }
+
+    /**
+     * Anotaciones guardadas por capture; sin ninguna, replay no hace nada (leído del primario)
+     */
+    public static final class Captured {
+
+        private volatile long revision = Long.MAX_VALUE;
+        private volatile boolean behindNode;
+
+        public void replay() {
+            if (revision != Long.MAX_VALUE) {
+                record(revision);
+            }
+            if (behindNode) {
+                recordBehindNode();
+            }
+        }
+    }
+}
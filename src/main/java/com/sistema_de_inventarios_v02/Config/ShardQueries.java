@@ -0,0 +1,65 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Consultas fuera de ProductRepository que dependen del shard: historial de auditoría y
+ * REVINFO, que cada shard tiene por separado. Cada consulta va en un hilo del pool y en su
+ * propia transacción de solo lectura, así no reutiliza la conexión que la petición ya tenga
+ * abierta (open-in-view) ni la de una transacción ligada a otro shard.
+ */
+public class ShardQueries {
+
+    private final ShardRouter router;
+    private final TransactionTemplate readOnly;
+    private final ExecutorService executor;
+
+    public ShardQueries(ShardRouter router, PlatformTransactionManager transactionManager, ExecutorService executor) {
+        this.router = router;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.executor = executor;
+    }
+
+    public int shardCount() {
+        return router.shardCount();
+    }
+
+    /**
+     * Ejecuta la consulta en el shard que generó el id del producto
+     */
+    public <T> T onHomeShard(long productId, Supplier<T> query) {
+        return onShard(router.homeShard(productId), query);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> query) {
+        return ShardedProductRepository.await(executor.submit(() -> readOnlyOn(shard, query)));
+    }
+
+    /**
+     * Ejecuta la consulta en paralelo en todos los shards; resultados en orden de shard
+     */
+    public <T> List<T> onEveryShard(Supplier<T> query) {
+        List<Future<T>> futures = new ArrayList<>(router.shardCount());
+        for (int shard = 0; shard < router.shardCount(); shard++) {
+            int current = shard;
+            futures.add(executor.submit(() -> readOnlyOn(current, query)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            results.add(ShardedProductRepository.await(future));
+        }
+        return results;
+    }
+
+    private <T> T readOnlyOn(int shard, Supplier<T> query) {
+        return ShardRouter.callOn(shard, () -> readOnly.execute(status -> query.get()));
+    }
+}
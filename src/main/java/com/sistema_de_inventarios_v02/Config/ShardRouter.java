@@ -0,0 +1,152 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Reparto del catálogo entre shards: cada categoría vive entera en el shard que indica el
+ * hash de su nombre, y cada shard genera ids en su propio rango (el shard k desde k·2^40 + 1),
+ * de modo que el id de un producto basta para saber dónde está y nunca se repite entre shards.
+ * <p>
+ * El shard de la sentencia actual se fija por hilo con callOn; ShardRoutingDataSource lo lee
+ * al pedir la conexión y, dentro de una transacción, la deja asociada a ese shard hasta el final.
+ */
+public class ShardRouter {
+
+    /** Bits de id reservados a cada shard en products (BIGINT) */
+    public static final int PRODUCT_ID_BITS = 40;
+    /** Bits de id reservados a cada shard en categories (INT) */
+    public static final int CATEGORY_ID_BITS = 24;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> BOUND = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+
+    public ShardRouter(List<DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos un shard");
+        }
+        // El rango de categories del último shard debe caber en un INT
+        if (shards.size() >= 1 << (Integer.SIZE - 1 - CATEGORY_ID_BITS)) {
+            throw new IllegalArgumentException("Demasiados shards: " + shards.size());
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * DataSource de cada shard, sin enrutar y fuera de la transacción en curso
+     */
+    public List<DataSource> dataSources() {
+        return shards;
+    }
+
+    /**
+     * Shard de la categoría; los productos sin categoría van al 0
+     */
+    public int shardFor(String category) {
+        if (category == null || category.isBlank()) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(shardKey(category).getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shards.size());
+    }
+
+    /**
+     * Nombre de categoría tal como lo compara la colación de la base (utf8mb4_unicode_ci):
+     * sin espacios en los extremos, mayúsculas ni acentos. Dos nombres que la base tiene por
+     * iguales caen en el mismo shard
+     */
+    public static String shardKey(String category) {
+        String decomposed = Normalizer.normalize(category.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Shard que generó el id; los ids fuera de todo rango se buscan en el 0
+     */
+    public int homeShard(long id) {
+        long shard = id >>> PRODUCT_ID_BITS;
+        return shard < shards.size() ? (int) shard : 0;
+    }
+
+    /**
+     * Cierra los pools de los shards al parar la aplicación
+     */
+    public void close() {
+        for (DataSource shard : shards) {
+            if (shard instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        }
+    }
+
+    public static long firstProductId(int shard) {
+        return ((long) shard << PRODUCT_ID_BITS) + 1;
+    }
+
+    public static int firstCategoryId(int shard) {
+        return (shard << CATEGORY_ID_BITS) + 1;
+    }
+
+    /**
+     * Shard fijado para el hilo actual, o null para el shard por defecto (0)
+     */
+    public static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Ejecuta la acción con las sentencias del hilo actual dirigidas al shard indicado
+     */
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Shard cuya conexión usa la transacción en curso, o null si todavía no ha pedido ninguna
+     */
+    public static Integer boundShard() {
+        return BOUND.get();
+    }
+
+    static void bind(int shard) {
+        if (BOUND.get() != null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        BOUND.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                BOUND.remove();
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entrega la conexión del shard fijado con ShardRouter.callOn (el 0 si no hay ninguno).
+ * Debe usarse detrás de un LazyConnectionDataSourceProxy: la conexión se pide en la primera
+ * sentencia, cuando ShardedProductRepository ya ha elegido el shard.
+ */
+public final class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer current = ShardRouter.currentShard();
+        int shard = current != null ? current : 0;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // La transacción sigue en esta conexión hasta terminar, la pida quien la pida
+            ShardRouter.bind(shard);
+        }
+        return shard;
+    }
+}
@@ -0,0 +1,790 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductField;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ProductRepository repartido entre shards. Lo que pertenece a un solo shard (por id, por
+ * categoría, escrituras) va directamente al suyo; el resto se lanza en paralelo contra todos,
+ * cada shard en su propia transacción de solo lectura, y se combinan los resultados: listas
+ * concatenadas, páginas y ventanas mezcladas según su orden, conteos y estadísticas sumados.
+ * <p>
+ * Una transacción queda ligada al shard de su primera sentencia: las lecturas de ese shard se
+ * hacen dentro de ella (ven sus propios cambios) y una escritura en otro shard se rechaza.
+ * La excepción es guardar un producto con una categoría de otro shard, que lo mueve allí con
+ * un id nuevo (ver move).
+ */
+public class ShardedProductRepository implements InvocationHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedProductRepository.class);
+
+    private final ProductRepository target;
+    private final ShardRouter router;
+    private final TransactionTemplate readOnly;
+    private final TransactionTemplate readWrite;
+    private final ExecutorService executor;
+    private final ExecutorService streamExecutor;
+    private final int[] allShards;
+
+    public ShardedProductRepository(ProductRepository target, ShardRouter router,
+                                    PlatformTransactionManager transactionManager, ExecutorService executor) {
+        this.target = target;
+        this.router = router;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readWrite = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.streamExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofPlatform().daemon().name("shard-stream-", 1).factory());
+        this.allShards = IntStream.range(0, router.shardCount()).toArray();
+    }
+
+    public static ProductRepository wrap(ProductRepository target, ShardRouter router,
+                                         PlatformTransactionManager transactionManager, int threads) {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class},
+                new ShardedProductRepository(target, router, transactionManager, newExecutor(threads, "shard-query-")));
+    }
+
+    /**
+     * Pool de hilos daemon para las consultas a los shards
+     */
+    static ExecutorService newExecutor(int threads, String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "ShardedProductRepository[" + router.shardCount() + " shards]";
+            };
+        }
+        Object[] arguments = args != null ? args : new Object[0];
+        if (router.shardCount() == 1) {
+            return call(method, arguments);
+        }
+        return switch (method.getName()) {
+            case "save", "saveAndFlush" -> save(method, arguments);
+            case "saveAll", "saveAllAndFlush" -> saveAll(method, arguments);
+            case "delete" -> onShard(homeShard(((Product) arguments[0]).getId()), true, method, arguments);
+            case "deleteById" -> onShard(homeShard(arguments[0]), true, method, arguments);
+            case "deleteAll", "deleteAllInBatch" -> arguments.length == 0
+                    ? writeEveryShard(method)
+                    : writeGrouped(method, arguments, product -> homeShard(((Product) product).getId()));
+            case "deleteAllById", "deleteAllByIdInBatch" -> writeGrouped(method, arguments, this::homeShard);
+            case "flush" -> call(method, arguments);
+            case "findById", "existsById", "getReferenceById", "getById", "getOne" ->
+                    onShard(homeShard(arguments[0]), false, method, arguments);
+            case "findByCategoryIgnoreCase", "findSummariesByCategory" ->
+                    onShard(router.shardFor((String) arguments[0]), false, method, arguments);
+            case "findByCategoryAndName", "findSummariesByCategoryAndName", "countFacets" -> arguments[0] != null
+                    ? onShard(router.shardFor((String) arguments[0]), false, method, arguments)
+                    : scatterGather(method, arguments);
+            case "multiLoad", "findAllById", "findSnapshotsByIdIn" -> byIds(method, arguments);
+            case "findFields" -> findFields(method, arguments);
+            case "findAllCategories" -> categories(method, arguments);
+            case "findBy" -> arguments[1] instanceof Function<?, ?>
+                    ? fluent(method, arguments)
+                    : scatterGather(method, arguments);
+            default -> scatterGather(method, arguments);
+        };
+    }
+
+    private Object save(Method method, Object[] args) {
+        Product product = (Product) args[0];
+        int shard = router.shardFor(product.getCategory());
+        if (movesShard(product, shard)) {
+            return move(product, shard, method.getName().endsWith("AndFlush"));
+        }
+        return onShard(shard, true, method, args);
+    }
+
+    /**
+     * Los productos que cambian de shard se mueven uno a uno; el resto se guarda agrupado
+     */
+    private Object saveAll(Method method, Object[] args) {
+        List<Object> staying = new ArrayList<>();
+        List<Product> moving = new ArrayList<>();
+        for (Object element : (Iterable<?>) args[0]) {
+            Product product = (Product) element;
+            if (movesShard(product, router.shardFor(product.getCategory()))) {
+                moving.add(product);
+            } else {
+                staying.add(product);
+            }
+        }
+        List<Object> written = new ArrayList<>();
+        if (!staying.isEmpty()) {
+            written.addAll((Collection<?>) writeGrouped(method, new Object[]{staying},
+                    product -> router.shardFor(((Product) product).getCategory())));
+        }
+        boolean flush = method.getName().endsWith("AndFlush");
+        for (Product product : moving) {
+            written.add(move(product, router.shardFor(product.getCategory()), flush));
+        }
+        return written;
+    }
+
+    private boolean movesShard(Product product, int shard) {
+        return product.getId() != null && router.homeShard(product.getId()) != shard;
+    }
+
+    /**
+     * Un producto que pasa a una categoría de otro shard no puede conservar su id, que indica
+     * su shard: se inserta una copia en el shard destino, con id nuevo y en su propia
+     * transacción, y se borra el original en el shard de origen, en la transacción del
+     * llamador. Si esa transacción no llega a confirmarse se borra la copia. Devuelve la copia;
+     * ProductService publica el cambio como baja del id antiguo y alta del nuevo
+     */
+    private Product move(Product product, int shard, boolean flush) {
+        int home = router.homeShard(product.getId());
+        Integer bound = ShardRouter.boundShard();
+        if (bound != null && bound != home) {
+            throw new IllegalStateException("La transacción ya usa el shard " + bound
+                    + "; no puede borrar en el shard " + home);
+        }
+        Product copy = new Product(product.getName(), product.getDescription(), product.getCategory(),
+                product.getPrice(), product.getStock(), product.getMinimumStock());
+        Product moved = await(executor.submit(() -> ShardRouter.callOn(shard, () -> readWrite.execute(status ->
+                flush ? target.saveAndFlush(copy) : target.save(copy)))));
+        try {
+            ShardRouter.callOn(home, () -> {
+                target.delete(product);
+                if (flush) {
+                    target.flush();
+                }
+                return null;
+            });
+        } catch (RuntimeException | Error e) {
+            discardMove(product.getId(), moved.getId(), shard);
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        discardMove(product.getId(), moved.getId(), shard);
+                    }
+                }
+            });
+        }
+        logger.info("Product {} moved to shard {} as {}", product.getId(), shard, moved.getId());
+        return moved;
+    }
+
+    private void discardMove(Long originalId, Long copyId, int shard) {
+        try {
+            await(executor.submit(() -> ShardRouter.callOn(shard, () -> readWrite.execute(status -> {
+                target.deleteById(copyId);
+                return null;
+            }))));
+        } catch (RuntimeException e) {
+            logger.error("Move of product {} was rolled back but its copy {} in shard {} could not be removed",
+                    originalId, copyId, shard, e);
+        }
+    }
+
+    private int homeShard(Object id) {
+        return id instanceof Number number ? router.homeShard(number.longValue()) : 0;
+    }
+
+    private Object scatterGather(Method method, Object[] args) {
+        Class<?> type = method.getReturnType();
+        if (Page.class.isAssignableFrom(type)) {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] instanceof Pageable) {
+                    return page(method, args, i);
+                }
+            }
+        }
+        if (Stream.class.isAssignableFrom(type)) {
+            return stream(method, args);
+        }
+        return merge(method, scatter(method, allShards, shard -> args), listOrder(method, args));
+    }
+
+    /**
+     * Cada shard devuelve sus filas hasta el final de la página pedida; la página global es
+     * el tramo correspondiente de su mezcla. El coste crece con el número de página
+     */
+    private Page<Object> page(Method method, Object[] args, int index) {
+        Pageable pageable = (Pageable) args[index];
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by(ProductSortField.ID.getPath());
+        Object[] prefix = args.clone();
+        long end = 0;
+        if (pageable.isPaged()) {
+            end = pageable.getOffset() + pageable.getPageSize();
+            if (end > Integer.MAX_VALUE) {
+                throw new InvalidPageRequestException("Página demasiado alta para una consulta entre shards");
+            }
+            prefix[index] = PageRequest.of(0, (int) end, sort);
+        }
+
+        long total = 0;
+        List<Object> rows = new ArrayList<>();
+        for (Object result : scatter(method, allShards, shard -> prefix)) {
+            Page<?> page = (Page<?>) result;
+            total += page.getTotalElements();
+            rows.addAll(page.getContent());
+        }
+        sort(rows, Function.identity(), sort);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(rows, pageable, total);
+        }
+        int from = (int) Math.min(pageable.getOffset(), rows.size());
+        return new PageImpl<>(new ArrayList<>(rows.subList(from, (int) Math.min(end, rows.size()))), pageable, total);
+    }
+
+    /**
+     * Las columnas de orden se piden aunque el cliente no las haya elegido, para poder
+     * mezclar las páginas, y se quitan después
+     */
+    @SuppressWarnings("unchecked")
+    private Page<Object> findFields(Method method, Object[] args) {
+        List<ProductField> fields = new ArrayList<>((List<ProductField>) args[1]);
+        Pageable pageable = (Pageable) args[2];
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by(ProductSortField.ID.getPath());
+        List<String> added = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String property = property(order.getProperty());
+            for (ProductField field : ProductField.values()) {
+                if (field.getProperty().equals(property) && !fields.contains(field)) {
+                    fields.add(field);
+                    added.add(property);
+                }
+            }
+        }
+        Page<Object> page = page(method, new Object[]{args[0], fields, pageable}, 2);
+        if (!added.isEmpty()) {
+            page.getContent().forEach(row -> ((Map<String, Object>) row).keySet().removeAll(added));
+        }
+        return page;
+    }
+
+    /**
+     * Los ids se agrupan por el shard que los generó y cada grupo va solo a ese shard
+     */
+    private Object byIds(Method method, Object[] args) {
+        Map<Integer, List<Object>> groups = new TreeMap<>();
+        for (Object id : (Iterable<?>) args[0]) {
+            groups.computeIfAbsent(homeShard(id), shard -> new ArrayList<>()).add(id);
+        }
+        if (groups.isEmpty()) {
+            return call(method, args);
+        }
+        int[] shards = groups.keySet().stream().mapToInt(Integer::intValue).toArray();
+        return merge(method, scatter(method, shards, shard -> new Object[]{groups.get(shard)}),
+                Sort.by(ProductSortField.ID.getPath()));
+    }
+
+    /**
+     * Un shard cada vez: los rangos de id crecen con el shard, así que un recorrido por id
+     * sigue ordenado. El shard de la transacción se lee en ella; los demás, en un hilo propio
+     * con su propia transacción de solo lectura, sin cargarlos enteros en memoria
+     */
+    @SuppressWarnings("unchecked")
+    private Stream<Object> stream(Method method, Object[] args) {
+        return IntStream.of(allShards).boxed().flatMap(shard -> {
+            Integer bound = ShardRouter.boundShard();
+            if (bound == null || bound.intValue() == shard) {
+                return (Stream<Object>) ShardRouter.callOn(shard, () -> call(method, args));
+            }
+            return streamOn(shard, method, args);
+        });
+    }
+
+    /**
+     * Las filas pasan por una cola acotada a medida que se consumen. El hilo es nuevo y no
+     * del pool de consultas, para que un export lento no lo ocupe; cerrar el stream cancela
+     * la lectura y cierra su transacción
+     */
+    private Stream<Object> streamOn(int shard, Method method, Object[] args) {
+        ShardFeed feed = new ShardFeed();
+        streamExecutor.execute(() -> {
+            try {
+                ShardRouter.callOn(shard, () -> readOnly.execute(status -> {
+                    try (Stream<?> rows = (Stream<?>) call(method, args)) {
+                        rows.forEach(feed::put);
+                    }
+                    return null;
+                }));
+                feed.finish(null);
+            } catch (RuntimeException | Error e) {
+                feed.finish(e);
+            }
+        });
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(feed,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(feed::close);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> categories(Method method, Object[] args) {
+        Set<String> names = new TreeSet<>(collator());
+        for (Object result : scatter(method, allShards, shard -> args)) {
+            names.addAll((List<String>) result);
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * findBy(spec, query -> ...): se registran el orden, el límite y la posición que pide la
+     * consulta para mezclar las ventanas de cada shard. Solo scroll por keyset: un desplazamiento
+     * no significa lo mismo en cada shard
+     */
+    @SuppressWarnings("unchecked")
+    private Object fluent(Method method, Object[] args) {
+        Function<Object, Object> query = (Function<Object, Object>) args[1];
+        FluentQueryRecorder[] recorders = new FluentQueryRecorder[router.shardCount()];
+        List<Object> results = scatter(method, allShards, shard -> {
+            recorders[shard] = new FluentQueryRecorder();
+            return new Object[]{args[0], recorders[shard].around(query)};
+        });
+        FluentQueryRecorder recorder = recorders[0];
+        Object sample = results.stream().filter(Objects::nonNull).findFirst().orElse(null);
+        if (sample instanceof Window<?>) {
+            if (recorder.position != null && !(recorder.position instanceof KeysetScrollPosition)) {
+                throw new UnsupportedOperationException("Entre shards solo se admite scroll por keyset");
+            }
+            return window(results, recorder);
+        }
+        if (sample instanceof Page<?>) {
+            throw new UnsupportedOperationException("findBy(...).page() no admite consultas entre shards");
+        }
+        return merge(method, results, recorder.sort.isSorted() ? recorder.sort : listOrder(method, args));
+    }
+
+    private Window<Object> window(List<Object> results, FluentQueryRecorder recorder) {
+        List<WindowEntry> entries = new ArrayList<>();
+        boolean hasNext = false;
+        for (Object result : results) {
+            Window<?> window = (Window<?>) result;
+            hasNext |= window.hasNext();
+            for (int i = 0; i < window.size(); i++) {
+                entries.add(new WindowEntry(window.getContent().get(i), window, i));
+            }
+        }
+        sort(entries, WindowEntry::row, recorder.sort);
+        if (recorder.limit > 0 && entries.size() > recorder.limit) {
+            entries = entries.subList(0, recorder.limit);
+            hasNext = true;
+        }
+        List<WindowEntry> kept = entries;
+        return Window.from(kept.stream().map(WindowEntry::row).toList(),
+                index -> kept.get(index).window().positionAt(kept.get(index).index()), hasNext);
+    }
+
+    private Object merge(Method method, List<Object> results, Sort order) {
+        Object sample = results.stream().filter(Objects::nonNull).findFirst().orElse(null);
+        if (sample == null) {
+            return null;
+        }
+        if (sample instanceof Collection<?>) {
+            List<Object> rows = new ArrayList<>();
+            for (Object result : results) {
+                if (result != null) {
+                    rows.addAll((Collection<?>) result);
+                }
+            }
+            sort(rows, Function.identity(), order);
+            return rows;
+        }
+        if (sample instanceof Optional<?>) {
+            return results.stream()
+                    .map(result -> (Optional<?>) result)
+                    .filter(Optional::isPresent)
+                    .findFirst()
+                    .orElse(Optional.empty());
+        }
+        if (sample instanceof Boolean) {
+            return results.contains(Boolean.TRUE);
+        }
+        if (sample instanceof Long || sample instanceof Integer) {
+            long sum = results.stream().filter(Objects::nonNull).mapToLong(result -> ((Number) result).longValue()).sum();
+            return sample instanceof Long ? (Object) sum : (Object) Math.toIntExact(sum);
+        }
+        if (sample instanceof ProductStatsDTO) {
+            return sumStatistics(results);
+        }
+        throw new UnsupportedOperationException(method.getName() + " no admite consultas entre shards");
+    }
+
+    /**
+     * Las categorías no se repiten entre shards, así que también se suman
+     */
+    private static ProductStatsDTO sumStatistics(List<Object> results) {
+        ProductStatsDTO total = new ProductStatsDTO();
+        for (Object result : results) {
+            ProductStatsDTO stats = (ProductStatsDTO) result;
+            total.setTotalProducts(total.getTotalProducts() + stats.getTotalProducts());
+            total.setLowStockProducts(total.getLowStockProducts() + stats.getLowStockProducts());
+            total.setOutOfStockProducts(total.getOutOfStockProducts() + stats.getOutOfStockProducts());
+            total.setTotalCategories(total.getTotalCategories() + stats.getTotalCategories());
+            total.setTotalUnits(total.getTotalUnits() + stats.getTotalUnits());
+            total.setInventoryValue(total.getInventoryValue().add(stats.getInventoryValue()));
+        }
+        return total;
+    }
+
+    /**
+     * Orden de las listas combinadas: el Sort recibido, el de la consulta o, si no tiene, el id
+     */
+    private static Sort listOrder(Method method, Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof Sort sort && sort.isSorted()) {
+                return sort;
+            }
+        }
+        return switch (method.getName()) {
+            case "findAllByOrderByStockAsc" -> Sort.by("stock", ProductSortField.ID.getPath());
+            case "getCategoryStatistics" -> Sort.by(Sort.Order.asc("category").ignoreCase());
+            default -> Sort.by(ProductSortField.ID.getPath());
+        };
+    }
+
+    /**
+     * Ordena con las claves leídas una sola vez por fila; nulos primero, como MySQL en ASC.
+     * Los textos se comparan como la colación de las tablas (utf8mb4_unicode_ci), sin
+     * distinguir mayúsculas ni acentos, para que la mezcla siga el orden de cada shard
+     */
+    static <T> void sort(List<T> items, Function<T, Object> rowOf, Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty() || items.size() < 2) {
+            return;
+        }
+        Collator collator = collator();
+        List<Object[]> keyed = new ArrayList<>(items.size());
+        for (T item : items) {
+            Object row = rowOf.apply(item);
+            BeanWrapper bean = row instanceof Map<?, ?> ? null : PropertyAccessorFactory.forBeanPropertyAccess(row);
+            Object[] keys = new Object[orders.size() + 1];
+            for (int i = 0; i < orders.size(); i++) {
+                keys[i] = valueOf(row, bean, orders.get(i), collator);
+            }
+            keys[orders.size()] = item;
+            keyed.add(keys);
+        }
+        keyed.sort((left, right) -> {
+            for (int i = 0; i < orders.size(); i++) {
+                int comparison = compareValues(left[i], right[i]);
+                if (comparison != 0) {
+                    return orders.get(i).isAscending() ? comparison : -comparison;
+                }
+            }
+            return 0;
+        });
+        for (int i = 0; i < items.size(); i++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) keyed.get(i)[orders.size()];
+            items.set(i, item);
+        }
+    }
+
+    private static Object valueOf(Object row, BeanWrapper bean, Sort.Order order, Collator collator) {
+        String property = property(order.getProperty());
+        Object value;
+        if (row instanceof Map<?, ?> map) {
+            value = map.get(property);
+        } else {
+            value = bean.isReadableProperty(property) ? bean.getPropertyValue(property) : null;
+        }
+        return value instanceof String text ? collator.getCollationKey(text) : value;
+    }
+
+    /**
+     * Collator no es seguro entre hilos: uno nuevo por mezcla
+     */
+    private static Collator collator() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+
+    /**
+     * Los listados ordenan la categoría por el nombre del join; en entidades y DTOs es "category"
+     */
+    private static String property(String path) {
+        return ProductSortField.CATEGORY.getPath().equals(path) ? ProductSortField.CATEGORY.getProperty() : path;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == right ? 0 : left == null ? -1 : 1;
+        }
+        return ((Comparable) left).compareTo(right);
+    }
+
+    private Object writeGrouped(Method method, Object[] args, ToIntFunction<Object> shardOf) {
+        Map<Integer, List<Object>> groups = new TreeMap<>();
+        for (Object element : (Iterable<?>) args[0]) {
+            groups.computeIfAbsent(shardOf.applyAsInt(element), shard -> new ArrayList<>()).add(element);
+        }
+        List<Object> written = new ArrayList<>();
+        for (Map.Entry<Integer, List<Object>> group : groups.entrySet()) {
+            Object result = onShard(group.getKey(), true, method, new Object[]{group.getValue()});
+            if (result instanceof Collection<?> rows) {
+                written.addAll(rows);
+            }
+        }
+        return method.getReturnType() == void.class ? null : written;
+    }
+
+    private Object writeEveryShard(Method method) {
+        for (int shard : allShards) {
+            onShard(shard, true, method, new Object[0]);
+        }
+        return null;
+    }
+
+    /**
+     * En la transacción del llamador si todavía no tiene shard o ya es este; si no, una
+     * lectura va en la suya propia en otro hilo y una escritura se rechaza
+     */
+    private Object onShard(int shard, boolean write, Method method, Object[] args) {
+        Integer bound = ShardRouter.boundShard();
+        if (bound == null || bound == shard) {
+            return ShardRouter.callOn(shard, () -> call(method, args));
+        }
+        if (write) {
+            throw new IllegalStateException("La transacción ya usa el shard " + bound
+                    + "; no puede escribir en el shard " + shard);
+        }
+        return await(executor.submit(() -> readOnlyOn(shard, method, args)));
+    }
+
+    /**
+     * Ejecuta la consulta en paralelo en los shards indicados; el shard de la transacción
+     * actual, si hay, se lee en ella. Resultados en el mismo orden que los shards
+     */
+    private List<Object> scatter(Method method, int[] shards, IntFunction<Object[]> argumentsFor) {
+        Integer bound = ShardRouter.boundShard();
+        List<Future<Object>> futures = new ArrayList<>(shards.length);
+        Object[][] arguments = new Object[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            int shard = shards[i];
+            Object[] shardArguments = argumentsFor.apply(shard);
+            arguments[i] = shardArguments;
+            futures.add(bound != null && bound == shard
+                    ? null
+                    : executor.submit(() -> readOnlyOn(shard, method, shardArguments)));
+        }
+        List<Object> results = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Future<Object> future = futures.get(i);
+            Object[] shardArguments = arguments[i];
+            results.add(future != null
+                    ? await(future)
+                    : ShardRouter.callOn(shards[i], () -> call(method, shardArguments)));
+        }
+        return results;
+    }
+
+    private Object readOnlyOn(int shard, Method method, Object[] args) {
+        return ShardRouter.callOn(shard, () -> readOnly.execute(status -> call(method, args)));
+    }
+
+    private Object call(Method method, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw propagate(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta entre shards interrumpida", e);
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new UndeclaredThrowableException(cause);
+    }
+
+    /**
+     * Cola entre el hilo que lee un shard y el que consume su stream
+     */
+    private static final class ShardFeed implements Iterator<Object> {
+
+        private static final int CAPACITY = 256;
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(CAPACITY);
+        private volatile boolean closed;
+        private Object next;
+
+        void put(Object row) {
+            try {
+                while (!closed) {
+                    if (queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CancellationException("Stream del shard cerrado");
+        }
+
+        void finish(Throwable failure) {
+            try {
+                put(failure != null ? new Failure(failure) : END);
+            } catch (CancellationException e) {
+                // Nadie lo va a leer
+            }
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Consulta entre shards interrumpida", e);
+                }
+                if (next instanceof Failure failure) {
+                    next = END;
+                    throw propagate(failure.cause());
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object row = next;
+            next = null;
+            return row;
+        }
+
+        private record Failure(Throwable cause) {
+        }
+    }
+
+    private record WindowEntry(Object row, Window<?> window, int index) {
+    }
+
+    /**
+     * Envuelve la consulta fluida de un shard y guarda lo que la función le pide
+     */
+    private static final class FluentQueryRecorder {
+
+        private volatile Sort sort = Sort.unsorted();
+        private volatile int limit = -1;
+        private volatile ScrollPosition position;
+
+        Function<Object, Object> around(Function<Object, Object> query) {
+            return fluent -> query.apply(record(fluent));
+        }
+
+        private Object record(Object fluent) {
+            return Proxy.newProxyInstance(fluent.getClass().getClassLoader(), ClassUtils.getAllInterfaces(fluent),
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "sortBy" -> sort = sort.and((Sort) args[0]);
+                            case "limit" -> limit = (Integer) args[0];
+                            case "scroll" -> position = (ScrollPosition) args[0];
+                            default -> { }
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(fluent, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        return result instanceof FluentQuery<?> && method.getReturnType().isInterface()
+                                ? record(result)
+                                : result;
+                    });
+        }
+    }
+}
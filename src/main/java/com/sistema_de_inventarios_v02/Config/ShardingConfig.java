@@ -0,0 +1,172 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catálogo repartido por categoría entre varias bases (inventory.sharding.urls): un pool por
+ * shard, el esquema y el rango de ids de cada uno, y ShardedProductRepository en lugar del
+ * ProductRepository de Spring Data. Las tablas ajenas al catálogo (usuarios) usan el shard 0;
+ * la auditoría y REVINFO se consultan en el shard de cada producto o en todos (ShardQueries).
+ * Solo se activa con inventory.sharding.enabled=true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "inventory.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Bean
+    public ShardRouter shardRouter(DataSourceProperties properties,
+                                   Environment environment,
+                                   @Value("${inventory.sharding.urls}") List<String> urls,
+                                   @Value("${inventory.sharding.username:}") String username,
+                                   @Value("${inventory.sharding.password:}") String password,
+                                   @Value("${inventory.sharding.pool-size:10}") int poolSize,
+                                   @Value("${spring.flyway.enabled:true}") boolean flywayEnabled) {
+        if (environment.containsProperty("inventory.datasource.replica.url")) {
+            throw new IllegalStateException("inventory.sharding y inventory.datasource.replica no se pueden combinar");
+        }
+        List<DataSource> shards = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource shard = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(password.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setMaximumPoolSize(poolSize);
+            if (flywayEnabled) {
+                migrate(shard, environment);
+            }
+            shards.add(shard);
+        }
+        logger.info("Catalog sharded by category across {} datasources", shards.size());
+        return new ShardRouter(shards);
+    }
+
+    /**
+     * DataSource de la aplicación (JPA, JdbcTemplate, Flyway): el shard que fija
+     * ShardRouter.callOn o, si no hay ninguno, el 0
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRouter shardRouter) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(shardRouter.dataSources());
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public ShardQueries shardQueries(ShardRouter shardRouter,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${inventory.sharding.query-threads:16}") int threads) {
+        return new ShardQueries(shardRouter, transactionManager,
+                ShardedProductRepository.newExecutor(threads, "shard-history-"));
+    }
+
+    @Bean
+    public static BeanPostProcessor shardedProductRepositoryPostProcessor(
+            ObjectProvider<ShardRouter> shardRouter,
+            ObjectProvider<PlatformTransactionManager> transactionManager,
+            @Value("${inventory.sharding.query-threads:16}") int threads) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ProductRepository repository && !(Proxy.isProxyClass(bean.getClass())
+                        && Proxy.getInvocationHandler(bean) instanceof ShardedProductRepository)) {
+                    return ShardedProductRepository.wrap(repository, shardRouter.getObject(),
+                            transactionManager.getObject(), threads);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Tras crear el EntityManagerFactory: sin Flyway, Hibernate solo ha creado el esquema en
+     * el shard 0 y se exporta al resto; después cada shard empieza a generar ids en su rango
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchemaAndIdRanges(ShardRouter shardRouter,
+                                                             EntityManagerFactory entityManagerFactory,
+                                                             @Value("${spring.flyway.enabled:true}") boolean flywayEnabled,
+                                                             @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        return () -> {
+            if (!flywayEnabled && ddlAuto.startsWith("create")) {
+                for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+                    ShardRouter.callOn(shard, () -> {
+                        entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true);
+                        return null;
+                    });
+                }
+            }
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                reserveIdRange(new JdbcTemplate(shardRouter.dataSources().get(shard)), shard);
+            }
+        };
+    }
+
+    private static void migrate(DataSource shard, Environment environment) {
+        Flyway.configure()
+                .dataSource(shard)
+                .locations(environment.getProperty("spring.flyway.locations", String[].class,
+                        new String[]{"classpath:db/migration"}))
+                .baselineOnMigrate(environment.getProperty("spring.flyway.baseline-on-migrate", Boolean.class, false))
+                .encoding(environment.getProperty("spring.flyway.encoding", "UTF-8"))
+                .load()
+                .migrate();
+    }
+
+    /**
+     * Lleva los AUTO_INCREMENT de products y categories al inicio del rango del shard si
+     * todavía no han llegado, y se niega a arrancar si un shard ya invade el rango del siguiente
+     */
+    public static void reserveIdRange(JdbcTemplate shard, int index) {
+        String product = shard.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        boolean h2 = "H2".equalsIgnoreCase(product);
+        restartIdentity(shard, h2, "products", ShardRouter.firstProductId(index), ShardRouter.firstProductId(index + 1));
+        restartIdentity(shard, h2, "categories", ShardRouter.firstCategoryId(index), ShardRouter.firstCategoryId(index + 1));
+    }
+
+    private static void restartIdentity(JdbcTemplate shard, boolean h2, String table, long first, long next) {
+        Long max = shard.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long current = max != null ? max : 0L;
+        if (current >= next - 1) {
+            throw new IllegalStateException("La tabla " + table + " de este shard ya usa ids del shard siguiente: " + current);
+        }
+        if (current < first) {
+            shard.execute(h2
+                    ? "ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + first
+                    : "ALTER TABLE " + table + " AUTO_INCREMENT = " + first);
+        }
+    }
+}
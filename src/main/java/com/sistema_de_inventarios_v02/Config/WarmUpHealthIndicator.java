@@ -0,0 +1,35 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import com.sistema_de_inventarios_v02.service.CatalogWarmUp;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indicador "warmUp" del grupo readiness: OUT_OF_SERVICE hasta que CatalogWarmUp termina,
+ * para que el balanceador no envíe tráfico a un nodo todavía frío
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final CatalogWarmUp warmUp;
+
+    public WarmUpHealthIndicator(CatalogWarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warmUp.getPhase() == CatalogWarmUp.Phase.DONE ? Health.up() : Health.outOfService();
+        builder.withDetail("phase", warmUp.getPhase())
+                .withDetail("requests", warmUp.getCompletedRequests());
+        if (warmUp.getPhase() == CatalogWarmUp.Phase.DONE && !Double.isNaN(warmUp.getDurationSeconds())) {
+            builder.withDetail("durationSeconds", warmUp.getDurationSeconds());
+            if (!Double.isNaN(warmUp.getColdP99Millis())) {
+                builder.withDetail("coldP99Millis", warmUp.getColdP99Millis())
+                        .withDetail("warmP99Millis", warmUp.getWarmP99Millis());
+            }
+        }
+        return builder.build();
+    }
+}
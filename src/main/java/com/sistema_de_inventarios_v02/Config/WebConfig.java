@@ -0,0 +1,50 @@
+package com.sistema_de_inventarios_v02.Config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+    private final CachedJsonInterceptor cachedJsonInterceptor;
+    private final ObjectProvider<ConsistencyTokenInterceptor> consistencyTokenInterceptor;
+
+    @Autowired
+    public WebConfig(ConditionalGetInterceptor conditionalGetInterceptor,
+                     CachedJsonInterceptor cachedJsonInterceptor,
+                     ObjectProvider<ConsistencyTokenInterceptor> consistencyTokenInterceptor) {
+        this.conditionalGetInterceptor = conditionalGetInterceptor;
+        this.cachedJsonInterceptor = cachedJsonInterceptor;
+        this.consistencyTokenInterceptor = consistencyTokenInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Solo con réplica configurada (ReadReplicaDataSourceConfig); decide el origen antes de cualquier lectura
+        consistencyTokenInterceptor.ifAvailable(interceptor ->
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**"));
+        // Primero el 304, que ni siquiera necesita el cuerpo en caché
+        registry.addInterceptor(conditionalGetInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(cachedJsonInterceptor).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Formatos binarios (application/cbor, application/x-protobuf) al final de la lista:
+     * solo se eligen si el cliente los pide, JSON sigue siendo el predeterminado
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        if (converters.stream().noneMatch(MappingJackson2CborHttpMessageConverter.class::isInstance)) {
+            converters.add(new MappingJackson2CborHttpMessageConverter());
+        }
+        converters.add(new InventoryProtobufHttpMessageConverter());
+    }
+}
@@ -1,5 +1,6 @@
 package com.sistema_de_inventarios_v02.Controllers;
 
+import com.sistema_de_inventarios_v02.service.AuditField;
 import com.sistema_de_inventarios_v02.service.AuditService;
 import com.sistema_de_inventarios_v02.dto.AuditRecordDTO;
 import com.sistema_de_inventarios_v02.dto.ChangeDetailsDTO;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/auditoria")
@@ -92,6 +94,30 @@ public class AuditController {
         }
     }
 
+    /**
+     * Variante de /products con ?fields=revision,productName,...: solo se consultan y
+     * devuelven esas columnas. Un campo fuera de la lista permitida responde 400
+     */
+    @GetMapping(value = "/products", params = "fields")
+    public ResponseEntity<Page<Map<String, Object>>> getProductAuditFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String productName,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) Integer revType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTo) {
+
+        if (page < 0) page = 0;
+        if (size <= 0 || size > 100) size = 10;
+
+        Page<Map<String, Object>> auditRecords = auditService.getProductAuditFields(
+                PageRequest.of(page, size), AuditField.parse(fields),
+                productName, username, revType, dateFrom, dateTo);
+        return ResponseEntity.ok(auditRecords);
+    }
+
     /**
      * Obtiene detalles específicos de cambios para una revisión
      */
@@ -1,26 +1,42 @@
 package com.sistema_de_inventarios_v02.Controllers;
 
+import com.sistema_de_inventarios_v02.Config.CachedJson;
+import com.sistema_de_inventarios_v02.Config.ConditionalGet;
 import com.sistema_de_inventarios_v02.dto.CreateProductDTO;
+import com.sistema_de_inventarios_v02.dto.CursorPageDTO;
 import com.sistema_de_inventarios_v02.dto.UpdateProductDTO;
+import com.sistema_de_inventarios_v02.dto.ProductFacetsDTO;
 import com.sistema_de_inventarios_v02.dto.ProductResponseDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSearchHitDTO;
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSuggestionDTO;
 import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
 import com.sistema_de_inventarios_v02.dto.StockUpdateDTO;
 import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductField;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import com.sistema_de_inventarios_v02.service.ProductExportService;
+import com.sistema_de_inventarios_v02.service.ProductFacetService;
 import com.sistema_de_inventarios_v02.service.ProductHistoryService;
+import com.sistema_de_inventarios_v02.service.ProductResponseCache;
 import com.sistema_de_inventarios_v02.service.ProductService;
+import com.sistema_de_inventarios_v02.service.ProductSuggestionIndex;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMin;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -32,11 +48,16 @@ public class ProductController {
 
     private final ProductService productService;
     private final ProductHistoryService productHistoryService;
+    private final ProductExportService productExportService;
+    private final ProductFacetService productFacetService;
 
     @Autowired
-    public ProductController(ProductService productService, ProductHistoryService productHistoryService) {
+    public ProductController(ProductService productService, ProductHistoryService productHistoryService,
+                             ProductExportService productExportService, ProductFacetService productFacetService) {
         this.productService = productService;
         this.productHistoryService = productHistoryService;
+        this.productExportService = productExportService;
+        this.productFacetService = productFacetService;
     }
 
     @PostMapping
@@ -46,6 +67,7 @@ public class ProductController {
         return new ResponseEntity<>(createdProduct, HttpStatus.CREATED);
     }
 
+    @ConditionalGet
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductSummaryDTO>> getAllProducts() {
@@ -53,6 +75,38 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Lote de productos por id (?ids=1,2,3) en una sola consulta
+     */
+    @ConditionalGet
+    @GetMapping(params = "ids")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<List<ProductResponseDTO>> getProductsByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @ConditionalGet
+    @GetMapping(produces = ProductExportService.NDJSON)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<StreamingResponseBody> exportProductsNdjson() {
+        StreamingResponseBody body = productExportService::writeNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ProductExportService.NDJSON))
+                .body(body);
+    }
+
+    @ConditionalGet
+    @GetMapping(produces = ProductExportService.CSV)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<StreamingResponseBody> exportProductsCsv() {
+        StreamingResponseBody body = productExportService::writeCsv;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ProductExportService.CSV + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"")
+                .body(body);
+    }
+
+    @ConditionalGet
     @GetMapping("/paginated")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<Page<ProductSummaryDTO>> getProductsPaginated(
@@ -69,14 +123,14 @@ public class ProductController {
         }
 
         Pageable pageable = PageRequest.of(page, size,
-                sortDir.equalsIgnoreCase("desc") ?
-                        Sort.by(sortBy).descending() :
-                        Sort.by(sortBy).ascending());
+                ProductSortField.fromProperty(sortBy).toSort(ProductSortField.parseDirection(sortDir)));
 
         Page<ProductSummaryDTO> products = productService.getAllProductsPaginated(pageable);
         return ResponseEntity.ok(products);
     }
 
+    @ConditionalGet(ConditionalGet.Scope.PRODUCT)
+    @CachedJson(ProductResponseCache.Region.PRODUCT)
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<ProductResponseDTO> getProductById(@PathVariable Long id) {
@@ -84,6 +138,10 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    /**
+     * Si la nueva categoría se guarda en otro shard el producto se mueve allí y la respuesta
+     * lleva su id nuevo; el id anterior deja de existir
+     */
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
     public ResponseEntity<ProductResponseDTO> updateProduct(@PathVariable Long id,
@@ -106,16 +164,54 @@ public class ProductController {
     @GetMapping("/search")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductSummaryDTO>> searchProductsByName(
-            @RequestParam String name) {
+            @RequestParam String name,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(defaultValue = "20") int limit) {
 
         if (name == null || name.trim().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
 
+        if (fuzzy) {
+            if (limit <= 0 || limit > 100) limit = 20;
+            return ResponseEntity.ok(productService.searchProductsByNameFuzzy(name.trim(), limit));
+        }
+
         List<ProductSummaryDTO> products = productService.searchProductsByName(name.trim());
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/search/text")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<Page<ProductSearchHitDTO>> searchProductsFullText(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        if (q == null || q.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (page < 0) page = 0;
+        if (size <= 0 || size > 100) size = 10;
+
+        Page<ProductSearchHitDTO> results = productService.searchProductsFullText(q.trim(), PageRequest.of(page, size));
+        return ResponseEntity.ok(results);
+    }
+
+    @GetMapping("/suggest")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+
+        if (limit <= 0 || limit > ProductSuggestionIndex.MAX_SUGGESTIONS) limit = ProductSuggestionIndex.MAX_SUGGESTIONS;
+
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
+    }
+
+    @ConditionalGet
+    @CachedJson(ProductResponseCache.Region.CATEGORY)
     @GetMapping("/category/{category}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductSummaryDTO>> getProductsByCategory(@PathVariable String category) {
@@ -123,6 +219,8 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @ConditionalGet
+    @CachedJson(ProductResponseCache.Region.LOW_STOCK)
     @GetMapping("/low-stock")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductResponseDTO>> getProductsWithLowStock() {
@@ -130,6 +228,8 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @ConditionalGet
+    @CachedJson(ProductResponseCache.Region.OUT_OF_STOCK)
     @GetMapping("/out-of-stock")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductResponseDTO>> getProductsOutOfStock() {
@@ -152,6 +252,32 @@ public class ProductController {
         return ResponseEntity.ok(categories);
     }
 
+    /**
+     * Conteos por categoría, histograma de precios y conteos por estado de stock
+     * para los filtros actuales, en una sola petición
+     */
+    @GetMapping("/facets")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<ProductFacetsDTO> getProductFacets(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false)
+            @DecimalMin(value = "0.0", message = "El precio mínimo debe ser mayor o igual a cero")
+            BigDecimal minPrice,
+            @RequestParam(required = false)
+            @DecimalMin(value = "0.0", message = "El precio máximo debe ser mayor o igual a cero")
+            BigDecimal maxPrice) {
+
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            return ResponseEntity.badRequest()
+                    .header("Error-Message", "El precio mínimo no puede ser mayor que el precio máximo")
+                    .build();
+        }
+
+        return ResponseEntity.ok(productFacetService.getFacets(category, name, minPrice, maxPrice));
+    }
+
+    @ConditionalGet
     @GetMapping("/price-range")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductSummaryDTO>> getProductsByPriceRange(
@@ -179,6 +305,7 @@ public class ProductController {
         return ResponseEntity.ok(stats);
     }
 
+    @ConditionalGet
     @GetMapping("/filters")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<Page<ProductSummaryDTO>> getProductsWithFilters(
@@ -193,24 +320,69 @@ public class ProductController {
         if (size <= 0 || size > 100) size = 10;
 
         Pageable pageable = PageRequest.of(page, size,
-                sortDir.equalsIgnoreCase("desc") ?
-                        Sort.by(sortBy).descending() :
-                        Sort.by(sortBy).ascending());
+                ProductSortField.fromProperty(sortBy).toSort(ProductSortField.parseDirection(sortDir)));
 
         Page<ProductSummaryDTO> products = productService.getProductsWithFilters(category, name, pageable);
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Variante de /paginated y /filters con ?fields=id,name,stock: solo se seleccionan
+     * y serializan los campos pedidos
+     */
+    @ConditionalGet
+    @GetMapping(value = {"/paginated", "/filters"}, params = "fields")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<Page<Map<String, Object>>> getProductFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name) {
+
+        if (page < 0) page = 0;
+        if (size <= 0 || size > 100) size = 10;
+
+        Pageable pageable = PageRequest.of(page, size,
+                ProductSortField.fromProperty(sortBy).toSort(ProductSortField.parseDirection(sortDir)));
+
+        return ResponseEntity.ok(productService.getProductFieldsWithFilters(
+                category, name, ProductField.parse(fields), pageable));
+    }
+
+    @ConditionalGet
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<CursorPageDTO<ProductSummaryDTO>> getProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        if (size <= 0 || size > 100) size = 10;
+
+        CursorPageDTO<ProductSummaryDTO> products = productService.getProductsByCursor(
+                category, name,
+                ProductSortField.forKeyset(sortBy), ProductSortField.parseDirection(sortDir),
+                cursor, size, includeTotal);
+        return ResponseEntity.ok(products);
+    }
+
     @GetMapping("/count")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<Map<String, Long>> getProductCounts() {
-        Map<String, Object> stats = productService.getProductStats();
+        ProductStatsDTO stats = productService.getProductStatistics();
 
         Map<String, Long> counts = Map.of(
-                "total", ((Integer) stats.get("totalProducts")).longValue(),
-                "lowStock", ((Integer) stats.get("lowStockProducts")).longValue(),
-                "outOfStock", ((Integer) stats.get("outOfStockProducts")).longValue(),
-                "inStock", ((Integer) stats.get("inStockProducts")).longValue()
+                "total", stats.getTotalProducts(),
+                "lowStock", stats.getLowStockProducts(),
+                "outOfStock", stats.getOutOfStockProducts(),
+                "inStock", stats.getInStockProducts()
         );
 
         return ResponseEntity.ok(counts);
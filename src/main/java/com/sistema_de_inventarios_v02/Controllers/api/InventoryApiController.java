@@ -1,7 +1,14 @@
 package com.sistema_de_inventarios_v02.Controllers.api;
 
+import com.sistema_de_inventarios_v02.Config.CachedJson;
+import com.sistema_de_inventarios_v02.Config.ConditionalGet;
 import com.sistema_de_inventarios_v02.dto.*;
 import com.sistema_de_inventarios_v02.dto.api.StockMovementDTO;
+import com.sistema_de_inventarios_v02.repository.ProductField;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import com.sistema_de_inventarios_v02.service.ProductExportService;
+import com.sistema_de_inventarios_v02.service.ProductProtobufCodec;
+import com.sistema_de_inventarios_v02.service.ProductResponseCache;
 import com.sistema_de_inventarios_v02.service.ProductService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -10,11 +17,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,6 +39,9 @@ public class InventoryApiController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductExportService productExportService;
+
     @PostMapping("/products")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
     public ResponseEntity<?> createProduct(@Valid @RequestBody CreateProductDTO createProductDTO) {
@@ -44,6 +56,7 @@ public class InventoryApiController {
         }
     }
 
+    @ConditionalGet
     @GetMapping("/products")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductSummaryDTO>> getAllProducts() {
@@ -52,6 +65,53 @@ public class InventoryApiController {
         return ResponseEntity.ok(products);
     }
 
+    @ConditionalGet
+    @GetMapping(value = "/products", params = "ids")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<List<ProductResponseDTO>> getProductsByIds(@RequestParam List<Long> ids) {
+        logger.info("Getting {} products by id via API", ids.size());
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @ConditionalGet
+    @GetMapping(value = "/products", produces = ProductExportService.NDJSON)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<StreamingResponseBody> exportProductsNdjson() {
+        logger.info("Streaming all products as NDJSON via API");
+        StreamingResponseBody body = productExportService::writeNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ProductExportService.NDJSON))
+                .body(body);
+    }
+
+    /**
+     * Catálogo completo como protobuf delimitado (?delimited=true); sin el parámetro,
+     * Accept: application/x-protobuf devuelve un único ProductSummaryList
+     */
+    @ConditionalGet
+    @GetMapping(value = "/products", params = "delimited=true", produces = ProductProtobufCodec.PROTOBUF)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<StreamingResponseBody> exportProductsDelimitedProtobuf() {
+        logger.info("Streaming all products as delimited protobuf via API");
+        StreamingResponseBody body = productExportService::writeDelimitedProtobuf;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ProductProtobufCodec.PROTOBUF + ";delimited=true"))
+                .body(body);
+    }
+
+    @ConditionalGet
+    @GetMapping(value = "/products", produces = ProductExportService.CSV)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<StreamingResponseBody> exportProductsCsv() {
+        logger.info("Streaming all products as CSV via API");
+        StreamingResponseBody body = productExportService::writeCsv;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ProductExportService.CSV + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"")
+                .body(body);
+    }
+
+    @ConditionalGet
     @GetMapping("/products/paginated")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<Page<ProductSummaryDTO>> getProductsPaginated(
@@ -64,14 +124,59 @@ public class InventoryApiController {
         if (size <= 0 || size > 100) size = 10;
 
         Pageable pageable = PageRequest.of(page, size,
-                sortDir.equalsIgnoreCase("desc") ?
-                        Sort.by(sortBy).descending() :
-                        Sort.by(sortBy).ascending());
+                ProductSortField.fromProperty(sortBy).toSort(ProductSortField.parseDirection(sortDir)));
 
         Page<ProductSummaryDTO> products = productService.getAllProductsPaginated(pageable);
         return ResponseEntity.ok(products);
     }
 
+    @ConditionalGet
+    @GetMapping(value = "/products/paginated", params = "fields")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<Page<Map<String, Object>>> getProductFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name) {
+
+        if (page < 0) page = 0;
+        if (size <= 0 || size > 100) size = 10;
+
+        Pageable pageable = PageRequest.of(page, size,
+                ProductSortField.fromProperty(sortBy).toSort(ProductSortField.parseDirection(sortDir)));
+
+        logger.info("Getting product fields {} via API", fields);
+        return ResponseEntity.ok(productService.getProductFieldsWithFilters(
+                category, name, ProductField.parse(fields), pageable));
+    }
+
+    @ConditionalGet
+    @GetMapping("/products/cursor")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<CursorPageDTO<ProductSummaryDTO>> getProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        if (size <= 0 || size > 100) size = 10;
+
+        logger.info("Getting products by cursor via API");
+        CursorPageDTO<ProductSummaryDTO> products = productService.getProductsByCursor(
+                category, name,
+                ProductSortField.forKeyset(sortBy), ProductSortField.parseDirection(sortDir),
+                cursor, size, includeTotal);
+        return ResponseEntity.ok(products);
+    }
+
+    @ConditionalGet(ConditionalGet.Scope.PRODUCT)
+    @CachedJson(ProductResponseCache.Region.PRODUCT)
     @GetMapping("/products/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<?> getProductById(@PathVariable Long id) {
@@ -85,6 +190,10 @@ public class InventoryApiController {
         }
     }
 
+    /**
+     * Un cambio a una categoría de otro shard mueve el producto: la respuesta trae el id con
+     * el que queda y el de la ruta ya no se encuentra
+     */
     @PutMapping("/products/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
     public ResponseEntity<?> updateProduct(@PathVariable Long id,
@@ -170,6 +279,8 @@ public class InventoryApiController {
         }
     }
 
+    @ConditionalGet
+    @CachedJson(ProductResponseCache.Region.LOW_STOCK)
     @GetMapping("/products/low-stock")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductResponseDTO>> getProductsWithLowStock() {
@@ -178,6 +289,8 @@ public class InventoryApiController {
         return ResponseEntity.ok(products);
     }
 
+    @ConditionalGet
+    @CachedJson(ProductResponseCache.Region.OUT_OF_STOCK)
     @GetMapping("/products/out-of-stock")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductResponseDTO>> getProductsOutOfStock() {
@@ -188,17 +301,41 @@ public class InventoryApiController {
 
     @GetMapping("/products/search")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
-    public ResponseEntity<?> searchProductsByName(@RequestParam String name) {
+    public ResponseEntity<?> searchProductsByName(@RequestParam String name,
+                                                  @RequestParam(defaultValue = "false") boolean fuzzy,
+                                                  @RequestParam(defaultValue = "20") int limit) {
         if (name == null || name.trim().isEmpty()) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "INVALID_SEARCH", "message", "Nombre de búsqueda requerido"));
         }
 
-        logger.info("Searching products by name: {} via API", name);
+        logger.info("Searching products by name: {} (fuzzy={}) via API", name, fuzzy);
+        if (fuzzy) {
+            if (limit <= 0 || limit > 100) limit = 20;
+            return ResponseEntity.ok(productService.searchProductsByNameFuzzy(name.trim(), limit));
+        }
         List<ProductSummaryDTO> products = productService.searchProductsByName(name.trim());
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/products/search/text")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<?> searchProductsFullText(@RequestParam String q,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam(defaultValue = "10") int size) {
+        if (q == null || q.trim().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "INVALID_SEARCH", "message", "Texto de búsqueda requerido"));
+        }
+
+        if (page < 0) page = 0;
+        if (size <= 0 || size > 100) size = 10;
+
+        logger.info("Full-text product search: {} via API", q);
+        Page<ProductSearchHitDTO> results = productService.searchProductsFullText(q.trim(), PageRequest.of(page, size));
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping("/products/category/{category}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<List<ProductSummaryDTO>> getProductsByCategory(@PathVariable String category) {
@@ -250,25 +387,33 @@ public class InventoryApiController {
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/statistics/categories")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
+    public ResponseEntity<List<CategoryStatsDTO>> getCategoryStatistics() {
+        logger.info("Getting inventory statistics by category via API");
+        List<CategoryStatsDTO> stats = productService.getCategoryStatistics();
+        return ResponseEntity.ok(stats);
+    }
+
     @GetMapping("/dashboard")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER') or hasRole('VISITOR')")
     public ResponseEntity<Map<String, Object>> getDashboardData() {
         logger.info("Getting dashboard data via API");
 
-        Map<String, Object> stats = productService.getProductStats();
+        ProductStatsDTO stats = productService.getProductStatistics();
         List<ProductResponseDTO> lowStock = productService.getProductsWithLowStock();
         List<ProductResponseDTO> outOfStock = productService.getProductsOutOfStock();
         List<String> categories = productService.getAllCategories();
 
         Map<String, Object> dashboard = Map.of(
-                "statistics", stats,
+                "statistics", stats.toMap(),
                 "lowStockProducts", lowStock,
                 "outOfStockProducts", outOfStock,
                 "categories", categories,
                 "alerts", Map.of(
-                        "lowStockCount", lowStock.size(),
-                        "outOfStockCount", outOfStock.size(),
-                        "criticalAlerts", lowStock.size() + outOfStock.size()
+                        "lowStockCount", stats.getLowStockProducts(),
+                        "outOfStockCount", stats.getOutOfStockProducts(),
+                        "criticalAlerts", stats.getLowStockProducts() + stats.getOutOfStockProducts()
                 ),
                 "timestamp", LocalDateTime.now()
         );
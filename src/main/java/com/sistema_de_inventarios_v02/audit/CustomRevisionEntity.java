@@ -27,6 +27,10 @@ public class CustomRevisionEntity {
     @Column(name = "user_id")
     private Long userId;
 
+    // Nodo que hizo la escritura (NodeIdentity)
+    @Column(name = "node", length = 64)
+    private String node;
+
     // Default constructor
     public CustomRevisionEntity() {
     }
@@ -72,6 +76,14 @@ public class CustomRevisionEntity {
         this.userId = userId;
     }
 
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -92,6 +104,7 @@ public class CustomRevisionEntity {
                 ", timestamp=" + timestamp +
                 ", username='" + username + '\'' +
                 ", userId=" + userId +
+                ", node='" + node + '\'' +
                 '}';
     }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ public class CustomRevisionListener implements RevisionListener {
     @Override
     public void newRevision(Object revisionEntity) {
         CustomRevisionEntity revision = (CustomRevisionEntity) revisionEntity;
+        revision.setNode(NodeIdentity.get());
 
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -0,0 +1,36 @@
+package com.sistema_de_inventarios_v02.audit;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Identificador de este nodo de la aplicación. Se guarda en cada revisión de REVINFO para
+ * que cada nodo distinga sus propias escrituras de las de los demás.
+ * Se puede fijar con la variable de entorno INVENTORY_NODE_ID; por defecto es host:pid.
+ */
+public final class NodeIdentity {
+
+    private static final String ID = resolve();
+
+    private NodeIdentity() {
+    }
+
+    public static String get() {
+        return ID;
+    }
+
+    private static String resolve() {
+        String configured = System.getenv("INVENTORY_NODE_ID");
+        if (configured != null && !configured.isBlank()) {
+            return configured.trim();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        String id = host + ":" + ProcessHandle.current().pid();
+        return id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+}
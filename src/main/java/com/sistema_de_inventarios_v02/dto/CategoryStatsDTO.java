@@ -0,0 +1,52 @@
+package com.sistema_de_inventarios_v02.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO para los contadores de inventario de una categoría
+ */
+public class CategoryStatsDTO {
+    private String category;
+    private long totalProducts;
+    private long lowStockProducts;
+    private long outOfStockProducts;
+    private long totalUnits;
+    private BigDecimal inventoryValue;
+
+    // Constructores
+    public CategoryStatsDTO() {}
+
+    /**
+     * Usado por la expresión constructora de JPQL; SUM devuelve null sobre grupos vacíos
+     */
+    public CategoryStatsDTO(String category, Long totalProducts, Long lowStockProducts,
+                            Long outOfStockProducts, Long totalUnits, BigDecimal inventoryValue) {
+        this.category = category;
+        this.totalProducts = totalProducts != null ? totalProducts : 0L;
+        this.lowStockProducts = lowStockProducts != null ? lowStockProducts : 0L;
+        this.outOfStockProducts = outOfStockProducts != null ? outOfStockProducts : 0L;
+        this.totalUnits = totalUnits != null ? totalUnits : 0L;
+        this.inventoryValue = inventoryValue != null ? inventoryValue : BigDecimal.ZERO;
+    }
+
+    // Getters y Setters
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public long getTotalProducts() { return totalProducts; }
+    public void setTotalProducts(long totalProducts) { this.totalProducts = totalProducts; }
+
+    public long getLowStockProducts() { return lowStockProducts; }
+    public void setLowStockProducts(long lowStockProducts) { this.lowStockProducts = lowStockProducts; }
+
+    public long getOutOfStockProducts() { return outOfStockProducts; }
+    public void setOutOfStockProducts(long outOfStockProducts) { this.outOfStockProducts = outOfStockProducts; }
+
+    public long getTotalUnits() { return totalUnits; }
+    public void setTotalUnits(long totalUnits) { this.totalUnits = totalUnits; }
+
+    public BigDecimal getInventoryValue() { return inventoryValue; }
+    public void setInventoryValue(BigDecimal inventoryValue) { this.inventoryValue = inventoryValue; }
+
+    public long getInStockProducts() { return totalProducts - outOfStockProducts; }
+}
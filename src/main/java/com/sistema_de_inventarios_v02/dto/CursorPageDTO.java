@@ -0,0 +1,42 @@
+package com.sistema_de_inventarios_v02.dto;
+
+import java.util.List;
+
+/**
+ * DTO para una página obtenida por cursor. nextCursor es null en la última página
+ * y totalElements solo se calcula cuando el cliente lo solicita.
+ */
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    private Long totalElements;
+
+    // Constructores
+    public CursorPageDTO() {}
+
+    public CursorPageDTO(List<T> content, int size, String nextCursor, Long totalElements) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = nextCursor != null;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    // Getters y Setters
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public Long getTotalElements() { return totalElements; }
+    public void setTotalElements(Long totalElements) { this.totalElements = totalElements; }
+}
@@ -0,0 +1,89 @@
+package com.sistema_de_inventarios_v02.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO para las facetas del catálogo con los filtros actuales: conteos por categoría,
+ * histograma de precios y conteos por estado de stock
+ */
+public class ProductFacetsDTO {
+    private long totalProducts;
+    private List<CategoryCount> categories = new ArrayList<>();
+    private List<PriceBucket> priceBuckets = new ArrayList<>();
+    private Map<String, Long> stockStatus = new LinkedHashMap<>();
+
+    // Constructores
+    public ProductFacetsDTO() {}
+
+    public ProductFacetsDTO(long totalProducts, List<CategoryCount> categories,
+                            List<PriceBucket> priceBuckets, Map<String, Long> stockStatus) {
+        this.totalProducts = totalProducts;
+        this.categories = categories;
+        this.priceBuckets = priceBuckets;
+        this.stockStatus = stockStatus;
+    }
+
+    // Getters y Setters
+    public long getTotalProducts() { return totalProducts; }
+    public void setTotalProducts(long totalProducts) { this.totalProducts = totalProducts; }
+
+    public List<CategoryCount> getCategories() { return categories; }
+    public void setCategories(List<CategoryCount> categories) { this.categories = categories; }
+
+    public List<PriceBucket> getPriceBuckets() { return priceBuckets; }
+    public void setPriceBuckets(List<PriceBucket> priceBuckets) { this.priceBuckets = priceBuckets; }
+
+    public Map<String, Long> getStockStatus() { return stockStatus; }
+    public void setStockStatus(Map<String, Long> stockStatus) { this.stockStatus = stockStatus; }
+
+    /**
+     * Productos de una categoría que cumplen los filtros
+     */
+    public static class CategoryCount {
+        private String category;
+        private long count;
+
+        public CategoryCount() {}
+
+        public CategoryCount(String category, long count) {
+            this.category = category;
+            this.count = count;
+        }
+
+        public String getCategory() { return category; }
+        public void setCategory(String category) { this.category = category; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    /**
+     * Tramo del histograma de precios: [min, max); max es null en el último tramo
+     */
+    public static class PriceBucket {
+        private BigDecimal min;
+        private BigDecimal max;
+        private long count;
+
+        public PriceBucket() {}
+
+        public PriceBucket(BigDecimal min, BigDecimal max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() { return min; }
+        public void setMin(BigDecimal min) { this.min = min; }
+
+        public BigDecimal getMax() { return max; }
+        public void setMax(BigDecimal max) { this.max = max; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sistema_de_inventarios_v02.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * DTO para un resultado de la búsqueda de texto completo: el resumen del producto,
+ * su puntuación BM25 y los campos con los términos encontrados resaltados con &lt;em&gt;
+ */
+public class ProductSearchHitDTO {
+
+    private Long id;
+    private String name;
+    private String category;
+    private BigDecimal price;
+    private Integer stock;
+    private String stockStatus;
+    private double score;
+    private Map<String, String> highlights;
+
+    // Constructores
+    public ProductSearchHitDTO() {}
+
+    public ProductSearchHitDTO(ProductSummaryDTO summary, double score, Map<String, String> highlights) {
+        this.id = summary.getId();
+        this.name = summary.getName();
+        this.category = summary.getCategory();
+        this.price = summary.getPrice();
+        this.stock = summary.getStock();
+        this.stockStatus = summary.getStockStatus();
+        this.score = score;
+        this.highlights = highlights;
+    }
+
+    // Getters y Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public Integer getStock() { return stock; }
+    public void setStock(Integer stock) { this.stock = stock; }
+
+    public String getStockStatus() { return stockStatus; }
+    public void setStockStatus(String stockStatus) { this.stockStatus = stockStatus; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public Map<String, String> getHighlights() { return highlights; }
+    public void setHighlights(Map<String, String> highlights) { this.highlights = highlights; }
+}
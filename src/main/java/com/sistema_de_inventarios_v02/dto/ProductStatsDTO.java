@@ -0,0 +1,69 @@
+package com.sistema_de_inventarios_v02.dto;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DTO para estadísticas del catálogo calculadas en una sola consulta agregada
+ */
+public class ProductStatsDTO {
+    private long totalProducts;
+    private long lowStockProducts;
+    private long outOfStockProducts;
+    private long totalCategories;
+    private long totalUnits;
+    private BigDecimal inventoryValue = BigDecimal.ZERO;
+
+    // Constructores
+    public ProductStatsDTO() {}
+
+    /**
+     * Usado por la expresión constructora de JPQL; SUM devuelve null sobre una tabla vacía
+     */
+    public ProductStatsDTO(Long totalProducts, Long lowStockProducts, Long outOfStockProducts,
+                           Long totalCategories, Long totalUnits, BigDecimal inventoryValue) {
+        this.totalProducts = totalProducts != null ? totalProducts : 0L;
+        this.lowStockProducts = lowStockProducts != null ? lowStockProducts : 0L;
+        this.outOfStockProducts = outOfStockProducts != null ? outOfStockProducts : 0L;
+        this.totalCategories = totalCategories != null ? totalCategories : 0L;
+        this.totalUnits = totalUnits != null ? totalUnits : 0L;
+        this.inventoryValue = inventoryValue != null ? inventoryValue : BigDecimal.ZERO;
+    }
+
+    // Getters y Setters
+    public long getTotalProducts() { return totalProducts; }
+    public void setTotalProducts(long totalProducts) { this.totalProducts = totalProducts; }
+
+    public long getLowStockProducts() { return lowStockProducts; }
+    public void setLowStockProducts(long lowStockProducts) { this.lowStockProducts = lowStockProducts; }
+
+    public long getOutOfStockProducts() { return outOfStockProducts; }
+    public void setOutOfStockProducts(long outOfStockProducts) { this.outOfStockProducts = outOfStockProducts; }
+
+    public long getTotalCategories() { return totalCategories; }
+    public void setTotalCategories(long totalCategories) { this.totalCategories = totalCategories; }
+
+    public long getTotalUnits() { return totalUnits; }
+    public void setTotalUnits(long totalUnits) { this.totalUnits = totalUnits; }
+
+    public BigDecimal getInventoryValue() { return inventoryValue; }
+    public void setInventoryValue(BigDecimal inventoryValue) { this.inventoryValue = inventoryValue; }
+
+    public long getInStockProducts() { return totalProducts - outOfStockProducts; }
+
+    /**
+     * Representación mutable con las claves que exponen los endpoints de estadísticas
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalProducts", totalProducts);
+        stats.put("lowStockProducts", lowStockProducts);
+        stats.put("outOfStockProducts", outOfStockProducts);
+        stats.put("totalCategories", totalCategories);
+        stats.put("inStockProducts", getInStockProducts());
+        stats.put("totalUnits", totalUnits);
+        stats.put("inventoryValue", inventoryValue);
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sistema_de_inventarios_v02.dto;
+
+/**
+ * DTO para una sugerencia de autocompletado (nombre de producto o categoría).
+ * Es inmutable porque la misma instancia se comparte entre respuestas.
+ */
+public class ProductSuggestionDTO {
+
+    public static final String PRODUCT = "PRODUCT";
+    public static final String CATEGORY = "CATEGORY";
+
+    private final String text;
+    private final String type;
+    private final Long productId;
+    private final long score;
+
+    public ProductSuggestionDTO(String text, String type, Long productId, long score) {
+        this.text = text;
+        this.type = type;
+        this.productId = productId;
+        this.score = score;
+    }
+
+    // Getters
+    public String getText() { return text; }
+
+    public String getType() { return type; }
+
+    public Long getProductId() { return productId; }
+
+    public long getScore() { return score; }
+}
@@ -1,5 +1,7 @@
 package com.sistema_de_inventarios_v02.dto;
 
+import com.sistema_de_inventarios_v02.model.StockStatus;
+
 import java.math.BigDecimal;
 
 public class ProductSummaryDTO {
@@ -24,6 +26,14 @@ public class ProductSummaryDTO {
         this.stockStatus = stockStatus;
     }
 
+    /**
+     * Usado por la expresión constructora de JPQL, que lee la columna stock_status
+     */
+    public ProductSummaryDTO(Long id, String name, String category,
+                             BigDecimal price, Integer stock, StockStatus stockStatus) {
+        this(id, name, category, price, stock, stockStatus != null ? stockStatus.name() : null);
+    }
+
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -0,0 +1,25 @@
+package com.sistema_de_inventarios_v02.dto;
+
+/**
+ * DTO para la versión de un recurso en las lecturas condicionales: revisión de Envers
+ * (o null si aún no tiene) e instante de la última modificación en milisegundos epoch
+ */
+public class RevisionStampDTO {
+    private Long revision;
+    private long lastModified;
+
+    // Constructores
+    public RevisionStampDTO() {}
+
+    public RevisionStampDTO(Long revision, long lastModified) {
+        this.revision = revision;
+        this.lastModified = lastModified;
+    }
+
+    // Getters y Setters
+    public Long getRevision() { return revision; }
+    public void setRevision(Long revision) { this.revision = revision; }
+
+    public long getLastModified() { return lastModified; }
+    public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+}
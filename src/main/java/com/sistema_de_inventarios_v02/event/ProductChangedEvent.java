@@ -0,0 +1,56 @@
+package com.sistema_de_inventarios_v02.event;
+
+/**
+ * Evento publicado por ProductService en cada escritura de productos.
+ * Los listeners lo reciben con @TransactionalEventListener, es decir, después del commit.
+ */
+public class ProductChangedEvent {
+
+    public enum ChangeType { CREATED, UPDATED, DELETED }
+
+    private final ChangeType type;
+    private final ProductSnapshot before;
+    private final ProductSnapshot after;
+
+    private ProductChangedEvent(ChangeType type, ProductSnapshot before, ProductSnapshot after) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    public static ProductChangedEvent created(ProductSnapshot after) {
+        return new ProductChangedEvent(ChangeType.CREATED, null, after);
+    }
+
+    public static ProductChangedEvent updated(ProductSnapshot before, ProductSnapshot after) {
+        return new ProductChangedEvent(ChangeType.UPDATED, before, after);
+    }
+
+    public static ProductChangedEvent deleted(ProductSnapshot before) {
+        return new ProductChangedEvent(ChangeType.DELETED, before, null);
+    }
+
+    public ChangeType getType() { return type; }
+
+    /**
+     * Estado previo a la escritura; null en creaciones
+     */
+    public ProductSnapshot getBefore() { return before; }
+
+    /**
+     * Estado posterior a la escritura; null en eliminaciones
+     */
+    public ProductSnapshot getAfter() { return after; }
+
+    public Long getProductId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChangedEvent{" +
+                "type=" + type +
+                ", productId=" + getProductId() +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package com.sistema_de_inventarios_v02.event;
+
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Copia inmutable del estado de un producto en un instante dado.
+ * Se captura antes de modificar la entidad para poder calcular diferencias.
+ */
+public final class ProductSnapshot {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final String category;
+    private final BigDecimal price;
+    private final Integer stock;
+    private final Integer minimumStock;
+
+    public ProductSnapshot(Long id, String name, String description, String category,
+                           BigDecimal price, Integer stock, Integer minimumStock) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.category = category;
+        this.price = price;
+        this.stock = stock;
+        this.minimumStock = minimumStock;
+    }
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getCategory(),
+                product.getPrice(),
+                product.getStock(),
+                product.getMinimumStock()
+        );
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public String getCategory() { return category; }
+    public BigDecimal getPrice() { return price; }
+    public Integer getStock() { return stock; }
+    public Integer getMinimumStock() { return minimumStock; }
+
+    /**
+     * Mismo criterio que ProductRepository.findProductsOutOfStock
+     */
+    public boolean isOutOfStock() {
+        return stock == null || stock == 0;
+    }
+
+    /**
+     * Mismo criterio que ProductRepository.findProductsWithLowStock
+     */
+    public boolean isLowStock() {
+        return stock != null && stock > 0 && minimumStock != null && stock <= minimumStock;
+    }
+
+    /**
+     * Mismo valor que Product guarda en stock_status
+     */
+    public String getStockStatus() {
+        return StockStatus.of(stock, minimumStock).name();
+    }
+
+    public int getUnits() {
+        return stock != null ? stock : 0;
+    }
+
+    public BigDecimal getValuation() {
+        if (price == null || stock == null) {
+            return BigDecimal.ZERO;
+        }
+        return price.multiply(BigDecimal.valueOf(stock));
+    }
+}
@@ -0,0 +1,7 @@
+package com.sistema_de_inventarios_v02.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
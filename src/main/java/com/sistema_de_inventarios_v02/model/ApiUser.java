@@ -3,15 +3,27 @@ package com.sistema_de_inventarios_v02.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
 @Table(name = "api_users")
+// Se lee en cada /api/auth/me y /refresh y casi nunca se escribe; READ_WRITE para que un
+// cambio de rol o una desactivación se vean en este nodo en cuanto se confirma. La cache es
+// local: en los demás nodos las regiones caducan a los 30 s (application.conf)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "apiUsers")
+@NaturalIdCache(region = "apiUsers-username")
 public class ApiUser {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Mutable: ApiUserService.updateUser permite cambiarlo
+    @NaturalId(mutable = true)
     @NotBlank(message = "Username es requerido")
     @Column(unique = true, nullable = false)
     private String username;
@@ -0,0 +1,34 @@
+package com.sistema_de_inventarios_v02.model;
+
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Guarda Product.category como id de la tabla categories manteniendo el nombre en la
+ * entidad, de modo que las consultas por categoría comparan enteros. Lo instancia Spring,
+ * por eso puede recibir el diccionario por constructor.
+ */
+@Converter
+public class CategoryConverter implements AttributeConverter<String, Integer> {
+
+    private final CategoryDictionary categoryDictionary;
+
+    public CategoryConverter(CategoryDictionary categoryDictionary) {
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String category) {
+        if (category == null) {
+            return null;
+        }
+        Integer id = categoryDictionary.findId(category);
+        return id != null ? id : CategoryDictionary.UNKNOWN_ID;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer categoryId) {
+        return categoryDictionary.nameOf(categoryId);
+    }
+}
@@ -2,13 +2,23 @@ package com.sistema_de_inventarios_v02.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "products")
 @Audited
+// READ_WRITE: el stock se actualiza a menudo y de forma concurrente, no se admiten lecturas obsoletas
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
+@EntityListeners(ProductCategoryListener.class)
 public class Product {
 
     @Id
@@ -24,11 +34,19 @@ public class Product {
     @Size(max = 500, message = "La descripción del producto no puede exceder los 500 caracteres")
     private String description;
 
-    @Column(name = "category", nullable = false, length = 70)
+    // Se guarda como id de la tabla categories; ver CategoryConverter
+    @Convert(converter = CategoryConverter.class)
+    @Column(name = "category_id", nullable = false)
     @NotBlank(message = "La categoría del producto es obligatoria")
     @Size(max = 70, message = "La categoría del producto no puede exceder los 70 caracteres")
     private String category;
 
+    // Solo lectura: permite ordenar por nombre de categoría con un join (ProductSortField.CATEGORY)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", insertable = false, updatable = false)
+    @NotAudited
+    private Category categoryRef;
+
     @Column(name = "price", nullable = false)
     @NotNull(message = "El precio del producto es obligatorio")
     @DecimalMin(value = "0.0", inclusive = false, message = "El precio debe ser mayor que cero")
@@ -44,6 +62,20 @@ public class Product {
     @Min(value = 10, message = "El stock mínimo no puede ser negativo")
     private Integer minimumStock;
 
+    // Derivado de stock y minimumStock; se recalcula en cada escritura
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stock_status", nullable = false)
+    private StockStatus stockStatus;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // Base de Last-Modified en las lecturas condicionales (ConditionalGetInterceptor)
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     public Product() {
     }
 
@@ -54,6 +86,7 @@ public class Product {
         this.price = price;
         this.stock = stock;
         this.minimumStock = 10;
+        refreshStockStatus();
     }
 
     public Product(Long id, String name, String description, String category, BigDecimal price, Integer stock, Integer minimumStock) {
@@ -64,6 +97,7 @@ public class Product {
         this.price = price;
         this.stock = stock;
         this.minimumStock = 10;
+        refreshStockStatus();
     }
 
     public Long getId() {
@@ -112,6 +146,7 @@ public class Product {
 
     public void setStock(Integer stock) {
         this.stock = stock;
+        refreshStockStatus();
     }
 
     public Integer getMinimumStock() {
@@ -120,6 +155,25 @@ public class Product {
 
     public void setMinimumStock(Integer minimumStock) {
         this.minimumStock = minimumStock;
+        refreshStockStatus();
+    }
+
+    public StockStatus getStockStatus() {
+        return stockStatus;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void refreshStockStatus() {
+        this.stockStatus = StockStatus.of(stock, minimumStock);
     }
 
     @Override
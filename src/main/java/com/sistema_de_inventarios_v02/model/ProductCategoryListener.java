@@ -0,0 +1,26 @@
+package com.sistema_de_inventarios_v02.model;
+
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Registra en categories las categorías nuevas antes de insertar o actualizar un producto,
+ * para que CategoryConverter encuentre su id al escribir la fila
+ */
+public class ProductCategoryListener {
+
+    private final CategoryDictionary categoryDictionary;
+
+    public ProductCategoryListener(CategoryDictionary categoryDictionary) {
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void registerCategory(Product product) {
+        if (product.getCategory() != null && !product.getCategory().isBlank()) {
+            categoryDictionary.getOrCreate(product.getCategory());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.sistema_de_inventarios_v02.model;
+
+/**
+ * Estado de stock de un producto; se guarda en products.stock_status para que los
+ * listados de stock bajo y agotado sean búsquedas por índice
+ */
+public enum StockStatus {
+    IN_STOCK, LOW_STOCK, OUT_OF_STOCK;
+
+    public static StockStatus of(Integer stock, Integer minimumStock) {
+        if (stock == null || stock == 0) {
+            return OUT_OF_STOCK;
+        }
+        if (minimumStock != null && stock <= minimumStock) {
+            return LOW_STOCK;
+        }
+        return IN_STOCK;
+    }
+}
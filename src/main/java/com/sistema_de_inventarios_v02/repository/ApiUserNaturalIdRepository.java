@@ -0,0 +1,14 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.model.ApiUser;
+
+import java.util.Optional;
+
+/**
+ * Fragmento de ApiUserRepository: búsqueda por username a través del natural id,
+ * que Hibernate resuelve desde la cache de segundo nivel sin consultar la base de datos
+ */
+public interface ApiUserNaturalIdRepository {
+
+    Optional<ApiUser> findByUsername(String username);
+}
@@ -0,0 +1,23 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.model.ApiUser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class ApiUserNaturalIdRepositoryImpl implements ApiUserNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ApiUser> findByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(ApiUser.class)
+                .loadOptional(username);
+    }
+}
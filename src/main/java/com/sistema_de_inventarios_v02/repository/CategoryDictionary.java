@@ -0,0 +1,314 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.Config.ShardRouter;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Diccionario nombre &lt;-&gt; id de la tabla categories. La tabla es pequeña y casi no
+ * cambia, así que se carga entera en memoria la primera vez y los filtros por categoría
+ * se resuelven a una comparación de enteros sin tocar la base de datos.
+ * Usa JdbcTemplate (no JPA) porque lo invoca CategoryConverter durante el flush.
+ * <p>
+ * Una categoría creada en una transacción solo la ve esa transacción hasta el commit; después
+ * pasa a la caché compartida. Los nombres que no existen también se recuerdan, hasta que un
+ * ProductChangedEvent (local o de otro nodo) trae un producto con esa categoría.
+ * <p>
+ * Con el catálogo repartido (ShardRouter) cada categoría se crea en el shard de sus productos,
+ * con ids de su rango, y una búsqueda por nombre solo lee la tabla de ese shard: el nombre
+ * que la base tiene por igual (mayúsculas, acentos) cae siempre en el mismo.
+ */
+@Repository
+public class CategoryDictionary {
+
+    /** Id que no existe en la tabla: los filtros por una categoría desconocida no devuelven filas */
+    public static final int UNKNOWN_ID = -1;
+
+    /** Nombres desconocidos recordados como máximo; al superarlo se olvidan todos */
+    static final int MAX_MISSING = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    // null sin shards
+    private final ShardRouter router;
+    // Tabla categories de cada shard, fuera de la transacción en curso; vacía sin shards
+    private final List<JdbcTemplate> shardTables;
+
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private final Set<String> missingKeys = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    public CategoryDictionary(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.router = null;
+        this.shardTables = List.of();
+    }
+
+    @Autowired
+    public CategoryDictionary(JdbcTemplate jdbcTemplate, ObjectProvider<ShardRouter> shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        List<JdbcTemplate> shards = new ArrayList<>();
+        this.router = shardRouter.getIfAvailable();
+        if (router != null) {
+            for (DataSource shard : router.dataSources()) {
+                shards.add(new JdbcTemplate(shard));
+            }
+        }
+        this.shardTables = List.copyOf(shards);
+    }
+
+    /**
+     * Id de la categoría sin distinguir mayúsculas, o null si no existe
+     */
+    public Integer findId(String name) {
+        if (name == null) {
+            return null;
+        }
+        String key = key(name);
+        CreatedCategories created = createdInTransaction(false);
+        if (created != null && created.ids.containsKey(key)) {
+            return created.ids.get(key);
+        }
+        ensureLoaded();
+        Integer id = idsByKey.get(key);
+        if (id == null && !missingKeys.contains(key)) {
+            // Puede haberla creado otro nodo o una transacción ya confirmada
+            id = loadByName(name);
+            if (id == null) {
+                rememberMissing(key);
+            }
+        }
+        return id;
+    }
+
+    public String nameOf(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        CreatedCategories created = createdInTransaction(false);
+        if (created != null && created.names.containsKey(id)) {
+            return created.names.get(id);
+        }
+        ensureLoaded();
+        String name = namesById.get(id);
+        if (name == null) {
+            List<String> found = jdbcTemplate.queryForList("SELECT name FROM categories WHERE id = ?", String.class, id);
+            if (!found.isEmpty()) {
+                rememberRead(id, found.get(0), key(found.get(0)));
+                return found.get(0);
+            }
+            for (int i = 0; found.isEmpty() && i < shardTables.size(); i++) {
+                found = shardTables.get(i).queryForList("SELECT name FROM categories WHERE id = ?", String.class, id);
+            }
+            if (found.isEmpty()) {
+                throw new IllegalStateException("Categoría inexistente: " + id);
+            }
+            name = found.get(0);
+            put(id, name);
+        }
+        return name;
+    }
+
+    /**
+     * Devuelve el id de la categoría y la crea si todavía no existe. La inserción va en la
+     * transacción en curso y solo entra en la caché compartida cuando esta se confirma.
+     */
+    public int getOrCreate(String name) {
+        Integer id = findId(name);
+        if (id != null) {
+            return id;
+        }
+        String trimmed = name.trim();
+        try {
+            onTargetShard(trimmed, () -> jdbcTemplate.update("INSERT INTO categories (name) VALUES (?)", trimmed));
+        } catch (DuplicateKeyException e) {
+            // Otra transacción la creó y la confirmó al mismo tiempo; se usa la suya
+            missingKeys.remove(key(name));
+            id = loadByName(trimmed);
+            if (id == null) {
+                throw new IllegalStateException("No se pudo registrar la categoría: " + trimmed);
+            }
+            return id;
+        }
+
+        List<Integer> inserted = onTargetShard(trimmed, () -> jdbcTemplate.queryForList(
+                "SELECT id FROM categories WHERE name = ?", Integer.class, trimmed));
+        if (inserted.isEmpty()) {
+            throw new IllegalStateException("No se pudo registrar la categoría: " + trimmed);
+        }
+        id = inserted.get(0);
+        CreatedCategories created = createdInTransaction(true);
+        if (created == null) {
+            // Sin transacción la inserción ya está confirmada
+            missingKeys.remove(key(name));
+            put(id, trimmed);
+            idsByKey.put(key(name), id);
+        } else {
+            created.add(key(name), id, trimmed);
+        }
+        return id;
+    }
+
+    /**
+     * Un producto con una categoría que se tenía por desconocida: se olvida la ausencia
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getAfter() != null && event.getAfter().getCategory() != null) {
+            missingKeys.remove(key(event.getAfter().getCategory()));
+        }
+    }
+
+    /**
+     * Descarta la caché; la siguiente consulta vuelve a leer la tabla
+     */
+    public void clear() {
+        loaded = false;
+        idsByKey.clear();
+        namesById.clear();
+        missingKeys.clear();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            for (JdbcTemplate table : shardTables.isEmpty() ? List.of(jdbcTemplate) : shardTables) {
+                table.query("SELECT id, name FROM categories", (RowCallbackHandler) rs ->
+                        put(rs.getInt("id"), rs.getString("name")));
+            }
+            loaded = true;
+        }
+    }
+
+    private Integer loadByName(String name) {
+        // En la transacción en curso, que ve sus propias inserciones, si ya está en el shard
+        // de la categoría; si no, en la tabla de ese shard
+        JdbcTemplate table = jdbcTemplate;
+        if (router != null) {
+            int target = router.shardFor(name);
+            Integer bound = ShardRouter.boundShard();
+            if (bound == null || bound != target) {
+                table = shardTables.get(target);
+            }
+        }
+        List<Map<String, Object>> rows = table.queryForList(
+                "SELECT id, name FROM categories WHERE LOWER(name) = LOWER(?)", name.trim());
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Integer id = ((Number) rows.get(0).get("id")).intValue();
+        String stored = (String) rows.get(0).get("name");
+        // Alias para variantes que la colación considera iguales (acentos)
+        if (table == jdbcTemplate) {
+            rememberRead(id, stored, key(name));
+        } else {
+            put(id, stored);
+            idsByKey.put(key(name), id);
+        }
+        return id;
+    }
+
+    /**
+     * Lo leído con la conexión de la transacción en curso puede no estar confirmado (otra
+     * sentencia de la transacción pudo insertarlo): solo lo ve esa transacción y pasa a la
+     * caché compartida con el commit. Fuera de una transacción va directamente a la caché
+     */
+    private void rememberRead(Integer id, String name, String alias) {
+        CreatedCategories created = createdInTransaction(true);
+        if (created == null) {
+            put(id, name);
+            idsByKey.put(alias, id);
+        } else {
+            created.add(alias, id, name);
+        }
+    }
+
+    /**
+     * Con shards, las sentencias de la acción van al shard de la categoría
+     */
+    private <T> T onTargetShard(String name, Supplier<T> action) {
+        return router != null ? ShardRouter.callOn(router.shardFor(name), action) : action.get();
+    }
+
+    private void put(Integer id, String name) {
+        namesById.put(id, name);
+        idsByKey.put(key(name), id);
+    }
+
+    private void rememberMissing(String key) {
+        // Los filtros reciben texto libre: sin límite cualquiera podría llenar la memoria
+        if (missingKeys.size() >= MAX_MISSING) {
+            missingKeys.clear();
+        }
+        missingKeys.add(key);
+    }
+
+    /**
+     * Categorías creadas por la transacción en curso, o null fuera de una transacción.
+     * Con create se registran la primera vez para publicarlas en la caché tras el commit.
+     */
+    private CreatedCategories createdInTransaction(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        CreatedCategories created = (CreatedCategories) TransactionSynchronizationManager.getResource(this);
+        if (created != null || !create) {
+            return created;
+        }
+        CreatedCategories registered = new CreatedCategories();
+        TransactionSynchronizationManager.bindResource(this, registered);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                registered.names.forEach(CategoryDictionary.this::put);
+                registered.ids.forEach((key, id) -> {
+                    idsByKey.put(key, id);
+                    missingKeys.remove(key);
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CategoryDictionary.this);
+            }
+        });
+        return registered;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class CreatedCategories {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Map<Integer, String> names = new HashMap<>();
+
+        private void add(String key, Integer id, String name) {
+            ids.put(key, id);
+            names.put(id, name);
+        }
+    }
+}
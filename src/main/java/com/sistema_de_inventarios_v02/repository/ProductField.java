@@ -0,0 +1,71 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Atributos de producto que se pueden pedir con ?fields=. Solo se seleccionan en SQL las
+ * columnas pedidas (ProductProjectionRepository), así que la lista es también la
+ * frontera de lo que se expone: nada fuera de ella llega a la consulta.
+ */
+public enum ProductField {
+
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    CATEGORY("category"),
+    PRICE("price"),
+    STOCK("stock"),
+    MINIMUM_STOCK("minimumStock"),
+    STOCK_STATUS("stockStatus");
+
+    private final String property;
+
+    ProductField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Interpreta "id,name,stock" respetando el orden pedido y sin repetidos
+     */
+    public static List<ProductField> parse(String fields) {
+        List<ProductField> parsed = new ArrayList<>();
+        if (fields == null) {
+            return parsed;
+        }
+        for (String token : fields.split(",")) {
+            String property = token.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            ProductField field = fromProperty(property);
+            if (!parsed.contains(field)) {
+                parsed.add(field);
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new InvalidPageRequestException("El parámetro fields no puede estar vacío");
+        }
+        return parsed;
+    }
+
+    public static ProductField fromProperty(String property) {
+        for (ProductField field : values()) {
+            if (field.property.equalsIgnoreCase(property)) {
+                return field;
+            }
+        }
+        throw new InvalidPageRequestException("Campo no permitido: " + property
+                + ". Valores permitidos: " + Arrays.stream(values())
+                .map(ProductField::getProperty)
+                .collect(Collectors.joining(", ")));
+    }
+}
@@ -1,15 +1,30 @@
 package com.sistema_de_inventarios_v02.repository;
 
+import com.sistema_de_inventarios_v02.audit.CustomRevisionEntity;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
 import com.sistema_de_inventarios_v02.model.Product;
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionType;
 import org.hibernate.envers.query.AuditEntity;
 import org.hibernate.envers.query.AuditQuery;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Repository
 public class ProductHistoryRepository {
@@ -36,4 +51,223 @@ public class ProductHistoryRepository {
         AuditReader auditReader = AuditReaderFactory.get(entityManager);
         return auditReader.getRevisions(Product.class, productId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Movimientos de stock desde el instante indicado (milisegundos epoch): revisiones de
+     * modificación cuyo stock difiere del de la revisión anterior del mismo producto. Se
+     * cuentan por tramos de bucketMillis: tramo (REVTSTMP / bucketMillis) -> producto -> movimientos
+     */
+    @SuppressWarnings("unchecked")
+    public NavigableMap<Long, Map<Long, Long>> countStockMovementsSince(long sinceMillis, long bucketMillis) {
+        // La revisión anterior puede quedar fuera de la ventana, así que LAG recorre todo el
+        // historial, pero solo el de los productos con alguna revisión dentro de ella
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT m.id, m.bucket, COUNT(*) FROM (" +
+                        "SELECT pa.id, pa.REVTYPE, pa.stock, r.REVTSTMP, FLOOR(r.REVTSTMP / :bucket) AS bucket, " +
+                        "LAG(pa.stock) OVER (PARTITION BY pa.id ORDER BY pa.REV) AS previous_stock " +
+                        "FROM products_audit pa JOIN REVINFO r ON r.REV = pa.REV " +
+                        "WHERE pa.id IN (SELECT recent.id FROM products_audit recent " +
+                        "JOIN REVINFO rr ON rr.REV = recent.REV WHERE rr.REVTSTMP >= :since)" +
+                        ") m WHERE m.REVTSTMP >= :since AND m.REVTYPE = 1 AND m.stock <> m.previous_stock " +
+                        "GROUP BY m.id, m.bucket")
+                .setParameter("since", sinceMillis)
+                .setParameter("bucket", bucketMillis)
+                .getResultList();
+
+        NavigableMap<Long, Map<Long, Long>> counts = new TreeMap<>();
+        for (Object[] row : rows) {
+            counts.computeIfAbsent(((Number) row[1]).longValue(), bucket -> new HashMap<>())
+                    .put(((Number) row[0]).longValue(), ((Number) row[2]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Última revisión registrada del catálogo; cualquier alta, cambio o baja de productos
+     * la incrementa. Vacío si todavía no hay revisiones
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<RevisionStampDTO> findLatestCatalogRevision() {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT r.REV, r.REVTSTMP FROM REVINFO r ORDER BY r.REV DESC")
+                .setMaxResults(1)
+                .getResultList();
+
+        return rows.stream().findFirst().map(row -> new RevisionStampDTO(
+                ((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+    }
+
+    /**
+     * Marca de tiempo (REVTSTMP) de una revisión, o vacío si no existe
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Long> findRevisionTimestamp(long revision) {
+        List<Number> rows = entityManager.createNativeQuery(
+                        "SELECT r.REVTSTMP FROM REVINFO r WHERE r.REV = :rev")
+                .setParameter("rev", revision)
+                .getResultList();
+
+        return rows.stream().findFirst().map(Number::longValue);
+    }
+
+    /**
+     * Productos con alguna revisión posterior a la indicada o registrada desde el instante
+     * dado (milisegundos epoch); lo segundo cubre revisiones confirmadas fuera de orden.
+     * Cada condición va en su rama del UNION para que use su índice (idx_products_audit_rev
+     * e idx_revinfo_timestamp) en lugar de recorrer todo el historial por el OR
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> findProductIdsChangedSince(long revision, long sinceMillis) {
+        List<Number> rows = entityManager.createNativeQuery(
+                        "SELECT pa.id FROM products_audit pa WHERE pa.REV > :rev " +
+                        "UNION " +
+                        "SELECT pa.id FROM products_audit pa " +
+                        "JOIN REVINFO r ON r.REV = pa.REV WHERE r.REVTSTMP >= :since")
+                .setParameter("rev", revision)
+                .setParameter("since", sinceMillis)
+                .getResultList();
+
+        Set<Long> ids = new HashSet<>();
+        for (Number row : rows) {
+            ids.add(row.longValue());
+        }
+        return ids;
+    }
+
+    /**
+     * Revisiones posteriores a la indicada, en orden, con el nodo que las generó
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, String> findRevisionNodesAfter(long revision, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT r.REV, r.node FROM REVINFO r WHERE r.REV > :rev ORDER BY r.REV")
+                .setParameter("rev", revision)
+                .setMaxResults(limit)
+                .getResultList();
+
+        Map<Long, String> nodes = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            nodes.put(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Nodo que generó cada una de las revisiones indicadas, solo las que ya son visibles
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, String> findRevisionNodes(Collection<Long> revisions) {
+        if (revisions.isEmpty()) {
+            return Map.of();
+        }
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT r.REV, r.node FROM REVINFO r WHERE r.REV IN (:revs) ORDER BY r.REV")
+                .setParameter("revs", revisions)
+                .getResultList();
+
+        Map<Long, String> nodes = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            nodes.put(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Cambios de productos de las revisiones indicadas, ordenados por revisión. Cada fila es
+     * {Product, CustomRevisionEntity, RevisionType}; en las bajas trae el último estado
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findProductChangesInRevisions(Collection<Long> revisions) {
+        if (revisions.isEmpty()) {
+            return List.of();
+        }
+        // REV es INT en REVINFO
+        List<Number> numbers = revisions.stream().<Number>map(Long::intValue).toList();
+        AuditReader auditReader = AuditReaderFactory.get(entityManager);
+        return auditReader.createQuery()
+                .forRevisionsOfEntity(Product.class, false, true)
+                .add(AuditEntity.revisionNumber().in(numbers))
+                .addOrder(AuditEntity.revisionNumber().asc())
+                .getResultList();
+    }
+
+    /**
+     * Estado de cada producto justo antes de la revisión indicada para él. Son dos consultas
+     * para todo el lote: el último estado por debajo de la menor de las revisiones y las
+     * revisiones entre la menor y la mayor. Los productos que entonces no existían (sin
+     * revisiones previas o con una baja como última) no aparecen en el resultado.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, Product> findProductStatesBefore(Map<Long, Integer> revisionById) {
+        if (revisionById.isEmpty()) {
+            return Map.of();
+        }
+        int lowest = revisionById.values().stream().mapToInt(Integer::intValue).min().getAsInt();
+        int highest = revisionById.values().stream().mapToInt(Integer::intValue).max().getAsInt();
+        List<Long> ids = List.copyOf(revisionById.keySet());
+        AuditReader auditReader = AuditReaderFactory.get(entityManager);
+
+        List<Object[]> below = auditReader.createQuery()
+                .forRevisionsOfEntity(Product.class, false, true)
+                .add(AuditEntity.id().in(ids))
+                .add(AuditEntity.revisionNumber().maximize()
+                        .add(AuditEntity.revisionNumber().lt(lowest))
+                        .computeAggregationInInstanceContext())
+                .getResultList();
+        List<Object[]> between = highest > lowest
+                ? auditReader.createQuery()
+                        .forRevisionsOfEntity(Product.class, false, true)
+                        .add(AuditEntity.id().in(ids))
+                        .add(AuditEntity.revisionNumber().ge(lowest))
+                        .add(AuditEntity.revisionNumber().lt(highest))
+                        .addOrder(AuditEntity.revisionNumber().asc())
+                        .getResultList()
+                : List.of();
+
+        Map<Long, Object[]> latest = new HashMap<>();
+        for (Object[] row : below) {
+            latest.put(((Product) row[0]).getId(), row);
+        }
+        // En orden de revisión: la última anterior a la de cada producto sustituye a la de abajo
+        for (Object[] row : between) {
+            Long id = ((Product) row[0]).getId();
+            if (((CustomRevisionEntity) row[1]).getRev() < revisionById.get(id)) {
+                latest.put(id, row);
+            }
+        }
+
+        Map<Long, Product> states = new HashMap<>();
+        for (Map.Entry<Long, Object[]> entry : latest.entrySet()) {
+            if (entry.getValue()[2] != RevisionType.DEL) {
+                states.put(entry.getKey(), (Product) entry.getValue()[0]);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Versión de un producto sin cargar la entidad: su updated_at (-1 si es null) y su
+     * última revisión. Vacío si el producto no existe
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<RevisionStampDTO> findProductRevision(Long productId) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT p.updated_at, (SELECT MAX(pa.REV) FROM products_audit pa WHERE pa.id = p.id) " +
+                        "FROM products p WHERE p.id = :id")
+                .setParameter("id", productId)
+                .getResultList();
+
+        return rows.stream().findFirst().map(row -> new RevisionStampDTO(
+                row[1] != null ? ((Number) row[1]).longValue() : null, toEpochMillis(row[0])));
+    }
+
+    private static long toEpochMillis(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.getTime();
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,18 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fragmento de ProductRepository para cargar varios productos por id pasando por la
+ * cache de segundo nivel: solo los ids que no están en ella llegan a la consulta IN
+ */
+public interface ProductMultiLoadRepository {
+
+    /**
+     * Productos encontrados, sin orden garantizado; los ids inexistentes se omiten
+     */
+    List<Product> multiLoad(Collection<Long> ids);
+}
@@ -0,0 +1,24 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class ProductMultiLoadRepositoryImpl implements ProductMultiLoadRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> multiLoad(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Product.class)
+                .enableOrderedReturn(false)
+                .multiLoad(new ArrayList<>(ids));
+    }
+}
@@ -0,0 +1,21 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fragmento de ProductRepository para listados con campos a elección del cliente
+ */
+public interface ProductProjectionRepository {
+
+    /**
+     * Página de productos con solo los atributos pedidos, en el orden pedido.
+     * El SELECT incluye únicamente esas columnas; no se cargan entidades.
+     */
+    Page<Map<String, Object>> findFields(Specification<Product> spec, List<ProductField> fields, Pageable pageable);
+}
@@ -1,55 +1,217 @@
 package com.sistema_de_inventarios_v02.repository;
 
+import com.sistema_de_inventarios_v02.dto.CategoryStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
 import com.sistema_de_inventarios_v02.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductProjectionRepository, ProductMultiLoadRepository {
+
+    String LOW_STOCK = "com.sistema_de_inventarios_v02.model.StockStatus.LOW_STOCK";
+    String OUT_OF_STOCK = "com.sistema_de_inventarios_v02.model.StockStatus.OUT_OF_STOCK";
+
+    /**
+     * Proyección directa a ProductSummaryDTO: solo lee las columnas del resumen,
+     * stockStatus incluido (columna persistida), sin hidratar entidades ni guardar
+     * su snapshot de dirty checking.
+     */
+    String SUMMARY_SELECT = "SELECT new com.sistema_de_inventarios_v02.dto.ProductSummaryDTO(" +
+            "p.id, p.name, p.category, p.price, p.stock, p.stockStatus) " +
+            "FROM Product p";
+
+    /**
+     * Índice del tramo de precio con límites literales (los mismos que
+     * ProductFacetService.PRICE_BUCKET_BOUNDS); sin parámetros para que MySQL acepte
+     * la misma expresión en SELECT y GROUP BY con ONLY_FULL_GROUP_BY
+     */
+    String PRICE_BUCKET = "CASE WHEN p.price < 10 THEN 0 WHEN p.price < 25 THEN 1 " +
+            "WHEN p.price < 50 THEN 2 WHEN p.price < 100 THEN 3 WHEN p.price < 250 THEN 4 " +
+            "WHEN p.price < 500 THEN 5 WHEN p.price < 1000 THEN 6 WHEN p.price < 2500 THEN 7 " +
+            "WHEN p.price < 5000 THEN 8 ELSE 9 END";
+
+    /**
+     * p.category se guarda como id (CategoryConverter): comparar con el nombre se traduce
+     * a una igualdad de enteros sobre idx_products_category_id, sin distinguir mayúsculas
+     */
+    String FILTERS_WHERE = " WHERE " +
+            "(:category IS NULL OR p.category = :category) AND " +
+            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')))";
+
+    String FACET_FILTERS_WHERE = FILTERS_WHERE + " AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice)";
 
     @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<Product> findByNameContainingIgnoreCase(@Param("name") String name);
 
-    List<Product> findByCategoryIgnoreCase(String category);
+    @Query("SELECT p FROM Product p WHERE p.category = :category")
+    List<Product> findByCategoryIgnoreCase(@Param("category") String category);
 
 
     /*
     @Query("SELECT p FROM Product p WHERE p.stock <= p.minimumStock AND p.minimumStock IS NOT NULL")
     List<Product> findProductsWithLowStock();*/
 
-    @Query("SELECT p FROM Product p WHERE p.stock > 0 AND p.stock <= p.minimumStock AND p.minimumStock IS NOT NULL")
+    /**
+     * Igualdad sobre idx_products_stock_status en lugar de comparar stock con minimumStock fila a fila
+     */
+    @Query("SELECT p FROM Product p WHERE p.stockStatus = " + LOW_STOCK)
     List<Product> findProductsWithLowStock();
 
-    @Query("SELECT p FROM Product p WHERE p.stock = 0 OR p.stock IS NULL")
+    @Query("SELECT p FROM Product p WHERE p.stockStatus = " + OUT_OF_STOCK)
     List<Product> findProductsOutOfStock();
 
     @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
     List<Product> findByPriceBetween(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
 
-    @Query("SELECT p FROM Product p WHERE " +
-            "(:category IS NULL OR LOWER(p.category) = LOWER(:category)) AND " +
-            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')))")
+    @Query("SELECT p FROM Product p" + FILTERS_WHERE)
     Page<Product> findByCategoryAndName(@Param("category") String category,
                                         @Param("name") String name,
                                         Pageable pageable);
 
+    @Query(SUMMARY_SELECT + " ORDER BY p.id")
+    List<ProductSummaryDTO> findAllSummaries();
+
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummaryDTO> findAllSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<ProductSummaryDTO> findSummariesByNameContaining(@Param("name") String name);
+
+    @Query(SUMMARY_SELECT + " WHERE p.category = :category")
+    List<ProductSummaryDTO> findSummariesByCategory(@Param("category") String category);
+
+    @Query(SUMMARY_SELECT + " WHERE p.price BETWEEN :minPrice AND :maxPrice")
+    List<ProductSummaryDTO> findSummariesByPriceBetween(@Param("minPrice") Double minPrice,
+                                                        @Param("maxPrice") Double maxPrice);
+
+    @Query(value = SUMMARY_SELECT + FILTERS_WHERE,
+            countQuery = "SELECT COUNT(p) FROM Product p" + FILTERS_WHERE)
+    Page<ProductSummaryDTO> findSummariesByCategoryAndName(@Param("category") String category,
+                                                           @Param("name") String name,
+                                                           Pageable pageable);
+
+    /**
+     * Respaldo de la búsqueda de texto completo mientras el índice se construye
+     */
+    @Query(value = SUMMARY_SELECT + " WHERE " +
+            "LOWER(p.name) LIKE LOWER(CONCAT('%', :text, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :text, '%')) OR " +
+            "p.categoryRef.id IN (SELECT c.id FROM Category c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :text, '%')))",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+                    "LOWER(p.name) LIKE LOWER(CONCAT('%', :text, '%')) OR " +
+                    "LOWER(p.description) LIKE LOWER(CONCAT('%', :text, '%')) OR " +
+                    "p.categoryRef.id IN (SELECT c.id FROM Category c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :text, '%')))")
+    Page<ProductSummaryDTO> findSummariesByText(@Param("text") String text, Pageable pageable);
+
     boolean existsByNameIgnoreCase(String name);
 
-    @Query("SELECT DISTINCT p.category FROM Product p ORDER BY p.category")
+    /**
+     * Categorías con al menos un producto; las que ya no tienen ninguno siguen en la tabla categories pero no se listan
+     */
+    @Query("SELECT c.name FROM Category c WHERE c.id IN (SELECT p.categoryRef.id FROM Product p) ORDER BY c.name")
     List<String> findAllCategories();
 
     @Query("SELECT p.category, COUNT(p) FROM Product p GROUP BY p.category")
     List<Object[]> countProductsByCategory();
 
+    /**
+     * Conteos de facetas en una sola consulta: una fila por combinación
+     * (categoría, estado de stock, tramo de precio) que cumple los filtros
+     */
+    @Query("SELECT p.category, p.stockStatus, " + PRICE_BUCKET + ", COUNT(p) " +
+            "FROM Product p" + FACET_FILTERS_WHERE +
+            " GROUP BY p.category, p.stockStatus, " + PRICE_BUCKET)
+    List<Object[]> countFacets(@Param("category") String category,
+                               @Param("name") String name,
+                               @Param("minPrice") BigDecimal minPrice,
+                               @Param("maxPrice") BigDecimal maxPrice);
+
+    @Query("SELECT new com.sistema_de_inventarios_v02.dto.ProductStatsDTO(" +
+            "COUNT(p), " +
+            "SUM(CASE WHEN p.stockStatus = " + LOW_STOCK + " THEN 1L ELSE 0L END), " +
+            "SUM(CASE WHEN p.stockStatus = " + OUT_OF_STOCK + " THEN 1L ELSE 0L END), " +
+            "COUNT(DISTINCT p.category), " +
+            "SUM(p.stock), " +
+            "SUM(p.price * p.stock)) " +
+            "FROM Product p")
+    ProductStatsDTO getProductStatistics();
+
+    @Query("SELECT new com.sistema_de_inventarios_v02.dto.CategoryStatsDTO(" +
+            "p.category, " +
+            "COUNT(p), " +
+            "SUM(CASE WHEN p.stockStatus = " + LOW_STOCK + " THEN 1L ELSE 0L END), " +
+            "SUM(CASE WHEN p.stockStatus = " + OUT_OF_STOCK + " THEN 1L ELSE 0L END), " +
+            "SUM(p.stock), " +
+            "SUM(p.price * p.stock)) " +
+            "FROM Product p JOIN p.categoryRef c GROUP BY p.category, c.name ORDER BY c.name")
+    List<CategoryStatsDTO> getCategoryStatistics();
+
     List<Product> findAllByOrderByStockAsc();
 
     @Query("SELECT p FROM Product p WHERE p.stock > 0")
     List<Product> findActiveProducts();
-}
\ No newline at end of file
+
+    /**
+     * Recorre el catálogo con un cursor de solo avance; con MySQL requiere useCursorFetch=true
+     * en la URL para que el driver respete el fetch size en lugar de cargar todo el resultado.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllByOrderByIdAsc();
+
+    /**
+     * Igual que streamAllByOrderByIdAsc pero proyectando el resumen, de modo que el
+     * contexto de persistencia no crece mientras se recorre el catálogo
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(SUMMARY_SELECT + " ORDER BY p.id")
+    Stream<ProductSummaryDTO> streamAllSummaries();
+
+    /**
+     * Catálogo completo como ProductSnapshot (incluye descripción) para construir índices en memoria
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new com.sistema_de_inventarios_v02.event.ProductSnapshot(" +
+            "p.id, p.name, p.description, p.category, p.price, p.stock, p.minimumStock) " +
+            "FROM Product p ORDER BY p.id")
+    Stream<ProductSnapshot> streamAllSnapshots();
+
+    /**
+     * Snapshots de los productos indicados; CatalogSnapshotFile los usa para ponerse al día
+     * con los cambios posteriores al fichero
+     */
+    @Query("SELECT new com.sistema_de_inventarios_v02.event.ProductSnapshot(" +
+            "p.id, p.name, p.description, p.category, p.price, p.stock, p.minimumStock) " +
+            "FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,102 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+import com.sistema_de_inventarios_v02.model.Product;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Campos por los que se permite ordenar los listados de productos, siempre con id como
+ * desempate para que el orden sea total y la paginación por cursor sea estable.
+ * La paginación por cursor solo admite los que son columnas indexadas (ver V2__Shema_update.sql);
+ * CATEGORY ordena por el nombre a través de un join y queda para los listados por páginas.
+ */
+public enum ProductSortField {
+
+    NAME("name", "name", true, Product::getName, value -> value),
+    // category guarda el id del diccionario; se ordena por el nombre a través del join
+    CATEGORY("category", "categoryRef.name", false, Product::getCategory, value -> value),
+    PRICE("price", "price", true, Product::getPrice, BigDecimal::new),
+    STOCK("stock", "stock", true, Product::getStock, Integer::valueOf),
+    ID("id", "id", true, Product::getId, Long::valueOf);
+
+    private final String property;
+    private final String path;
+    private final boolean keyset;
+    private final Function<Product, Object> extractor;
+    private final Function<String, Object> parser;
+
+    ProductSortField(String property, String path, boolean keyset, Function<Product, Object> extractor,
+                     Function<String, Object> parser) {
+        this.property = property;
+        this.path = path;
+        this.keyset = keyset;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Ruta JPA por la que se ordena y se construye el keyset
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public static ProductSortField fromProperty(String property) {
+        for (ProductSortField field : values()) {
+            if (field.property.equalsIgnoreCase(property)) {
+                return field;
+            }
+        }
+        throw new InvalidPageRequestException("Campo de ordenamiento no permitido: " + property
+                + ". Valores permitidos: " + Arrays.stream(values())
+                .map(ProductSortField::getProperty)
+                .collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Como fromProperty, pero solo los campos que admite la paginación por cursor
+     */
+    public static ProductSortField forKeyset(String property) {
+        ProductSortField field = fromProperty(property);
+        if (!field.keyset) {
+            throw new InvalidPageRequestException("Campo de ordenamiento no permitido con cursor: " + property
+                    + ". Valores permitidos: " + Arrays.stream(values())
+                    .filter(value -> value.keyset)
+                    .map(ProductSortField::getProperty)
+                    .collect(Collectors.joining(", ")));
+        }
+        return field;
+    }
+
+    public static Sort.Direction parseDirection(String sortDir) {
+        return "desc".equalsIgnoreCase(sortDir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+
+    public Sort toSort(Sort.Direction direction) {
+        if (this == ID) {
+            return Sort.by(direction, path);
+        }
+        return Sort.by(direction, path).and(Sort.by(direction, ID.path));
+    }
+
+    public Object valueOf(Product product) {
+        return extractor.apply(product);
+    }
+
+    public Object parseValue(String value) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.sistema_de_inventarios_v02.repository;
+
+import com.sistema_de_inventarios_v02.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Filtros de productos equivalentes a ProductRepository.findByCategoryAndName,
+ * para las consultas que se construyen dinámicamente (paginación por cursor)
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Igualdad sobre category_id: CategoryConverter traduce el nombre a su id
+     */
+    public static Specification<Product> categoryEquals(String category) {
+        return (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<Product> nameContains(String name) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")),
+                "%" + name.toLowerCase(Locale.ROOT) + "%");
+    }
+
+    public static Specification<Product> withFilters(String category, String name) {
+        List<Specification<Product>> specs = new ArrayList<>();
+        if (category != null && !category.isBlank()) {
+            specs.add(categoryEquals(category));
+        }
+        if (name != null && !name.isBlank()) {
+            specs.add(nameContains(name));
+        }
+        return Specification.allOf(specs);
+    }
+}
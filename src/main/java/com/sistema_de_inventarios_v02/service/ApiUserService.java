@@ -2,9 +2,13 @@ package com.sistema_de_inventarios_v02.service;
 
 import com.sistema_de_inventarios_v02.model.ApiUser;
 import com.sistema_de_inventarios_v02.repository.ApiUserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -15,8 +19,15 @@ public class ApiUserService {
     @Autowired
     private ApiUserRepository apiUserRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     public ApiUser save(ApiUser user) {
-        return apiUserRepository.save(user);
+        ApiUser saved = apiUserRepository.save(user);
+        if (user.getId() != null) {
+            evictAfterCommit(saved.getId());
+        }
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -41,6 +52,7 @@ public class ApiUserService {
 
     public void deleteById(Long id) {
         apiUserRepository.deleteById(id);
+        evictAfterCommit(id);
     }
 
     public ApiUser updateUser(Long id, ApiUser updatedUser) {
@@ -54,8 +66,31 @@ public class ApiUserService {
             if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
                 existingUser.setPassword(updatedUser.getPassword());
             }
-            return apiUserRepository.save(existingUser);
+            ApiUser saved = apiUserRepository.save(existingUser);
+            evictAfterCommit(id);
+            return saved;
         }
         return null;
     }
+
+    /**
+     * Un cambio de credenciales, rol o estado saca al usuario y el índice por username de la
+     * cache de segundo nivel al confirmarse, y la siguiente lectura va a la base de datos
+     */
+    private void evictAfterCommit(Long id) {
+        Runnable evict = () -> {
+            entityManagerFactory.getCache().evict(ApiUser.class, id);
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictNaturalIdData(ApiUser.class);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,83 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Atributos de AuditRecordDTO que se pueden pedir con ?fields= en /api/auditoria/products,
+ * con la columna de products_audit (pa) o REVINFO (r) de la que salen
+ */
+public enum AuditField {
+
+    REVISION("revision", "pa.REV", value -> ((Number) value).intValue()),
+    PRODUCT_ID("productId", "pa.id", value -> ((Number) value).longValue()),
+    PRODUCT_NAME("productName", "pa.name", value -> value),
+    REV_TYPE("revType", "pa.REVTYPE", value -> ((Number) value).intValue()),
+    USERNAME("username", "r.username", value -> value),
+    USER_ID("userId", "r.user_id", value -> ((Number) value).longValue()),
+    // Mismo formato que @JsonFormat en AuditRecordDTO.revisionDate
+    REVISION_DATE("revisionDate", "r.REVTSTMP", value -> LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(((Number) value).longValue()), ZoneId.systemDefault())
+            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+
+    private final String property;
+    private final String column;
+    private final Function<Object, Object> converter;
+
+    AuditField(String property, String column, Function<Object, Object> converter) {
+        this.property = property;
+        this.column = column;
+        this.converter = converter;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    Object convert(Object value) {
+        return value != null ? converter.apply(value) : null;
+    }
+
+    /**
+     * Interpreta "revision,productName" respetando el orden pedido y sin repetidos
+     */
+    public static List<AuditField> parse(String fields) {
+        List<AuditField> parsed = new ArrayList<>();
+        if (fields == null) {
+            return parsed;
+        }
+        for (String token : fields.split(",")) {
+            String property = token.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            AuditField field = Arrays.stream(values())
+                    .filter(candidate -> candidate.property.equalsIgnoreCase(property))
+                    .findFirst()
+                    .orElseThrow(() -> new InvalidPageRequestException("Campo no permitido: " + property
+                            + ". Valores permitidos: " + Arrays.stream(values())
+                            .map(AuditField::getProperty)
+                            .collect(Collectors.joining(", "))));
+            if (!parsed.contains(field)) {
+                parsed.add(field);
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new InvalidPageRequestException("El parámetro fields no puede estar vacío");
+        }
+        return parsed;
+    }
+}
@@ -1,17 +1,22 @@
 package com.sistema_de_inventarios_v02.service;
 
+import com.sistema_de_inventarios_v02.Config.ShardQueries;
 import com.sistema_de_inventarios_v02.dto.AuditRecordDTO;
 import com.sistema_de_inventarios_v02.dto.ChangeDetailsDTO;
 import com.sistema_de_inventarios_v02.dto.AuditStatisticsDTO;
 import com.sistema_de_inventarios_v02.audit.CustomRevisionEntity;
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
 import com.sistema_de_inventarios_v02.model.Product; // Asegúrate de que esta sea la ruta correcta
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
 import org.hibernate.envers.RevisionType;
 import org.hibernate.envers.query.AuditEntity;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,8 +27,15 @@ import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Consultas sobre el historial de Envers (products_audit y REVINFO). Con el catálogo
+ * repartido cada shard guarda el historial de sus productos: lo de un producto se consulta
+ * en su shard y los listados se piden a todos y se mezclan por fecha de revisión, porque
+ * cada shard numera sus revisiones por separado.
+ */
 @Service
 @Transactional(readOnly = true)
 public class AuditService {
@@ -31,6 +43,14 @@ public class AuditService {
     @PersistenceContext
     private EntityManager entityManager;
 
+    // null sin shards
+    private final ShardQueries shardQueries;
+
+    @Autowired
+    public AuditService(ObjectProvider<ShardQueries> shardQueries) {
+        this.shardQueries = shardQueries.getIfAvailable();
+    }
+
     /**
      * Obtiene el historial de auditoría con filtros y paginación
      */
@@ -39,46 +59,8 @@ public class AuditService {
                                                        LocalDateTime dateFrom, LocalDateTime dateTo) {
 
         try {
-            AuditReader auditReader = AuditReaderFactory.get(entityManager);
-
-            // Construir consulta con filtros
-            var query = auditReader.createQuery()
-                    .forRevisionsOfEntity(Product.class, false, true);
-
-            // Aplicar filtros
-            if (productName != null && !productName.trim().isEmpty()) {
-                query.add(AuditEntity.property("name").like("%" + productName.trim() + "%"));
-            }
-
-            if (revType != null) {
-                query.add(AuditEntity.revisionType().eq(RevisionType.values()[revType]));
-            }
-
-            if (dateFrom != null) {
-                long timestampFrom = dateFrom.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-                query.add(AuditEntity.revisionProperty("timestamp").ge(timestampFrom));
-            }
-
-            if (dateTo != null) {
-                long timestampTo = dateTo.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-                query.add(AuditEntity.revisionProperty("timestamp").le(timestampTo));
-            }
-
-            if (username != null && !username.trim().isEmpty()) {
-                query.add(AuditEntity.revisionProperty("username").like("%" + username.trim() + "%"));
-            }
-
-            // Agregar ordenamiento
-            query.addOrder(AuditEntity.revisionNumber().desc());
-
-            // Obtener resultados
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = query.getResultList();
-
-            // Convertir a DTOs
-            List<AuditRecordDTO> auditRecords = results.stream()
-                    .map(this::convertToAuditRecordDTO)
-                    .collect(Collectors.toList());
+            List<AuditRecordDTO> auditRecords = acrossShards(
+                    () -> findAuditRecords(productName, username, revType, dateFrom, dateTo));
 
             // Aplicar paginación manual
             int start = (int) pageable.getOffset();
@@ -103,33 +85,190 @@ public class AuditService {
     }
 
     /**
-     * Obtiene detalles de cambios para una revisión específica
+     * Revisiones de productos de la base de datos actual que cumplen los filtros, de la más
+     * reciente a la más antigua
      */
-    public List<ChangeDetailsDTO> getRevisionChanges(Long productId, Integer revision) {
-        try {
-            AuditReader auditReader = AuditReaderFactory.get(entityManager);
+    private List<AuditRecordDTO> findAuditRecords(String productName, String username, Integer revType,
+                                                  LocalDateTime dateFrom, LocalDateTime dateTo) {
+        AuditReader auditReader = AuditReaderFactory.get(entityManager);
 
-            // Obtener la entidad en la revisión actual
-            Product currentRevision = auditReader.find(Product.class, productId, revision);
+        // Construir consulta con filtros
+        var query = auditReader.createQuery()
+                .forRevisionsOfEntity(Product.class, false, true);
 
-            if (currentRevision == null) {
-                return Collections.emptyList();
-            }
+        // Aplicar filtros
+        if (productName != null && !productName.trim().isEmpty()) {
+            query.add(AuditEntity.property("name").like("%" + productName.trim() + "%"));
+        }
 
-            // Obtener la revisión anterior para comparar
-            List<Number> revisions = auditReader.getRevisions(Product.class, productId);
-            Product previousRevision = null;
+        if (revType != null) {
+            query.add(AuditEntity.revisionType().eq(RevisionType.values()[revType]));
+        }
 
-            for (int i = 0; i < revisions.size(); i++) {
-                if (revisions.get(i).intValue() == revision && i > 0) {
-                    previousRevision = auditReader.find(Product.class, productId,
-                            revisions.get(i - 1));
-                    break;
-                }
-            }
+        if (dateFrom != null) {
+            long timestampFrom = dateFrom.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            query.add(AuditEntity.revisionProperty("timestamp").ge(timestampFrom));
+        }
+
+        if (dateTo != null) {
+            long timestampTo = dateTo.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            query.add(AuditEntity.revisionProperty("timestamp").le(timestampTo));
+        }
+
+        if (username != null && !username.trim().isEmpty()) {
+            query.add(AuditEntity.revisionProperty("username").like("%" + username.trim() + "%"));
+        }
+
+        // Agregar ordenamiento
+        query.addOrder(AuditEntity.revisionNumber().desc());
+
+        // Obtener resultados
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.getResultList();
+
+        // Convertir a DTOs
+        return results.stream()
+                .map(this::convertToAuditRecordDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Historial de auditoría con solo los campos pedidos (?fields=). A diferencia de
+     * getProductAuditHistory no reconstruye entidades: selecciona esas columnas de
+     * products_audit/REVINFO y pagina en la base de datos
+     */
+    @SuppressWarnings("unchecked")
+    public Page<Map<String, Object>> getProductAuditFields(Pageable pageable, List<AuditField> fields,
+                                                           String productName, String username, Integer revType,
+                                                           LocalDateTime dateFrom, LocalDateTime dateTo) {
+        StringBuilder where = new StringBuilder(" FROM products_audit pa JOIN REVINFO r ON r.REV = pa.REV WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (productName != null && !productName.trim().isEmpty()) {
+            where.append(" AND pa.name LIKE :productName");
+            parameters.put("productName", "%" + productName.trim() + "%");
+        }
+        if (username != null && !username.trim().isEmpty()) {
+            where.append(" AND r.username LIKE :username");
+            parameters.put("username", "%" + username.trim() + "%");
+        }
+        if (revType != null) {
+            where.append(" AND pa.REVTYPE = :revType");
+            parameters.put("revType", revType);
+        }
+        if (dateFrom != null) {
+            where.append(" AND r.REVTSTMP >= :dateFrom");
+            parameters.put("dateFrom", dateFrom.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        if (dateTo != null) {
+            where.append(" AND r.REVTSTMP <= :dateTo");
+            parameters.put("dateTo", dateTo.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+
+        String columns = fields.stream().map(AuditField::getColumn).collect(Collectors.joining(", "));
+        if (shardQueries != null) {
+            return auditFieldsAcrossShards(pageable, fields, columns, where.toString(), parameters);
+        }
+        var query = entityManager.createNativeQuery("SELECT " + columns + where + " ORDER BY pa.REV DESC, pa.id");
+        var countQuery = entityManager.createNativeQuery("SELECT COUNT(*)" + where);
+        parameters.forEach((name, value) -> {
+            query.setParameter(name, value);
+            countQuery.setParameter(name, value);
+        });
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+
+        List<Map<String, Object>> content = new ArrayList<>();
+        for (Object result : query.getResultList()) {
+            // Con una sola columna el resultado no viene envuelto en un array
+            content.add(toFieldRecord(fields.size() == 1 ? new Object[]{result} : (Object[]) result, fields));
+        }
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> ((Number) countQuery.getSingleResult()).longValue());
+    }
+
+    /**
+     * Cada shard devuelve sus filas hasta el final de la página, con fecha, revisión e id
+     * detrás de los campos pedidos para mezclarlas; la página es el tramo de la mezcla
+     */
+    @SuppressWarnings("unchecked")
+    private Page<Map<String, Object>> auditFieldsAcrossShards(Pageable pageable, List<AuditField> fields, String columns,
+                                                              String where, Map<String, Object> parameters) {
+        long end = pageable.getOffset() + pageable.getPageSize();
+        if (end > Integer.MAX_VALUE) {
+            throw new InvalidPageRequestException("Página demasiado alta para una consulta entre shards");
+        }
+        int keys = fields.size();
+        List<ShardFieldRows> shards = shardQueries.onEveryShard(() -> {
+            var query = entityManager.createNativeQuery("SELECT " + columns + ", r.REVTSTMP, pa.REV, pa.id" + where
+                    + " ORDER BY r.REVTSTMP DESC, pa.REV DESC, pa.id");
+            var countQuery = entityManager.createNativeQuery("SELECT COUNT(*)" + where);
+            parameters.forEach((name, value) -> {
+                query.setParameter(name, value);
+                countQuery.setParameter(name, value);
+            });
+            query.setMaxResults((int) end);
+            return new ShardFieldRows(query.getResultList(), ((Number) countQuery.getSingleResult()).longValue());
+        });
+
+        List<Object[]> rows = new ArrayList<>();
+        long total = 0;
+        for (ShardFieldRows shard : shards) {
+            rows.addAll(shard.rows());
+            total += shard.total();
+        }
+        Comparator<Object[]> newestFirst = Comparator.<Object[]>comparingLong(row -> ((Number) row[keys]).longValue())
+                .thenComparingLong(row -> ((Number) row[keys + 1]).longValue())
+                .reversed()
+                .thenComparingLong(row -> ((Number) row[keys + 2]).longValue());
+        rows.sort(newestFirst);
+
+        List<Map<String, Object>> content = new ArrayList<>();
+        for (int i = (int) Math.min(pageable.getOffset(), rows.size()); i < Math.min(end, rows.size()); i++) {
+            content.add(toFieldRecord(rows.get(i), fields));
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private static Map<String, Object> toFieldRecord(Object[] row, List<AuditField> fields) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            record.put(fields.get(i).getProperty(), fields.get(i).convert(row[i]));
+        }
+        return record;
+    }
+
+    /**
+     * Ejecuta la consulta en cada shard y mezcla los registros de la revisión más reciente a
+     * la más antigua; sin shards, en la base de datos de siempre
+     */
+    private List<AuditRecordDTO> acrossShards(Supplier<List<AuditRecordDTO>> query) {
+        if (shardQueries == null) {
+            return query.get();
+        }
+        List<AuditRecordDTO> records = new ArrayList<>();
+        shardQueries.onEveryShard(query).forEach(records::addAll);
+        records.sort(Comparator.comparing(AuditRecordDTO::getRevisionDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(AuditRecordDTO::getRevision, Comparator.nullsLast(Comparator.reverseOrder())));
+        return records;
+    }
+
+    /**
+     * Lo de un solo producto se consulta en el shard que lo guarda
+     */
+    private <T> T onHomeShard(Long productId, Supplier<T> query) {
+        return shardQueries != null && productId != null ? shardQueries.onHomeShard(productId, query) : query.get();
+    }
 
-            return compareRevisions(previousRevision, currentRevision, revision);
+    private record ShardFieldRows(List<Object[]> rows, long total) {
+    }
 
+    /**
+     * Obtiene detalles de cambios para una revisión específica
+     */
+    public List<ChangeDetailsDTO> getRevisionChanges(Long productId, Integer revision) {
+        try {
+            return onHomeShard(productId, () -> findRevisionChanges(productId, revision));
         } catch (Exception e) {
             System.err.println("Error en getRevisionChanges: " + e.getMessage());
             e.printStackTrace();
@@ -137,24 +276,51 @@ public class AuditService {
         }
     }
 
+    private List<ChangeDetailsDTO> findRevisionChanges(Long productId, Integer revision) {
+        AuditReader auditReader = AuditReaderFactory.get(entityManager);
+
+        // Obtener la entidad en la revisión actual
+        Product currentRevision = auditReader.find(Product.class, productId, revision);
+
+        if (currentRevision == null) {
+            return Collections.emptyList();
+        }
+
+        // Obtener la revisión anterior para comparar
+        List<Number> revisions = auditReader.getRevisions(Product.class, productId);
+        Product previousRevision = null;
+
+        for (int i = 0; i < revisions.size(); i++) {
+            if (revisions.get(i).intValue() == revision && i > 0) {
+                previousRevision = auditReader.find(Product.class, productId,
+                        revisions.get(i - 1));
+                break;
+            }
+        }
+
+        return compareRevisions(previousRevision, currentRevision, revision);
+    }
+
     /**
      * Obtiene el historial completo de un producto específico
      */
     public Page<AuditRecordDTO> getProductHistory(Long productId, Pageable pageable) {
         try {
-            AuditReader auditReader = AuditReaderFactory.get(entityManager);
+            List<AuditRecordDTO> auditRecords = onHomeShard(productId, () -> {
+                AuditReader auditReader = AuditReaderFactory.get(entityManager);
 
-            var query = auditReader.createQuery()
-                    .forRevisionsOfEntity(Product.class, false, true)
-                    .add(AuditEntity.id().eq(productId))
-                    .addOrder(AuditEntity.revisionNumber().desc());
+                var query = auditReader.createQuery()
+                        .forRevisionsOfEntity(Product.class, false, true)
+                        .add(AuditEntity.id().eq(productId))
+                        .addOrder(AuditEntity.revisionNumber().desc());
 
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = query.getResultList();
+                @SuppressWarnings("unchecked")
+                List<Object[]> results = query.getResultList();
 
-            List<AuditRecordDTO> auditRecords = results.stream()
-                    .map(this::convertToAuditRecordDTO)
-                    .collect(Collectors.toList());
+                return results.stream()
+                        .map(this::convertToAuditRecordDTO)
+                        .collect(Collectors.toList());
+            });
 
             // Aplicar paginación
             int start = (int) pageable.getOffset();
@@ -367,41 +533,8 @@ public class AuditService {
                                                   String username, LocalDateTime dateFrom,
                                                   LocalDateTime dateTo) {
         try {
-            AuditReader auditReader = AuditReaderFactory.get(entityManager);
-
-            // Obtener TODAS las revisiones primero
-            var query = auditReader.createQuery()
-                    .forRevisionsOfEntity(Product.class, false, true);
-
-            // Aplicar filtros básicos
-            if (productName != null && !productName.trim().isEmpty()) {
-                query.add(AuditEntity.property("name").like("%" + productName.trim() + "%"));
-            }
-
-            if (dateFrom != null) {
-                long timestampFrom = dateFrom.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-                query.add(AuditEntity.revisionProperty("timestamp").ge(timestampFrom));
-            }
-
-            if (dateTo != null) {
-                long timestampTo = dateTo.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-                query.add(AuditEntity.revisionProperty("timestamp").le(timestampTo));
-            }
-
-            if (username != null && !username.trim().isEmpty()) {
-                query.add(AuditEntity.revisionProperty("username").like("%" + username.trim() + "%"));
-            }
-
-            query.addOrder(AuditEntity.revisionNumber().desc());
-
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = query.getResultList();
-
-            // FILTRAR SOLO LOS QUE CAMBIARON STOCK
-            List<AuditRecordDTO> stockMovements = results.stream()
-                    .map(this::convertToStockAuditRecordDTO) // Nuevo método para stock
-                    .filter(this::isStockMovement)
-                    .collect(Collectors.toList());
+            List<AuditRecordDTO> stockMovements = acrossShards(
+                    () -> findStockMovements(productName, username, dateFrom, dateTo));
 
             // Aplicar paginación manual
             int start = (int) pageable.getOffset();
@@ -421,6 +554,49 @@ public class AuditService {
         }
     }
 
+    /**
+     * Revisiones de la base de datos actual que cambiaron el stock, de la más reciente a la
+     * más antigua
+     */
+    private List<AuditRecordDTO> findStockMovements(String productName, String username,
+                                                    LocalDateTime dateFrom, LocalDateTime dateTo) {
+        AuditReader auditReader = AuditReaderFactory.get(entityManager);
+
+        // Obtener TODAS las revisiones primero
+        var query = auditReader.createQuery()
+                .forRevisionsOfEntity(Product.class, false, true);
+
+        // Aplicar filtros básicos
+        if (productName != null && !productName.trim().isEmpty()) {
+            query.add(AuditEntity.property("name").like("%" + productName.trim() + "%"));
+        }
+
+        if (dateFrom != null) {
+            long timestampFrom = dateFrom.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            query.add(AuditEntity.revisionProperty("timestamp").ge(timestampFrom));
+        }
+
+        if (dateTo != null) {
+            long timestampTo = dateTo.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            query.add(AuditEntity.revisionProperty("timestamp").le(timestampTo));
+        }
+
+        if (username != null && !username.trim().isEmpty()) {
+            query.add(AuditEntity.revisionProperty("username").like("%" + username.trim() + "%"));
+        }
+
+        query.addOrder(AuditEntity.revisionNumber().desc());
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.getResultList();
+
+        // FILTRAR SOLO LOS QUE CAMBIARON STOCK
+        return results.stream()
+                .map(this::convertToStockAuditRecordDTO) // Nuevo método para stock
+                .filter(this::isStockMovement)
+                .collect(Collectors.toList());
+    }
+
     /**
      * NUEVO MÉTODO: Detecta si una revisión cambió el stock
      */
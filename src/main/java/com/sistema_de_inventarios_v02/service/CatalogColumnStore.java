@@ -0,0 +1,376 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * Copia columnar del catálogo fuera del heap para recorridos analíticos: id, código de
+ * categoría, precio en céntimos, stock y stock mínimo se guardan en columnas primitivas
+ * sobre ByteBuffer directos. Se carga al arrancar y se actualiza fila a fila con cada
+ * ProductChangedEvent confirmado.
+ * <p>
+ * Su único operador es contar por tramos, el que usan las facetas de ProductFacetService;
+ * las estadísticas y el stock bajo ya salen de InventoryCounterService y de la base de
+ * datos. El recorrido no crea objetos por fila y con más de PARALLEL_THRESHOLD filas se
+ * reparte en el pool de fork/join común.
+ */
+@Service
+public class CatalogColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogColumnStore.class);
+
+    /** Código de categoría de un producto sin categoría */
+    public static final int NO_CATEGORY = Integer.MIN_VALUE;
+    /** Precio desconocido: no cumple ningún filtro de precio, igual que NULL en SQL */
+    public static final long NO_PRICE = Long.MIN_VALUE;
+    /** Stock mínimo desconocido: el producto nunca está en stock bajo */
+    public static final int NO_MINIMUM = Integer.MIN_VALUE;
+
+    /** Filas a partir de las cuales un recorrido se divide entre varios hilos */
+    static final int PARALLEL_THRESHOLD = 16_384;
+
+    private static final long EMPTY_SLOT = 0L;
+
+    private final CatalogSnapshotFile catalogSnapshots;
+    private final CategoryDictionary categoryDictionary;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int initialCapacity;
+
+    private final ReplayingIndex<Table> index;
+
+    @Autowired
+    public CatalogColumnStore(CatalogSnapshotFile catalogSnapshots,
+                              CategoryDictionary categoryDictionary,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${inventory.column-store.enabled:true}") boolean enabled,
+                              @Value("${inventory.column-store.initial-capacity:1024}") int initialCapacity) {
+        this.catalogSnapshots = catalogSnapshots;
+        this.categoryDictionary = categoryDictionary;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.initialCapacity = Math.max(initialCapacity, 16);
+        this.index = new ReplayingIndex<>(new Table(this.initialCapacity), Table::remove,
+                (table, product) -> table.upsert(product, categoryCode(categoryDictionary, product.getCategory())));
+    }
+
+    public boolean isReady() {
+        return index.isLoaded();
+    }
+
+    /**
+     * Condición sobre las columnas de una fila
+     */
+    @FunctionalInterface
+    public interface RowFilter {
+        boolean test(int category, long priceCents, int stock, int minimumStock);
+    }
+
+    /**
+     * Tramo de una fila en [0, buckets), o -1 para no contarla
+     */
+    @FunctionalInterface
+    public interface RowClassifier {
+        int classify(int category, long priceCents, int stock, int minimumStock);
+    }
+
+    /**
+     * Carga las columnas desde la proyección de snapshots al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Table loaded = index.load(new Table(initialCapacity), table -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ProductSnapshot> products = catalogSnapshots.streamAllSnapshots()) {
+                products.forEach(product -> table.upsert(product, categoryCode(product.getCategory())));
+            }
+        }));
+        logger.info("Catalog column store loaded: {} products, {} KB off-heap",
+                loaded.rows, loaded.columns.bytes() / 1024);
+    }
+
+    /**
+     * Se aplica antes de que ProductFacetService descarte su caché, para que una faceta
+     * recalculada tras la invalidación ya vea el cambio
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        index.onChange(event);
+    }
+
+    /**
+     * Código de columna para un nombre de categoría: NO_CATEGORY si es null y
+     * CategoryDictionary.UNKNOWN_ID si no existe
+     */
+    public int categoryCode(String category) {
+        return categoryCode(categoryDictionary, category);
+    }
+
+    private static int categoryCode(CategoryDictionary categoryDictionary, String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        Integer id = categoryDictionary.findId(category);
+        return id != null ? id : CategoryDictionary.UNKNOWN_ID;
+    }
+
+    public String categoryName(int code) {
+        return code >= 0 ? categoryDictionary.nameOf(code) : null;
+    }
+
+    /**
+     * Mayor código de categoría guardado más uno: tamaño para contar por categoría
+     */
+    public int categoryCodeBound() {
+        return index.read(table -> table.maxCategory + 1);
+    }
+
+    public int size() {
+        return index.read(table -> table.rows);
+    }
+
+    /**
+     * Filtro por categoría (código o null para todas) y rango de precio, con la misma
+     * semántica que ProductRepository.FACET_FILTERS_WHERE. Una categoría que no existe
+     * (CategoryDictionary.UNKNOWN_ID) no cumple ninguna fila
+     */
+    public static RowFilter matching(Integer categoryCode, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (categoryCode != null && categoryCode == CategoryDictionary.UNKNOWN_ID) {
+            return (rowCategory, price, stock, minimumStock) -> false;
+        }
+        boolean anyCategory = categoryCode == null;
+        int category = anyCategory ? 0 : categoryCode;
+        boolean hasMin = minPrice != null;
+        boolean hasMax = maxPrice != null;
+        long min = hasMin ? toCents(minPrice, RoundingMode.CEILING) : 0L;
+        long max = hasMax ? toCents(maxPrice, RoundingMode.FLOOR) : 0L;
+        return (rowCategory, price, stock, minimumStock) ->
+                (anyCategory || rowCategory == category)
+                        && (!hasMin || (price != NO_PRICE && price >= min))
+                        && (!hasMax || (price != NO_PRICE && price <= max));
+    }
+
+    public static long toCents(BigDecimal price, RoundingMode rounding) {
+        return price.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+
+    /**
+     * Mismo criterio que StockStatus.of sobre columnas primitivas
+     */
+    public static StockStatus stockStatus(int stock, int minimumStock) {
+        if (stock == 0) {
+            return StockStatus.OUT_OF_STOCK;
+        }
+        return stock <= minimumStock ? StockStatus.LOW_STOCK : StockStatus.IN_STOCK;
+    }
+
+    /**
+     * Cuenta las filas que cumplen el filtro en varios histogramas a la vez, en un solo
+     * recorrido: counts[i] tiene buckets[i] posiciones y se llena con classifiers[i]
+     */
+    public long[][] countBy(RowFilter filter, RowClassifier[] classifiers, int[] buckets) {
+        if (classifiers.length != buckets.length) {
+            throw new IllegalArgumentException("Se necesita un tamaño por clasificador");
+        }
+        return index.read(table -> {
+            CountTask task = new CountTask(table, filter, classifiers, buckets, 0, table.highWater);
+            return table.highWater > PARALLEL_THRESHOLD ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+        });
+    }
+
+    public long[] countBy(RowFilter filter, RowClassifier classifier, int buckets) {
+        return countBy(filter, new RowClassifier[]{classifier}, new int[]{buckets})[0];
+    }
+
+    /**
+     * Columnas sobre memoria directa en el orden nativo de bytes
+     */
+    private static final class Columns {
+        final int capacity;
+        final LongBuffer ids;
+        final IntBuffer categories;
+        final LongBuffer prices;
+        final IntBuffer stock;
+        final IntBuffer minimumStock;
+
+        Columns(int capacity) {
+            this.capacity = capacity;
+            this.ids = direct(capacity, Long.BYTES).asLongBuffer();
+            this.categories = direct(capacity, Integer.BYTES).asIntBuffer();
+            this.prices = direct(capacity, Long.BYTES).asLongBuffer();
+            this.stock = direct(capacity, Integer.BYTES).asIntBuffer();
+            this.minimumStock = direct(capacity, Integer.BYTES).asIntBuffer();
+        }
+
+        Columns grow(int used) {
+            Columns bigger = new Columns(capacity * 2);
+            bigger.ids.put(0, ids, 0, used);
+            bigger.categories.put(0, categories, 0, used);
+            bigger.prices.put(0, prices, 0, used);
+            bigger.stock.put(0, stock, 0, used);
+            bigger.minimumStock.put(0, minimumStock, 0, used);
+            return bigger;
+        }
+
+        long bytes() {
+            return (long) capacity * (Long.BYTES * 2 + Integer.BYTES * 3);
+        }
+
+        private static ByteBuffer direct(int capacity, int width) {
+            return ByteBuffer.allocateDirect(Math.multiplyExact(capacity, width)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Columnas más la posición de cada id; las ranuras de productos borrados se reutilizan
+     */
+    private static final class Table {
+        Columns columns;
+        final Map<Long, Integer> slots = new HashMap<>();
+        int[] freeSlots = new int[16];
+        int freeCount;
+        int highWater;
+        int rows;
+        int maxCategory = -1;
+
+        Table(int capacity) {
+            this.columns = new Columns(capacity);
+        }
+
+        void upsert(ProductSnapshot product, int category) {
+            Integer slot = slots.get(product.getId());
+            if (slot == null) {
+                slot = allocate();
+                slots.put(product.getId(), slot);
+                rows++;
+            }
+            columns.ids.put(slot, product.getId());
+            columns.categories.put(slot, category);
+            columns.prices.put(slot, product.getPrice() != null
+                    ? toCents(product.getPrice(), RoundingMode.HALF_UP) : NO_PRICE);
+            columns.stock.put(slot, product.getStock() != null ? product.getStock() : 0);
+            columns.minimumStock.put(slot, product.getMinimumStock() != null ? product.getMinimumStock() : NO_MINIMUM);
+            maxCategory = Math.max(maxCategory, category);
+        }
+
+        void remove(Long id) {
+            Integer slot = slots.remove(id);
+            if (slot == null) {
+                return;
+            }
+            columns.ids.put(slot, EMPTY_SLOT);
+            if (freeCount == freeSlots.length) {
+                int[] bigger = new int[freeSlots.length * 2];
+                System.arraycopy(freeSlots, 0, bigger, 0, freeCount);
+                freeSlots = bigger;
+            }
+            freeSlots[freeCount++] = slot;
+            rows--;
+        }
+
+        private int allocate() {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            if (highWater == columns.capacity) {
+                columns = columns.grow(highWater);
+            }
+            return highWater++;
+        }
+    }
+
+    // ForkJoinTask es Serializable, pero estas tareas solo viven en el pool y nunca se serializan
+    @SuppressWarnings("serial")
+    private static final class CountTask extends RecursiveTask<long[][]> {
+        private final Table table;
+        private final RowFilter filter;
+        private final RowClassifier[] classifiers;
+        private final int[] buckets;
+        private final int from;
+        private final int to;
+
+        CountTask(Table table, RowFilter filter, RowClassifier[] classifiers, int[] buckets, int from, int to) {
+            this.table = table;
+            this.filter = filter;
+            this.classifiers = classifiers;
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(table, filter, classifiers, buckets, from, middle);
+                left.fork();
+                long[][] counts = new CountTask(table, filter, classifiers, buckets, middle, to).compute();
+                long[][] leftCounts = left.join();
+                for (int i = 0; i < counts.length; i++) {
+                    for (int b = 0; b < counts[i].length; b++) {
+                        counts[i][b] += leftCounts[i][b];
+                    }
+                }
+                return counts;
+            }
+
+            long[][] counts = new long[classifiers.length][];
+            for (int i = 0; i < classifiers.length; i++) {
+                counts[i] = new long[buckets[i]];
+            }
+            Columns columns = table.columns;
+            for (int slot = from; slot < to; slot++) {
+                if (columns.ids.get(slot) == EMPTY_SLOT) {
+                    continue;
+                }
+                int category = columns.categories.get(slot);
+                long price = columns.prices.get(slot);
+                int stock = columns.stock.get(slot);
+                int minimumStock = columns.minimumStock.get(slot);
+                if (!filter.test(category, price, stock, minimumStock)) {
+                    continue;
+                }
+                for (int i = 0; i < classifiers.length; i++) {
+                    int bucket = classifiers[i].classify(category, price, stock, minimumStock);
+                    if (bucket >= 0 && bucket < counts[i].length) {
+                        counts[i][bucket]++;
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.Config.ShardRouter;
+import com.sistema_de_inventarios_v02.audit.CustomRevisionEntity;
+import com.sistema_de_inventarios_v02.audit.NodeIdentity;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.envers.RevisionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Invalidación entre nodos sin broker: cada nodo lee periódicamente las revisiones de
+ * REVINFO posteriores a la última que procesó y, para las escritas por otros nodos,
+ * publica el ProductChangedEvent equivalente a partir de products_audit. Así las caches,
+ * índices y contadores en memoria se actualizan igual que con una escritura local.
+ * <p>
+ * El número de revisión se asigna antes del commit, de modo que una revisión menor puede
+ * hacerse visible después que otras mayores. Los huecos se vuelven a consultar por número
+ * mientras la lectura sigue por delante, y se esperan hasta inventory.invalidation.gap-timeout-ms
+ * (una transacción revertida deja un hueco permanente).
+ * Con el catálogo repartido cada shard tiene su propio REVINFO y se sigue por separado.
+ */
+@Service
+public class CatalogInvalidationPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogInvalidationPoller.class);
+
+    private final ProductHistoryRepository historyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final Counter remoteChanges;
+    // Un REVINFO por shard; uno solo sin shards
+    private final RevisionCursor[] cursors;
+
+    public CatalogInvalidationPoller(ProductHistoryRepository historyRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     EntityManagerFactory entityManagerFactory,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     int batchSize,
+                                     long gapTimeoutMillis) {
+        this(historyRepository, eventPublisher, entityManagerFactory, transactionManager, meterRegistry,
+                1, batchSize, gapTimeoutMillis);
+    }
+
+    @Autowired
+    public CatalogInvalidationPoller(ProductHistoryRepository historyRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     EntityManagerFactory entityManagerFactory,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     ObjectProvider<ShardRouter> shardRouter,
+                                     @Value("${inventory.invalidation.batch-size:500}") int batchSize,
+                                     @Value("${inventory.invalidation.gap-timeout-ms:30000}") long gapTimeoutMillis) {
+        this(historyRepository, eventPublisher, entityManagerFactory, transactionManager, meterRegistry,
+                shardRouter.getIfAvailable() != null ? shardRouter.getIfAvailable().shardCount() : 1,
+                batchSize, gapTimeoutMillis);
+    }
+
+    private CatalogInvalidationPoller(ProductHistoryRepository historyRepository,
+                                      ApplicationEventPublisher eventPublisher,
+                                      EntityManagerFactory entityManagerFactory,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      int shards,
+                                      int batchSize,
+                                      long gapTimeoutMillis) {
+        this.historyRepository = historyRepository;
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.remoteChanges = Counter.builder("inventory.invalidation.remote.changes")
+                .description("Cambios de productos de otros nodos aplicados a las caches locales")
+                .register(meterRegistry);
+        this.cursors = new RevisionCursor[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            cursors[shard] = new RevisionCursor();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${inventory.invalidation.poll-interval-ms:1000}",
+            fixedDelayString = "${inventory.invalidation.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        for (int shard = 0; shard < cursors.length; shard++) {
+            RevisionCursor cursor = cursors[shard];
+            ShardRouter.callOn(shard, () -> {
+                transactionTemplate.executeWithoutResult(status -> pollRevisions(cursor, now));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Watermark del primer shard (el único sin shards)
+     */
+    public synchronized long getWatermark() {
+        return cursors[0].watermark;
+    }
+
+    private void pollRevisions(RevisionCursor cursor, long now) {
+        if (cursor.watermark < 0) {
+            // Al arrancar las caches se cargan de la base de datos; solo interesan los cambios siguientes
+            cursor.watermark = historyRepository.findLatestCatalogRevision()
+                    .map(RevisionStampDTO::getRevision)
+                    .orElse(0L);
+            cursor.highest = cursor.watermark;
+            return;
+        }
+
+        // Los huecos abiertos se consultan por número; la lectura por delante sigue desde la
+        // mayor revisión vista, así un hueco no hace releer una y otra vez el mismo lote
+        Map<Long, String> revisions = new LinkedHashMap<>(historyRepository.findRevisionNodes(
+                cursor.pendingGaps.keySet().stream().limit(batchSize).toList()));
+        Map<Long, String> ahead = historyRepository.findRevisionNodesAfter(cursor.highest, batchSize);
+        for (Long revision : ahead.keySet()) {
+            for (long next = cursor.highest + 1; next < revision; next++) {
+                cursor.pendingGaps.putIfAbsent(next, now);
+            }
+            cursor.highest = Math.max(cursor.highest, revision);
+        }
+        revisions.putAll(ahead);
+
+        List<Long> remote = new ArrayList<>();
+        for (Map.Entry<Long, String> revision : revisions.entrySet()) {
+            cursor.pendingGaps.remove(revision.getKey());
+            if (!NodeIdentity.get().equals(revision.getValue())) {
+                remote.add(revision.getKey());
+            }
+        }
+        if (!remote.isEmpty()) {
+            Collections.sort(remote);
+            apply(historyRepository.findProductChangesInRevisions(remote));
+        }
+        advanceWatermark(cursor, now);
+    }
+
+    /**
+     * Publica un evento por fila; el estado anterior es el de la fila previa del mismo
+     * producto o, para la primera, el de antes de su revisión, leído para todo el lote a la vez
+     */
+    private void apply(List<Object[]> rows) {
+        Map<Long, Integer> firstRevisions = new HashMap<>();
+        for (Object[] row : rows) {
+            firstRevisions.putIfAbsent(((Product) row[0]).getId(), ((CustomRevisionEntity) row[1]).getRev());
+        }
+        Map<Long, ProductSnapshot> latest = new HashMap<>();
+        historyRepository.findProductStatesBefore(firstRevisions)
+                .forEach((id, product) -> latest.put(id, ProductSnapshot.of(product)));
+
+        for (Object[] row : rows) {
+            Product product = (Product) row[0];
+            RevisionType type = (RevisionType) row[2];
+            Long id = product.getId();
+
+            ProductSnapshot before = latest.get(id);
+            ProductSnapshot after = type == RevisionType.DEL ? null : ProductSnapshot.of(product);
+            latest.put(id, after);
+
+            entityManagerFactory.getCache().evict(Product.class, id);
+            if (after == null) {
+                eventPublisher.publishEvent(ProductChangedEvent.deleted(
+                        before != null ? before : ProductSnapshot.of(product)));
+            } else if (before == null) {
+                eventPublisher.publishEvent(ProductChangedEvent.created(after));
+            } else {
+                eventPublisher.publishEvent(ProductChangedEvent.updated(before, after));
+            }
+            remoteChanges.increment();
+        }
+        if (!rows.isEmpty()) {
+            logger.debug("Applied {} product changes from other nodes", rows.size());
+        }
+    }
+
+    /**
+     * El watermark queda justo debajo del hueco abierto más antiguo, o en la mayor revisión
+     * vista si no queda ninguno; los huecos que superan el tiempo límite se dan por perdidos
+     */
+    private void advanceWatermark(RevisionCursor cursor, long now) {
+        Iterator<Map.Entry<Long, Long>> gaps = cursor.pendingGaps.entrySet().iterator();
+        while (gaps.hasNext()) {
+            Map.Entry<Long, Long> gap = gaps.next();
+            if (now - gap.getValue() >= gapTimeoutMillis) {
+                logger.debug("Revision {} never became visible; skipping it", gap.getKey());
+                gaps.remove();
+            }
+        }
+        cursor.watermark = cursor.pendingGaps.isEmpty() ? cursor.highest : cursor.pendingGaps.firstKey() - 1;
+    }
+
+    private static final class RevisionCursor {
+        // Todas las revisiones <= watermark están procesadas; -1 hasta la primera lectura
+        private long watermark = -1;
+        // Mayor revisión leída; entre watermark y ella solo faltan los huecos pendientes
+        private long highest = -1;
+        // Huecos pendientes, en orden, y cuándo se vieron por primera vez
+        private final NavigableMap<Long, Long> pendingGaps = new TreeMap<>();
+    }
+}
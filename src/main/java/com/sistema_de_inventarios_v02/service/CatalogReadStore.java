@@ -0,0 +1,425 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.Config.ServedRevision;
+import com.sistema_de_inventarios_v02.dto.ProductResponseDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.exception.ProductNotFoundException;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Modelo de lectura del catálogo (CQRS) para los usuarios VISITOR: copia en memoria de
+ * los productos con índices por categoría, precio y estado de stock. Se carga al arrancar
+ * y se alimenta con la secuencia de ProductChangedEvent confirmados, que un hilo propio
+ * aplica en orden.
+ * <p>
+ * Solo responde cuando no quedan cambios por aplicar; con cambios pendientes las lecturas
+ * van a la base de datos, de modo que nunca devuelve (ni deja en caché) un dato anterior
+ * a una escritura ya confirmada. Se activa con inventory.read-model.enabled.
+ */
+@Service
+public class CatalogReadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogReadStore.class);
+
+    private final CatalogSnapshotFile catalogSnapshots;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final ExecutorService applier;
+    private final Timer applyDelay;
+
+    private final ReplayingIndex<Indexes> index = new ReplayingIndex<>(new Indexes(), Indexes::remove, Indexes::add);
+
+    // Cambios confirmados todavía sin aplicar, en orden de commit
+    private final ConcurrentLinkedQueue<PendingChange> changes = new ConcurrentLinkedQueue<>();
+    private final Object drainLock = new Object();
+
+    @Autowired
+    public CatalogReadStore(CatalogSnapshotFile catalogSnapshots,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${inventory.read-model.enabled:false}") boolean enabled) {
+        this.catalogSnapshots = catalogSnapshots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.applier = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-read-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.applyDelay = Timer.builder("inventory.read-model.apply.delay")
+                .description("Tiempo entre el commit de un cambio y su aplicación en el modelo de lectura")
+                .register(meterRegistry);
+        Gauge.builder("inventory.read-model.lag", changes, Collection::size)
+                .description("Cambios confirmados pendientes de aplicar en el modelo de lectura")
+                .register(meterRegistry);
+        // Los gauges observan la cola y el índice, no this, que aún no está construido
+        Gauge.builder("inventory.read-model.staleness", changes, CatalogReadStore::stalenessSeconds)
+                .description("Antigüedad en segundos del cambio pendiente más antiguo")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("inventory.read-model.products", index, CatalogReadStore::size)
+                .description("Productos en el modelo de lectura")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return index.isLoaded();
+    }
+
+    /**
+     * Verdadero si la petición actual es de un usuario solo VISITOR y la copia está al día.
+     * En ese caso lo anota en ServedRevision: los cambios de otros nodos llegan con el
+     * retraso del sondeo, así que la respuesta no acredita la última revisión
+     */
+    public boolean servesCurrentUser() {
+        boolean serves = enabled && index.isLoaded() && changes.isEmpty()
+                && isVisitorOnly(SecurityContextHolder.getContext().getAuthentication());
+        if (serves) {
+            ServedRevision.record(ServedRevision.UNKNOWN);
+        }
+        return serves;
+    }
+
+    /**
+     * Solo se ordena en memoria por los campos de ProductSortField
+     */
+    public boolean supports(Sort sort) {
+        return sort.stream().allMatch(order -> comparator(order.getProperty()) != null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Indexes loaded = index.load(new Indexes(), indexes -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ProductSnapshot> products = catalogSnapshots.streamAllSnapshots()) {
+                products.forEach(indexes::add);
+            }
+        }));
+        logger.info("Catalog read store loaded: {} products", loaded.byId.size());
+    }
+
+    /**
+     * Se encola antes que los demás listeners invaliden sus caches: una lectura que ya
+     * ve la invalidación ve también el cambio pendiente y va a la base de datos
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        changes.add(new PendingChange(event, System.nanoTime()));
+        applier.execute(this::applyPendingChanges);
+    }
+
+    /**
+     * Aplica en orden los cambios encolados; lo ejecuta el hilo del modelo de lectura
+     */
+    public void applyPendingChanges() {
+        synchronized (drainLock) {
+            PendingChange change;
+            while ((change = changes.peek()) != null) {
+                index.onChange(change.event());
+                applyDelay.record(System.nanoTime() - change.enqueuedAt(), TimeUnit.NANOSECONDS);
+                changes.poll();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        applier.shutdown();
+    }
+
+    public int size() {
+        return size(index);
+    }
+
+    private static int size(ReplayingIndex<Indexes> index) {
+        return index.read(indexes -> indexes.byId.size());
+    }
+
+    public ProductResponseDTO getProductById(Long id) {
+        ProductSnapshot product = index.read(indexes -> indexes.byId.get(id));
+        if (product == null) {
+            throw new ProductNotFoundException("Producto no encontrado con ID: " + id);
+        }
+        return toResponse(product);
+    }
+
+    /**
+     * En el orden pedido; los ids inexistentes se omiten
+     */
+    public List<ProductResponseDTO> getProductsByIds(List<Long> ids) {
+        return index.read(indexes -> ids.stream()
+                .map(indexes.byId::get)
+                .filter(Objects::nonNull)
+                .map(CatalogReadStore::toResponse)
+                .toList());
+    }
+
+    public List<ProductSummaryDTO> getAllProductsSummary() {
+        return index.read(indexes -> indexes.byId.values().stream().map(CatalogReadStore::toSummary).toList());
+    }
+
+    public List<ProductSummaryDTO> getProductsByCategory(String category) {
+        return index.read(indexes -> indexes.summaries(indexes.byCategory.get(categoryKey(category))));
+    }
+
+    public List<ProductResponseDTO> getProductsWithStatus(StockStatus status) {
+        return index.read(indexes -> indexes.byStatus.get(status).stream()
+                .map(indexes.byId::get)
+                .map(CatalogReadStore::toResponse)
+                .toList());
+    }
+
+    /**
+     * Precio entre los límites, ambos incluidos, como el BETWEEN del repositorio
+     */
+    public List<ProductSummaryDTO> getProductsByPriceRange(Double minPrice, Double maxPrice) {
+        return index.read(indexes -> {
+            NavigableSet<Long> ids = new TreeSet<>();
+            indexes.byPrice.subMap(BigDecimal.valueOf(minPrice), true, BigDecimal.valueOf(maxPrice), true)
+                    .values()
+                    .forEach(ids::addAll);
+            return indexes.summaries(ids);
+        });
+    }
+
+    /**
+     * Mismos filtros que ProductRepository.FILTERS_WHERE: categoría exacta por el índice
+     * y nombre que contiene el texto sin distinguir mayúsculas ni acentos, como la
+     * colación de MySQL
+     */
+    public Page<ProductSummaryDTO> getProductsWithFilters(String category, String name, Pageable pageable) {
+        String text = name != null ? ProductNameIndex.normalize(name) : null;
+        return index.read(indexes -> {
+            Collection<Long> candidates = category != null
+                    ? indexes.byCategory.getOrDefault(categoryKey(category), new TreeSet<>())
+                    : indexes.byId.keySet();
+            Predicate<Long> matchesName = id -> text == null || indexes.foldedNames.get(id).contains(text);
+            return page(candidates.stream().filter(matchesName).map(indexes.byId::get), pageable);
+        });
+    }
+
+    public Page<ProductSummaryDTO> getAllProductsPaginated(Pageable pageable) {
+        return getProductsWithFilters(null, null, pageable);
+    }
+
+    /**
+     * Sin copiar ni ordenar todas las coincidencias: un montículo acotado guarda solo las
+     * offset + size primeras en el orden pedido, y el resto solo se cuenta
+     */
+    private Page<ProductSummaryDTO> page(Stream<ProductSnapshot> matches, Pageable pageable) {
+        Comparator<ProductSnapshot> order = order(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(matches.sorted(order).map(CatalogReadStore::toSummary).toList());
+        }
+        long limit = Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        PriorityQueue<ProductSnapshot> top = new PriorityQueue<>(order.reversed());
+        long total = 0;
+        for (ProductSnapshot product : (Iterable<ProductSnapshot>) matches::iterator) {
+            total++;
+            if (top.size() < limit) {
+                top.add(product);
+            } else if (order.compare(product, top.peek()) < 0) {
+                top.poll();
+                top.add(product);
+            }
+        }
+        List<ProductSnapshot> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        List<ProductSummaryDTO> content = sorted.subList(from, sorted.size()).stream()
+                .map(CatalogReadStore::toSummary)
+                .toList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Orden pedido con el id como desempate, para que las páginas no se solapen
+     */
+    private static Comparator<ProductSnapshot> order(Sort sort) {
+        Comparator<ProductSnapshot> order = null;
+        for (Sort.Order sortOrder : sort) {
+            Comparator<ProductSnapshot> next = comparator(sortOrder.getProperty());
+            if (sortOrder.isDescending()) {
+                next = next.reversed();
+            }
+            order = order == null ? next : order.thenComparing(next);
+        }
+        Comparator<ProductSnapshot> byId = Comparator.comparing(ProductSnapshot::getId);
+        return order == null ? byId : order.thenComparing(byId);
+    }
+
+    /**
+     * Rutas de ProductSortField; los textos sin distinguir mayúsculas como la colación de MySQL
+     */
+    private static Comparator<ProductSnapshot> comparator(String property) {
+        return switch (property) {
+            case "name" -> Comparator.comparing(ProductSnapshot::getName, String.CASE_INSENSITIVE_ORDER);
+            case "category", "categoryRef.name" ->
+                    Comparator.comparing(ProductSnapshot::getCategory, String.CASE_INSENSITIVE_ORDER);
+            case "price" -> Comparator.comparing(ProductSnapshot::getPrice,
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "stock" -> Comparator.comparing(ProductSnapshot::getStock,
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "id" -> Comparator.comparing(ProductSnapshot::getId);
+            default -> null;
+        };
+    }
+
+    private static double stalenessSeconds(ConcurrentLinkedQueue<PendingChange> changes) {
+        PendingChange oldest = changes.peek();
+        return oldest == null ? 0.0 : (System.nanoTime() - oldest.enqueuedAt()) / 1e9;
+    }
+
+    private static boolean isVisitorOnly(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        boolean visitor = false;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            switch (authority.getAuthority()) {
+                case "ROLE_VISITOR" -> visitor = true;
+                case "ROLE_ADMIN", "ROLE_USER" -> {
+                    return false;
+                }
+                default -> {
+                }
+            }
+        }
+        return visitor;
+    }
+
+    private static String categoryKey(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static ProductSummaryDTO toSummary(ProductSnapshot product) {
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getCategory(),
+                product.getPrice(), product.getStock(), product.getStockStatus());
+    }
+
+    private static ProductResponseDTO toResponse(ProductSnapshot product) {
+        Integer stock = product.getStock();
+        Integer minimumStock = product.getMinimumStock();
+        return new ProductResponseDTO(product.getId(), product.getName(), product.getDescription(),
+                product.getCategory(), product.getPrice(), stock, minimumStock,
+                stock != null && minimumStock != null && stock <= minimumStock,
+                product.isOutOfStock(), product.getStockStatus());
+    }
+
+    /**
+     * Productos por id e índices secundarios con los ids ordenados
+     */
+    private static final class Indexes {
+        private final NavigableMap<Long, ProductSnapshot> byId = new TreeMap<>();
+        // Nombre en minúsculas y sin acentos, para no normalizarlo en cada consulta
+        private final Map<Long, String> foldedNames = new HashMap<>();
+        private final Map<String, NavigableSet<Long>> byCategory = new HashMap<>();
+        private final NavigableMap<BigDecimal, NavigableSet<Long>> byPrice = new TreeMap<>();
+        private final Map<StockStatus, NavigableSet<Long>> byStatus = new EnumMap<>(StockStatus.class);
+
+        Indexes() {
+            for (StockStatus status : StockStatus.values()) {
+                byStatus.put(status, new TreeSet<>());
+            }
+        }
+
+        void add(ProductSnapshot product) {
+            byId.put(product.getId(), product);
+            foldedNames.put(product.getId(), ProductNameIndex.normalize(product.getName()));
+            byCategory.computeIfAbsent(categoryKey(product.getCategory()), key -> new TreeSet<>()).add(product.getId());
+            if (product.getPrice() != null) {
+                byPrice.computeIfAbsent(product.getPrice().stripTrailingZeros(), key -> new TreeSet<>())
+                        .add(product.getId());
+            }
+            byStatus.get(StockStatus.valueOf(product.getStockStatus())).add(product.getId());
+        }
+
+        void remove(Long id) {
+            ProductSnapshot product = byId.remove(id);
+            if (product == null) {
+                return;
+            }
+            foldedNames.remove(id);
+            removeFrom(byCategory, categoryKey(product.getCategory()), id);
+            if (product.getPrice() != null) {
+                removeFrom(byPrice, product.getPrice().stripTrailingZeros(), id);
+            }
+            byStatus.get(StockStatus.valueOf(product.getStockStatus())).remove(id);
+        }
+
+        List<ProductSummaryDTO> summaries(Set<Long> ids) {
+            if (ids == null) {
+                return List.of();
+            }
+            return ids.stream().map(byId::get).map(CatalogReadStore::toSummary).toList();
+        }
+
+        private static <K> void removeFrom(Map<K, NavigableSet<Long>> index, K key, Long id) {
+            NavigableSet<Long> ids = index.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    private record PendingChange(ProductChangedEvent event, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,530 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Copia binaria del catálogo en disco local para arrancar en caliente. Cada
+ * inventory.snapshot.write-interval-ms se escribe el catálogo completo junto con la última
+ * revisión de REVINFO que refleja; al arrancar, los índices y caches en memoria leen el
+ * fichero con memoria mapeada y solo consultan a la base de datos los productos con
+ * revisiones posteriores.
+ * <p>
+ * Los índices que se cargan al arrancar comparten una sola lectura del fichero: la primera
+ * carga lo proyecta, comprueba el CRC y consulta los cambios posteriores, y las siguientes
+ * durante inventory.snapshot.share-ms reutilizan ese resultado con los cambios confirmados
+ * después anotados por onProductChanged.
+ * <p>
+ * Si el fichero no existe, está dañado, es demasiado antiguo o su revisión no coincide con
+ * REVINFO (otra base de datos), el catálogo se lee de ProductRepository como siempre.
+ * Con el catálogo repartido en shards no se usa: cada shard tiene su propio REVINFO.
+ */
+@Service
+public class CatalogSnapshotFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotFile.class);
+
+    static final int MAGIC = 0x494E5653; // "INVS"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES * 3;
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductHistoryRepository historyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path path;
+    private final boolean enabled;
+    private final long maxAgeMillis;
+    private final long gapTimeoutMillis;
+    private final long shareMillis;
+    private final Counter loadsFromFile;
+    private final Counter loadsFromDatabase;
+
+    // Última lectura del fichero, compartida entre las cargas; null tras escribir uno nuevo
+    private final Object resolveLock = new Object();
+    private volatile Resolved shared;
+
+    @Autowired
+    public CatalogSnapshotFile(ProductRepository productRepository,
+                               ProductHistoryRepository historyRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${inventory.snapshot.path:${java.io.tmpdir}/inventory-catalog.snapshot}") String path,
+                               @Value("#{${inventory.snapshot.enabled:true} and !${inventory.sharding.enabled:false}}") boolean enabled,
+                               @Value("${inventory.snapshot.max-age-ms:86400000}") long maxAgeMillis,
+                               @Value("${inventory.invalidation.gap-timeout-ms:30000}") long gapTimeoutMillis,
+                               @Value("${inventory.snapshot.share-ms:60000}") long shareMillis) {
+        this.productRepository = productRepository;
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.path = Path.of(path);
+        this.enabled = enabled;
+        this.maxAgeMillis = maxAgeMillis;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.shareMillis = shareMillis;
+        this.loadsFromFile = Counter.builder("inventory.snapshot.loads")
+                .tag("source", "file")
+                .description("Cargas del catálogo completo para índices y caches en memoria")
+                .register(meterRegistry);
+        this.loadsFromDatabase = Counter.builder("inventory.snapshot.loads")
+                .tag("source", "database")
+                .description("Cargas del catálogo completo para índices y caches en memoria")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Catálogo completo ordenado por id: el fichero más los cambios posteriores o, si no es
+     * utilizable, ProductRepository.streamAllSnapshots. Debe consumirse dentro de una transacción
+     */
+    public Stream<ProductSnapshot> streamAllSnapshots() {
+        if (enabled) {
+            Resolved resolved = resolve(System.currentTimeMillis());
+            if (resolved.isUsable()) {
+                loadsFromFile.increment();
+                return resolved.stream(Function.identity());
+            }
+        }
+        loadsFromDatabase.increment();
+        return productRepository.streamAllSnapshots();
+    }
+
+    /**
+     * Mismo catálogo como resúmenes, para los índices que no necesitan la descripción
+     */
+    public Stream<ProductSummaryDTO> streamAllSummaries() {
+        if (enabled) {
+            Resolved resolved = resolve(System.currentTimeMillis());
+            if (resolved.isUsable()) {
+                loadsFromFile.increment();
+                return resolved.stream(product -> new ProductSummaryDTO(product.getId(), product.getName(),
+                        product.getCategory(), product.getPrice(), product.getStock(), product.getStockStatus()));
+            }
+        }
+        loadsFromDatabase.increment();
+        return productRepository.streamAllSummaries();
+    }
+
+    /**
+     * Anota el cambio en la lectura compartida antes de que lo apliquen los índices, para que
+     * los que empiecen a cargarse después ya lo encuentren en el stream
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Resolved resolved = shared;
+        if (resolved != null && resolved.isUsable()
+                && System.currentTimeMillis() - resolved.resolvedAt <= shareMillis) {
+            resolved.record(event.getProductId(), event.getAfter());
+        }
+    }
+
+    /**
+     * Escribe el catálogo en un fichero temporal y lo renombra sobre el anterior, de modo
+     * que un arranque nunca ve un fichero a medias
+     */
+    @Scheduled(initialDelayString = "${inventory.snapshot.write-interval-ms:300000}",
+            fixedDelayString = "${inventory.snapshot.write-interval-ms:300000}")
+    public synchronized void write() {
+        if (!enabled) {
+            return;
+        }
+        long writtenAt = System.currentTimeMillis();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Integer count = transactionTemplate.execute(status -> {
+                Optional<RevisionStampDTO> latest = historyRepository.findLatestCatalogRevision();
+                if (latest.isEmpty()) {
+                    return null;
+                }
+                try (Stream<ProductSnapshot> products = productRepository.streamAllSnapshots()) {
+                    return writeFile(temporary, latest.get(), writtenAt, products);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (count == null) {
+                logger.debug("Catalog snapshot skipped: no revisions yet");
+                return;
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            shared = null;
+            logger.info("Catalog snapshot written: {} products in {} ms", count, System.currentTimeMillis() - writtenAt);
+        } catch (IOException | UncheckedIOException | ArithmeticException e) {
+            logger.warn("Could not write catalog snapshot {}: {}", path, e.getMessage());
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // Se sobrescribe en la siguiente escritura
+            }
+        }
+    }
+
+    private static int writeFile(Path target, RevisionStampDTO revision, long writtenAt,
+                                 Stream<ProductSnapshot> products) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(target), crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(revision.getRevision());
+            out.writeLong(revision.getLastModified());
+            out.writeLong(writtenAt);
+
+            int count = 0;
+            for (Iterator<ProductSnapshot> it = products.iterator(); it.hasNext(); ) {
+                ProductSnapshot product = it.next();
+                out.writeLong(product.getId());
+                writeString(out, product.getName());
+                writeString(out, product.getDescription());
+                writeString(out, product.getCategory());
+                BigDecimal price = product.getPrice();
+                out.writeInt(price != null ? price.scale() : NULL_INT);
+                out.writeLong(price != null ? price.unscaledValue().longValueExact() : 0L);
+                out.writeInt(product.getStock() != null ? product.getStock() : NULL_INT);
+                out.writeInt(product.getMinimumStock() != null ? product.getMinimumStock() : NULL_INT);
+                count++;
+            }
+            out.writeLong(0L);
+            out.writeInt(count);
+            out.flush();
+            out.writeLong(crc.getValue());
+            return count;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Lectura del fichero para las cargas que empiezan ahora: la compartida si aún no ha
+     * caducado o una nueva. Se publica antes de consultar los cambios posteriores para que
+     * onProductChanged anote los que se confirmen mientras tanto.
+     */
+    Resolved resolve(long now) {
+        Resolved resolved = shared;
+        if (resolved != null && now - resolved.resolvedAt <= shareMillis) {
+            return resolved;
+        }
+        synchronized (resolveLock) {
+            resolved = shared;
+            if (resolved != null && now - resolved.resolvedAt <= shareMillis) {
+                return resolved;
+            }
+            resolved = openFile(now);
+            shared = resolved;
+            if (resolved.isUsable()) {
+                try {
+                    catchUp(resolved);
+                } catch (RuntimeException e) {
+                    shared = null;
+                    throw e;
+                }
+            }
+            return resolved;
+        }
+    }
+
+    /**
+     * Proyecta el fichero y valida su cabecera para esta base de datos; una lectura no
+     * utilizable si no lo es
+     */
+    private Resolved openFile(long now) {
+        if (!Files.isRegularFile(path)) {
+            return Resolved.unusable(now);
+        }
+        ByteBuffer buffer;
+        Header header;
+        try {
+            buffer = map(path);
+            header = Header.read(buffer);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring catalog snapshot {}: {}", path, e.getMessage());
+            return Resolved.unusable(now);
+        }
+        if (header == null) {
+            logger.warn("Ignoring catalog snapshot {}: unknown format or checksum mismatch", path);
+            return Resolved.unusable(now);
+        }
+        if (now - header.writtenAt() > maxAgeMillis) {
+            logger.info("Ignoring catalog snapshot {}: older than {} ms", path, maxAgeMillis);
+            return Resolved.unusable(now);
+        }
+        Optional<Long> timestamp = historyRepository.findRevisionTimestamp(header.revision());
+        if (timestamp.isEmpty() || timestamp.get() != header.revisionTimestamp()) {
+            logger.warn("Ignoring catalog snapshot {}: revision {} does not match this database", path, header.revision());
+            return Resolved.unusable(now);
+        }
+        return new Resolved(buffer, header, now);
+    }
+
+    /**
+     * Sustituye en la lectura los productos cambiados después del fichero por su estado actual
+     */
+    private void catchUp(Resolved resolved) {
+        Header header = resolved.header;
+        // Las revisiones asignadas antes de escribir el fichero pueden confirmarse después
+        Set<Long> changed = historyRepository.findProductIdsChangedSince(
+                header.revision(), header.writtenAt() - gapTimeoutMillis);
+        List<ProductSnapshot> current = new ArrayList<>(changed.size());
+        List<Long> ids = new ArrayList<>(changed);
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            current.addAll(productRepository.findSnapshotsByIdIn(ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()))));
+        }
+        resolved.catchUp(changed, current);
+        logger.info("Loading catalog from snapshot {} at revision {}, {} products changed since",
+                path, header.revision(), changed.size());
+    }
+
+    /**
+     * Proyecta el fichero en memoria y comprueba el CRC sin copiarlo al heap
+     */
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Long.BYTES * 2L || size > Integer.MAX_VALUE) {
+                throw new IOException("unexpected size " + size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(mapped.slice(0, (int) size - Long.BYTES));
+            if (crc.getValue() != mapped.getLong((int) size - Long.BYTES)) {
+                throw new IOException("checksum mismatch");
+            }
+            return mapped.limit((int) size - Long.BYTES);
+        }
+    }
+
+    private record Header(long revision, long revisionTimestamp, long writtenAt) {
+
+        /**
+         * Lee la cabecera y deja el buffer en el primer producto; null si el formato no es este
+         */
+        static Header read(ByteBuffer buffer) {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            return new Header(buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    /**
+     * Fichero validado junto con el estado actual de los productos que cambiaron después de
+     * escribirlo (null si ya no existen). Cada stream recorre su propia vista del buffer y
+     * una copia de los cambios anotados hasta ese momento.
+     */
+    static final class Resolved {
+        private final ByteBuffer buffer;
+        private final Header header;
+        private final int firstProduct;
+        private final long resolvedAt;
+        private final NavigableMap<Long, ProductSnapshot> changes = new TreeMap<>();
+
+        private Resolved(ByteBuffer buffer, Header header, long resolvedAt) {
+            this.buffer = buffer;
+            this.header = header;
+            this.firstProduct = buffer != null ? buffer.position() : 0;
+            this.resolvedAt = resolvedAt;
+        }
+
+        static Resolved unusable(long resolvedAt) {
+            return new Resolved(null, null, resolvedAt);
+        }
+
+        boolean isUsable() {
+            return buffer != null;
+        }
+
+        synchronized void record(Long productId, ProductSnapshot state) {
+            changes.put(productId, state);
+        }
+
+        /**
+         * Añade el resultado de la consulta sin pisar lo que onProductChanged ya anotó, que
+         * es igual o más reciente
+         */
+        synchronized void catchUp(Set<Long> changed, List<ProductSnapshot> current) {
+            Map<Long, ProductSnapshot> byId = new TreeMap<>();
+            for (ProductSnapshot product : current) {
+                byId.put(product.getId(), product);
+            }
+            for (Long id : changed) {
+                changes.putIfAbsent(id, byId.get(id));
+            }
+        }
+
+        <T> Stream<T> stream(Function<ProductSnapshot, T> mapper) {
+            NavigableMap<Long, ProductSnapshot> copy;
+            synchronized (this) {
+                copy = new TreeMap<>(changes);
+            }
+            ByteBuffer view = buffer.duplicate().position(firstProduct);
+            Iterator<ProductSnapshot> merged = new MergingIterator(new FileIterator(view), copy.keySet(),
+                    copy.values().stream().filter(Objects::nonNull).iterator());
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false).map(mapper);
+        }
+    }
+
+    /**
+     * Productos del fichero en orden de id, decodificados a medida que se piden
+     */
+    private static final class FileIterator implements Iterator<ProductSnapshot> {
+        private final ByteBuffer buffer;
+        private long nextId;
+
+        FileIterator(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.nextId = buffer.getLong();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextId != 0L;
+        }
+
+        @Override
+        public ProductSnapshot next() {
+            if (nextId == 0L) {
+                throw new NoSuchElementException();
+            }
+            try {
+                String name = readString();
+                String description = readString();
+                String category = readString();
+                int scale = buffer.getInt();
+                long unscaled = buffer.getLong();
+                BigDecimal price = scale != NULL_INT ? new BigDecimal(BigInteger.valueOf(unscaled), scale) : null;
+                int stock = buffer.getInt();
+                int minimumStock = buffer.getInt();
+                ProductSnapshot product = new ProductSnapshot(nextId, name, description, category, price,
+                        stock != NULL_INT ? stock : null, minimumStock != NULL_INT ? minimumStock : null);
+                nextId = buffer.getLong();
+                return product;
+            } catch (BufferUnderflowException e) {
+                throw new IllegalStateException("Fichero de catálogo truncado", e);
+            }
+        }
+
+        private String readString() {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Mezcla en orden de id el fichero (sin los productos cambiados) con el estado actual de
+     * los cambiados; los que ya no existen no aparecen en ninguno de los dos
+     */
+    private static final class MergingIterator implements Iterator<ProductSnapshot> {
+        private final Iterator<ProductSnapshot> file;
+        private final Set<Long> changed;
+        private final Iterator<ProductSnapshot> current;
+        private ProductSnapshot nextFromFile;
+        private ProductSnapshot nextCurrent;
+
+        MergingIterator(Iterator<ProductSnapshot> file, Set<Long> changed, Iterator<ProductSnapshot> current) {
+            this.file = file;
+            this.changed = changed;
+            this.current = current;
+            this.nextFromFile = advanceFile();
+            this.nextCurrent = current.hasNext() ? current.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextFromFile != null || nextCurrent != null;
+        }
+
+        @Override
+        public ProductSnapshot next() {
+            ProductSnapshot result;
+            if (nextCurrent == null || (nextFromFile != null && nextFromFile.getId() < nextCurrent.getId())) {
+                if (nextFromFile == null) {
+                    throw new NoSuchElementException();
+                }
+                result = nextFromFile;
+                nextFromFile = advanceFile();
+            } else {
+                result = nextCurrent;
+                nextCurrent = current.hasNext() ? current.next() : null;
+            }
+            return result;
+        }
+
+        private ProductSnapshot advanceFile() {
+            while (file.hasNext()) {
+                ProductSnapshot product = file.next();
+                if (!changed.contains(product.getId())) {
+                    return product;
+                }
+            }
+            return null;
+        }
+    }
+}
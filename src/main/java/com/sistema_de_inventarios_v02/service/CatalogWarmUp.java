@@ -0,0 +1,344 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sistema_de_inventarios_v02.dto.AuditRecordDTO;
+import com.sistema_de_inventarios_v02.jwt.JwtUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Fase de calentamiento antes de aceptar tráfico: con datos reales del catálogo lanza
+ * lecturas sintéticas contra el propio servidor (listado, búsquedas, producto, categoría,
+ * con validación del JWT en cada petición) y recorre la página de auditoría, para que
+ * Hibernate, Jackson y el JIT ya estén calientes cuando llegue la primera petición real.
+ * <p>
+ * Cada ronda usa otro producto y otra combinación de orden, tamaño y página, de modo que
+ * las peticiones no se sirvan desde ProductResponseCache ni ProductQueryCache y las
+ * últimas rondas sigan recorriendo las consultas en lugar de medir aciertos de cache.
+ * <p>
+ * Empieza cuando la aplicación pasa a ACCEPTING_TRAFFIC; mientras dura, WarmUpHealthIndicator
+ * mantiene el grupo readiness en OUT_OF_SERVICE. Un fallo nunca deja el nodo sin arrancar:
+ * el calentamiento termina y se registra en el log.
+ */
+@Service
+public class CatalogWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogWarmUp.class);
+    private static final String API = "/api/inventory/products";
+    private static final String[] SORT_FIELDS = {"name", "price", "stock"};
+    private static final int[] PAGE_SIZES = {10, 15, 20, 25, 30, 40, 50};
+    private static final int DISCOVERY_PAGE_SIZE = 50;
+
+    public enum Phase { PENDING, RUNNING, DONE }
+
+    private final JwtUtil jwtUtil;
+    private final AuditService auditService;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final boolean enabled;
+    private final int rounds;
+    private final long maxDurationNanos;
+
+    private volatile Phase phase;
+    private final AtomicLong completedRequests = new AtomicLong();
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Results results = new Results();
+
+    @Autowired
+    public CatalogWarmUp(JwtUtil jwtUtil,
+                         AuditService auditService,
+                         ObjectMapper objectMapper,
+                         Environment environment,
+                         MeterRegistry meterRegistry,
+                         @Value("${inventory.warmup.enabled:true}") boolean enabled,
+                         @Value("${inventory.warmup.rounds:300}") int rounds,
+                         @Value("${inventory.warmup.max-duration-ms:120000}") long maxDurationMillis) {
+        this.jwtUtil = jwtUtil;
+        this.auditService = auditService;
+        this.objectMapper = objectMapper;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.rounds = Math.max(rounds, 1);
+        this.maxDurationNanos = TimeUnit.MILLISECONDS.toNanos(maxDurationMillis);
+        this.phase = enabled ? Phase.PENDING : Phase.DONE;
+
+        this.succeeded = Counter.builder("inventory.warmup.requests")
+                .tag("outcome", "success")
+                .description("Peticiones sintéticas lanzadas durante el calentamiento")
+                .register(meterRegistry);
+        this.failed = Counter.builder("inventory.warmup.requests")
+                .tag("outcome", "failure")
+                .description("Peticiones sintéticas lanzadas durante el calentamiento")
+                .register(meterRegistry);
+        // Los gauges leen los resultados, no this, que aún no está construido
+        TimeGauge.builder("inventory.warmup.duration", results, TimeUnit.SECONDS, warmUp -> warmUp.durationSeconds)
+                .description("Duración del calentamiento")
+                .register(meterRegistry);
+        Gauge.builder("inventory.warmup.p99", results, warmUp -> warmUp.coldP99Millis)
+                .tag("phase", "cold")
+                .description("p99 de las primeras rondas del calentamiento")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("inventory.warmup.p99", results, warmUp -> warmUp.warmP99Millis)
+                .tag("phase", "warm")
+                .description("p99 de las últimas rondas del calentamiento")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("inventory.warmup.p99.delta", results, warmUp -> warmUp.coldP99Millis - warmUp.warmP99Millis)
+                .description("Mejora del p99 entre las primeras y las últimas rondas")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getCompletedRequests() {
+        return completedRequests.get();
+    }
+
+    public double getDurationSeconds() {
+        return results.durationSeconds;
+    }
+
+    public double getColdP99Millis() {
+        return results.coldP99Millis;
+    }
+
+    public double getWarmP99Millis() {
+        return results.warmP99Millis;
+    }
+
+    /**
+     * Se lanza cuando terminan los listeners de ApplicationReadyEvent (índices y caches ya
+     * cargados), en un hilo propio para no retrasar el resto del arranque
+     */
+    @EventListener
+    public void onReadinessChanged(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            return;
+        }
+        synchronized (this) {
+            if (phase != Phase.PENDING) {
+                return;
+            }
+            phase = Phase.RUNNING;
+        }
+        Thread thread = new Thread(this::run, "catalog-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ejecuta el calentamiento en el hilo actual
+     */
+    public void run() {
+        phase = Phase.RUNNING;
+        long start = System.nanoTime();
+        try {
+            Integer port = environment.getProperty("local.server.port", Integer.class);
+            if (port == null || port <= 0) {
+                logger.info("Warm-up skipped: no web server port");
+                return;
+            }
+            warmUp(port, start);
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up aborted: {}", e.getMessage());
+        } finally {
+            results.durationSeconds = (System.nanoTime() - start) / 1e9;
+            phase = Phase.DONE;
+            logger.info("Warm-up finished in {} s: {} requests, p99 {} ms -> {} ms",
+                    String.format(Locale.ROOT, "%.1f", results.durationSeconds), completedRequests.get(),
+                    String.format(Locale.ROOT, "%.1f", results.coldP99Millis), String.format(Locale.ROOT, "%.1f", results.warmP99Millis));
+        }
+    }
+
+    private void warmUp(int port, long start) {
+        RestClient userClient = client(port, "USER");
+        RestClient visitorClient = client(port, "VISITOR");
+        Catalog catalog = discover(userClient, rounds);
+
+        int window = Math.max(rounds / 10, 1);
+        List<Long> cold = new ArrayList<>();
+        long[][] latencies = new long[rounds][];
+        int completedRounds = 0;
+        for (int round = 0; round < rounds && System.nanoTime() - start < maxDurationNanos; round++) {
+            // Se alternan roles: los VISITOR pueden leer del modelo de lectura en memoria
+            RestClient client = round % 2 == 0 ? userClient : visitorClient;
+            latencies[round] = runRound(client, catalog, round);
+            completedRounds++;
+        }
+        for (int round = 0; round < Math.min(window, completedRounds); round++) {
+            Arrays.stream(latencies[round]).forEach(cold::add);
+        }
+        List<Long> warm = new ArrayList<>();
+        for (int round = Math.max(completedRounds - window, 0); round < completedRounds; round++) {
+            Arrays.stream(latencies[round]).forEach(warm::add);
+        }
+        results.coldP99Millis = p99Millis(cold);
+        results.warmP99Millis = p99Millis(warm);
+    }
+
+    private long[] runRound(RestClient client, Catalog catalog, int round) {
+        List<Function<UriBuilder, URI>> uris = new ArrayList<>();
+        // Orden, sentido, tamaño y página como dígitos de round: no se repite la clave de cache
+        int combination = round;
+        String sortBy = SORT_FIELDS[combination % SORT_FIELDS.length];
+        combination /= SORT_FIELDS.length;
+        String sortDir = combination % 2 == 0 ? "asc" : "desc";
+        combination /= 2;
+        int size = PAGE_SIZES[combination % PAGE_SIZES.length];
+        combination /= PAGE_SIZES.length;
+        int page = combination % (int) Math.max(1, Math.min(catalog.total() / size, 50));
+        uris.add(builder -> builder.path(API + "/paginated")
+                .queryParam("page", page)
+                .queryParam("size", size)
+                .queryParam("sortBy", sortBy)
+                .queryParam("sortDir", sortDir)
+                .build());
+        if (!catalog.ids().isEmpty()) {
+            // Se descubren tantos productos como rondas: cada una lee uno distinto
+            int i = round % catalog.ids().size();
+            String name = catalog.names().get(i);
+            String prefix = name.substring(0, Math.min(2 + round % 4, name.length()));
+            String category = catalog.categories().get(i);
+            uris.add(builder -> builder.path(API + "/{id}").build(catalog.ids().get(i)));
+            uris.add(builder -> builder.path(API + "/search").queryParam("name", prefix).build());
+            uris.add(builder -> builder.path(API + "/search/text").queryParam("q", name.split("\\s+")[0]).build());
+            uris.add(builder -> builder.path(API + "/category/{category}").build(category));
+            uris.add(builder -> builder.path(API + "/cursor")
+                    .queryParam("size", size)
+                    .queryParam("sortBy", sortBy)
+                    .queryParam("sortDir", sortDir)
+                    .queryParam("category", category)
+                    .queryParam("name", prefix)
+                    .build());
+        }
+
+        long[] latencies = new long[uris.size() + 1];
+        for (int i = 0; i < uris.size(); i++) {
+            long requestStart = System.nanoTime();
+            try {
+                client.get().uri(uris.get(i)).retrieve().toBodilessEntity();
+                succeeded.increment();
+            } catch (RestClientException e) {
+                failed.increment();
+                logger.debug("Warm-up request {} of round {} failed: {}", i, round, e.getMessage());
+            }
+            latencies[i] = System.nanoTime() - requestStart;
+            completedRequests.incrementAndGet();
+        }
+
+        // La auditoría se autentica con Keycloak: se recorre el servicio y su serialización
+        long auditStart = System.nanoTime();
+        try {
+            Page<AuditRecordDTO> audit = auditService.getProductAuditHistory(
+                    PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "revision")), null, null, null, null, null);
+            objectMapper.writeValueAsBytes(audit.getContent());
+            succeeded.increment();
+        } catch (Exception e) {
+            failed.increment();
+            logger.debug("Warm-up audit page failed: {}", e.getMessage());
+        }
+        latencies[uris.size()] = System.nanoTime() - auditStart;
+        completedRequests.incrementAndGet();
+        return latencies;
+    }
+
+    private RestClient client(int port, String role) {
+        return RestClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken("warm-up", role))
+                .build();
+    }
+
+    /**
+     * Ids, nombres y categorías reales para las peticiones: las primeras páginas del catálogo
+     * hasta reunir un producto por ronda, junto con el total de productos
+     */
+    private Catalog discover(RestClient client, int wanted) {
+        List<Long> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+        long total = 0;
+        try {
+            int totalPages = 1;
+            for (int page = 0; page < totalPages && ids.size() < wanted; page++) {
+                int current = page;
+                String body = client.get()
+                        .uri(builder -> builder.path(API + "/paginated")
+                                .queryParam("page", current)
+                                .queryParam("size", DISCOVERY_PAGE_SIZE)
+                                .build())
+                        .retrieve().body(String.class);
+                JsonNode content = objectMapper.readTree(body);
+                for (JsonNode product : content.path("content")) {
+                    String name = product.path("name").asText("");
+                    String category = product.path("category").asText("");
+                    if (!name.isBlank() && !category.isBlank()) {
+                        ids.add(product.path("id").asLong());
+                        names.add(name.trim());
+                        categories.add(category);
+                    }
+                }
+                JsonNode metadata = content.has("totalPages") ? content : content.path("page");
+                totalPages = metadata.path("totalPages").asInt(1);
+                total = metadata.path("totalElements").asLong(ids.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Warm-up could not read the catalog, using list and audit requests only: {}", e.getMessage());
+        }
+        return new Catalog(ids, names, categories, total);
+    }
+
+    private static double p99Millis(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            return Double.NaN;
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        int index = (int) Math.ceil(sorted.length * 0.99) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private record Catalog(List<Long> ids, List<String> names, List<String> categories, long total) {
+    }
+
+    /**
+     * Resultado del calentamiento que publican los gauges; NaN hasta que termina
+     */
+    private static final class Results {
+        private volatile double durationSeconds = Double.NaN;
+        private volatile double coldP99Millis = Double.NaN;
+        private volatile double warmP99Millis = Double.NaN;
+    }
+}
@@ -0,0 +1,253 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.dto.CategoryStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de inventario mantenidos en memoria, globales y por categoría.
+ * Se siembran al arrancar con una consulta agregada y después se actualizan
+ * con cada ProductChangedEvent confirmado, de modo que las lecturas son O(1).
+ */
+@Service
+public class InventoryCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryCounterService.class);
+
+    /** Intentos de siembra antes de dejarla para la siguiente verificación de deriva */
+    static final int SEED_ATTEMPTS = 3;
+
+    private final ProductRepository productRepository;
+
+    private final Object lock = new Object();
+    private Counters global = new Counters(null);
+    private Map<String, Counters> byCategory = new HashMap<>();
+    private volatile boolean ready;
+    // Cambios aplicados; si varía durante una consulta, la consulta puede incluirlos o no
+    private long generation;
+
+    private final AtomicLong lastDrift = new AtomicLong();
+    private final Counter driftChecksOk;
+    private final Counter driftChecksMismatch;
+
+    @Autowired
+    public InventoryCounterService(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        Gauge.builder("inventory.counters.drift", lastDrift, AtomicLong::get)
+                .description("Contadores que no coincidían con la base de datos en la última verificación")
+                .register(meterRegistry);
+        this.driftChecksOk = Counter.builder("inventory.counters.drift.checks")
+                .tag("result", "ok")
+                .register(meterRegistry);
+        this.driftChecksMismatch = Counter.builder("inventory.counters.drift.checks")
+                .tag("result", "mismatch")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Siembra los contadores desde la base de datos al arrancar la aplicación. Si llega un
+     * cambio mientras corre la consulta no se sabe si ya está incluido en ella, así que se
+     * descarta el resultado y se repite en lugar de perder o contar dos veces ese cambio.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        for (int attempt = 1; attempt <= SEED_ATTEMPTS; attempt++) {
+            long startGeneration;
+            synchronized (lock) {
+                startGeneration = generation;
+            }
+            List<CategoryStatsDTO> rows = productRepository.getCategoryStatistics();
+            synchronized (lock) {
+                if (generation != startGeneration) {
+                    continue;
+                }
+                global = new Counters(null);
+                byCategory = new HashMap<>();
+                for (CategoryStatsDTO row : rows) {
+                    Counters counters = byCategory.computeIfAbsent(categoryKey(row.getCategory()),
+                            key -> new Counters(row.getCategory()));
+                    counters.add(row);
+                    global.add(row);
+                }
+                ready = true;
+            }
+            logger.info("Inventory counters seeded: {} products in {} categories",
+                    global.products, byCategory.size());
+            return;
+        }
+        logger.warn("Inventory counters not seeded: products kept changing during {} attempts", SEED_ATTEMPTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (lock) {
+            generation++;
+            if (event.getBefore() != null) {
+                apply(event.getBefore(), -1);
+            }
+            if (event.getAfter() != null) {
+                apply(event.getAfter(), 1);
+            }
+        }
+    }
+
+    public ProductStatsDTO getGlobalStatistics() {
+        synchronized (lock) {
+            long categories = byCategory.values().stream().filter(c -> c.products > 0).count();
+            return new ProductStatsDTO(global.products, global.lowStock, global.outOfStock,
+                    categories, global.units, global.value);
+        }
+    }
+
+    public List<CategoryStatsDTO> getCategoryStatistics() {
+        List<CategoryStatsDTO> result = new ArrayList<>();
+        synchronized (lock) {
+            for (Counters counters : byCategory.values()) {
+                if (counters.products > 0) {
+                    result.add(counters.toDTO());
+                }
+            }
+        }
+        result.sort(Comparator.comparing(CategoryStatsDTO::getCategory, String.CASE_INSENSITIVE_ORDER));
+        return result;
+    }
+
+    /**
+     * Compara los contadores con la base de datos; si hay diferencias las publica
+     * como métrica y vuelve a sembrar desde la base de datos. Una comparación durante la que
+     * se aplicó algún cambio no es concluyente y se deja para la siguiente.
+     */
+    @Scheduled(initialDelayString = "${inventory.counters.drift-check-interval-ms:60000}",
+            fixedDelayString = "${inventory.counters.drift-check-interval-ms:60000}")
+    public void checkDrift() {
+        if (!ready) {
+            seed();
+            return;
+        }
+
+        long startGeneration;
+        synchronized (lock) {
+            startGeneration = generation;
+        }
+        Map<String, Counters> expected = new HashMap<>();
+        for (CategoryStatsDTO row : productRepository.getCategoryStatistics()) {
+            expected.computeIfAbsent(categoryKey(row.getCategory()), key -> new Counters(row.getCategory()))
+                    .add(row);
+        }
+
+        long mismatches = 0;
+        synchronized (lock) {
+            if (generation != startGeneration) {
+                logger.debug("Inventory counters changed during the drift check, skipping it");
+                return;
+            }
+            for (Map.Entry<String, Counters> entry : expected.entrySet()) {
+                Counters actual = byCategory.get(entry.getKey());
+                if (actual == null || !actual.sameAs(entry.getValue())) {
+                    mismatches++;
+                }
+            }
+            for (Map.Entry<String, Counters> entry : byCategory.entrySet()) {
+                if (entry.getValue().products > 0 && !expected.containsKey(entry.getKey())) {
+                    mismatches++;
+                }
+            }
+        }
+
+        lastDrift.set(mismatches);
+        if (mismatches == 0) {
+            driftChecksOk.increment();
+            return;
+        }
+
+        driftChecksMismatch.increment();
+        logger.warn("Inventory counters drifted from the database in {} categories, reseeding", mismatches);
+        seed();
+    }
+
+    private void apply(ProductSnapshot snapshot, int sign) {
+        Counters counters = byCategory.computeIfAbsent(categoryKey(snapshot.getCategory()),
+                key -> new Counters(snapshot.getCategory()));
+        counters.apply(snapshot, sign);
+        global.apply(snapshot, sign);
+    }
+
+    /**
+     * MySQL agrupa las categorías sin distinguir mayúsculas, así que las claves también
+     */
+    private static String categoryKey(String category) {
+        return category != null ? category.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static final class Counters {
+        private final String category;
+        private long products;
+        private long lowStock;
+        private long outOfStock;
+        private long units;
+        private BigDecimal value = BigDecimal.ZERO;
+
+        private Counters(String category) {
+            this.category = category;
+        }
+
+        private void add(CategoryStatsDTO row) {
+            products += row.getTotalProducts();
+            lowStock += row.getLowStockProducts();
+            outOfStock += row.getOutOfStockProducts();
+            units += row.getTotalUnits();
+            value = value.add(row.getInventoryValue());
+        }
+
+        private void apply(ProductSnapshot snapshot, int sign) {
+            products += sign;
+            if (snapshot.isLowStock()) {
+                lowStock += sign;
+            }
+            if (snapshot.isOutOfStock()) {
+                outOfStock += sign;
+            }
+            units += (long) sign * snapshot.getUnits();
+            BigDecimal valuation = snapshot.getValuation();
+            value = sign > 0 ? value.add(valuation) : value.subtract(valuation);
+        }
+
+        private boolean sameAs(Counters other) {
+            return products == other.products
+                    && lowStock == other.lowStock
+                    && outOfStock == other.outOfStock
+                    && units == other.units
+                    && value.compareTo(other.value) == 0;
+        }
+
+        private CategoryStatsDTO toDTO() {
+            return new CategoryStatsDTO(category, products, lowStock, outOfStock, units, value);
+        }
+    }
+}
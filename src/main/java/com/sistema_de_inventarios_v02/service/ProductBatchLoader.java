@@ -0,0 +1,191 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.Config.ReplicaConsistency;
+import com.sistema_de_inventarios_v02.Config.ServedRevision;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Agrupa las lecturas de producto por id que llegan casi a la vez (al estilo DataLoader):
+ * la primera petición abre una ventana de unos microsegundos, las que llegan durante
+ * la ventana se suman al lote y al cerrarla se resuelven todas con un único
+ * SELECT ... WHERE id IN (...) para los ids que no estén en la cache de segundo nivel.
+ * Cada llamador recibe solo su producto.
+ * <p>
+ * El lote se lee en otro hilo, sin el contexto de ninguna petición: lo que la lectura anota
+ * en ServedRevision (réplica y revisión) se guarda y find lo repite en la petición de cada
+ * llamador. Un hilo que debe leer del primario (X-Consistency-Token que la réplica aún no
+ * alcanza) no entra en el lote: lee en su propio hilo.
+ */
+@Service
+public class ProductBatchLoader {
+
+    private final ProductRepository productRepository;
+    // null sin réplica
+    private final ReplicaConsistency replicaConsistency;
+    private final TransactionTemplate transactionTemplate;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<Loaded>> pending = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public ProductBatchLoader(ProductRepository productRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              long windowMicros, int maxBatchSize, int threads) {
+        this(productRepository, (ReplicaConsistency) null, transactionManager, meterRegistry,
+                windowMicros, maxBatchSize, threads);
+    }
+
+    @Autowired
+    public ProductBatchLoader(ProductRepository productRepository,
+                              ObjectProvider<ReplicaConsistency> replicaConsistency,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${inventory.products.batch-window-micros:1500}") long windowMicros,
+                              @Value("${inventory.products.batch-max-size:200}") int maxBatchSize,
+                              @Value("${inventory.products.batch-threads:4}") int threads) {
+        this(productRepository, replicaConsistency.getIfAvailable(), transactionManager, meterRegistry,
+                windowMicros, maxBatchSize, threads);
+    }
+
+    private ProductBatchLoader(ProductRepository productRepository,
+                               ReplicaConsistency replicaConsistency,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               long windowMicros, int maxBatchSize, int threads) {
+        this.productRepository = productRepository;
+        this.replicaConsistency = replicaConsistency;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "product-batch-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSizes = DistributionSummary.builder("inventory.products.batch.size")
+                .description("Lecturas por id resueltas en cada consulta agrupada")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Busca el producto esperando a que se resuelva su lote, y anota en la petición actual
+     * la fuente de la que se leyó
+     */
+    public Optional<Product> find(Long id) {
+        if (primaryForced()) {
+            return productRepository.findById(id);
+        }
+        try {
+            Loaded loaded = batched(id).join();
+            loaded.served().replay();
+            return loaded.product();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Optional<Product>> load(Long id) {
+        if (primaryForced()) {
+            return CompletableFuture.completedFuture(productRepository.findById(id));
+        }
+        return batched(id).thenApply(Loaded::product);
+    }
+
+    private boolean primaryForced() {
+        return replicaConsistency != null && replicaConsistency.isPrimaryForcedForCurrentThread();
+    }
+
+    private CompletableFuture<Loaded> batched(Long id) {
+        Map<Long, CompletableFuture<Loaded>> fullBatch = null;
+        CompletableFuture<Loaded> future;
+        synchronized (lock) {
+            future = pending.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            // El lote se llenó antes de cerrar la ventana; lo resuelve quien lo completó
+            dispatch(fullBatch);
+        }
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void flush() {
+        Map<Long, CompletableFuture<Loaded>> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private Map<Long, CompletableFuture<Loaded>> takePending() {
+        Map<Long, CompletableFuture<Loaded>> batch = pending;
+        pending = new HashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<Loaded>> batch) {
+        batchSizes.record(batch.size());
+        try {
+            ServedRevision.Captured served = new ServedRevision.Captured();
+            List<Product> products = ServedRevision.capture(served, () -> transactionTemplate.execute(status ->
+                    productRepository.multiLoad(batch.keySet())));
+            Map<Long, Product> byId = products == null ? Map.of() : products.stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            batch.forEach((id, future) -> future.complete(new Loaded(Optional.ofNullable(byId.get(id)), served)));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private record Loaded(Optional<Product> product, ServedRevision.Captured served) {
+    }
+}
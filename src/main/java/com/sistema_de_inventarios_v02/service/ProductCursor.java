@@ -0,0 +1,95 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token de continuación opaco para la paginación por cursor (keyset).
+ * Codifica el orden usado y la clave (valor de orden, id) de la última fila entregada.
+ */
+public final class ProductCursor {
+
+    private static final String VERSION = "v2";
+    // v1 escribía el valor tal cual, sin poder distinguir null del texto "null"
+    private static final String LEGACY_VERSION = "v1";
+    private static final String VALUE_PREFIX = "=";
+    private static final String NULL_VALUE = "~";
+
+    private final ProductSortField sortField;
+    private final Sort.Direction direction;
+    private final Object sortValue;
+    private final Long id;
+
+    private ProductCursor(ProductSortField sortField, Sort.Direction direction, Object sortValue, Long id) {
+        this.sortField = sortField;
+        this.direction = direction;
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    public static ProductCursor after(Product product, ProductSortField sortField, Sort.Direction direction) {
+        return new ProductCursor(sortField, direction, sortField.valueOf(product), product.getId());
+    }
+
+    public static ProductCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Cursor inválido");
+        }
+
+        // version:campo:direccion:id:valor (el valor va al final porque puede contener ':');
+        // en v2 el valor es '=' seguido del valor, o '~' si la fila no tenía valor
+        String[] parts = raw.split(":", 5);
+        if (parts.length != 5 || !(VERSION.equals(parts[0]) || LEGACY_VERSION.equals(parts[0]))) {
+            throw new InvalidPageRequestException("Cursor inválido");
+        }
+
+        ProductSortField sortField = ProductSortField.fromProperty(parts[1]);
+        Sort.Direction direction = ProductSortField.parseDirection(parts[2]);
+        Long id;
+        try {
+            id = Long.valueOf(parts[3]);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Cursor inválido");
+        }
+        String value = parts[4];
+        if (VERSION.equals(parts[0])) {
+            if (NULL_VALUE.equals(value)) {
+                return new ProductCursor(sortField, direction, null, id);
+            }
+            if (!value.startsWith(VALUE_PREFIX)) {
+                throw new InvalidPageRequestException("Cursor inválido");
+            }
+            value = value.substring(VALUE_PREFIX.length());
+        }
+        return new ProductCursor(sortField, direction, sortField.parseValue(value), id);
+    }
+
+    public String encode() {
+        String value = sortValue != null ? VALUE_PREFIX + sortValue : NULL_VALUE;
+        String raw = String.join(":", VERSION, sortField.getProperty(),
+                direction.name().toLowerCase(), String.valueOf(id), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ScrollPosition toScrollPosition() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortField.getPath(), sortValue);
+        keys.put(ProductSortField.ID.getPath(), id);
+        return ScrollPosition.forward(keys);
+    }
+
+    public boolean matches(ProductSortField sortField, Sort.Direction direction) {
+        return this.sortField == sortField && this.direction == direction;
+    }
+}
@@ -0,0 +1,116 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.protobuf.CodedOutputStream;
+import com.opencsv.CSVWriter;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exporta el catálogo completo en streaming (NDJSON, CSV o protobuf delimitado) escribiendo cada fila
+ * directamente en la respuesta a medida que se lee de la base de datos
+ */
+@Service
+public class ProductExportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    private static final String[] CSV_HEADER = {"id", "name", "category", "price", "stock", "stockStatus"};
+    private static final int FLUSH_EVERY = 1000;
+
+    private final ProductService productService;
+    private final ObjectWriter summaryWriter;
+
+    @Autowired
+    public ProductExportService(ProductService productService, ObjectMapper objectMapper) {
+        this.productService = productService;
+        this.summaryWriter = objectMapper.writerFor(ProductSummaryDTO.class);
+    }
+
+    public void writeNdjson(OutputStream outputStream) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputStream);
+        int[] written = {0};
+        try {
+            productService.streamAllProductsSummary(product -> {
+                try {
+                    out.write(summaryWriter.writeValueAsBytes(product));
+                    out.write('\n');
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Secuencia de ProductSummary con prefijo de longitud (ver inventory.proto)
+     */
+    public void writeDelimitedProtobuf(OutputStream outputStream) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        int[] written = {0};
+        try {
+            productService.streamAllProductsSummary(product -> {
+                try {
+                    ProductProtobufCodec.writeDelimited(product, out);
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    public void writeCsv(OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        CSVWriter csvWriter = new CSVWriter(writer);
+        csvWriter.writeNext(CSV_HEADER);
+        int[] written = {0};
+        try {
+            productService.streamAllProductsSummary(product -> {
+                csvWriter.writeNext(new String[]{
+                        String.valueOf(product.getId()),
+                        product.getName(),
+                        product.getCategory(),
+                        product.getPrice() != null ? product.getPrice().toPlainString() : "",
+                        String.valueOf(product.getStock()),
+                        product.getStockStatus()
+                });
+                if (++written[0] % FLUSH_EVERY == 0) {
+                    try {
+                        csvWriter.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (csvWriter.checkError()) {
+            throw new IOException("Error escribiendo la exportación CSV");
+        }
+        csvWriter.flush();
+    }
+}
@@ -0,0 +1,186 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.dto.ProductFacetsDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Facetas del catálogo (categorías, histograma de precios y estado de stock) calculadas
+ * con una única consulta agrupada, o con un recorrido de CatalogColumnStore cuando no se
+ * filtra por nombre. El resultado se guarda unos segundos por combinación de filtros y
+ * se descarta entero con cualquier cambio confirmado de productos.
+ */
+@Service
+public class ProductFacetService {
+
+    /** Límites superiores de los tramos de precio; deben coincidir con ProductRepository.PRICE_BUCKET */
+    static final int[] PRICE_BUCKET_BOUNDS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private static final long[] PRICE_BUCKET_CENTS = Arrays.stream(PRICE_BUCKET_BOUNDS)
+            .mapToLong(bound -> bound * 100L).toArray();
+
+    private static final String[] STOCK_STATUSES = {"IN_STOCK", "LOW_STOCK", "OUT_OF_STOCK"};
+    private static final int MAX_CACHED_FILTERS = 500;
+
+    private final ProductRepository productRepository;
+    private final CatalogColumnStore columnStore;
+    private final long cacheTtlNanos;
+
+    private final Map<FacetKey, CachedFacets> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductFacetService(ProductRepository productRepository,
+                               CatalogColumnStore columnStore,
+                               @Value("${inventory.facets.cache-ttl-ms:5000}") long cacheTtlMillis) {
+        this.productRepository = productRepository;
+        this.columnStore = columnStore;
+        this.cacheTtlNanos = cacheTtlMillis * 1_000_000L;
+    }
+
+    @Transactional(readOnly = true)
+    public ProductFacetsDTO getFacets(String category, String name, BigDecimal minPrice, BigDecimal maxPrice) {
+        FacetKey key = FacetKey.of(category, name, minPrice, maxPrice);
+        long now = System.nanoTime();
+        CachedFacets cached = cache.get(key);
+        if (cached != null && now - cached.createdAt() < cacheTtlNanos) {
+            return cached.facets();
+        }
+
+        ProductFacetsDTO facets = key.name() == null && columnStore.isReady()
+                ? columnarFacets(key)
+                : toFacets(productRepository.countFacets(key.category(), key.name(), key.minPrice(), key.maxPrice()));
+        if (cacheTtlNanos > 0) {
+            if (cache.size() >= MAX_CACHED_FILTERS) {
+                cache.values().removeIf(entry -> now - entry.createdAt() >= cacheTtlNanos);
+                if (cache.size() >= MAX_CACHED_FILTERS) {
+                    cache.clear();
+                }
+            }
+            cache.put(key, new CachedFacets(facets, now));
+        }
+        return facets;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        cache.clear();
+    }
+
+    /**
+     * Las tres facetas en un solo recorrido de las columnas, sin consultar la base de datos
+     */
+    private ProductFacetsDTO columnarFacets(FacetKey key) {
+        Integer categoryCode = key.category() != null ? columnStore.categoryCode(key.category()) : null;
+        int categoryBound = columnStore.categoryCodeBound();
+        long[][] counts = columnStore.countBy(
+                CatalogColumnStore.matching(categoryCode, key.minPrice(), key.maxPrice()),
+                new CatalogColumnStore.RowClassifier[]{
+                        (category, price, stock, minimumStock) -> category,
+                        (category, price, stock, minimumStock) -> priceBucket(price),
+                        (category, price, stock, minimumStock) -> CatalogColumnStore.stockStatus(stock, minimumStock).ordinal()
+                },
+                new int[]{categoryBound, PRICE_BUCKET_BOUNDS.length + 1, STOCK_STATUSES.length});
+
+        Map<String, Long> byCategory = new HashMap<>();
+        for (int code = 0; code < counts[0].length; code++) {
+            if (counts[0][code] > 0) {
+                byCategory.merge(columnStore.categoryName(code), counts[0][code], Long::sum);
+            }
+        }
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        long total = 0;
+        for (StockStatus status : StockStatus.values()) {
+            long count = counts[2][status.ordinal()];
+            byStatus.put(status.name(), count);
+            total += count;
+        }
+        return toFacets(total, byCategory, counts[1], byStatus);
+    }
+
+    private static int priceBucket(long priceCents) {
+        if (priceCents == CatalogColumnStore.NO_PRICE) {
+            return PRICE_BUCKET_CENTS.length;
+        }
+        for (int i = 0; i < PRICE_BUCKET_CENTS.length; i++) {
+            if (priceCents < PRICE_BUCKET_CENTS[i]) {
+                return i;
+            }
+        }
+        return PRICE_BUCKET_CENTS.length;
+    }
+
+    /**
+     * Reparte las filas (categoría, estado, tramo, conteo) entre las tres facetas
+     */
+    static ProductFacetsDTO toFacets(List<Object[]> rows) {
+        Map<String, Long> byCategory = new HashMap<>();
+        long[] byBucket = new long[PRICE_BUCKET_BOUNDS.length + 1];
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (String status : STOCK_STATUSES) {
+            byStatus.put(status, 0L);
+        }
+
+        long total = 0;
+        for (Object[] row : rows) {
+            long count = ((Number) row[3]).longValue();
+            byCategory.merge((String) row[0], count, Long::sum);
+            byStatus.merge(row[1].toString(), count, Long::sum);
+            byBucket[((Number) row[2]).intValue()] += count;
+            total += count;
+        }
+        return toFacets(total, byCategory, byBucket, byStatus);
+    }
+
+    private static ProductFacetsDTO toFacets(long total, Map<String, Long> byCategory, long[] byBucket,
+                                             Map<String, Long> byStatus) {
+        List<ProductFacetsDTO.CategoryCount> categories = new ArrayList<>(byCategory.size());
+        byCategory.forEach((category, count) -> categories.add(new ProductFacetsDTO.CategoryCount(category, count)));
+        categories.sort(Comparator.comparingLong(ProductFacetsDTO.CategoryCount::getCount).reversed()
+                .thenComparing(ProductFacetsDTO.CategoryCount::getCategory, String.CASE_INSENSITIVE_ORDER));
+
+        List<ProductFacetsDTO.PriceBucket> buckets = new ArrayList<>(byBucket.length);
+        for (int i = 0; i < byBucket.length; i++) {
+            BigDecimal min = i == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(PRICE_BUCKET_BOUNDS[i - 1]);
+            BigDecimal max = i < PRICE_BUCKET_BOUNDS.length ? BigDecimal.valueOf(PRICE_BUCKET_BOUNDS[i]) : null;
+            buckets.add(new ProductFacetsDTO.PriceBucket(min, max, byBucket[i]));
+        }
+
+        return new ProductFacetsDTO(total, categories, buckets, byStatus);
+    }
+
+    /**
+     * Filtros normalizados: mismas facetas para "Office" y "office" o 10 y 10.00
+     */
+    private record FacetKey(String category, String name, BigDecimal minPrice, BigDecimal maxPrice) {
+
+        static FacetKey of(String category, String name, BigDecimal minPrice, BigDecimal maxPrice) {
+            return new FacetKey(normalize(category), normalize(name),
+                    minPrice != null ? minPrice.stripTrailingZeros() : null,
+                    maxPrice != null ? maxPrice.stripTrailingZeros() : null);
+        }
+
+        private static String normalize(String value) {
+            return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record CachedFacets(ProductFacetsDTO facets, long createdAt) {
+    }
+}
@@ -1,33 +1,44 @@
 package com.sistema_de_inventarios_v02.service;
 
+import com.sistema_de_inventarios_v02.Config.ShardQueries;
 import com.sistema_de_inventarios_v02.model.Product;
 import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
 public class ProductHistoryService {
 
     private final ProductHistoryRepository productHistoryRepository;
+    // Con el catálogo repartido el historial de cada producto está en su shard; null sin shards
+    private final ShardQueries shardQueries;
 
     @Autowired
-    public ProductHistoryService(ProductHistoryRepository productHistoryRepository) {
+    public ProductHistoryService(ProductHistoryRepository productHistoryRepository,
+                                 ObjectProvider<ShardQueries> shardQueries) {
         this.productHistoryRepository = productHistoryRepository;
+        this.shardQueries = shardQueries.getIfAvailable();
     }
 
     public List<Product> getProductHistory(Long productId) {
-        return productHistoryRepository.getProductRevisions(productId);
+        return onHomeShard(productId, () -> productHistoryRepository.getProductRevisions(productId));
     }
 
     public Product getProductAtRevision(Long productId, Number revisionId) {
-        return productHistoryRepository.getProductAtRevision(productId, revisionId);
+        return onHomeShard(productId, () -> productHistoryRepository.getProductAtRevision(productId, revisionId));
     }
 
     public List<Number> getProductRevisionsList(Long productId) {
-        return productHistoryRepository.getRevisions(productId);
+        return onHomeShard(productId, () -> productHistoryRepository.getRevisions(productId));
     }
-}
\ No newline at end of file
+
+    private <T> T onHomeShard(Long productId, Supplier<T> query) {
+        return shardQueries != null && productId != null ? shardQueries.onHomeShard(productId, query) : query.get();
+    }
+}
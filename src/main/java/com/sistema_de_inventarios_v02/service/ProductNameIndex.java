@@ -0,0 +1,239 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de trigramas sobre los nombres de producto. Resuelve búsquedas
+ * "contiene" (equivalentes al LIKE '%texto%' del repositorio) y búsquedas tolerantes
+ * a errores ordenadas por similitud, sin recorrer la tabla de productos.
+ * Se construye al arrancar y se mantiene con cada ProductChangedEvent confirmado.
+ */
+@Service
+public class ProductNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductNameIndex.class);
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    /** Similitud mínima (coeficiente de Jaccard sobre trigramas) para la búsqueda aproximada */
+    public static final double DEFAULT_SIMILARITY_THRESHOLD = 0.3;
+
+    private final CatalogSnapshotFile catalogSnapshots;
+    private final ReplayingIndex<Names> index = new ReplayingIndex<>(new Names(), Names::remove,
+            (names, snapshot) -> names.add(new Entry(toSummary(snapshot))));
+
+    @Autowired
+    public ProductNameIndex(CatalogSnapshotFile catalogSnapshots) {
+        this.catalogSnapshots = catalogSnapshots;
+    }
+
+    public boolean isReady() {
+        return index.isLoaded();
+    }
+
+    /**
+     * Construye el índice desde la proyección de resumen al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        Names built = index.load(new Names(), names -> {
+            try (Stream<ProductSummaryDTO> products = catalogSnapshots.streamAllSummaries()) {
+                products.forEach(summary -> names.add(new Entry(summary)));
+            }
+        });
+        logger.info("Product name index built: {} products, {} trigrams", built.entries.size(), built.postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        index.onChange(event);
+    }
+
+    /**
+     * Productos cuyo nombre contiene el texto, sin distinguir mayúsculas ni acentos,
+     * ordenados por id
+     */
+    public List<ProductSummaryDTO> findContaining(String text) {
+        String query = normalize(text);
+        return index.read(names -> {
+            List<Entry> matches = new ArrayList<>();
+            if (query.length() < 3) {
+                // Sin trigramas completos no hay listas que cruzar; basta con recorrer los nombres en memoria
+                for (Entry entry : names.entries.values()) {
+                    if (entry.normalizedName.contains(query)) {
+                        matches.add(entry);
+                    }
+                }
+            } else {
+                for (Long id : names.candidatesContainingAll(trigrams(query, false))) {
+                    Entry entry = names.entries.get(id);
+                    if (entry.normalizedName.contains(query)) {
+                        matches.add(entry);
+                    }
+                }
+            }
+            matches.sort(Comparator.comparing(entry -> entry.summary.getId()));
+            return matches.stream().map(entry -> entry.summary).toList();
+        });
+    }
+
+    /**
+     * Búsqueda tolerante a errores tipográficos: ordena por similitud de trigramas
+     * (intersección / unión) y descarta los que no alcanzan el umbral
+     */
+    public List<ProductSummaryDTO> findSimilar(String text, int limit, double threshold) {
+        Set<String> queryTrigrams = trigrams(normalize(text), true);
+        if (queryTrigrams.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        return index.read(names -> {
+            Map<Long, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                Set<Long> ids = names.postings.get(trigram);
+                if (ids != null) {
+                    for (Long id : ids) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+
+            List<Scored> scored = new ArrayList<>();
+            for (Map.Entry<Long, Integer> candidate : shared.entrySet()) {
+                Entry entry = names.entries.get(candidate.getKey());
+                int common = candidate.getValue();
+                double similarity = (double) common / (queryTrigrams.size() + entry.trigrams.size() - common);
+                if (similarity >= threshold) {
+                    scored.add(new Scored(entry.summary, similarity));
+                }
+            }
+            scored.sort(Comparator.comparingDouble(Scored::similarity).reversed()
+                    .thenComparing(s -> s.summary().getId()));
+            return scored.stream().limit(limit).map(Scored::summary).toList();
+        });
+    }
+
+    public int size() {
+        return index.read(names -> names.entries.size());
+    }
+
+    private static ProductSummaryDTO toSummary(ProductSnapshot snapshot) {
+        return new ProductSummaryDTO(snapshot.getId(), snapshot.getName(), snapshot.getCategory(),
+                snapshot.getPrice(), snapshot.getStock(), snapshot.getStockStatus());
+    }
+
+    /**
+     * Minúsculas y sin acentos, igual que compara la colación de MySQL
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Trigramas del texto; con padding se añaden los de inicio y fin ("  a", " ab", "yz ")
+     * que dan peso a los extremos en la similitud, como pg_trgm
+     */
+    static Set<String> trigrams(String normalized, boolean padded) {
+        String text = padded ? "  " + normalized + " " : normalized;
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    /**
+     * Nombres por id y listas de ids por trigrama
+     */
+    private static final class Names {
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void add(Entry entry) {
+            entries.put(entry.summary.getId(), entry);
+            for (String trigram : entry.trigrams) {
+                postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(entry.summary.getId());
+            }
+        }
+
+        void remove(Long id) {
+            Entry entry = entries.remove(id);
+            if (entry == null) {
+                return;
+            }
+            for (String trigram : entry.trigrams) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(trigram);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Cruza las listas de los trigramas empezando por la más corta
+         */
+        Set<Long> candidatesContainingAll(Set<String> queryTrigrams) {
+            List<Set<Long>> lists = new ArrayList<>(queryTrigrams.size());
+            for (String trigram : queryTrigrams) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids == null) {
+                    return Set.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+    }
+
+    private static final class Entry {
+        private final ProductSummaryDTO summary;
+        private final String normalizedName;
+        private final Set<String> trigrams;
+
+        private Entry(ProductSummaryDTO summary) {
+            this.summary = summary;
+            this.normalizedName = normalize(summary.getName());
+            // Los trigramas con padding incluyen todos los del nombre, así sirven para ambos tipos de búsqueda
+            this.trigrams = trigrams(normalizedName, true);
+        }
+    }
+
+    private record Scored(ProductSummaryDTO summary, double similarity) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.sistema_de_inventarios_v02.dto.ProductResponseDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.dto.api.StockMovementDTO;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import org.springframework.data.domain.Page;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Codificación protobuf de los DTO de la API según src/main/resources/proto/inventory.proto.
+ * Se escribe directamente con CodedOutputStream, sin clases generadas: los DTO siguen
+ * siendo el único modelo y el JSON no cambia.
+ */
+public final class ProductProtobufCodec {
+
+    public static final String PROTOBUF = "application/x-protobuf";
+
+    private ProductProtobufCodec() {
+    }
+
+    public static boolean supports(Class<?> type) {
+        return type == ProductSummaryDTO.class || type == ProductResponseDTO.class
+                || type == StockMovementDTO.class;
+    }
+
+    /**
+     * Mensaje suelto, lista (campo 1 repetido) o página (ProductSummaryPage)
+     */
+    public static void write(Object value, CodedOutputStream out) throws IOException {
+        if (value instanceof Page<?> page) {
+            writeItems(page.getContent(), out);
+            writeInt32(out, 2, page.getNumber());
+            writeInt32(out, 3, page.getSize());
+            if (page.getTotalElements() != 0) {
+                out.writeInt64(4, page.getTotalElements());
+            }
+            writeInt32(out, 5, page.getTotalPages());
+        } else if (value instanceof List<?> items) {
+            writeItems(items, out);
+        } else {
+            writeMessage(value, out);
+        }
+    }
+
+    /**
+     * Un elemento con su longitud delante, como Message.writeDelimitedTo
+     */
+    public static void writeDelimited(Object value, CodedOutputStream out) throws IOException {
+        byte[] bytes = toBytes(value);
+        out.writeUInt32NoTag(bytes.length);
+        out.writeRawBytes(bytes);
+    }
+
+    public static byte[] toBytes(Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        writeMessage(value, out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static StockMovementDTO readStockMovement(InputStream input) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(input);
+        StockMovementDTO movement = new StockMovementDTO();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> movement.setProductId(in.readInt64());
+                case 2 -> movement.setMovementType(in.readString());
+                case 3 -> movement.setQuantity(in.readInt32());
+                case 4 -> movement.setReason(in.readString());
+                case 5 -> movement.setNotes(in.readString());
+                case 6 -> movement.setUserResponsible(in.readString());
+                default -> in.skipField(tag);
+            }
+        }
+        return movement;
+    }
+
+    private static void writeItems(List<?> items, CodedOutputStream out) throws IOException {
+        for (Object item : items) {
+            out.writeByteArray(1, toBytes(item));
+        }
+    }
+
+    private static void writeMessage(Object value, CodedOutputStream out) throws IOException {
+        if (value instanceof ProductSummaryDTO product) {
+            writeInt64(out, 1, product.getId());
+            writeString(out, 2, product.getName());
+            writeString(out, 3, product.getCategory());
+            writeDecimal(out, 4, product.getPrice());
+            writeInt32(out, 5, product.getStock());
+            writeStockStatus(out, 6, product.getStockStatus());
+        } else if (value instanceof ProductResponseDTO product) {
+            writeInt64(out, 1, product.getId());
+            writeString(out, 2, product.getName());
+            writeString(out, 3, product.getDescription());
+            writeString(out, 4, product.getCategory());
+            writeDecimal(out, 5, product.getPrice());
+            writeInt32(out, 6, product.getStock());
+            writeInt32(out, 7, product.getMinimumStock());
+            if (product.isLowStock()) {
+                out.writeBool(8, true);
+            }
+            if (product.isOutOfStock()) {
+                out.writeBool(9, true);
+            }
+            writeStockStatus(out, 10, product.getStockStatus());
+        } else if (value instanceof StockMovementDTO movement) {
+            writeInt64(out, 1, movement.getProductId());
+            writeString(out, 2, movement.getMovementType());
+            writeInt32(out, 3, movement.getQuantity());
+            writeString(out, 4, movement.getReason());
+            writeString(out, 5, movement.getNotes());
+            writeString(out, 6, movement.getUserResponsible());
+        } else {
+            throw new IllegalArgumentException("Tipo sin esquema protobuf: "
+                    + (value != null ? value.getClass().getName() : "null"));
+        }
+    }
+
+    // En proto3 los valores por defecto no se escriben
+
+    private static void writeInt64(CodedOutputStream out, int field, Long value) throws IOException {
+        if (value != null && value != 0) {
+            out.writeInt64(field, value);
+        }
+    }
+
+    private static void writeInt32(CodedOutputStream out, int field, Integer value) throws IOException {
+        if (value != null && value != 0) {
+            out.writeInt32(field, value);
+        }
+    }
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static void writeDecimal(CodedOutputStream out, int field, BigDecimal value) throws IOException {
+        if (value != null) {
+            out.writeString(field, value.toPlainString());
+        }
+    }
+
+    private static void writeStockStatus(CodedOutputStream out, int field, String status) throws IOException {
+        if (status != null) {
+            out.writeEnum(field, StockStatus.valueOf(status).ordinal() + 1);
+        }
+    }
+}
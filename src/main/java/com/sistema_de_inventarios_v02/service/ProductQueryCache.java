@@ -0,0 +1,93 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resultados del listado filtrado y paginado guardados como ids de la página más el total,
+ * por combinación de filtros, orden y página. Cada entrada lleva la generación del catálogo
+ * con la que se leyó; cualquier escritura de productos incrementa la generación y deja
+ * obsoletas todas las entradas sin recorrerlas.
+ */
+@Service
+public class ProductQueryCache {
+
+    private final Cache<QueryKey, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ProductQueryCache(MeterRegistry meterRegistry,
+                             @Value("${inventory.query-cache.max-entries:2000}") long maxEntries) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productQueries");
+    }
+
+    /**
+     * Clave normalizada; null si la petición no está paginada y no se cachea
+     */
+    public static QueryKey key(String category, String name, Pageable pageable) {
+        if (pageable == null || pageable.isUnpaged()) {
+            return null;
+        }
+        // Misma normalización que la consulta: categoría por diccionario y nombre con LOWER
+        return new QueryKey(category != null ? category.trim().toLowerCase(Locale.ROOT) : null,
+                name != null ? name.toLowerCase(Locale.ROOT) : null,
+                pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+    }
+
+    /**
+     * Entrada vigente para la clave o null si no existe o es de una generación anterior
+     */
+    public Entry get(QueryKey key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null && entry.generation() == generation.get() ? entry : null;
+    }
+
+    /**
+     * Generación vigente; se lee antes de consultar la base de datos y se pasa a put
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(QueryKey key, long readGeneration, long[] ids, long total) {
+        if (generation.get() == readGeneration) {
+            cache.put(key, new Entry(readGeneration, ids, total));
+        }
+    }
+
+    /**
+     * Se incrementa al publicar el cambio (dentro de la transacción) y otra vez tras el commit:
+     * una lectura que empezó entre ambos pudo ver los datos anteriores y queda descartada.
+     */
+    @EventListener
+    public void onProductChanging(ProductChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    public record QueryKey(String category, String name, int page, int size, String sort) {
+    }
+
+    public record Entry(long generation, long[] ids, long total) {
+    }
+}
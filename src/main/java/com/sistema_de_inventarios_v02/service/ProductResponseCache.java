@@ -0,0 +1,156 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuestas JSON de las lecturas más frecuentes (producto por id, listados por categoría,
+ * stock bajo y agotados) guardadas como bytes listos para escribir, en claro y en gzip.
+ * Caffeine (W-TinyLFU) acota el total por tamaño en bytes. Cada escritura de productos
+ * invalida solo las claves a las que afecta; la expiración por tiempo es solo una red de
+ * seguridad por si alguna invalidación no llega.
+ */
+@Service
+public class ProductResponseCache {
+
+    private final Cache<String, Entry> cache;
+    private final CategoryDictionary categoryDictionary;
+
+    // Se incrementa en cada invalidación; una respuesta leída antes de un cambio no se guarda
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ProductResponseCache(MeterRegistry meterRegistry,
+                                CategoryDictionary categoryDictionary,
+                                @Value("${inventory.response-cache.max-bytes:16777216}") long maxBytes,
+                                @Value("${inventory.response-cache.ttl-ms:300000}") long ttlMillis) {
+        this.categoryDictionary = categoryDictionary;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.json().length + entry.gzip().length)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productResponses");
+    }
+
+    /**
+     * Clave de la región para el valor de la variable de la ruta, normalizado como lo
+     * resuelve la consulta: el id como número y la categoría por su id del diccionario.
+     * Null si el valor no tiene forma canónica (id no numérico, categoría inexistente) y
+     * la respuesta no se guarda.
+     */
+    public String key(Region region, String value) {
+        return switch (region) {
+            case PRODUCT -> {
+                try {
+                    yield "product:" + Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    yield null;
+                }
+            }
+            case CATEGORY -> {
+                Integer categoryId = categoryDictionary.findId(value);
+                yield categoryId != null ? "category:" + categoryId : null;
+            }
+            case LOW_STOCK -> "low-stock";
+            case OUT_OF_STOCK -> "out-of-stock";
+        };
+    }
+
+    public Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Generación vigente; se lee antes de consultar la base de datos y se pasa a put
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Guarda la respuesta salvo que haya habido una invalidación desde readGeneration.
+     * version es la versión que acredita el cuerpo para ETag y Last-Modified, o null si no
+     * se conoce (por ejemplo, si salió de una fuente atrasada)
+     */
+    public void put(String key, long readGeneration, byte[] json, RevisionStampDTO version) {
+        if (generation.get() != readGeneration) {
+            return;
+        }
+        cache.put(key, new Entry(json, gzip(json), version));
+        // Una invalidación concurrente pudo ejecutarse entre la comprobación y el put
+        if (generation.get() != readGeneration) {
+            cache.invalidate(key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+        cache.invalidate(key(Region.PRODUCT, String.valueOf(event.getProductId())));
+        invalidateLists(event.getBefore());
+        invalidateLists(event.getAfter());
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private void invalidateLists(ProductSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        String categoryKey = snapshot.getCategory() != null ? key(Region.CATEGORY, snapshot.getCategory()) : null;
+        if (categoryKey != null) {
+            cache.invalidate(categoryKey);
+        }
+        String status = snapshot.getStockStatus();
+        if (StockStatus.LOW_STOCK.name().equals(status)) {
+            cache.invalidate(key(Region.LOW_STOCK, null));
+        } else if (StockStatus.OUT_OF_STOCK.name().equals(status)) {
+            cache.invalidate(key(Region.OUT_OF_STOCK, null));
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 3 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    public enum Region {
+        /** Un producto; la clave es la variable {id} */
+        PRODUCT,
+        /** Productos de una categoría; la clave es el id de la variable {category} en el diccionario */
+        CATEGORY,
+        LOW_STOCK,
+        OUT_OF_STOCK
+    }
+
+    public record Entry(byte[] json, byte[] gzip, RevisionStampDTO version) {
+    }
+}
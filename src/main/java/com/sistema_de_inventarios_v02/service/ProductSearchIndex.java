@@ -0,0 +1,279 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.dto.ProductSearchHitDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Motor de búsqueda de texto completo sobre nombre, descripción y categoría.
+ * Índice invertido de términos sin acentos con puntuación BM25 por campo
+ * ponderada (BM25F simplificado). Se construye al arrancar desde CatalogSnapshotFile
+ * y se actualiza con cada ProductChangedEvent confirmado.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    static final String[] FIELDS = {"name", "category", "description"};
+    private static final double[] BOOSTS = {3.0, 2.0, 1.0};
+    private static final int NAME = 0;
+    private static final int CATEGORY = 1;
+    private static final int DESCRIPTION = 2;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Medidas como 3/8 o 2.5 se conservan como un solo término
+    private static final Pattern TOKEN = Pattern.compile("\\p{N}+(?:[/.,]\\p{N}+)+|[\\p{L}\\p{M}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "sin", "un", "una", "y");
+
+    private final CatalogSnapshotFile catalogSnapshots;
+    private final ReplayingIndex<Documents> index = new ReplayingIndex<>(new Documents(), Documents::remove,
+            (documents, snapshot) -> documents.add(new Document(snapshot)));
+
+    @Autowired
+    public ProductSearchIndex(CatalogSnapshotFile catalogSnapshots) {
+        this.catalogSnapshots = catalogSnapshots;
+    }
+
+    public boolean isReady() {
+        return index.isLoaded();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        Documents built = index.load(new Documents(), documents -> {
+            try (Stream<ProductSnapshot> products = catalogSnapshots.streamAllSnapshots()) {
+                products.forEach(snapshot -> documents.add(new Document(snapshot)));
+            }
+        });
+        logger.info("Product search index built: {} products, {} terms", built.byId.size(), built.postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        index.onChange(event);
+    }
+
+    /**
+     * Productos que contienen alguno de los términos, ordenados por relevancia
+     */
+    public Page<ProductSearchHitDTO> search(String text, Pageable pageable) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(text));
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        List<Scored> scored = index.read(documents -> {
+            int documentCount = documents.byId.size();
+            double[] averageLengths = new double[FIELDS.length];
+            for (int f = 0; f < FIELDS.length; f++) {
+                averageLengths[f] = documentCount > 0 ? (double) documents.totalLengths[f] / documentCount : 0;
+            }
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, int[]> termPostings = documents.postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                int df = termPostings.size();
+                double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+                for (Map.Entry<Long, int[]> posting : termPostings.entrySet()) {
+                    Document document = documents.byId.get(posting.getKey());
+                    double termScore = 0;
+                    for (int f = 0; f < FIELDS.length; f++) {
+                        int tf = posting.getValue()[f];
+                        if (tf == 0) {
+                            continue;
+                        }
+                        double norm = averageLengths[f] > 0 ? document.lengths[f] / averageLengths[f] : 1;
+                        termScore += BOOSTS[f] * tf * (K1 + 1) / (tf + K1 * (1 - B + B * norm));
+                    }
+                    scores.merge(posting.getKey(), idf * termScore, Double::sum);
+                }
+            }
+
+            List<Scored> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                hits.add(new Scored(documents.byId.get(entry.getKey()), entry.getValue()));
+            }
+            return hits;
+        });
+
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed()
+                .thenComparing(s -> s.document().snapshot.getId()));
+
+        int from = (int) Math.min(pageable.getOffset(), scored.size());
+        int to = Math.min(from + pageable.getPageSize(), scored.size());
+        List<ProductSearchHitDTO> content = new ArrayList<>(to - from);
+        for (Scored hit : scored.subList(from, to)) {
+            content.add(hit.document().toHit(hit.score(), terms));
+        }
+        return new PageImpl<>(content, pageable, scored.size());
+    }
+
+    public int size() {
+        return index.read(documents -> documents.byId.size());
+    }
+
+    /**
+     * Términos del texto en minúsculas y sin acentos, sin palabras vacías
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = TOKEN.matcher(text);
+        while (matcher.find()) {
+            String term = ProductNameIndex.normalize(matcher.group());
+            if (!term.isEmpty() && !STOP_WORDS.contains(term)) {
+                tokens.add(term);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Envuelve en &lt;em&gt; los términos buscados; el resto del texto se escapa como HTML
+     */
+    static String highlight(String text, Set<String> terms) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        Matcher matcher = TOKEN.matcher(text);
+        int last = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            if (!terms.contains(ProductNameIndex.normalize(matcher.group()))) {
+                continue;
+            }
+            result.append(HtmlUtils.htmlEscape(text.substring(last, matcher.start()), "UTF-8"))
+                    .append("<em>")
+                    .append(HtmlUtils.htmlEscape(matcher.group(), "UTF-8"))
+                    .append("</em>");
+            last = matcher.end();
+            matched = true;
+        }
+        if (!matched) {
+            return null;
+        }
+        result.append(HtmlUtils.htmlEscape(text.substring(last), "UTF-8"));
+        return result.toString();
+    }
+
+    /**
+     * Documentos por id, listas de frecuencias por término y longitud total de cada campo
+     */
+    private static final class Documents {
+        private final Map<Long, Document> byId = new HashMap<>();
+        private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+        private final long[] totalLengths = new long[FIELDS.length];
+
+        void add(Document document) {
+            Long id = document.snapshot.getId();
+            byId.put(id, document);
+            for (Map.Entry<String, int[]> entry : document.termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new HashMap<>()).put(id, entry.getValue());
+            }
+            for (int f = 0; f < FIELDS.length; f++) {
+                totalLengths[f] += document.lengths[f];
+            }
+        }
+
+        void remove(Long id) {
+            Document document = byId.remove(id);
+            if (document == null) {
+                return;
+            }
+            for (String term : document.termFrequencies.keySet()) {
+                Map<Long, int[]> termPostings = postings.get(term);
+                if (termPostings != null) {
+                    termPostings.remove(id);
+                    if (termPostings.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            for (int f = 0; f < FIELDS.length; f++) {
+                totalLengths[f] -= document.lengths[f];
+            }
+        }
+    }
+
+    private static final class Document {
+        private final ProductSnapshot snapshot;
+        private final int[] lengths = new int[FIELDS.length];
+        private final Map<String, int[]> termFrequencies = new HashMap<>();
+
+        private Document(ProductSnapshot snapshot) {
+            this.snapshot = snapshot;
+            index(NAME, snapshot.getName());
+            index(CATEGORY, snapshot.getCategory());
+            index(DESCRIPTION, snapshot.getDescription());
+        }
+
+        private void index(int field, String text) {
+            List<String> tokens = tokenize(text);
+            lengths[field] = tokens.size();
+            for (String token : tokens) {
+                termFrequencies.computeIfAbsent(token, key -> new int[FIELDS.length])[field]++;
+            }
+        }
+
+        private String fieldText(int field) {
+            return switch (field) {
+                case NAME -> snapshot.getName();
+                case CATEGORY -> snapshot.getCategory();
+                default -> snapshot.getDescription();
+            };
+        }
+
+        private ProductSearchHitDTO toHit(double score, Set<String> terms) {
+            Map<String, String> highlights = new LinkedHashMap<>();
+            for (int f = 0; f < FIELDS.length; f++) {
+                String highlighted = highlight(fieldText(f), terms);
+                if (highlighted != null) {
+                    highlights.put(FIELDS[f], highlighted);
+                }
+            }
+            ProductSummaryDTO summary = new ProductSummaryDTO(snapshot.getId(), snapshot.getName(),
+                    snapshot.getCategory(), snapshot.getPrice(), snapshot.getStock(), snapshot.getStockStatus());
+            return new ProductSearchHitDTO(summary, score, highlights);
+        }
+    }
+
+    private record Scored(Document document, double score) {
+    }
+}
@@ -1,30 +1,79 @@
 package com.sistema_de_inventarios_v02.service;
 
+import com.sistema_de_inventarios_v02.Config.ServedRevision;
 import com.sistema_de_inventarios_v02.dto.*;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
 import com.sistema_de_inventarios_v02.exception.ProductNotFoundException;
 import com.sistema_de_inventarios_v02.exception.DuplicateProductException;
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
 import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import com.sistema_de_inventarios_v02.repository.ProductField;
 import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import com.sistema_de_inventarios_v02.repository.ProductSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ProductService {
 
+    public static final int MAX_BATCH_IDS = 100;
+
     private final ProductRepository productRepository;
+    private final InventoryCounterService inventoryCounterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductNameIndex productNameIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final ProductBatchLoader productBatchLoader;
+    private final ProductQueryCache productQueryCache;
+    private final CatalogReadStore catalogReadStore;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          InventoryCounterService inventoryCounterService,
+                          ApplicationEventPublisher eventPublisher,
+                          ProductNameIndex productNameIndex,
+                          ProductSearchIndex productSearchIndex,
+                          ProductSuggestionIndex productSuggestionIndex,
+                          ProductBatchLoader productBatchLoader,
+                          ProductQueryCache productQueryCache,
+                          CatalogReadStore catalogReadStore) {
         this.productRepository = productRepository;
+        this.inventoryCounterService = inventoryCounterService;
+        this.eventPublisher = eventPublisher;
+        this.productNameIndex = productNameIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.productSuggestionIndex = productSuggestionIndex;
+        this.productBatchLoader = productBatchLoader;
+        this.productQueryCache = productQueryCache;
+        this.catalogReadStore = catalogReadStore;
     }
 
     public ProductResponseDTO createProduct(CreateProductDTO createProductDTO) {
@@ -34,34 +83,176 @@ public class ProductService {
 
         Product product = convertCreateDTOToEntity(createProductDTO);
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(ProductSnapshot.of(savedProduct)));
         return convertToResponseDTO(savedProduct);
     }
 
     @Transactional(readOnly = true)
     public List<ProductSummaryDTO> getAllProductsSummary() {
-        List<Product> products = productRepository.findAll();
-        return products.stream()
-                .map(this::convertToSummaryDTO)
-                .collect(Collectors.toList());
+        if (catalogReadStore.servesCurrentUser()) {
+            return catalogReadStore.getAllProductsSummary();
+        }
+        return productRepository.findAllSummaries();
+    }
+
+    /**
+     * Entrega el catálogo fila a fila sin materializar la lista completa; las filas se
+     * proyectan directamente al resumen, así la memoria usada no depende del tamaño
+     * del catálogo
+     */
+    @Transactional(readOnly = true)
+    public void streamAllProductsSummary(Consumer<ProductSummaryDTO> consumer) {
+        try (Stream<ProductSummaryDTO> products = productRepository.streamAllSummaries()) {
+            products.forEach(consumer);
+        }
     }
 
     @Transactional(readOnly = true)
     public Page<ProductSummaryDTO> getAllProductsPaginated(Pageable pageable) {
-        Page<Product> productsPage = productRepository.findAll(pageable);
-        return productsPage.map(this::convertToSummaryDTO);
+        if (catalogReadStore.servesCurrentUser() && catalogReadStore.supports(pageable.getSort())) {
+            return catalogReadStore.getAllProductsPaginated(pageable);
+        }
+        return productRepository.findAllSummaries(pageable);
     }
 
+    /**
+     * Listado filtrado y paginado. Las páginas ya consultadas se resuelven con los ids y el
+     * total guardados en ProductQueryCache y los productos de la cache de segundo nivel.
+     * Los usuarios VISITOR se sirven del modelo de lectura si está activo.
+     */
     @Transactional(readOnly = true)
     public Page<ProductSummaryDTO> getProductsWithFilters(String category, String name, Pageable pageable) {
-        Page<Product> products = productRepository.findByCategoryAndName(category, name, pageable);
-        return products.map(this::convertToSummaryDTO);
+        if (catalogReadStore.servesCurrentUser() && catalogReadStore.supports(pageable.getSort())) {
+            return catalogReadStore.getProductsWithFilters(category, name, pageable);
+        }
+        ProductQueryCache.QueryKey key = ProductQueryCache.key(category, name, pageable);
+        if (key == null) {
+            return productRepository.findSummariesByCategoryAndName(category, name, pageable);
+        }
+        ProductQueryCache.Entry cached = productQueryCache.get(key);
+        if (cached != null) {
+            Page<ProductSummaryDTO> page = loadCachedPage(cached, pageable);
+            if (page != null) {
+                // La lista de ids puede ser anterior a un cambio de otro nodo aún sin sondear
+                ServedRevision.record(ServedRevision.UNKNOWN);
+                return page;
+            }
+        }
+
+        long generation = productQueryCache.generation();
+        Page<ProductSummaryDTO> page = productRepository.findSummariesByCategoryAndName(category, name, pageable);
+        if (ServedRevision.isShareable()) {
+            long[] ids = page.getContent().stream().mapToLong(ProductSummaryDTO::getId).toArray();
+            productQueryCache.put(key, generation, ids, page.getTotalElements());
+        }
+        return page;
+    }
+
+    /**
+     * Rehace la página en el orden guardado; null si falta algún producto
+     */
+    private Page<ProductSummaryDTO> loadCachedPage(ProductQueryCache.Entry cached, Pageable pageable) {
+        List<Long> ids = Arrays.stream(cached.ids()).boxed().toList();
+        Map<Long, Product> byId = productRepository.multiLoad(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<ProductSummaryDTO> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = byId.get(id);
+            if (product == null) {
+                return null;
+            }
+            content.add(convertToSummaryDTO(product));
+        }
+        return new PageImpl<>(content, pageable, cached.total());
+    }
+
+    /**
+     * Listado filtrado con solo los campos pedidos (?fields=), proyectados en el SELECT
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> getProductFieldsWithFilters(String category, String name,
+                                                                 List<ProductField> fields, Pageable pageable) {
+        return productRepository.findFields(ProductSpecifications.withFilters(category, name), fields, pageable);
     }
 
+    /**
+     * Paginación por cursor (keyset): cada página filtra por (valor de orden, id) > último
+     * visto en lugar de saltar filas con OFFSET, y solo cuenta el total si se pide.
+     */
     @Transactional(readOnly = true)
+    public CursorPageDTO<ProductSummaryDTO> getProductsByCursor(String category, String name,
+                                                                ProductSortField sortField,
+                                                                Sort.Direction direction,
+                                                                String cursor, int size,
+                                                                boolean includeTotal) {
+        ScrollPosition position = ScrollPosition.keyset();
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor decoded = ProductCursor.decode(cursor);
+            if (!decoded.matches(sortField, direction)) {
+                throw new InvalidPageRequestException("El cursor no corresponde al ordenamiento solicitado");
+            }
+            position = decoded.toScrollPosition();
+        }
+
+        Specification<Product> spec = ProductSpecifications.withFilters(category, name);
+        Sort sort = sortField.toSort(direction);
+        ScrollPosition start = position;
+        Window<Product> window = productRepository.findBy(spec, query -> query
+                .sortBy(sort)
+                .limit(size)
+                .scroll(start));
+
+        List<ProductSummaryDTO> content = window.getContent().stream()
+                .map(this::convertToSummaryDTO)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            Product last = window.getContent().get(window.size() - 1);
+            nextCursor = ProductCursor.after(last, sortField, direction).encode();
+        }
+
+        Long total = includeTotal ? productRepository.count(spec) : null;
+        return new CursorPageDTO<>(content, size, nextCursor, total);
+    }
+
+    /**
+     * Fuera de una transacción la lectura pasa por ProductBatchLoader, que junta las
+     * peticiones concurrentes en una sola consulta; dentro de una transacción se lee
+     * directamente para ver sus propios cambios.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductResponseDTO getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado con ID: " + id));
-        return convertToResponseDTO(product);
+        if (catalogReadStore.servesCurrentUser()) {
+            return catalogReadStore.getProductById(id);
+        }
+        Optional<Product> product = TransactionSynchronizationManager.isActualTransactionActive()
+                ? productRepository.findById(id)
+                : productBatchLoader.find(id);
+        return convertToResponseDTO(product
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado con ID: " + id)));
+    }
+
+    /**
+     * Varios productos con una sola consulta IN (solo los que no estén en la cache de
+     * segundo nivel), en el orden pedido y sin repetir; los ids inexistentes se omiten
+     */
+    @Transactional(readOnly = true)
+    public List<ProductResponseDTO> getProductsByIds(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > MAX_BATCH_IDS) {
+            throw new InvalidPageRequestException("Se permiten como máximo " + MAX_BATCH_IDS + " ids por petición");
+        }
+        if (catalogReadStore.servesCurrentUser()) {
+            return catalogReadStore.getProductsByIds(distinctIds);
+        }
+        Map<Long, Product> byId = productRepository.multiLoad(distinctIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return distinctIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToResponseDTO)
+                .toList();
     }
 
     public ProductResponseDTO updateProduct(Long id, UpdateProductDTO updateProductDTO) {
@@ -74,36 +265,86 @@ public class ProductService {
             throw new DuplicateProductException("Ya existe un producto con el nombre: " + updateProductDTO.getName());
         }
 
+        ProductSnapshot before = ProductSnapshot.of(existingProduct);
         updateEntityFromUpdateDTO(existingProduct, updateProductDTO);
         Product updatedProduct = productRepository.save(existingProduct);
+        if (updatedProduct.getId().equals(id)) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(before, ProductSnapshot.of(updatedProduct)));
+        } else {
+            // La nueva categoría está en otro shard: el producto se ha movido allí con otro id
+            eventPublisher.publishEvent(ProductChangedEvent.deleted(before));
+            eventPublisher.publishEvent(ProductChangedEvent.created(ProductSnapshot.of(updatedProduct)));
+        }
         return convertToResponseDTO(updatedProduct);
     }
 
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
-            throw new ProductNotFoundException("Producto no encontrado con ID: " + id);
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado con ID: " + id));
+        ProductSnapshot before = ProductSnapshot.of(product);
+        productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(before));
     }
 
+    /**
+     * Usa el índice de trigramas en memoria; mientras se construye recurre al LIKE en SQL
+     */
     @Transactional(readOnly = true)
     public List<ProductSummaryDTO> searchProductsByName(String name) {
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
-        return products.stream()
-                .map(this::convertToSummaryDTO)
+        if (productNameIndex.isReady()) {
+            return productNameIndex.findContaining(name);
+        }
+        return productRepository.findSummariesByNameContaining(name);
+    }
+
+    /**
+     * Búsqueda tolerante a errores ordenada por similitud; sin índice solo puede
+     * ofrecer las coincidencias exactas del LIKE
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSummaryDTO> searchProductsByNameFuzzy(String name, int limit) {
+        if (productNameIndex.isReady()) {
+            return productNameIndex.findSimilar(name, limit, ProductNameIndex.DEFAULT_SIMILARITY_THRESHOLD);
+        }
+        return productRepository.findSummariesByNameContaining(name).stream()
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Búsqueda de texto completo por relevancia en nombre, descripción y categoría.
+     * Mientras el índice se construye responde con un LIKE sin puntuación ni resaltado.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductSearchHitDTO> searchProductsFullText(String text, Pageable pageable) {
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(text, pageable);
+        }
+        return productRepository.findSummariesByText(text.trim(), pageable)
+                .map(summary -> new ProductSearchHitDTO(summary, 0, Map.of()));
+    }
+
+    /**
+     * Autocompletado servido desde memoria; nunca consulta la base de datos
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, int limit) {
+        return productSuggestionIndex.suggest(prefix, limit);
+    }
+
     @Transactional(readOnly = true)
     public List<ProductSummaryDTO> getProductsByCategory(String category) {
-        List<Product> products = productRepository.findByCategoryIgnoreCase(category);
-        return products.stream()
-                .map(this::convertToSummaryDTO)
-                .collect(Collectors.toList());
+        if (catalogReadStore.servesCurrentUser()) {
+            return catalogReadStore.getProductsByCategory(category);
+        }
+        return productRepository.findSummariesByCategory(category);
     }
 
     @Transactional(readOnly = true)
     public List<ProductResponseDTO> getProductsWithLowStock() {
+        if (catalogReadStore.servesCurrentUser()) {
+            return catalogReadStore.getProductsWithStatus(StockStatus.LOW_STOCK);
+        }
         List<Product> products = productRepository.findProductsWithLowStock();
         return products.stream()
                 .map(this::convertToResponseDTO)
@@ -112,6 +353,9 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public List<ProductResponseDTO> getProductsOutOfStock() {
+        if (catalogReadStore.servesCurrentUser()) {
+            return catalogReadStore.getProductsWithStatus(StockStatus.OUT_OF_STOCK);
+        }
         List<Product> products = productRepository.findProductsOutOfStock();
         return products.stream()
                 .map(this::convertToResponseDTO)
@@ -122,8 +366,10 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado con ID: " + id));
 
+        ProductSnapshot before = ProductSnapshot.of(product);
         product.setStock(stockUpdateDTO.getStock());
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(before, ProductSnapshot.of(updatedProduct)));
         return convertToResponseDTO(updatedProduct);
     }
 
@@ -134,26 +380,31 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public List<ProductSummaryDTO> getProductsByPriceRange(Double minPrice, Double maxPrice) {
-        List<Product> products = productRepository.findByPriceBetween(minPrice, maxPrice);
-        return products.stream()
-                .map(this::convertToSummaryDTO)
-                .collect(Collectors.toList());
+        if (catalogReadStore.servesCurrentUser() && minPrice != null && maxPrice != null && minPrice <= maxPrice) {
+            return catalogReadStore.getProductsByPriceRange(minPrice, maxPrice);
+        }
+        return productRepository.findSummariesByPriceBetween(minPrice, maxPrice);
+    }
+
+    @Transactional(readOnly = true)
+    public ProductStatsDTO getProductStatistics() {
+        if (inventoryCounterService.isReady()) {
+            return inventoryCounterService.getGlobalStatistics();
+        }
+        return productRepository.getProductStatistics();
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategoryStatsDTO> getCategoryStatistics() {
+        if (inventoryCounterService.isReady()) {
+            return inventoryCounterService.getCategoryStatistics();
+        }
+        return productRepository.getCategoryStatistics();
     }
 
     @Transactional(readOnly = true)
     public Map<String, Object> getProductStats() {
-        List<Product> allProducts = productRepository.findAll();
-        List<Product> lowStockProducts = productRepository.findProductsWithLowStock();
-        List<Product> outOfStockProducts = productRepository.findProductsOutOfStock();
-        List<String> categories = productRepository.findAllCategories();
-
-        return Map.of(
-                "totalProducts", allProducts.size(),
-                "lowStockProducts", lowStockProducts.size(),
-                "outOfStockProducts", outOfStockProducts.size(),
-                "totalCategories", categories.size(),
-                "inStockProducts", allProducts.size() - outOfStockProducts.size()
-        );
+        return getProductStatistics().toMap();
     }
 
     private Product convertCreateDTOToEntity(CreateProductDTO createDTO) {
@@ -199,7 +450,7 @@ public class ProductService {
                 product.getMinimumStock(),
                 product.isLowStock(),
                 product.isOutOfStock(),
-                calculateStockStatus(product)
+                product.getStockStatus().name()
         );
     }
 
@@ -210,17 +461,7 @@ public class ProductService {
                 product.getCategory(),
                 product.getPrice(),
                 product.getStock(),
-                calculateStockStatus(product)
+                product.getStockStatus().name()
         );
     }
-
-    private String calculateStockStatus(Product product) {
-        if (product.isOutOfStock()) {
-            return "OUT_OF_STOCK";
-        }
-        if (product.isLowStock()) {
-            return "LOW_STOCK";
-        }
-        return "IN_STOCK";
-    }
 }
\ No newline at end of file
@@ -0,0 +1,449 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.Config.ShardQueries;
+import com.sistema_de_inventarios_v02.dto.ProductSuggestionDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Autocompletado de nombres de producto y categorías con un trie de prefijos
+ * compacto. Cada nodo guarda precalculadas sus mejores sugerencias ordenadas por
+ * popularidad (movimientos de stock recientes), así una consulta solo recorre el
+ * prefijo y copia esas referencias al arreglo de resultado.
+ * <p>
+ * Un movimiento es un cambio de stock, tanto en la siembra desde la auditoría como en los
+ * cambios posteriores; se cuentan por horas y dejan de sumar al salir de la ventana.
+ * El trie es inmutable: los cambios marcan el índice como sucio y una tarea
+ * programada lo reconstruye y lo publica de una vez.
+ */
+@Service
+public class ProductSuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestionIndex.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    /** Tramo en el que se agrupan los movimientos; un movimiento caduca con su tramo */
+    static final long BUCKET_MILLIS = Duration.ofHours(1).toMillis();
+
+    // Minúscula sin acento para los caracteres latinos; el resto solo se pasa a minúscula
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLD[c] = Character.toLowerCase(decomposed.charAt(0));
+        }
+    }
+
+    private final CatalogSnapshotFile catalogSnapshots;
+    private final ProductHistoryRepository productHistoryRepository;
+    // Cada shard registra los movimientos de sus productos; null sin shards
+    private final ShardQueries shardQueries;
+    private final long popularityWindowMillis;
+    private final LongSupplier currentTimeMillis;
+
+    private final ReplayingIndex<State> index;
+
+    private volatile Trie trie;
+
+    @Autowired
+    public ProductSuggestionIndex(CatalogSnapshotFile catalogSnapshots,
+                                  ProductHistoryRepository productHistoryRepository,
+                                  ObjectProvider<ShardQueries> shardQueries,
+                                  @Value("${inventory.suggest.popularity-window-days:30}") int popularityWindowDays) {
+        this(catalogSnapshots, productHistoryRepository, shardQueries.getIfAvailable(), popularityWindowDays,
+                System::currentTimeMillis);
+    }
+
+    public ProductSuggestionIndex(CatalogSnapshotFile catalogSnapshots,
+                                  ProductHistoryRepository productHistoryRepository,
+                                  int popularityWindowDays,
+                                  LongSupplier currentTimeMillis) {
+        this(catalogSnapshots, productHistoryRepository, null, popularityWindowDays, currentTimeMillis);
+    }
+
+    private ProductSuggestionIndex(CatalogSnapshotFile catalogSnapshots,
+                                   ProductHistoryRepository productHistoryRepository,
+                                   ShardQueries shardQueries,
+                                   int popularityWindowDays,
+                                   LongSupplier currentTimeMillis) {
+        this.catalogSnapshots = catalogSnapshots;
+        this.productHistoryRepository = productHistoryRepository;
+        this.shardQueries = shardQueries;
+        this.popularityWindowMillis = Duration.ofDays(popularityWindowDays).toMillis();
+        this.currentTimeMillis = currentTimeMillis;
+        this.index = new ReplayingIndex<>(new State(), this::apply);
+    }
+
+    public boolean isReady() {
+        return trie != null;
+    }
+
+    /**
+     * Carga nombres, categorías y movimientos recientes al arrancar y publica el primer trie
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seed() {
+        index.load(new State(), state -> {
+            try (Stream<ProductSummaryDTO> summaries = catalogSnapshots.streamAllSummaries()) {
+                summaries.forEach(summary -> state.products.put(summary.getId(),
+                        new ProductEntry(summary.getName(), summary.getCategory())));
+            }
+            long since = currentTimeMillis.getAsLong() - popularityWindowMillis;
+            Supplier<NavigableMap<Long, Map<Long, Long>>> movements =
+                    () -> productHistoryRepository.countStockMovementsSince(since, BUCKET_MILLIS);
+            // Los ids no se repiten entre shards: los tramos de cada uno se unen sin sumar
+            for (NavigableMap<Long, Map<Long, Long>> shard : shardQueries != null
+                    ? shardQueries.onEveryShard(movements)
+                    : List.of(movements.get())) {
+                shard.forEach((bucket, counts) ->
+                        state.movements.computeIfAbsent(bucket, key -> new HashMap<>()).putAll(counts));
+            }
+            state.dirty = true;
+        });
+        rebuildIfDirty();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        index.onChange(event);
+    }
+
+    /**
+     * Publica un trie nuevo si hubo cambios o si algún tramo de movimientos salió de la ventana
+     */
+    @Scheduled(initialDelayString = "${inventory.suggest.rebuild-interval-ms:2000}",
+            fixedDelayString = "${inventory.suggest.rebuild-interval-ms:2000}")
+    public void rebuildIfDirty() {
+        if (!index.isLoaded()) {
+            return;
+        }
+        Map<Long, Long> movementsCopy = new HashMap<>();
+        Map<Long, ProductEntry> productsCopy = index.write(state -> {
+            // Se conserva el tramo que contiene el inicio de la ventana
+            Map<Long, Map<Long, Long>> expired =
+                    state.movements.headMap(bucketOf(currentTimeMillis.getAsLong() - popularityWindowMillis), false);
+            if (!expired.isEmpty()) {
+                expired.clear();
+                state.dirty = true;
+            }
+            if (!state.dirty) {
+                return null;
+            }
+            for (Map<Long, Long> bucket : state.movements.values()) {
+                bucket.forEach((id, count) -> movementsCopy.merge(id, count, Long::sum));
+            }
+            state.dirty = false;
+            return new HashMap<>(state.products);
+        });
+        if (productsCopy == null) {
+            return;
+        }
+
+        Trie built = Trie.build(productsCopy, movementsCopy);
+        trie = built;
+        logger.debug("Suggestion trie rebuilt: {} suggestions, {} nodes", built.entries.length, built.labels.length);
+    }
+
+    /**
+     * Hasta limit sugerencias cuyo nombre (o alguna de sus palabras) empieza por el prefijo.
+     * Sin índice todavía devuelve una lista vacía en lugar de consultar la base de datos.
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        Trie current = trie;
+        if (current == null || prefix == null) {
+            return List.of();
+        }
+        int node = current.find(prefix);
+        if (node <= 0) {
+            return List.of();
+        }
+
+        int count = Math.min(Math.min(limit, MAX_SUGGESTIONS), current.topCount[node]);
+        if (count <= 0) {
+            return List.of();
+        }
+        ProductSuggestionDTO[] result = new ProductSuggestionDTO[count];
+        int offset = current.topOffset[node];
+        for (int i = 0; i < count; i++) {
+            result[i] = current.entries[current.topEntries[offset + i]];
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Los movimientos de un producto borrado se quedan hasta caducar; Trie.build solo mira
+     * los productos que existen
+     */
+    private void apply(State state, ProductChangedEvent event) {
+        if (event.getAfter() == null) {
+            state.products.remove(event.getBefore().getId());
+        } else {
+            Long id = event.getAfter().getId();
+            state.products.put(id, new ProductEntry(event.getAfter().getName(), event.getAfter().getCategory()));
+            if (event.getBefore() != null
+                    && !Objects.equals(event.getBefore().getStock(), event.getAfter().getStock())) {
+                state.movements.computeIfAbsent(bucketOf(currentTimeMillis.getAsLong()), bucket -> new HashMap<>())
+                        .merge(id, 1L, Long::sum);
+            }
+        }
+        state.dirty = true;
+    }
+
+    static long bucketOf(long millis) {
+        return Math.floorDiv(millis, BUCKET_MILLIS);
+    }
+
+    static char fold(char c) {
+        return c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    static boolean isMark(char c) {
+        return Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    private record ProductEntry(String name, String category) {
+    }
+
+    /**
+     * Productos y movimientos de stock por tramo (tramo -> producto -> movimientos) desde
+     * los que se construye el trie; dirty indica que el trie publicado ya no los refleja
+     */
+    private static final class State {
+        private final Map<Long, ProductEntry> products = new HashMap<>();
+        private final NavigableMap<Long, Map<Long, Long>> movements = new TreeMap<>();
+        private boolean dirty;
+    }
+
+    /**
+     * Trie aplanado en arreglos paralelos en orden BFS: los hijos de cada nodo son
+     * contiguos y están ordenados por carácter, así se buscan con búsqueda binaria
+     */
+    private static final class Trie {
+        private final char[] labels;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] topOffset;
+        private final int[] topCount;
+        private final int[] topEntries;
+        private final ProductSuggestionDTO[] entries;
+
+        private Trie(int nodes, int topTotal, ProductSuggestionDTO[] entries) {
+            this.labels = new char[nodes];
+            this.firstChild = new int[nodes];
+            this.childCount = new int[nodes];
+            this.topOffset = new int[nodes];
+            this.topCount = new int[nodes];
+            this.topEntries = new int[topTotal];
+            this.entries = entries;
+        }
+
+        private int find(String prefix) {
+            int start = 0;
+            int end = prefix.length();
+            while (start < end && Character.isWhitespace(prefix.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(prefix.charAt(end - 1))) end--;
+
+            int node = 0;
+            for (int i = start; i < end; i++) {
+                char c = prefix.charAt(i);
+                if (isMark(c)) {
+                    continue;
+                }
+                node = child(node, fold(c));
+                if (node < 0) {
+                    return -1;
+                }
+            }
+            return node;
+        }
+
+        private int child(int node, char label) {
+            int low = firstChild[node];
+            int high = low + childCount[node] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midLabel = labels[mid];
+                if (midLabel < label) {
+                    low = mid + 1;
+                } else if (midLabel > label) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private static Trie build(Map<Long, ProductEntry> products, Map<Long, Long> movements) {
+            List<ProductSuggestionDTO> suggestions = new ArrayList<>();
+            Map<String, long[]> categoryScores = new LinkedHashMap<>();
+            Map<String, String> categoryNames = new HashMap<>();
+            for (Map.Entry<Long, ProductEntry> product : products.entrySet()) {
+                long score = movements.getOrDefault(product.getKey(), 0L);
+                suggestions.add(new ProductSuggestionDTO(product.getValue().name(),
+                        ProductSuggestionDTO.PRODUCT, product.getKey(), score));
+
+                String category = product.getValue().category();
+                if (category != null && !category.isBlank()) {
+                    String key = foldAll(category);
+                    categoryNames.putIfAbsent(key, category);
+                    // Cada producto suma 1 para que una categoría sin movimientos no quede a cero
+                    categoryScores.computeIfAbsent(key, k -> new long[1])[0] += score + 1;
+                }
+            }
+            for (Map.Entry<String, long[]> category : categoryScores.entrySet()) {
+                suggestions.add(new ProductSuggestionDTO(categoryNames.get(category.getKey()),
+                        ProductSuggestionDTO.CATEGORY, null, category.getValue()[0]));
+            }
+            ProductSuggestionDTO[] entries = suggestions.toArray(new ProductSuggestionDTO[0]);
+
+            BuildNode root = new BuildNode('\0');
+            for (int i = 0; i < entries.length; i++) {
+                String text = entries[i].getText();
+                if (text == null) {
+                    continue;
+                }
+                // Se indexa desde el inicio de cada palabra: "gam" sugiere "Laptop Gaming"
+                for (int start = 0; start < text.length(); start++) {
+                    if (Character.isLetterOrDigit(text.charAt(start))
+                            && (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))) {
+                        insert(root, text, start, i, entries);
+                    }
+                }
+            }
+
+            List<BuildNode> order = new ArrayList<>();
+            order.add(root);
+            int topTotal = 0;
+            for (int i = 0; i < order.size(); i++) {
+                BuildNode node = order.get(i);
+                node.firstChild = order.size();
+                if (node.children != null) {
+                    order.addAll(node.children.values());
+                }
+                topTotal += node.topCount;
+            }
+
+            Trie trie = new Trie(order.size(), topTotal, entries);
+            int offset = 0;
+            for (int i = 0; i < order.size(); i++) {
+                BuildNode node = order.get(i);
+                trie.labels[i] = node.label;
+                trie.firstChild[i] = node.firstChild;
+                trie.childCount[i] = node.children != null ? node.children.size() : 0;
+                trie.topOffset[i] = offset;
+                trie.topCount[i] = node.topCount;
+                System.arraycopy(node.top, 0, trie.topEntries, offset, node.topCount);
+                offset += node.topCount;
+            }
+            return trie;
+        }
+
+        private static void insert(BuildNode root, String text, int start, int entry, ProductSuggestionDTO[] entries) {
+            BuildNode node = root;
+            for (int i = start; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (isMark(c)) {
+                    continue;
+                }
+                node = node.child(fold(c));
+                node.offer(entry, entries);
+            }
+        }
+
+        private static String foldAll(String text) {
+            StringBuilder folded = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (!isMark(c)) {
+                    folded.append(fold(c));
+                }
+            }
+            return folded.toString().trim();
+        }
+    }
+
+    private static final class BuildNode {
+        private final char label;
+        private TreeMap<Character, BuildNode> children;
+        private final int[] top = new int[MAX_SUGGESTIONS];
+        private int topCount;
+        private int firstChild;
+
+        private BuildNode(char label) {
+            this.label = label;
+        }
+
+        private BuildNode child(char c) {
+            if (children == null) {
+                children = new TreeMap<>();
+            }
+            return children.computeIfAbsent(c, BuildNode::new);
+        }
+
+        /**
+         * Inserta la sugerencia en el top del nodo: mayor popularidad primero,
+         * luego el texto más corto y por último orden alfabético
+         */
+        private void offer(int entry, ProductSuggestionDTO[] entries) {
+            for (int i = 0; i < topCount; i++) {
+                if (top[i] == entry) {
+                    return;
+                }
+            }
+            int position = topCount;
+            while (position > 0 && ranksBefore(entries[entry], entries[top[position - 1]])) {
+                position--;
+            }
+            if (position >= MAX_SUGGESTIONS) {
+                return;
+            }
+            int last = Math.min(topCount, MAX_SUGGESTIONS - 1);
+            System.arraycopy(top, position, top, position + 1, last - position);
+            top[position] = entry;
+            if (topCount < MAX_SUGGESTIONS) {
+                topCount++;
+            }
+        }
+
+        private static boolean ranksBefore(ProductSuggestionDTO a, ProductSuggestionDTO b) {
+            if (a.getScore() != b.getScore()) {
+                return a.getScore() > b.getScore();
+            }
+            if (a.getText().length() != b.getText().length()) {
+                return a.getText().length() < b.getText().length();
+            }
+            return a.getText().compareToIgnoreCase(b.getText()) < 0;
+        }
+    }
+}
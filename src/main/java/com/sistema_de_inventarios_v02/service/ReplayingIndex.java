@@ -0,0 +1,127 @@
+package com.sistema_de_inventarios_v02.service;
+
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Copia en memoria del catálogo que se carga y luego se pone al día: la carga llena una
+ * copia nueva fuera del cerrojo mientras la actual sigue respondiendo, y los cambios que
+ * llegan entretanto se aplican a la actual y se guardan para repetirlos sobre la nueva
+ * antes de publicarla. Cada índice solo indica cómo añadir y quitar un producto.
+ */
+final class ReplayingIndex<C> {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BiConsumer<C, ProductChangedEvent> apply;
+    private C current;
+    private volatile boolean loaded;
+
+    // Cambios recibidos mientras se carga la copia; se aplican al terminar
+    private boolean building;
+    private final List<ProductChangedEvent> pending = new ArrayList<>();
+
+    /**
+     * Un cambio quita el producto y, si sigue existiendo, vuelve a añadirlo
+     */
+    ReplayingIndex(C initial, BiConsumer<C, Long> remove, BiConsumer<C, ProductSnapshot> add) {
+        this(initial, (copy, event) -> {
+            remove.accept(copy, event.getProductId());
+            if (event.getAfter() != null) {
+                add.accept(copy, event.getAfter());
+            }
+        });
+    }
+
+    /**
+     * Para índices que necesitan el estado anterior del producto al aplicar un cambio
+     */
+    ReplayingIndex(C initial, BiConsumer<C, ProductChangedEvent> apply) {
+        this.current = initial;
+        this.apply = apply;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Llena la copia nueva con fill y la publica con los cambios recibidos mientras tanto.
+     * Si fill falla se descartan y la copia actual sigue publicada.
+     */
+    C load(C fresh, Consumer<C> fill) {
+        lock.writeLock().lock();
+        try {
+            building = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            fill.accept(fresh);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                building = false;
+                pending.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (ProductChangedEvent event : pending) {
+                apply.accept(fresh, event);
+            }
+            pending.clear();
+            building = false;
+            current = fresh;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return fresh;
+    }
+
+    void onChange(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pending.add(event);
+            }
+            apply.accept(current, event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    <R> R read(Function<C, R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acceso exclusivo a la copia publicada, para los índices que la modifican fuera de los cambios
+     */
+    <R> R write(Function<C, R> writer) {
+        lock.writeLock().lock();
+        try {
+            return writer.apply(current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
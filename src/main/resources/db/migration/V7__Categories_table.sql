@@ -0,0 +1,60 @@
+-- Categorías como diccionario: products y products_audit guardan un id entero
+-- en lugar de repetir el nombre en cada fila
+
+CREATE TABLE categories (
+                            id INT NOT NULL AUTO_INCREMENT,
+                            name VARCHAR(70) NOT NULL,
+                            PRIMARY KEY (id),
+                            CONSTRAINT uk_categories_name UNIQUE (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Incluye las categorías que solo aparecen en el historial para poder reconstruir revisiones antiguas.
+-- Los nombres que solo difieren en mayúsculas o acentos ("Electrónicos" / "electronicos") son el
+-- mismo para la colación de la tabla (utf8mb4_unicode_ci), y la restricción UNIQUE no admite los
+-- dos: se fusionan a propósito en una sola categoría. Cada grafía exacta se agrupa en binario y,
+-- por cada clave de colación, se queda la que más usan los productos actuales, después la del
+-- historial y, a igualdad, la menor en binario. Los UPDATE de abajo comparan con la colación de
+-- la tabla, así que los productos de todas las variantes pasan a la categoría elegida.
+INSERT INTO categories (name)
+SELECT spelling
+FROM (
+         SELECT spelling,
+                ROW_NUMBER() OVER (
+                    PARTITION BY spelling COLLATE utf8mb4_unicode_ci
+                    ORDER BY SUM(current_uses) DESC, SUM(audit_uses) DESC, spelling) AS preference
+         FROM (
+                  SELECT CONVERT(TRIM(category) USING utf8mb4) COLLATE utf8mb4_bin AS spelling, 1 AS current_uses, 0 AS audit_uses
+                  FROM products
+                  UNION ALL
+                  SELECT CONVERT(TRIM(category) USING utf8mb4) COLLATE utf8mb4_bin, 0, 1
+                  FROM products_audit
+                  WHERE category IS NOT NULL
+              ) AS uses
+         GROUP BY spelling
+     ) AS spellings
+WHERE preference = 1
+ORDER BY spelling;
+
+ALTER TABLE products ADD COLUMN category_id INT NULL AFTER category;
+
+UPDATE products p
+    JOIN categories c ON c.name = TRIM(p.category)
+SET p.category_id = c.id;
+
+ALTER TABLE products
+    MODIFY COLUMN category_id INT NOT NULL,
+    ADD CONSTRAINT fk_products_category
+        FOREIGN KEY (category_id) REFERENCES categories (id);
+
+DROP INDEX idx_products_category ON products;
+CREATE INDEX idx_products_category_id ON products (category_id);
+
+ALTER TABLE products DROP COLUMN category;
+
+ALTER TABLE products_audit ADD COLUMN category_id INT NULL AFTER category;
+
+UPDATE products_audit pa
+    JOIN categories c ON c.name = TRIM(pa.category)
+SET pa.category_id = c.id;
+
+ALTER TABLE products_audit DROP COLUMN category;
@@ -0,0 +1,25 @@
+-- Estado de stock persistido: stock <= minimum_stock compara dos columnas y ningún
+-- índice puede resolverlo; con la columna, stock bajo y agotado son igualdades indexadas
+
+ALTER TABLE products
+    ADD COLUMN stock_status ENUM('IN_STOCK', 'LOW_STOCK', 'OUT_OF_STOCK') NOT NULL DEFAULT 'IN_STOCK' AFTER minimum_stock;
+
+UPDATE products
+SET stock_status = CASE
+                       WHEN stock IS NULL OR stock = 0 THEN 'OUT_OF_STOCK'
+                       WHEN minimum_stock IS NOT NULL AND stock <= minimum_stock THEN 'LOW_STOCK'
+                       ELSE 'IN_STOCK'
+    END;
+
+CREATE INDEX idx_products_stock_status ON products (stock_status);
+
+ALTER TABLE products_audit
+    ADD COLUMN stock_status ENUM('IN_STOCK', 'LOW_STOCK', 'OUT_OF_STOCK') NULL AFTER minimum_stock;
+
+UPDATE products_audit
+SET stock_status = CASE
+                       WHEN stock IS NULL OR stock = 0 THEN 'OUT_OF_STOCK'
+                       WHEN minimum_stock IS NOT NULL AND stock <= minimum_stock THEN 'LOW_STOCK'
+                       ELSE 'IN_STOCK'
+    END
+WHERE stock IS NOT NULL;
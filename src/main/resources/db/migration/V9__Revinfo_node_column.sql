@@ -0,0 +1,4 @@
+-- Nodo que generó cada revisión: los demás nodos leen REVINFO para invalidar sus caches
+-- y se saltan las revisiones propias, que ya aplicaron al escribir
+
+ALTER TABLE REVINFO ADD COLUMN node VARCHAR(64) NULL AFTER user_id;
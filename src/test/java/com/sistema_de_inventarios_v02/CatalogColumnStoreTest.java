@@ -0,0 +1,127 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import com.sistema_de_inventarios_v02.service.CatalogColumnStore;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.stream.LongStream;
+
+import static com.sistema_de_inventarios_v02.CatalogFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CatalogColumnStore Tests")
+public class CatalogColumnStoreTest {
+
+    @Mock
+    private CatalogSnapshotFile catalogSnapshots;
+
+    @Mock
+    private CategoryDictionary categoryDictionary;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogColumnStore columnStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(categoryDictionary.findId("Hogar")).thenReturn(1);
+        when(categoryDictionary.findId("Electrónicos")).thenReturn(2);
+        // Categoría sin fila en categories: el mock devolvería 0 para Integer
+        when(categoryDictionary.findId("Iluminación")).thenReturn(null);
+        columnStore = new CatalogColumnStore(catalogSnapshots, categoryDictionary, transactionManager, true, 16);
+    }
+
+    @Test
+    @DisplayName("Debe filtrar por categoría y por precio en céntimos, y no contar categorías inexistentes")
+    void countBy_ShouldFilterRows() {
+        // Arrange
+        load(new ProductSnapshot(1L, "Silla", null, "Hogar", new BigDecimal("45.50"), 20, 10),
+                new ProductSnapshot(2L, "Mesa", null, "Hogar", new BigDecimal("120.00"), 3, 10),
+                new ProductSnapshot(3L, "Mouse", null, "Electrónicos", new BigDecimal("25.00"), 0, 10),
+                new ProductSnapshot(4L, "Lámpara", null, "Iluminación", new BigDecimal("30.00"), 5, 1));
+
+        // Act
+        long[] hogar = statuses(CatalogColumnStore.matching(1, null, null));
+        long[] cheap = statuses(CatalogColumnStore.matching(null, null, new BigDecimal("45.50")));
+        long[] unknown = statuses(CatalogColumnStore.matching(
+                columnStore.categoryCode("Iluminación"), null, null));
+
+        // Assert
+        assertArrayEquals(new long[]{1, 1, 0}, hogar);
+        assertArrayEquals(new long[]{2, 0, 1}, cheap);
+        assertArrayEquals(new long[]{0, 0, 0}, unknown);
+    }
+
+    @Test
+    @DisplayName("Debe aplicar altas, cambios y bajas reutilizando las ranuras libres")
+    void onProductChanged_ShouldUpdateColumnsIncrementally() {
+        // Arrange
+        ProductSnapshot silla = new ProductSnapshot(1L, "Silla", null, "Hogar", new BigDecimal("45.00"), 20, 10);
+        load(silla, new ProductSnapshot(2L, "Mesa", null, "Hogar", new BigDecimal("120.00"), 3, 10));
+
+        // Act
+        columnStore.onProductChanged(ProductChangedEvent.deleted(silla));
+        columnStore.onProductChanged(ProductChangedEvent.created(
+                new ProductSnapshot(5L, "Mouse", null, "Electrónicos", new BigDecimal("25.00"), 7, 10)));
+        columnStore.onProductChanged(ProductChangedEvent.updated(silla,
+                new ProductSnapshot(2L, "Mesa", null, "Hogar", new BigDecimal("99.99"), 0, 10)));
+
+        // Assert
+        assertArrayEquals(new long[]{0, 1, 1}, statuses(CatalogColumnStore.matching(null, null, new BigDecimal("100"))));
+        assertEquals(2, columnStore.size());
+        assertArrayEquals(new long[]{0, 0, 1}, statuses(CatalogColumnStore.matching(1, null, null)));
+    }
+
+    @Test
+    @DisplayName("Debe repartir entre hilos los recorridos grandes con el mismo resultado")
+    void countBy_ShouldSplitLargeScans() {
+        // Arrange
+        int products = 50_000;
+        load(LongStream.rangeClosed(1, products)
+                .mapToObj(id -> new ProductSnapshot(id, "P" + id, null, id % 2 == 0 ? "Hogar" : "Electrónicos",
+                        BigDecimal.valueOf(id % 100), (int) (id % 5), 2))
+                .toArray(ProductSnapshot[]::new));
+
+        // Act
+        long[][] counts = columnStore.countBy(CatalogColumnStore.matching(null, null, null),
+                new CatalogColumnStore.RowClassifier[]{
+                        (category, price, stock, minimumStock) -> category,
+                        (category, price, stock, minimumStock) ->
+                                CatalogColumnStore.stockStatus(stock, minimumStock).ordinal()
+                },
+                new int[]{columnStore.categoryCodeBound(), 3});
+
+        // Assert
+        assertEquals(products / 2, counts[0][1]);
+        assertEquals(products / 2, counts[0][2]);
+        assertArrayEquals(new long[]{20_000, 20_000, 10_000}, counts[1]);
+    }
+
+    /**
+     * Filas que cumplen el filtro por estado de stock: {IN_STOCK, LOW_STOCK, OUT_OF_STOCK}
+     */
+    private long[] statuses(CatalogColumnStore.RowFilter filter) {
+        return columnStore.countBy(filter,
+                (category, price, stock, minimumStock) -> CatalogColumnStore.stockStatus(stock, minimumStock).ordinal(),
+                3);
+    }
+
+    private void load(ProductSnapshot... snapshots) {
+        stubCatalog(catalogSnapshots, snapshots);
+        columnStore.load();
+    }
+}
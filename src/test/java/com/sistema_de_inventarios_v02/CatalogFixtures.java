@@ -0,0 +1,53 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Catálogo de prueba para los índices en memoria que se cargan desde CatalogSnapshotFile
+ */
+final class CatalogFixtures {
+
+    private CatalogFixtures() {
+    }
+
+    /**
+     * Producto a 10.00 con stock 20 y mínimo 10 (IN_STOCK)
+     */
+    static ProductSnapshot product(Long id, String name, String description, String category) {
+        return new ProductSnapshot(id, name, description, category, new BigDecimal("10.00"), 20, 10);
+    }
+
+    static ProductSummaryDTO summary(ProductSnapshot product) {
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getCategory(),
+                product.getPrice(), product.getStock(), product.getStockStatus());
+    }
+
+    /**
+     * Sirve los productos por streamAllSnapshots y por streamAllSummaries, con un stream nuevo en cada carga
+     */
+    static void stubCatalog(CatalogSnapshotFile catalogSnapshots, ProductSnapshot... products) {
+        stubCatalog(catalogSnapshots, () -> { }, products);
+    }
+
+    /**
+     * Como stubCatalog, pero ejecuta duringLoad cada vez que se pide el catálogo: un cambio
+     * que se confirma mientras el índice se está cargando
+     */
+    static void stubCatalog(CatalogSnapshotFile catalogSnapshots, Runnable duringLoad, ProductSnapshot... products) {
+        when(catalogSnapshots.streamAllSnapshots()).thenAnswer(invocation -> {
+            duringLoad.run();
+            return Stream.of(products);
+        });
+        when(catalogSnapshots.streamAllSummaries()).thenAnswer(invocation -> {
+            duringLoad.run();
+            return Stream.of(products).map(CatalogFixtures::summary);
+        });
+    }
+}
@@ -0,0 +1,192 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.audit.CustomRevisionEntity;
+import com.sistema_de_inventarios_v02.audit.NodeIdentity;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import com.sistema_de_inventarios_v02.service.CatalogInvalidationPoller;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.envers.RevisionType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CatalogInvalidationPoller Tests")
+public class CatalogInvalidationPollerTest {
+
+    @Mock
+    private ProductHistoryRepository historyRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache secondLevelCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogInvalidationPoller createPoller(long gapTimeoutMillis) {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        when(historyRepository.findLatestCatalogRevision()).thenReturn(Optional.of(new RevisionStampDTO(10L, 0L)));
+        CatalogInvalidationPoller poller = new CatalogInvalidationPoller(historyRepository, eventPublisher,
+                entityManagerFactory, transactionManager, new SimpleMeterRegistry(), 500, gapTimeoutMillis);
+        poller.poll();
+        return poller;
+    }
+
+    private static Map<Long, String> revisions(Object... revisionAndNode) {
+        Map<Long, String> revisions = new LinkedHashMap<>();
+        for (int i = 0; i < revisionAndNode.length; i += 2) {
+            revisions.put(((Number) revisionAndNode[i]).longValue(), (String) revisionAndNode[i + 1]);
+        }
+        return revisions;
+    }
+
+    private static Object[] change(int revision, RevisionType type, int stock) {
+        CustomRevisionEntity revisionEntity = new CustomRevisionEntity();
+        revisionEntity.setRev(revision);
+        Product product = new Product(1L, "Silla", null, "Hogar", new BigDecimal("45.00"), stock, 10);
+        return new Object[]{product, revisionEntity, type};
+    }
+
+    @Test
+    @DisplayName("Debe publicar los cambios de otros nodos y saltarse los propios")
+    void poll_ShouldApplyOnlyRemoteRevisions() {
+        // Arrange
+        CatalogInvalidationPoller poller = createPoller(30_000);
+        when(historyRepository.findRevisionNodesAfter(10L, 500))
+                .thenReturn(revisions(11, NodeIdentity.get(), 12, "otro-nodo"));
+        when(historyRepository.findProductChangesInRevisions(List.of(12L)))
+                .thenReturn(List.<Object[]>of(change(12, RevisionType.MOD, 3)));
+        when(historyRepository.findProductStatesBefore(Map.of(1L, 12)))
+                .thenReturn(Map.of(1L, new Product(1L, "Silla", null, "Hogar", new BigDecimal("45.00"), 20, 10)));
+
+        // Act
+        poller.poll();
+
+        // Assert
+        ArgumentCaptor<ProductChangedEvent> event = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(ProductChangedEvent.ChangeType.UPDATED, event.getValue().getType());
+        assertEquals(20, event.getValue().getBefore().getStock());
+        assertEquals(3, event.getValue().getAfter().getStock());
+        verify(secondLevelCache).evict(Product.class, 1L);
+        assertEquals(12L, poller.getWatermark());
+    }
+
+    @Test
+    @DisplayName("Debe esperar a que un hueco de revisiones se haga visible")
+    void poll_ShouldHoldWatermarkAtOpenGap() {
+        // Arrange
+        CatalogInvalidationPoller poller = createPoller(30_000);
+        when(historyRepository.findRevisionNodesAfter(10L, 500)).thenReturn(revisions(12, "otro-nodo"));
+        when(historyRepository.findRevisionNodes(List.of(11L))).thenReturn(revisions(11, "otro-nodo"));
+        when(historyRepository.findRevisionNodesAfter(12L, 500)).thenReturn(Map.of());
+        when(historyRepository.findProductChangesInRevisions(any()))
+                .thenReturn(List.<Object[]>of(change(12, RevisionType.ADD, 3)))
+                .thenReturn(List.<Object[]>of(change(11, RevisionType.ADD, 5)));
+
+        // Act
+        poller.poll();
+        long watermarkWithGap = poller.getWatermark();
+        poller.poll();
+
+        // Assert
+        assertEquals(10L, watermarkWithGap);
+        assertEquals(12L, poller.getWatermark());
+        verify(historyRepository).findProductChangesInRevisions(List.of(12L));
+        verify(historyRepository).findProductChangesInRevisions(List.of(11L));
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangedEvent.class));
+        verify(historyRepository, times(1)).findRevisionNodesAfter(10L, 500);
+    }
+
+    @Test
+    @DisplayName("Debe seguir leyendo por delante mientras un hueco sigue abierto")
+    void poll_ShouldReadAheadOfOpenGap() {
+        // Arrange
+        CatalogInvalidationPoller poller = createPoller(30_000);
+        when(historyRepository.findRevisionNodesAfter(10L, 500)).thenReturn(revisions(12, NodeIdentity.get()));
+        when(historyRepository.findRevisionNodesAfter(12L, 500)).thenReturn(revisions(13, "otro-nodo"));
+        when(historyRepository.findProductChangesInRevisions(List.of(13L)))
+                .thenReturn(List.<Object[]>of(change(13, RevisionType.MOD, 4)));
+
+        // Act
+        poller.poll();
+        poller.poll();
+
+        // Assert
+        assertEquals(10L, poller.getWatermark());
+        verify(historyRepository).findRevisionNodes(List.of(11L));
+        verify(historyRepository).findProductChangesInRevisions(List.of(13L));
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Debe leer el estado anterior de todo el lote en una sola llamada")
+    void poll_ShouldLoadPreviousStatesOncePerBatch() {
+        // Arrange
+        CatalogInvalidationPoller poller = createPoller(30_000);
+        CustomRevisionEntity revision = new CustomRevisionEntity();
+        revision.setRev(12);
+        Product desk = new Product(2L, "Mesa", null, "Hogar", new BigDecimal("80.00"), 6, 10);
+        when(historyRepository.findRevisionNodesAfter(10L, 500))
+                .thenReturn(revisions(11, "otro-nodo", 12, "otro-nodo"));
+        when(historyRepository.findProductChangesInRevisions(List.of(11L, 12L))).thenReturn(List.of(
+                change(11, RevisionType.MOD, 8),
+                new Object[]{desk, revision, RevisionType.MOD},
+                change(12, RevisionType.MOD, 7)));
+        when(historyRepository.findProductStatesBefore(Map.of(1L, 11, 2L, 12))).thenReturn(Map.of(
+                1L, new Product(1L, "Silla", null, "Hogar", new BigDecimal("45.00"), 9, 10),
+                2L, new Product(2L, "Mesa", null, "Hogar", new BigDecimal("80.00"), 5, 10)));
+
+        // Act
+        poller.poll();
+
+        // Assert
+        ArgumentCaptor<ProductChangedEvent> events = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        assertEquals(List.of(9, 5, 8), events.getAllValues().stream()
+                .map(event -> event.getBefore().getStock()).toList());
+        verify(historyRepository, times(1)).findProductStatesBefore(any());
+        verify(historyRepository, never()).getProductAtRevision(any(), any());
+    }
+
+    @Test
+    @DisplayName("Debe saltarse un hueco que no aparece antes del tiempo límite")
+    void poll_ShouldSkipExpiredGap() {
+        // Arrange
+        CatalogInvalidationPoller poller = createPoller(0);
+        when(historyRepository.findRevisionNodesAfter(10L, 500)).thenReturn(revisions(12, NodeIdentity.get()));
+
+        // Act
+        poller.poll();
+
+        // Assert
+        assertEquals(12L, poller.getWatermark());
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,150 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.exception.ProductNotFoundException;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import com.sistema_de_inventarios_v02.service.CatalogReadStore;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.sistema_de_inventarios_v02.CatalogFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CatalogReadStore Tests")
+public class CatalogReadStoreTest {
+
+    @Mock
+    private CatalogSnapshotFile catalogSnapshots;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogReadStore readStore;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        stubCatalog(catalogSnapshots,
+                new ProductSnapshot(1L, "Silla", "Madera", "Hogar", new BigDecimal("45.00"), 20, 10),
+                new ProductSnapshot(2L, "Mesa", null, "Hogar", new BigDecimal("120.00"), 3, 10),
+                new ProductSnapshot(3L, "Mouse", null, "Electrónicos", new BigDecimal("25.00"), 0, 10));
+        meterRegistry = new SimpleMeterRegistry();
+        readStore = new CatalogReadStore(catalogSnapshots, transactionManager, meterRegistry, true);
+        readStore.load();
+        authenticateAs("ROLE_VISITOR");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        readStore.shutdown();
+    }
+
+    private static void authenticateAs(String... roles) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("usuario", null,
+                Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList()));
+    }
+
+    private static List<Long> ids(List<ProductSummaryDTO> products) {
+        return products.stream().map(ProductSummaryDTO::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Debe servir solo a usuarios que únicamente son VISITOR")
+    void servesCurrentUser_ShouldRequireVisitorOnly() {
+        assertTrue(readStore.servesCurrentUser());
+
+        authenticateAs("ROLE_VISITOR", "ROLE_USER");
+        assertFalse(readStore.servesCurrentUser());
+
+        SecurityContextHolder.clearContext();
+        assertFalse(readStore.servesCurrentUser());
+    }
+
+    @Test
+    @DisplayName("Debe resolver categoría, precio y estado de stock con sus índices")
+    void indexes_ShouldAnswerCatalogQueries() {
+        assertEquals(List.of(1L, 2L), ids(readStore.getProductsByCategory(" hogar ")));
+        assertEquals(List.of(1L, 3L), ids(readStore.getProductsByPriceRange(25.0, 45.0)));
+        assertEquals(2L, readStore.getProductsWithStatus(StockStatus.LOW_STOCK).get(0).getId());
+        assertEquals(3L, readStore.getProductsWithStatus(StockStatus.OUT_OF_STOCK).get(0).getId());
+        assertEquals("Madera", readStore.getProductById(1L).getDescription());
+        assertThrows(ProductNotFoundException.class, () -> readStore.getProductById(99L));
+    }
+
+    @Test
+    @DisplayName("Debe filtrar, ordenar y paginar como la consulta del repositorio")
+    void getProductsWithFilters_ShouldSortAndPage() {
+        // Act
+        Page<ProductSummaryDTO> page = readStore.getProductsWithFilters("Hogar", null,
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "price").and(Sort.by("id"))));
+        Page<ProductSummaryDTO> byName = readStore.getProductsWithFilters(null, "S",
+                PageRequest.of(0, 10, Sort.by("name")));
+
+        // Assert
+        assertEquals(List.of(2L), ids(page.getContent()));
+        assertEquals(2L, page.getTotalElements());
+        assertEquals(List.of(2L, 3L, 1L), ids(byName.getContent()));
+        assertFalse(readStore.supports(Sort.by("description")));
+    }
+
+    @Test
+    @DisplayName("Debe buscar el nombre sin acentos y paginar con el id como desempate")
+    void getProductsWithFilters_ShouldFoldAccentsAndBreakTiesById() {
+        // Act
+        Page<ProductSummaryDTO> accented = readStore.getProductsWithFilters(null, "SÍLLA", PageRequest.of(0, 10));
+        Page<ProductSummaryDTO> second = readStore.getProductsWithFilters(null, null,
+                PageRequest.of(1, 1, Sort.by("category")));
+        Page<ProductSummaryDTO> third = readStore.getProductsWithFilters(null, null,
+                PageRequest.of(2, 1, Sort.by("category")));
+
+        // Assert
+        assertEquals(List.of(1L), ids(accented.getContent()));
+        assertEquals(List.of(1L), ids(second.getContent()));
+        assertEquals(List.of(2L), ids(third.getContent()));
+        assertEquals(3L, third.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Debe aplicar los cambios confirmados moviendo el producto entre índices")
+    void onProductChanged_ShouldUpdateIndexes() {
+        // Arrange
+        ProductSnapshot before = new ProductSnapshot(1L, "Silla", "Madera", "Hogar", new BigDecimal("45.00"), 20, 10);
+        ProductSnapshot after = new ProductSnapshot(1L, "Silla", "Madera", "Oficina", new BigDecimal("45.00"), 0, 10);
+
+        // Act
+        readStore.onProductChanged(ProductChangedEvent.updated(before, after));
+        readStore.applyPendingChanges();
+
+        // Assert
+        assertEquals(List.of(2L), ids(readStore.getProductsByCategory("Hogar")));
+        assertEquals(List.of(1L), ids(readStore.getProductsByCategory("oficina")));
+        assertEquals(2, readStore.getProductsWithStatus(StockStatus.OUT_OF_STOCK).size());
+        assertEquals(0.0, meterRegistry.get("inventory.read-model.lag").gauge().value());
+        assertEquals(1L, meterRegistry.get("inventory.read-model.apply.delay").timer().count());
+        assertTrue(readStore.servesCurrentUser());
+    }
+}
@@ -0,0 +1,186 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CatalogSnapshotFile Tests")
+public class CatalogSnapshotFileTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductHistoryRepository historyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private SimpleMeterRegistry meterRegistry;
+    private CatalogSnapshotFile catalogSnapshots;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        file = directory.resolve("catalog.snapshot");
+        meterRegistry = new SimpleMeterRegistry();
+        catalogSnapshots = new CatalogSnapshotFile(productRepository, historyRepository, transactionManager,
+                meterRegistry, file.toString(), true, 60_000, 30_000, 60_000);
+
+        when(historyRepository.findLatestCatalogRevision()).thenReturn(Optional.of(new RevisionStampDTO(7L, 1_000L)));
+        when(productRepository.streamAllSnapshots()).thenReturn(Stream.of(
+                new ProductSnapshot(1L, "Silla", "Madera de haya", "Hogar", new BigDecimal("45.00"), 20, 10),
+                new ProductSnapshot(2L, "Mesa", null, "Hogar", new BigDecimal("120.50"), 3, null),
+                new ProductSnapshot(3L, "Cámara", "Réflex", "Electrónicos", new BigDecimal("899.99"), 0, 5)
+        ));
+    }
+
+    @Test
+    @DisplayName("Debe leer el fichero y sustituir los productos cambiados después de su revisión")
+    void streamAllSnapshots_ShouldMergeFileWithLaterChanges() {
+        // Arrange
+        catalogSnapshots.write();
+        when(historyRepository.findRevisionTimestamp(7L)).thenReturn(Optional.of(1_000L));
+        when(historyRepository.findProductIdsChangedSince(eq(7L), anyLong())).thenReturn(Set.of(2L, 3L, 4L));
+        when(productRepository.findSnapshotsByIdIn(any())).thenReturn(List.of(
+                new ProductSnapshot(3L, "Cámara", "Réflex", "Electrónicos", new BigDecimal("849.99"), 4, 5),
+                new ProductSnapshot(4L, "Teclado", null, "Electrónicos", new BigDecimal("30.00"), 8, 10)
+        ));
+
+        // Act
+        List<ProductSnapshot> products;
+        try (Stream<ProductSnapshot> stream = catalogSnapshots.streamAllSnapshots()) {
+            products = stream.toList();
+        }
+
+        // Assert
+        assertEquals(List.of(1L, 3L, 4L), products.stream().map(ProductSnapshot::getId).toList());
+        ProductSnapshot silla = products.get(0);
+        assertEquals("Madera de haya", silla.getDescription());
+        assertEquals(new BigDecimal("45.00"), silla.getPrice());
+        assertEquals(10, silla.getMinimumStock());
+        assertEquals(new BigDecimal("849.99"), products.get(1).getPrice());
+        assertEquals(1.0, meterRegistry.counter("inventory.snapshot.loads", "source", "file").count());
+        verify(productRepository, times(1)).streamAllSnapshots();
+    }
+
+    @Test
+    @DisplayName("Debe consultar la base de datos una sola vez para todas las cargas del arranque")
+    void streamAllSnapshots_ShouldShareOneResolutionAcrossLoads() {
+        // Arrange
+        catalogSnapshots.write();
+        when(historyRepository.findRevisionTimestamp(7L)).thenReturn(Optional.of(1_000L));
+        when(historyRepository.findProductIdsChangedSince(eq(7L), anyLong())).thenReturn(Set.of(2L));
+        when(productRepository.findSnapshotsByIdIn(any())).thenReturn(List.of());
+        try (Stream<ProductSnapshot> stream = catalogSnapshots.streamAllSnapshots()) {
+            stream.count();
+        }
+        catalogSnapshots.onProductChanged(ProductChangedEvent.updated(
+                new ProductSnapshot(1L, "Silla", "Madera de haya", "Hogar", new BigDecimal("45.00"), 20, 10),
+                new ProductSnapshot(1L, "Silla", "Madera de haya", "Hogar", new BigDecimal("39.90"), 18, 10)));
+
+        // Act
+        List<ProductSummaryDTO> summaries;
+        try (Stream<ProductSummaryDTO> stream = catalogSnapshots.streamAllSummaries()) {
+            summaries = stream.toList();
+        }
+
+        // Assert
+        assertEquals(List.of(1L, 3L), summaries.stream().map(ProductSummaryDTO::getId).toList());
+        assertEquals(new BigDecimal("39.90"), summaries.get(0).getPrice());
+        verify(historyRepository, times(1)).findRevisionTimestamp(7L);
+        verify(historyRepository, times(1)).findProductIdsChangedSince(eq(7L), anyLong());
+        assertEquals(2.0, meterRegistry.counter("inventory.snapshot.loads", "source", "file").count());
+    }
+
+    @Test
+    @DisplayName("Debe conservar nulos y acentos al leer los resúmenes del fichero")
+    void streamAllSummaries_ShouldDecodeFile() {
+        // Arrange
+        catalogSnapshots.write();
+        when(historyRepository.findRevisionTimestamp(7L)).thenReturn(Optional.of(1_000L));
+        when(historyRepository.findProductIdsChangedSince(eq(7L), anyLong())).thenReturn(Set.of());
+
+        // Act
+        List<ProductSummaryDTO> summaries;
+        try (Stream<ProductSummaryDTO> stream = catalogSnapshots.streamAllSummaries()) {
+            summaries = stream.toList();
+        }
+
+        // Assert
+        assertEquals(3, summaries.size());
+        assertEquals("Cámara", summaries.get(2).getName());
+        assertEquals("OUT_OF_STOCK", summaries.get(2).getStockStatus());
+        assertEquals("IN_STOCK", summaries.get(1).getStockStatus());
+        verify(productRepository, never()).streamAllSummaries();
+    }
+
+    @Test
+    @DisplayName("Debe leer de la base de datos si la revisión del fichero no existe en ella")
+    void streamAllSnapshots_ShouldFallBackOnRevisionMismatch() {
+        // Arrange
+        catalogSnapshots.write();
+        when(historyRepository.findRevisionTimestamp(7L)).thenReturn(Optional.of(2_000L));
+        when(productRepository.streamAllSnapshots()).thenReturn(Stream.empty());
+
+        // Act
+        long count;
+        try (Stream<ProductSnapshot> stream = catalogSnapshots.streamAllSnapshots()) {
+            count = stream.count();
+        }
+
+        // Assert
+        assertEquals(0, count);
+        verify(historyRepository, never()).findProductIdsChangedSince(anyLong(), anyLong());
+        assertEquals(1.0, meterRegistry.counter("inventory.snapshot.loads", "source", "database").count());
+    }
+
+    @Test
+    @DisplayName("Debe ignorar un fichero dañado")
+    void streamAllSnapshots_ShouldIgnoreCorruptedFile() throws Exception {
+        // Arrange
+        catalogSnapshots.write();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x7F;
+        Files.write(file, bytes);
+        when(productRepository.streamAllSnapshots()).thenReturn(Stream.empty());
+
+        // Act
+        try (Stream<ProductSnapshot> stream = catalogSnapshots.streamAllSnapshots()) {
+            stream.count();
+        }
+
+        // Assert
+        verify(historyRepository, never()).findRevisionTimestamp(anyLong());
+        assertEquals(1.0, meterRegistry.counter("inventory.snapshot.loads", "source", "database").count());
+    }
+}
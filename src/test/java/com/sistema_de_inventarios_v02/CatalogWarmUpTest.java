@@ -0,0 +1,70 @@
+package com.sistema_de_inventarios_v02;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sistema_de_inventarios_v02.Config.WarmUpHealthIndicator;
+import com.sistema_de_inventarios_v02.jwt.JwtUtil;
+import com.sistema_de_inventarios_v02.service.AuditService;
+import com.sistema_de_inventarios_v02.service.CatalogWarmUp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CatalogWarmUp Tests")
+public class CatalogWarmUpTest {
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private AuditService auditService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Debe mantener el nodo fuera de servicio hasta terminar el calentamiento")
+    void health_ShouldBeOutOfServiceUntilDone() {
+        // Arrange
+        CatalogWarmUp warmUp = warmUp(true, new MockEnvironment());
+        WarmUpHealthIndicator indicator = new WarmUpHealthIndicator(warmUp);
+
+        // Act
+        Status before = indicator.health().getStatus();
+        warmUp.run();
+
+        // Assert
+        assertEquals(Status.OUT_OF_SERVICE, before);
+        assertEquals(Status.UP, indicator.health().getStatus());
+        assertEquals(CatalogWarmUp.Phase.DONE, warmUp.getPhase());
+        assertFalse(Double.isNaN(meterRegistry.get("inventory.warmup.duration").timeGauge().value()));
+        verifyNoInteractions(jwtUtil, auditService);
+    }
+
+    @Test
+    @DisplayName("Debe informar UP desde el inicio si el calentamiento está desactivado")
+    void health_ShouldBeUpWhenDisabled() {
+        // Act
+        CatalogWarmUp warmUp = warmUp(false, new MockEnvironment().withProperty("local.server.port", "8081"));
+
+        // Assert
+        assertEquals(Status.UP, new WarmUpHealthIndicator(warmUp).health().getStatus());
+    }
+
+    private CatalogWarmUp warmUp(boolean enabled, MockEnvironment environment) {
+        return new CatalogWarmUp(jwtUtil, auditService, new ObjectMapper(), environment, meterRegistry,
+                enabled, 10, 1_000);
+    }
+}
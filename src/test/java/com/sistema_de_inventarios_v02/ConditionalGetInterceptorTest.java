@@ -0,0 +1,294 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.Config.ConditionalGet;
+import com.sistema_de_inventarios_v02.Config.ConditionalGetInterceptor;
+import com.sistema_de_inventarios_v02.Config.ConditionalGetResponseAdvice;
+import com.sistema_de_inventarios_v02.Config.ReplicaConsistency;
+import com.sistema_de_inventarios_v02.Config.ServedRevision;
+import com.sistema_de_inventarios_v02.Config.ShardQueries;
+import com.sistema_de_inventarios_v02.Config.ShardRouter;
+import com.sistema_de_inventarios_v02.dto.RevisionStampDTO;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ConditionalGetInterceptor Tests")
+public class ConditionalGetInterceptorTest {
+
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @Mock
+    private ProductHistoryRepository productHistoryRepository;
+
+    private ConditionalGetInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        interceptor = new ConditionalGetInterceptor(productHistoryRepository);
+        when(productHistoryRepository.findLatestCatalogRevision())
+                .thenReturn(Optional.of(new RevisionStampDTO(42L, LAST_MODIFIED)));
+        when(productHistoryRepository.findProductRevision(7L))
+                .thenReturn(Optional.of(new RevisionStampDTO(40L, LAST_MODIFIED)));
+        when(productHistoryRepository.findProductRevision(99L)).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    static class Endpoints {
+        @ConditionalGet
+        public void list() {}
+
+        @ConditionalGet(ConditionalGet.Scope.PRODUCT)
+        public void byId() {}
+
+        @ConditionalGet
+        public ResponseEntity<StreamingResponseBody> export() {
+            return null;
+        }
+
+        public void plain() {}
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getMethod(name));
+    }
+
+    /**
+     * preHandle y, si el controlador llega a ejecutarse, la escritura del cuerpo
+     */
+    private boolean serve(MockHttpServletRequest request, MockHttpServletResponse response, String handler)
+            throws Exception {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        boolean proceed = interceptor.preHandle(request, response, handler(handler));
+        if (proceed) {
+            new ConditionalGetResponseAdvice().beforeBodyWrite(List.of(), null, MediaType.APPLICATION_JSON,
+                    null, new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
+        }
+        return proceed;
+    }
+
+    private static MockHttpServletRequest productRequest(String id) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/" + id);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", id));
+        return request;
+    }
+
+    @Test
+    @DisplayName("Debe emitir ETag y Last-Modified en la primera lectura del listado")
+    void preHandle_ShouldEmitValidators() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/paginated");
+        request.setQueryString("page=0&size=20");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = serve(request, response, "list");
+
+        // Assert
+        assertTrue(proceed);
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"catalog-r42-"));
+        assertEquals(LAST_MODIFIED, response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    @DisplayName("Con shards, el ETag del catálogo debe cambiar si avanza la revisión de cualquier shard")
+    @SuppressWarnings("unchecked")
+    void preHandle_ShouldCombineShardRevisionsInCatalogEtag() throws Exception {
+        // Arrange: cada shard tiene su propio REVINFO
+        long[] revisions = {42L, 17L};
+        when(productHistoryRepository.findLatestCatalogRevision()).thenAnswer(invocation -> Optional.of(
+                new RevisionStampDTO(revisions[ShardRouter.currentShard()], LAST_MODIFIED)));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ShardQueries shardQueries = new ShardQueries(
+                new ShardRouter(List.of(mock(DataSource.class), mock(DataSource.class))), transactionManager, executor);
+        ObjectProvider<ReplicaConsistency> noReplica = mock(ObjectProvider.class);
+        ObjectProvider<ShardQueries> shards = mock(ObjectProvider.class);
+        when(shards.getIfAvailable()).thenReturn(shardQueries);
+        interceptor = new ConditionalGetInterceptor(productHistoryRepository, noReplica, shards);
+
+        try {
+            MockHttpServletResponse before = new MockHttpServletResponse();
+            serve(new MockHttpServletRequest("GET", "/api/products"), before, "list");
+
+            // Act: una escritura en el shard 1, que no tiene la revisión más alta
+            revisions[1] = 18L;
+            MockHttpServletResponse after = new MockHttpServletResponse();
+            serve(new MockHttpServletRequest("GET", "/api/products"), after, "list");
+
+            // Assert
+            assertNotNull(before.getHeader(HttpHeaders.ETAG));
+            assertNotEquals(before.getHeader(HttpHeaders.ETAG), after.getHeader(HttpHeaders.ETAG));
+            verify(productHistoryRepository, times(4)).findLatestCatalogRevision();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe responder 304 sin invocar al controlador si el ETag coincide")
+    void preHandle_ShouldAnswerNotModifiedForMatchingEtag() throws Exception {
+        // Arrange
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        serve(new MockHttpServletRequest("GET", "/api/products"), first, "list");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, handler("list"));
+
+        // Assert
+        assertFalse(proceed);
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Debe distinguir representaciones con distinto Accept o query")
+    void preHandle_ShouldVaryEtagByRepresentation() throws Exception {
+        // Arrange
+        MockHttpServletRequest json = new MockHttpServletRequest("GET", "/api/products");
+        json.addHeader(HttpHeaders.ACCEPT, "application/json");
+        MockHttpServletRequest csv = new MockHttpServletRequest("GET", "/api/products");
+        csv.addHeader(HttpHeaders.ACCEPT, "text/csv");
+        MockHttpServletResponse jsonResponse = new MockHttpServletResponse();
+        MockHttpServletResponse csvResponse = new MockHttpServletResponse();
+
+        // Act
+        serve(json, jsonResponse, "list");
+        serve(csv, csvResponse, "list");
+
+        // Assert
+        assertNotEquals(jsonResponse.getHeader(HttpHeaders.ETAG), csvResponse.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Debe responder 304 a If-Modified-Since para un producto sin cambios")
+    void preHandle_ShouldHonorIfModifiedSinceForProduct() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = productRequest("7");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED + 60_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, handler("byId"));
+
+        // Assert
+        assertFalse(proceed);
+        assertEquals(304, response.getStatus());
+        verify(productHistoryRepository).findProductRevision(7L);
+        verify(productHistoryRepository, never()).findLatestCatalogRevision();
+    }
+
+    @Test
+    @DisplayName("Debe dejar pasar productos inexistentes y métodos sin anotación")
+    void preHandle_ShouldPassThroughWithoutVersion() throws Exception {
+        // Arrange
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+        MockHttpServletResponse plain = new MockHttpServletResponse();
+
+        // Act & Assert
+        assertTrue(serve(productRequest("99"), missing, "byId"));
+        assertNull(missing.getHeader(HttpHeaders.ETAG));
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/products/health"),
+                plain, handler("plain")));
+        assertNull(plain.getHeader(HttpHeaders.ETAG));
+        verify(productHistoryRepository, never()).findLatestCatalogRevision();
+    }
+
+    @Test
+    @DisplayName("No debe emitir validadores si una fuente atrasada sirvió el cuerpo")
+    void preHandle_ShouldSkipValidatorsForLaggingSource() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        interceptor.preHandle(request, response, handler("list"));
+
+        // Act: el modelo de lectura responde sin revisión conocida
+        ServedRevision.record(ServedRevision.UNKNOWN);
+        new ConditionalGetResponseAdvice().beforeBodyWrite(List.of(), null, MediaType.APPLICATION_JSON,
+                null, new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
+
+        // Assert
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    @DisplayName("Debe emitir validadores si la réplica ya tiene la revisión")
+    void preHandle_ShouldEmitValidatorsWhenReplicaCoversRevision() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        interceptor.preHandle(request, response, handler("list"));
+
+        // Act
+        ServedRevision.record(42L);
+        new ConditionalGetResponseAdvice().beforeBodyWrite(List.of(), null, MediaType.APPLICATION_JSON,
+                null, new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
+
+        // Assert
+        assertTrue(response.getHeader(HttpHeaders.ETAG).startsWith("\"catalog-r42-"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Debe decidir los validadores de una exportación antes de escribirla")
+    void preHandle_ShouldEmitValidatorsBeforeStreaming() throws Exception {
+        // Arrange
+        MockHttpServletResponse direct = new MockHttpServletResponse();
+        MockHttpServletResponse lagging = new MockHttpServletResponse();
+        ReplicaConsistency replica = mock(ReplicaConsistency.class);
+        when(replica.getReplicaRevision()).thenReturn(41L);
+        ObjectProvider<ReplicaConsistency> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(replica);
+
+        // Act
+        interceptor.preHandle(new MockHttpServletRequest("GET", "/api/products"), direct, handler("export"));
+        new ConditionalGetInterceptor(productHistoryRepository, provider)
+                .preHandle(new MockHttpServletRequest("GET", "/api/products"), lagging, handler("export"));
+
+        // Assert
+        assertNotNull(direct.getHeader(HttpHeaders.ETAG));
+        assertNull(lagging.getHeader(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,147 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.CategoryStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.service.InventoryCounterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("InventoryCounterService Tests")
+public class InventoryCounterServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private InventoryCounterService counterService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        counterService = new InventoryCounterService(productRepository, meterRegistry);
+
+        when(productRepository.getCategoryStatistics()).thenReturn(List.of(
+                new CategoryStatsDTO("Electrónicos", 2L, 1L, 0L, 25L, new BigDecimal("1000.00")),
+                new CategoryStatsDTO("Hogar", 1L, 0L, 1L, 0L, BigDecimal.ZERO)
+        ));
+        counterService.seed();
+    }
+
+    @Test
+    @DisplayName("Debe sembrar los contadores globales desde la base de datos")
+    void seed_ShouldLoadGlobalCounters() {
+        ProductStatsDTO stats = counterService.getGlobalStatistics();
+
+        assertTrue(counterService.isReady());
+        assertEquals(3L, stats.getTotalProducts());
+        assertEquals(1L, stats.getLowStockProducts());
+        assertEquals(1L, stats.getOutOfStockProducts());
+        assertEquals(2L, stats.getInStockProducts());
+        assertEquals(2L, stats.getTotalCategories());
+        assertEquals(25L, stats.getTotalUnits());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(stats.getInventoryValue()));
+    }
+
+    @Test
+    @DisplayName("Debe mover los contadores entre categorías al actualizar un producto")
+    void onProductChanged_ShouldMoveCountersBetweenCategories() {
+        ProductSnapshot before = new ProductSnapshot(3L, "Silla", null, "Hogar",
+                new BigDecimal("50.00"), 0, 10);
+        ProductSnapshot after = new ProductSnapshot(3L, "Silla", null, "Oficina",
+                new BigDecimal("50.00"), 20, 10);
+
+        counterService.onProductChanged(ProductChangedEvent.updated(before, after));
+
+        ProductStatsDTO stats = counterService.getGlobalStatistics();
+        assertEquals(3L, stats.getTotalProducts());
+        assertEquals(0L, stats.getOutOfStockProducts());
+        assertEquals(45L, stats.getTotalUnits());
+        assertEquals(0, new BigDecimal("2000.00").compareTo(stats.getInventoryValue()));
+
+        List<CategoryStatsDTO> categories = counterService.getCategoryStatistics();
+        assertEquals(List.of("Electrónicos", "Oficina"),
+                categories.stream().map(CategoryStatsDTO::getCategory).toList());
+    }
+
+    @Test
+    @DisplayName("Debe descontar el producto eliminado")
+    void onProductChanged_ShouldSubtractDeletedProduct() {
+        ProductSnapshot deleted = new ProductSnapshot(1L, "Laptop", null, "electrónicos",
+                new BigDecimal("100.00"), 5, 10);
+
+        counterService.onProductChanged(ProductChangedEvent.deleted(deleted));
+
+        ProductStatsDTO stats = counterService.getGlobalStatistics();
+        assertEquals(2L, stats.getTotalProducts());
+        assertEquals(0L, stats.getLowStockProducts());
+        assertEquals(20L, stats.getTotalUnits());
+    }
+
+    @Test
+    @DisplayName("Debe detectar deriva contra la base de datos y volver a sembrar")
+    void checkDrift_ShouldReportMismatchAndReseed() {
+        when(productRepository.getCategoryStatistics()).thenReturn(List.of(
+                new CategoryStatsDTO("Electrónicos", 3L, 1L, 0L, 30L, new BigDecimal("1200.00")),
+                new CategoryStatsDTO("Hogar", 1L, 0L, 1L, 0L, BigDecimal.ZERO)
+        ));
+
+        counterService.checkDrift();
+
+        assertEquals(1.0, meterRegistry.get("inventory.counters.drift").gauge().value());
+        assertEquals(1.0, meterRegistry.get("inventory.counters.drift.checks")
+                .tag("result", "mismatch").counter().count());
+        assertEquals(4L, counterService.getGlobalStatistics().getTotalProducts());
+    }
+
+    @Test
+    @DisplayName("No debe reportar deriva cuando los contadores coinciden")
+    void checkDrift_ShouldReportNoMismatch_WhenCountersMatch() {
+        counterService.checkDrift();
+
+        assertEquals(0.0, meterRegistry.get("inventory.counters.drift").gauge().value());
+        assertEquals(1.0, meterRegistry.get("inventory.counters.drift.checks")
+                .tag("result", "ok").counter().count());
+    }
+
+    @Test
+    @DisplayName("No debe perder un cambio confirmado mientras corre la consulta de siembra")
+    void seed_ShouldRetry_WhenProductChangesDuringQuery() {
+        // Arrange
+        ProductSnapshot created = new ProductSnapshot(9L, "Mesa", null, "Hogar",
+                new BigDecimal("80.00"), 5, 1);
+        List<CategoryStatsDTO> withoutTable = List.of(
+                new CategoryStatsDTO("Hogar", 1L, 0L, 1L, 0L, BigDecimal.ZERO));
+        List<CategoryStatsDTO> withTable = List.of(
+                new CategoryStatsDTO("Hogar", 2L, 0L, 1L, 5L, new BigDecimal("400.00")));
+        when(productRepository.getCategoryStatistics())
+                .thenAnswer(invocation -> {
+                    // El cambio se confirma y se aplica mientras la consulta todavía no lo ve
+                    counterService.onProductChanged(ProductChangedEvent.created(created));
+                    return withoutTable;
+                })
+                .thenReturn(withTable);
+
+        // Act
+        counterService.seed();
+
+        // Assert
+        ProductStatsDTO stats = counterService.getGlobalStatistics();
+        assertEquals(2L, stats.getTotalProducts());
+        assertEquals(5L, stats.getTotalUnits());
+        verify(productRepository, times(3)).getCategoryStatistics();
+    }
+}
@@ -0,0 +1,173 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.Config.ReplicaConsistency;
+import com.sistema_de_inventarios_v02.Config.ServedRevision;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.service.ProductBatchLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ProductBatchLoader Tests")
+public class ProductBatchLoaderTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductBatchLoader batchLoader;
+    private SimpleMeterRegistry meterRegistry;
+
+    private void createLoader(long windowMicros, int maxBatchSize) {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(productRepository.multiLoad(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                    .filter(id -> id < 100)
+                    .map(ProductBatchLoaderTest::product)
+                    .toList();
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        batchLoader = new ProductBatchLoader(productRepository, transactionManager, meterRegistry,
+                windowMicros, maxBatchSize, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchLoader.shutdown();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static Product product(Long id) {
+        return new Product(id, "Producto " + id, null, "Electrónicos", new BigDecimal("10.00"), 20, 10);
+    }
+
+    @Test
+    @DisplayName("Debe resolver las lecturas concurrentes con una sola consulta")
+    @SuppressWarnings("unchecked")
+    void load_ShouldCoalesceConcurrentReadsIntoOneQuery() {
+        // Arrange
+        createLoader(500_000, 200);
+        List<CompletableFuture<Optional<Product>>> futures = new ArrayList<>();
+
+        // Act
+        for (long id = 1; id <= 20; id++) {
+            futures.add(batchLoader.load(id));
+        }
+        futures.add(batchLoader.load(5L));
+        futures.add(batchLoader.load(500L));
+
+        // Assert
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i + 1L, futures.get(i).join().orElseThrow().getId());
+        }
+        assertEquals(5L, futures.get(20).join().orElseThrow().getId());
+        assertTrue(futures.get(21).join().isEmpty());
+
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(productRepository, times(1)).multiLoad(ids.capture());
+        assertEquals(21, Set.copyOf(ids.getValue()).size());
+        assertEquals(1, meterRegistry.get("inventory.products.batch.size").summary().count());
+    }
+
+    @Test
+    @DisplayName("Debe despachar el lote en cuanto alcanza el tamaño máximo")
+    void load_ShouldDispatchWhenBatchIsFull() {
+        // Arrange
+        createLoader(10_000_000, 3);
+
+        // Act
+        CompletableFuture<Optional<Product>> first = batchLoader.load(1L);
+        CompletableFuture<Optional<Product>> second = batchLoader.load(2L);
+        Optional<Product> third = batchLoader.find(3L);
+
+        // Assert
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(3L, third.orElseThrow().getId());
+        verify(productRepository, times(1)).multiLoad(any());
+    }
+
+    @Test
+    @DisplayName("Debe propagar el error de la consulta a todos los llamadores del lote")
+    void find_ShouldPropagateQueryFailure() {
+        // Arrange
+        createLoader(1_000, 200);
+        doThrow(new IllegalStateException("sin conexión")).when(productRepository).multiLoad(any());
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> batchLoader.find(1L));
+        assertEquals("sin conexión", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Debe anotar en la petición del llamador lo que el lote anotó al leer")
+    void find_ShouldReplayServedRevisionInCallerRequest() {
+        // Arrange: la lectura del lote sale de una réplica que va por detrás del nodo
+        createLoader(1_000, 200);
+        doAnswer(invocation -> {
+            ServedRevision.recordBehindNode();
+            return List.of(product(1L));
+        }).when(productRepository).multiLoad(any());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // Act
+        Optional<Product> found = batchLoader.find(1L);
+
+        // Assert
+        assertEquals(1L, found.orElseThrow().getId());
+        assertFalse(ServedRevision.isShareable());
+    }
+
+    @Test
+    @DisplayName("Un hilo que debe leer del primario no debe entrar en el lote")
+    @SuppressWarnings("unchecked")
+    void find_ShouldReadInCallerThreadWhenPrimaryIsForced() {
+        // Arrange
+        MockitoAnnotations.openMocks(this);
+        ReplicaConsistency consistency = new ReplicaConsistency(mock(DataSource.class), mock(DataSource.class), 0, 1);
+        ObjectProvider<ReplicaConsistency> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(consistency);
+        batchLoader = new ProductBatchLoader(productRepository, provider, transactionManager,
+                new SimpleMeterRegistry(), 1_000, 200, 2);
+        when(productRepository.findById(7L)).thenReturn(Optional.of(product(7L)));
+        consistency.usePrimaryForCurrentThread();
+
+        try {
+            // Act
+            Optional<Product> found = batchLoader.find(7L);
+
+            // Assert
+            assertEquals(7L, found.orElseThrow().getId());
+            verify(productRepository, never()).multiLoad(any());
+        } finally {
+            consistency.clearCurrentThread();
+        }
+    }
+}
@@ -2,6 +2,11 @@ package com.sistema_de_inventarios_v02;
 
 import com.sistema_de_inventarios_v02.Controllers.ProductController;
 import com.sistema_de_inventarios_v02.dto.*;
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+import com.sistema_de_inventarios_v02.repository.ProductField;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import com.sistema_de_inventarios_v02.service.ProductExportService;
+import com.sistema_de_inventarios_v02.service.ProductFacetService;
 import com.sistema_de_inventarios_v02.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +18,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -25,6 +31,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @DisplayName("ProductController Tests")
@@ -33,6 +40,12 @@ public class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private ProductExportService productExportService;
+
+    @Mock
+    private ProductFacetService productFacetService;
+
     @InjectMocks
     private ProductController productController;
 
@@ -279,7 +292,7 @@ public class ProductControllerTest {
 
             // Act
             ResponseEntity<List<ProductSummaryDTO>> response =
-                    productController.searchProductsByName("Smartphone");
+                    productController.searchProductsByName("Smartphone", false, 20);
 
             // Assert
             assertNotNull(response);
@@ -296,7 +309,7 @@ public class ProductControllerTest {
         void searchProductsByName_ShouldReturnBadRequest_WhenNameIsEmpty() {
             // Act
             ResponseEntity<List<ProductSummaryDTO>> response =
-                    productController.searchProductsByName("");
+                    productController.searchProductsByName("", false, 20);
 
             // Assert
             assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -379,6 +392,33 @@ public class ProductControllerTest {
 
             verify(productService, times(1)).getProductsWithFilters(eq("Electrónicos"), eq("Smart"), any());
         }
+
+        @Test
+        @DisplayName("Debe pasar al servicio solo los campos pedidos")
+        void getProductFields_ShouldParseRequestedFields() {
+            // Arrange
+            Page<Map<String, Object>> mockPage = new PageImpl<>(List.of(Map.of("id", 1L, "name", "Smartphone")));
+            when(productService.getProductFieldsWithFilters(isNull(), isNull(), any(), any()))
+                    .thenReturn(mockPage);
+
+            // Act
+            ResponseEntity<Page<Map<String, Object>>> response =
+                    productController.getProductFields("id,name", 0, 10, "name", "asc", null, null);
+
+            // Assert
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            verify(productService).getProductFieldsWithFilters(isNull(), isNull(),
+                    eq(List.of(ProductField.ID, ProductField.NAME)), any());
+        }
+
+        @Test
+        @DisplayName("Debe rechazar campos no permitidos antes de consultar")
+        void getProductFields_ShouldRejectUnknownField() {
+            // Act & Assert
+            assertThrows(InvalidPageRequestException.class,
+                    () -> productController.getProductFields("id,password", 0, 10, "name", "asc", null, null));
+            verify(productService, never()).getProductFieldsWithFilters(any(), any(), any(), any());
+        }
     }
 
     @Nested
@@ -460,6 +500,37 @@ public class ProductControllerTest {
             verify(productService, times(1)).getAllCategories();
         }
 
+        @Test
+        @DisplayName("Debe obtener las facetas de los filtros actuales")
+        void getProductFacets_ShouldReturnFacetsForFilters() {
+            // Arrange
+            ProductFacetsDTO facets = new ProductFacetsDTO(2L,
+                    List.of(new ProductFacetsDTO.CategoryCount("Electrónicos", 2L)),
+                    List.of(), Map.of("IN_STOCK", 2L));
+            when(productFacetService.getFacets("Electrónicos", "smart", null, new BigDecimal("900")))
+                    .thenReturn(facets);
+
+            // Act
+            ResponseEntity<ProductFacetsDTO> response = productController.getProductFacets(
+                    "Electrónicos", "smart", null, new BigDecimal("900"));
+
+            // Assert
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertSame(facets, response.getBody());
+        }
+
+        @Test
+        @DisplayName("Debe rechazar facetas con rango de precios invertido")
+        void getProductFacets_ShouldReturnBadRequest_WhenMinPriceGreaterThanMax() {
+            // Act
+            ResponseEntity<ProductFacetsDTO> response = productController.getProductFacets(
+                    null, null, new BigDecimal("100"), new BigDecimal("10"));
+
+            // Assert
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+            verifyNoInteractions(productFacetService);
+        }
+
         @Test
         @DisplayName("Debe obtener estadísticas de productos")
         void getProductStats_ShouldReturnProductStatistics() {
@@ -493,13 +564,7 @@ public class ProductControllerTest {
         @DisplayName("Debe obtener contadores rápidos")
         void getProductCounts_ShouldReturnProductCounts() {
             // Arrange
-            Map<String, Object> mockStats = Map.of(
-                    "totalProducts", 5,
-                    "lowStockProducts", 1,
-                    "outOfStockProducts", 1,
-                    "inStockProducts", 4
-            );
-            when(productService.getProductStats()).thenReturn(mockStats);
+            when(productService.getProductStatistics()).thenReturn(new ProductStatsDTO(5L, 1L, 1L, 2L, 120L, new BigDecimal("4999.95")));
 
             // Act
             ResponseEntity<Map<String, Long>> response = productController.getProductCounts();
@@ -513,7 +578,7 @@ public class ProductControllerTest {
             assertEquals(1L, response.getBody().get("outOfStock"));
             assertEquals(4L, response.getBody().get("inStock"));
 
-            verify(productService, times(1)).getProductStats();
+            verify(productService, times(1)).getProductStatistics();
         }
 
         @Test
@@ -587,5 +652,44 @@ public class ProductControllerTest {
 
             verify(productService, times(1)).getProductsWithFilters(isNull(), isNull(), any());
         }
+
+        @Test
+        @DisplayName("Debe rechazar campos de ordenamiento fuera de la lista permitida")
+        void getProductsPaginated_ShouldRejectSortFieldOutsideWhitelist() {
+            // Act & Assert
+            assertThrows(InvalidPageRequestException.class, () ->
+                    productController.getProductsPaginated(0, 10, "description", "asc"));
+
+            verify(productService, never()).getAllProductsPaginated(any());
+        }
+
+        @Test
+        @DisplayName("Debe delegar la paginación por cursor con el orden validado")
+        void getProductsByCursor_ShouldDelegateWithValidatedSort() {
+            // Arrange
+            CursorPageDTO<ProductSummaryDTO> mockPage =
+                    new CursorPageDTO<>(List.of(productSummaryDTO1), 1, "abc", null);
+            when(productService.getProductsByCursor(isNull(), isNull(), eq(ProductSortField.PRICE),
+                    eq(Sort.Direction.DESC), isNull(), eq(1), eq(false))).thenReturn(mockPage);
+
+            // Act
+            ResponseEntity<CursorPageDTO<ProductSummaryDTO>> response =
+                    productController.getProductsByCursor(null, 1, "price", "desc", null, null, false);
+
+            // Assert
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertTrue(response.getBody().isHasNext());
+            assertEquals("abc", response.getBody().getNextCursor());
+        }
+
+        @Test
+        @DisplayName("Debe rechazar ordenar por categoría en la paginación por cursor")
+        void getProductsByCursor_ShouldRejectSortFieldWithoutIndex() {
+            // Act & Assert
+            assertThrows(InvalidPageRequestException.class, () ->
+                    productController.getProductsByCursor(null, 10, "category", "asc", null, null, false));
+
+            verify(productService, never()).getProductsByCursor(any(), any(), any(), any(), any(), anyInt(), anyBoolean());
+        }
     }
 }
\ No newline at end of file
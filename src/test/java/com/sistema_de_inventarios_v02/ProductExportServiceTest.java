@@ -0,0 +1,93 @@
+package com.sistema_de_inventarios_v02;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedInputStream;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.service.ProductExportService;
+import com.sistema_de_inventarios_v02.service.ProductProtobufCodec;
+import com.sistema_de_inventarios_v02.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@DisplayName("ProductExportService Tests")
+public class ProductExportServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ProductExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        exportService = new ProductExportService(productService, new ObjectMapper());
+
+        doAnswer(invocation -> {
+            Consumer<ProductSummaryDTO> consumer = invocation.getArgument(0);
+            consumer.accept(new ProductSummaryDTO(1L, "Laptop", "Electrónicos",
+                    new BigDecimal("1200.00"), 10, "IN_STOCK"));
+            consumer.accept(new ProductSummaryDTO(2L, "Mouse, inalámbrico", "Electrónicos",
+                    new BigDecimal("25.50"), 0, "OUT_OF_STOCK"));
+            return null;
+        }).when(productService).streamAllProductsSummary(any());
+    }
+
+    @Test
+    @DisplayName("Debe escribir un objeto JSON por línea")
+    void writeNdjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeNdjson(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"name\":\"Laptop\""));
+        assertTrue(lines[1].contains("\"stockStatus\":\"OUT_OF_STOCK\""));
+    }
+
+    @Test
+    @DisplayName("Debe escribir CSV con encabezado y valores escapados")
+    void writeCsv_ShouldWriteHeaderAndQuotedRows() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeCsv(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("\"id\",\"name\",\"category\",\"price\",\"stock\",\"stockStatus\"", lines[0]);
+        assertEquals("\"2\",\"Mouse, inalámbrico\",\"Electrónicos\",\"25.50\",\"0\",\"OUT_OF_STOCK\"", lines[2]);
+    }
+
+    @Test
+    @DisplayName("Debe escribir cada producto protobuf precedido de su longitud")
+    void writeDelimitedProtobuf_ShouldPrefixEachMessageWithItsLength() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeDelimitedProtobuf(out);
+
+        CodedInputStream in = CodedInputStream.newInstance(out.toByteArray());
+        int messages = 0;
+        while (!in.isAtEnd()) {
+            int length = in.readRawVarint32();
+            byte[] message = in.readRawBytes(length);
+            assertArrayEquals(ProductProtobufCodec.toBytes(new ProductSummaryDTO(messages + 1L,
+                    messages == 0 ? "Laptop" : "Mouse, inalámbrico", "Electrónicos",
+                    new BigDecimal(messages == 0 ? "1200.00" : "25.50"), messages == 0 ? 10 : 0,
+                    messages == 0 ? "IN_STOCK" : "OUT_OF_STOCK")), message);
+            messages++;
+        }
+        assertEquals(2, messages);
+    }
+}
@@ -0,0 +1,139 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductFacetsDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import com.sistema_de_inventarios_v02.service.CatalogColumnStore;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import com.sistema_de_inventarios_v02.service.ProductFacetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ProductFacetService Tests")
+public class ProductFacetServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CatalogColumnStore columnStore;
+
+    private ProductFacetService facetService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        facetService = new ProductFacetService(productRepository, columnStore, 60_000);
+
+        when(productRepository.countFacets(any(), any(), any(), any())).thenReturn(List.of(
+                new Object[]{"Electrónicos", "IN_STOCK", 3, 4L},
+                new Object[]{"Electrónicos", "LOW_STOCK", 9, 1L},
+                new Object[]{"Hogar", "OUT_OF_STOCK", 0, 2L},
+                new Object[]{"Hogar", "IN_STOCK", 3, 3L}
+        ));
+    }
+
+    @Test
+    @DisplayName("Debe repartir las filas agrupadas entre las tres facetas")
+    void getFacets_ShouldAggregateGroupedRows() {
+        // Act
+        ProductFacetsDTO facets = facetService.getFacets(null, null, null, null);
+
+        // Assert
+        assertEquals(10L, facets.getTotalProducts());
+        assertEquals("Electrónicos", facets.getCategories().get(0).getCategory());
+        assertEquals(5L, facets.getCategories().get(0).getCount());
+        assertEquals(5L, facets.getCategories().get(1).getCount());
+        assertEquals(Map.of("IN_STOCK", 7L, "LOW_STOCK", 1L, "OUT_OF_STOCK", 2L), facets.getStockStatus());
+
+        assertEquals(10, facets.getPriceBuckets().size());
+        ProductFacetsDTO.PriceBucket first = facets.getPriceBuckets().get(0);
+        assertEquals(0, BigDecimal.ZERO.compareTo(first.getMin()));
+        assertEquals(0, new BigDecimal("10").compareTo(first.getMax()));
+        assertEquals(2L, first.getCount());
+        assertEquals(7L, facets.getPriceBuckets().get(3).getCount());
+        ProductFacetsDTO.PriceBucket last = facets.getPriceBuckets().get(9);
+        assertNull(last.getMax());
+        assertEquals(1L, last.getCount());
+    }
+
+    @Test
+    @DisplayName("Debe reutilizar el resultado para filtros equivalentes")
+    void getFacets_ShouldCacheByNormalizedFilter() {
+        // Act
+        facetService.getFacets("Hogar", " silla ", new BigDecimal("10.00"), null);
+        facetService.getFacets("hogar", "SILLA", new BigDecimal("10"), null);
+
+        // Assert
+        verify(productRepository, times(1)).countFacets(eq("hogar"), eq("silla"), any(), isNull());
+    }
+
+    @Test
+    @DisplayName("Debe descartar la caché cuando cambia un producto")
+    void onProductChanged_ShouldInvalidateCache() {
+        // Arrange
+        facetService.getFacets(null, null, null, null);
+        ProductSnapshot snapshot = new ProductSnapshot(1L, "Silla", null, "Hogar",
+                new BigDecimal("45.00"), 3, 10);
+
+        // Act
+        facetService.onProductChanged(ProductChangedEvent.created(snapshot));
+        facetService.getFacets(null, null, null, null);
+
+        // Assert
+        verify(productRepository, times(2)).countFacets(isNull(), isNull(), isNull(), isNull());
+    }
+
+    @Test
+    @DisplayName("Debe calcular las facetas sin nombre desde el almacén columnar")
+    void getFacets_ShouldUseColumnStoreWithoutNameFilter() {
+        // Arrange
+        CategoryDictionary categoryDictionary = mock(CategoryDictionary.class);
+        when(categoryDictionary.findId("Hogar")).thenReturn(1);
+        when(categoryDictionary.findId("hogar")).thenReturn(1);
+        when(categoryDictionary.findId("Electrónicos")).thenReturn(2);
+        when(categoryDictionary.nameOf(1)).thenReturn("Hogar");
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        CatalogSnapshotFile catalogSnapshots = mock(CatalogSnapshotFile.class);
+        when(catalogSnapshots.streamAllSnapshots()).thenReturn(Stream.of(
+                new ProductSnapshot(1L, "Silla", null, "Hogar", new BigDecimal("45.00"), 20, 10),
+                new ProductSnapshot(2L, "Mesa", null, "Hogar", new BigDecimal("120.00"), 3, 10),
+                new ProductSnapshot(3L, "Lámpara", null, "Hogar", new BigDecimal("9.99"), 0, 10),
+                new ProductSnapshot(4L, "Mouse", null, "Electrónicos", new BigDecimal("25.00"), 0, 10)
+        ));
+        CatalogColumnStore store = new CatalogColumnStore(catalogSnapshots, categoryDictionary, transactionManager, true, 16);
+        store.load();
+        facetService = new ProductFacetService(productRepository, store, 60_000);
+
+        // Act
+        ProductFacetsDTO facets = facetService.getFacets("hogar", null, new BigDecimal("9.99"), new BigDecimal("120"));
+
+        // Assert
+        verify(productRepository, never()).countFacets(any(), any(), any(), any());
+        assertEquals(3L, facets.getTotalProducts());
+        assertEquals(1, facets.getCategories().size());
+        assertEquals("Hogar", facets.getCategories().get(0).getCategory());
+        assertEquals(Map.of("IN_STOCK", 1L, "LOW_STOCK", 1L, "OUT_OF_STOCK", 1L), facets.getStockStatus());
+        assertEquals(1L, facets.getPriceBuckets().get(0).getCount());
+        assertEquals(1L, facets.getPriceBuckets().get(2).getCount());
+        assertEquals(1L, facets.getPriceBuckets().get(4).getCount());
+    }
+}
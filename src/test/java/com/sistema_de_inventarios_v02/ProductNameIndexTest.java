@@ -0,0 +1,115 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import com.sistema_de_inventarios_v02.service.ProductNameIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.sistema_de_inventarios_v02.CatalogFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductNameIndex Tests")
+public class ProductNameIndexTest {
+
+    @Mock
+    private CatalogSnapshotFile catalogSnapshots;
+
+    private static final ProductSnapshot[] CATALOG = {
+            product(1L, "Laptop Gaming", null, "Electrónicos"),
+            product(2L, "Mouse Inalámbrico", null, "Electrónicos"),
+            product(3L, "Teclado Mecánico", null, "Electrónicos"),
+            product(4L, "Mousepad XL", null, "Electrónicos")
+    };
+
+    private ProductNameIndex nameIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        nameIndex = new ProductNameIndex(catalogSnapshots);
+
+        stubCatalog(catalogSnapshots, CATALOG);
+        nameIndex.rebuild();
+    }
+
+    private static List<Long> ids(List<ProductSummaryDTO> products) {
+        return products.stream().map(ProductSummaryDTO::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Debe encontrar nombres que contienen el texto sin distinguir mayúsculas ni acentos")
+    void findContaining_ShouldMatchSubstringIgnoringCaseAndAccents() {
+        assertTrue(nameIndex.isReady());
+        assertEquals(List.of(2L, 4L), ids(nameIndex.findContaining("MOUSE")));
+        assertEquals(List.of(2L, 3L), ids(nameIndex.findContaining("ico")));
+        assertEquals(List.of(2L), ids(nameIndex.findContaining("inalambrico")));
+        assertEquals(List.of(1L), ids(nameIndex.findContaining("p g")));
+        assertTrue(nameIndex.findContaining("monitor").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe resolver textos de menos de tres caracteres")
+    void findContaining_ShouldHandleShortQueries() {
+        assertEquals(List.of(4L), ids(nameIndex.findContaining("xl")));
+        assertEquals(List.of(1L, 2L, 3L), ids(nameIndex.findContaining("la")));
+    }
+
+    @Test
+    @DisplayName("Debe tolerar errores tipográficos ordenando por similitud")
+    void findSimilar_ShouldRankTyposBySimilarity() {
+        List<ProductSummaryDTO> results = nameIndex.findSimilar("teclaod mecanico", 5,
+                ProductNameIndex.DEFAULT_SIMILARITY_THRESHOLD);
+
+        assertFalse(results.isEmpty());
+        assertEquals(3L, results.get(0).getId());
+        assertTrue(nameIndex.findSimilar("zzzz", 5, ProductNameIndex.DEFAULT_SIMILARITY_THRESHOLD).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe mantenerse al día con altas, cambios y bajas")
+    void onProductChanged_ShouldKeepIndexCurrent() {
+        ProductSnapshot monitor = new ProductSnapshot(5L, "Monitor 4K", null, "Electrónicos",
+                new BigDecimal("300.00"), 0, 10);
+        nameIndex.onProductChanged(ProductChangedEvent.created(monitor));
+
+        nameIndex.onProductChanged(ProductChangedEvent.updated(CATALOG[0],
+                product(1L, "Notebook Gaming", null, "Electrónicos")));
+
+        nameIndex.onProductChanged(ProductChangedEvent.deleted(CATALOG[3]));
+
+        List<ProductSummaryDTO> monitors = nameIndex.findContaining("monitor");
+        assertEquals(List.of(5L), ids(monitors));
+        assertEquals("OUT_OF_STOCK", monitors.get(0).getStockStatus());
+        assertTrue(nameIndex.findContaining("laptop").isEmpty());
+        assertEquals(List.of(1L), ids(nameIndex.findContaining("notebook")));
+        assertEquals(List.of(2L), ids(nameIndex.findContaining("mouse")));
+        assertEquals(4, nameIndex.size());
+    }
+
+    @Test
+    @DisplayName("No debe perder los cambios confirmados mientras se reconstruye el índice")
+    void rebuild_ShouldReplayChangesReceivedWhileLoading() {
+        // Arrange
+        ProductSnapshot renamed = product(2L, "Mouse Vertical", null, "Electrónicos");
+        stubCatalog(catalogSnapshots,
+                () -> nameIndex.onProductChanged(ProductChangedEvent.updated(CATALOG[1], renamed)),
+                CATALOG);
+
+        // Act
+        nameIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(2L), ids(nameIndex.findContaining("vertical")));
+        assertTrue(nameIndex.findContaining("inalambrico").isEmpty());
+        assertEquals(4, nameIndex.size());
+    }
+}
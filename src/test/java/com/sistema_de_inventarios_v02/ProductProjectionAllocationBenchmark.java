@@ -0,0 +1,118 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mide los bytes asignados por petición al listar una página de resúmenes cargando
+ * entidades completas frente a la proyección directa a ProductSummaryDTO.
+ * No entra en la ejecución normal de tests (no termina en Test); se lanza con
+ * mvn test -Dtest=ProductProjectionAllocationBenchmark
+ */
+@DataJpaTest
+@Import(CategoryDictionary.class)
+@ActiveProfiles("test")
+@DisplayName("Benchmark de asignación: entidades vs proyección")
+class ProductProjectionAllocationBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductProjectionAllocationBenchmark.class);
+
+    private static final int PRODUCTS = 2_000;
+    private static final int PAGE_SIZE = 500;
+    private static final int WARMUP = 30;
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        String description = "x".repeat(500);
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Producto " + i, description, "Categoria " + (i % 20),
+                    BigDecimal.valueOf(10 + i % 1000), i % 50, 10));
+        }
+        productRepository.saveAll(products);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("La proyección debe asignar menos memoria por petición que las entidades")
+    void projection_ShouldAllocateLessPerRequestThanEntities() {
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE);
+
+        long entityBytes = measure(() -> productRepository.findByCategoryAndName(null, null, pageable)
+                .map(ProductProjectionAllocationBenchmark::toSummary));
+        long projectionBytes = measure(() -> productRepository.findSummariesByCategoryAndName(null, null, pageable));
+
+        logger.debug("Allocated bytes per request ({} rows): entities={} projection={}",
+                PAGE_SIZE, entityBytes, projectionBytes);
+
+        assertThat(projectionBytes).isLessThan(entityBytes);
+    }
+
+    /**
+     * Mediana de bytes asignados por el hilo actual; se limpia el contexto de persistencia
+     * en cada iteración para que cada petición parta de una sesión vacía, como en la API
+     */
+    private long measure(Supplier<Page<ProductSummaryDTO>> request) {
+        for (int i = 0; i < WARMUP; i++) {
+            entityManager.clear();
+            assertThat(request.get().getContent()).hasSize(PAGE_SIZE);
+        }
+
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            entityManager.clear();
+            long before = threadMXBean.getCurrentThreadAllocatedBytes();
+            Page<ProductSummaryDTO> page = request.get();
+            samples[i] = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+            assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        }
+        entityManager.clear();
+
+        Arrays.sort(samples);
+        return samples[ITERATIONS / 2];
+    }
+
+    // Conversión que hacía ProductService antes de usar la proyección
+    private static ProductSummaryDTO toSummary(Product product) {
+        String status = product.isOutOfStock() ? "OUT_OF_STOCK"
+                : product.isLowStock() ? "LOW_STOCK" : "IN_STOCK";
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getCategory(),
+                product.getPrice(), product.getStock(), status);
+    }
+}
@@ -0,0 +1,128 @@
+package com.sistema_de_inventarios_v02;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.sistema_de_inventarios_v02.Config.InventoryProtobufHttpMessageConverter;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.dto.api.StockMovementDTO;
+import com.sistema_de_inventarios_v02.service.ProductProtobufCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductProtobufCodec Tests")
+public class ProductProtobufCodecTest {
+
+    private static final MediaType PROTOBUF = MediaType.parseMediaType(ProductProtobufCodec.PROTOBUF);
+
+    private final ProductSummaryDTO laptop = new ProductSummaryDTO(7L, "Laptop", "Electrónicos",
+            new BigDecimal("1499.99"), 3, "LOW_STOCK");
+
+    /**
+     * Etiqueta de campo de protobuf: número de campo y tipo de codificación
+     */
+    private static int tag(int field, int wireType) {
+        return (field << 3) | wireType;
+    }
+
+    @Test
+    @DisplayName("Debe codificar ProductSummary con los números de campo del esquema")
+    void toBytes_ShouldFollowSchemaFieldNumbers() throws Exception {
+        // Act
+        CodedInputStream in = CodedInputStream.newInstance(ProductProtobufCodec.toBytes(laptop));
+
+        // Assert
+        assertEquals(tag(1, WireFormat.WIRETYPE_VARINT), in.readTag());
+        assertEquals(7L, in.readInt64());
+        assertEquals(tag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED), in.readTag());
+        assertEquals("Laptop", in.readString());
+        assertEquals(tag(3, WireFormat.WIRETYPE_LENGTH_DELIMITED), in.readTag());
+        assertEquals("Electrónicos", in.readString());
+        assertEquals(tag(4, WireFormat.WIRETYPE_LENGTH_DELIMITED), in.readTag());
+        assertEquals("1499.99", in.readString());
+        assertEquals(tag(5, WireFormat.WIRETYPE_VARINT), in.readTag());
+        assertEquals(3, in.readInt32());
+        assertEquals(tag(6, WireFormat.WIRETYPE_VARINT), in.readTag());
+        assertEquals(2, in.readEnum());
+        assertTrue(in.isAtEnd());
+    }
+
+    @Test
+    @DisplayName("Debe codificar una página con sus elementos y metadatos")
+    void write_ShouldEncodePageMetadata() throws Exception {
+        // Arrange
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+
+        // Act
+        ProductProtobufCodec.write(new PageImpl<>(List.of(laptop, laptop), PageRequest.of(1, 2), 9), out);
+        out.flush();
+
+        // Assert
+        CodedInputStream in = CodedInputStream.newInstance(buffer.toByteArray());
+        int items = 0;
+        long totalElements = 0;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> {
+                    assertArrayEquals(ProductProtobufCodec.toBytes(laptop), in.readByteArray());
+                    items++;
+                }
+                case 4 -> totalElements = in.readInt64();
+                default -> in.skipField(tag);
+            }
+        }
+        assertEquals(2, items);
+        assertEquals(9L, totalElements);
+    }
+
+    @Test
+    @DisplayName("Debe leer un movimiento de stock enviado en protobuf")
+    void readStockMovement_ShouldDecodeFields() throws Exception {
+        // Arrange
+        StockMovementDTO movement = new StockMovementDTO(7L, "SALIDA", 4, "Venta");
+        movement.setUserResponsible("almacen");
+
+        // Act
+        StockMovementDTO decoded = ProductProtobufCodec.readStockMovement(
+                new ByteArrayInputStream(ProductProtobufCodec.toBytes(movement)));
+
+        // Assert
+        assertEquals(7L, decoded.getProductId());
+        assertEquals("SALIDA", decoded.getMovementType());
+        assertEquals(4, decoded.getQuantity());
+        assertEquals("Venta", decoded.getReason());
+        assertNull(decoded.getNotes());
+        assertEquals("almacen", decoded.getUserResponsible());
+    }
+
+    @Test
+    @DisplayName("Debe aceptar solo colecciones de tipos con esquema")
+    void converter_ShouldOnlyWriteTypesWithSchema() {
+        // Arrange
+        InventoryProtobufHttpMessageConverter converter = new InventoryProtobufHttpMessageConverter();
+
+        // Act & Assert
+        assertTrue(converter.canWrite(ProductSummaryDTO.class, ProductSummaryDTO.class, PROTOBUF));
+        assertTrue(converter.canWrite(new ParameterizedTypeReference<List<ProductSummaryDTO>>() {}.getType(),
+                List.class, PROTOBUF));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<Map<String, Object>>>() {}.getType(),
+                List.class, PROTOBUF));
+        assertFalse(converter.canWrite(ProductSummaryDTO.class, ProductSummaryDTO.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canRead(StockMovementDTO.class, null, PROTOBUF));
+        assertFalse(converter.canRead(ProductSummaryDTO.class, null, PROTOBUF));
+    }
+}
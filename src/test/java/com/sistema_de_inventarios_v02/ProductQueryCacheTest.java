@@ -0,0 +1,87 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.service.ProductQueryCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductQueryCache Tests")
+public class ProductQueryCacheTest {
+
+    private ProductQueryCache queryCache;
+    private Pageable pageable;
+
+    @BeforeEach
+    void setUp() {
+        queryCache = new ProductQueryCache(new SimpleMeterRegistry(), 100);
+        pageable = PageRequest.of(0, 10, Sort.by("name"));
+    }
+
+    private static ProductChangedEvent changed() {
+        return ProductChangedEvent.created(new ProductSnapshot(9L, "Silla", null, "Hogar",
+                new BigDecimal("45.00"), 3, 10));
+    }
+
+    @Test
+    @DisplayName("Debe reutilizar la página para filtros equivalentes")
+    void get_ShouldMatchNormalizedFilters() {
+        // Arrange
+        ProductQueryCache.QueryKey key = ProductQueryCache.key("Hogar ", "SILLA", pageable);
+        queryCache.put(key, queryCache.generation(), new long[]{3L, 1L}, 2L);
+
+        // Act
+        ProductQueryCache.Entry entry = queryCache.get(ProductQueryCache.key("hogar", "silla", pageable));
+
+        // Assert
+        assertNotNull(entry);
+        assertArrayEquals(new long[]{3L, 1L}, entry.ids());
+        assertEquals(2L, entry.total());
+        assertNull(queryCache.get(ProductQueryCache.key("hogar", "silla", PageRequest.of(1, 10, Sort.by("name")))));
+        assertNull(queryCache.get(ProductQueryCache.key("hogar", "silla", PageRequest.of(0, 10, Sort.by("price")))));
+    }
+
+    @Test
+    @DisplayName("Debe dejar obsoletas todas las páginas cuando cambia un producto")
+    void onProductChanged_ShouldInvalidateByGeneration() {
+        // Arrange
+        ProductQueryCache.QueryKey key = ProductQueryCache.key(null, null, pageable);
+        queryCache.put(key, queryCache.generation(), new long[]{1L}, 1L);
+
+        // Act
+        queryCache.onProductChanged(changed());
+
+        // Assert
+        assertNull(queryCache.get(key));
+    }
+
+    @Test
+    @DisplayName("No debe guardar una página leída antes de un cambio")
+    void put_ShouldDiscardPageReadBeforeChange() {
+        // Arrange
+        ProductQueryCache.QueryKey key = ProductQueryCache.key(null, null, pageable);
+        long generation = queryCache.generation();
+
+        // Act
+        queryCache.onProductChanging(changed());
+        queryCache.put(key, generation, new long[]{1L}, 1L);
+
+        // Assert
+        assertNull(queryCache.get(key));
+    }
+
+    @Test
+    @DisplayName("No debe cachear peticiones sin paginar")
+    void key_ShouldBeNullForUnpagedRequests() {
+        assertNull(ProductQueryCache.key("Hogar", null, Pageable.unpaged()));
+    }
+}
@@ -1,7 +1,20 @@
 package com.sistema_de_inventarios_v02;
 
+import com.sistema_de_inventarios_v02.dto.CategoryStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
+import com.sistema_de_inventarios_v02.model.ApiUser;
 import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.model.StockStatus;
+import com.sistema_de_inventarios_v02.repository.ApiUserRepository;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import com.sistema_de_inventarios_v02.repository.ProductField;
 import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.repository.ProductSortField;
+import com.sistema_de_inventarios_v02.repository.ProductSpecifications;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,17 +22,24 @@ import org.junit.jupiter.api.Nested;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 
 @DataJpaTest
+@Import(CategoryDictionary.class)
 @ActiveProfiles("test")
 @DisplayName("ProductRepository Tests")
 class ProductRepositoryTest {
@@ -30,6 +50,9 @@ class ProductRepositoryTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
     private Product laptop;
     private Product mouse;
     private Product keyboard;
@@ -38,7 +61,8 @@ class ProductRepositoryTest {
 
     @BeforeEach
     void setUp() {
-        // Limpiar datos previos
+        // Limpiar datos previos; el diccionario es un singleton del contexto compartido
+        categoryDictionary.clear();
         productRepository.deleteAll();
         entityManager.flush();
 
@@ -192,6 +216,22 @@ class ProductRepositoryTest {
                     .containsExactlyInAnyOrder("Monitor 4K", "Producto Agotado");
         }
 
+        @Test
+        @DisplayName("Debe mantener la columna de estado de stock en cada escritura")
+        void stockStatus_ShouldFollowStockChanges() {
+            mouse.setStock(0);
+            keyboard.setMinimumStock(null);
+            entityManager.flush();
+            entityManager.clear();
+
+            assertThat(productRepository.findProductsOutOfStock()).extracting(Product::getName)
+                    .containsExactlyInAnyOrder("Monitor 4K", "Producto Agotado", "Mouse Inalámbrico");
+            assertThat(productRepository.findProductsWithLowStock()).extracting(Product::getName)
+                    .containsExactly("Laptop Gaming");
+            assertThat(productRepository.findById(keyboard.getId())).get()
+                    .extracting(Product::getStockStatus).isEqualTo(StockStatus.IN_STOCK);
+        }
+
         @Test
         @DisplayName("Debe encontrar productos activos (con stock > 0)")
         void findActiveProducts_ShouldReturnProductsWithStock() {
@@ -295,6 +335,177 @@ class ProductRepositoryTest {
         }
     }
 
+    @Nested
+    @DisplayName("Proyecciones de resumen")
+    class SummaryProjectionTests {
+
+        @Test
+        @DisplayName("Debe calcular stockStatus en SQL con las mismas reglas que la entidad")
+        void findAllSummaries_ShouldComputeStockStatusInQuery() {
+            List<ProductSummaryDTO> results = productRepository.findAllSummaries();
+
+            assertThat(results).extracting(ProductSummaryDTO::getName, ProductSummaryDTO::getStockStatus)
+                    .containsExactly(
+                            tuple("Laptop Gaming", "LOW_STOCK"),
+                            tuple("Mouse Inalámbrico", "IN_STOCK"),
+                            tuple("Teclado Mecánico", "LOW_STOCK"),
+                            tuple("Monitor 4K", "OUT_OF_STOCK"),
+                            tuple("Producto Agotado", "OUT_OF_STOCK"));
+        }
+
+        @Test
+        @DisplayName("Debe proyectar búsquedas por nombre, categoría y precio")
+        void findSummaries_ShouldMatchEntityQueries() {
+            assertThat(productRepository.findSummariesByNameContaining("MOUSE"))
+                    .extracting(ProductSummaryDTO::getId).containsExactly(mouse.getId());
+            assertThat(productRepository.findSummariesByCategory("office"))
+                    .extracting(ProductSummaryDTO::getId).containsExactly(outOfStockProduct.getId());
+            assertThat(productRepository.findSummariesByPriceBetween(20.0, 100.0))
+                    .extracting(ProductSummaryDTO::getName)
+                    .containsExactlyInAnyOrder("Mouse Inalámbrico", "Teclado Mecánico", "Producto Agotado");
+        }
+
+        @Test
+        @DisplayName("Debe paginar y ordenar la proyección con filtros")
+        void findSummariesByCategoryAndName_ShouldReturnSortedPage() {
+            Pageable pageable = PageRequest.of(0, 2, Sort.by("price").descending());
+            Page<ProductSummaryDTO> results =
+                    productRepository.findSummariesByCategoryAndName("Electronics", null, pageable);
+
+            assertThat(results.getTotalElements()).isEqualTo(4);
+            assertThat(results.getContent()).extracting(ProductSummaryDTO::getName)
+                    .containsExactly("Laptop Gaming", "Monitor 4K");
+        }
+    }
+
+    @Nested
+    @DisplayName("Campos a elección (?fields=)")
+    class FieldProjectionTests {
+
+        @Test
+        @DisplayName("Debe devolver solo los campos pedidos, en orden y paginados")
+        void findFields_ShouldProjectRequestedColumns() {
+            Pageable pageable = PageRequest.of(0, 2, ProductSortField.PRICE.toSort(Sort.Direction.DESC));
+            Page<Map<String, Object>> results = productRepository.findFields(
+                    ProductSpecifications.withFilters("electronics", null),
+                    ProductField.parse("name, stock,id"), pageable);
+
+            assertThat(results.getTotalElements()).isEqualTo(4);
+            assertThat(results.getContent()).hasSize(2);
+            assertThat(results.getContent().get(0).keySet()).containsExactly("name", "stock", "id");
+            assertThat(results.getContent().get(0))
+                    .containsEntry("name", "Laptop Gaming")
+                    .containsEntry("stock", 5)
+                    .containsEntry("id", laptop.getId());
+        }
+
+        @Test
+        @DisplayName("Debe traducir la categoría y el estado de stock")
+        void findFields_ShouldConvertCategoryAndStatus() {
+            Pageable pageable = PageRequest.of(0, 10, ProductSortField.CATEGORY.toSort(Sort.Direction.DESC));
+            Page<Map<String, Object>> results = productRepository.findFields(
+                    ProductSpecifications.withFilters(null, "agotado"),
+                    ProductField.parse("category,stockStatus"), pageable);
+
+            assertThat(results.getContent()).singleElement()
+                    .isEqualTo(Map.of("category", "Office", "stockStatus", StockStatus.OUT_OF_STOCK));
+        }
+
+        @Test
+        @DisplayName("Debe rechazar campos fuera de la lista permitida")
+        void parse_ShouldRejectUnknownFields() {
+            assertThatThrownBy(() -> ProductField.parse("id,secret"))
+                    .isInstanceOf(InvalidPageRequestException.class)
+                    .hasMessageContaining("secret");
+            assertThatThrownBy(() -> ProductField.parse(" , "))
+                    .isInstanceOf(InvalidPageRequestException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Cache de segundo nivel")
+    class SecondLevelCacheTests {
+
+        @Autowired
+        private ApiUserRepository apiUserRepository;
+
+        @Test
+        @DisplayName("Debe cargar varios ids omitiendo los inexistentes")
+        void multiLoad_ShouldReturnExistingProducts() {
+            entityManager.clear();
+
+            List<Product> results = productRepository.multiLoad(List.of(mouse.getId(), -1L, laptop.getId()));
+
+            assertThat(results).extracting(Product::getName)
+                    .containsExactlyInAnyOrder("Mouse Inalámbrico", "Laptop Gaming");
+        }
+
+        @Test
+        @DisplayName("Debe encontrar usuarios de la API por su natural id")
+        void findByUsername_ShouldResolveNaturalId() {
+            entityManager.persistAndFlush(new ApiUser("almacen", "secreto", "USER"));
+            entityManager.clear();
+
+            assertThat(apiUserRepository.findByUsername("almacen"))
+                    .get().extracting(ApiUser::getRole).isEqualTo("USER");
+            assertThat(apiUserRepository.findByUsername("nadie")).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Paginación por cursor")
+    class KeysetScrollTests {
+
+        @Test
+        @DisplayName("Debe recorrer todas las páginas sin repetir ni omitir productos")
+        void findBy_ShouldScrollThroughAllProductsByKeyset() {
+            Sort sort = ProductSortField.PRICE.toSort(Sort.Direction.ASC);
+            Specification<Product> spec = ProductSpecifications.withFilters(null, null);
+
+            Window<Product> first = productRepository.findBy(spec, q -> q.sortBy(sort).limit(2)
+                    .scroll(ScrollPosition.keyset()));
+            assertThat(first.getContent()).extracting(Product::getName)
+                    .containsExactly("Mouse Inalámbrico", "Producto Agotado");
+            assertThat(first.hasNext()).isTrue();
+
+            Product last = first.getContent().get(1);
+            ScrollPosition next = ScrollPosition.forward(Map.of("price", last.getPrice(), "id", last.getId()));
+            Window<Product> second = productRepository.findBy(spec, q -> q.sortBy(sort).limit(2).scroll(next));
+            assertThat(second.getContent()).extracting(Product::getName)
+                    .containsExactly("Teclado Mecánico", "Monitor 4K");
+        }
+
+        @Test
+        @DisplayName("Debe aplicar los filtros de categoría y nombre")
+        void withFilters_ShouldMatchCategoryAndNameIgnoringCase() {
+            List<Product> results = productRepository.findAll(
+                    ProductSpecifications.withFilters("ELECTRONICS", "MOUSE"));
+
+            assertThat(results).extracting(Product::getName).containsExactly("Mouse Inalámbrico");
+        }
+
+        @Test
+        @DisplayName("Debe ordenar por nombre de categoría aunque se guarde su id")
+        void findBy_ShouldScrollByCategoryName() {
+            Product tools = createValidProduct("Destornillador", "Ferreteria", BigDecimal.valueOf(9.0), 30, 10);
+            entityManager.persistAndFlush(tools);
+            entityManager.clear();
+            Sort sort = ProductSortField.CATEGORY.toSort(Sort.Direction.ASC);
+            Specification<Product> spec = ProductSpecifications.withFilters(null, null);
+
+            Window<Product> first = productRepository.findBy(spec, q -> q.sortBy(sort).limit(5)
+                    .scroll(ScrollPosition.keyset()));
+            assertThat(first.getContent()).extracting(Product::getCategory)
+                    .containsExactly("Electronics", "Electronics", "Electronics", "Electronics", "Ferreteria");
+
+            Product last = first.getContent().get(4);
+            ScrollPosition next = ScrollPosition.forward(Map.of(
+                    ProductSortField.CATEGORY.getPath(), last.getCategory(), "id", last.getId()));
+            Window<Product> second = productRepository.findBy(spec, q -> q.sortBy(sort).limit(5).scroll(next));
+            assertThat(second.getContent()).extracting(Product::getName).containsExactly("Producto Agotado");
+        }
+    }
+
     @Nested
     @DisplayName("Verificación de existencia")
     class ExistenceTests {
@@ -346,6 +557,112 @@ class ProductRepositoryTest {
             assertThat(foundElectronics).isTrue();
             assertThat(foundOffice).isTrue();
         }
+
+        @Test
+        @DisplayName("Debe calcular las estadísticas del catálogo en una sola consulta")
+        void getProductStatistics_ShouldAggregateCatalogCounts() {
+            ProductStatsDTO stats = productRepository.getProductStatistics();
+
+            assertThat(stats.getTotalProducts()).isEqualTo(5L);
+            assertThat(stats.getLowStockProducts()).isEqualTo(2L);
+            assertThat(stats.getOutOfStockProducts()).isEqualTo(2L);
+            assertThat(stats.getInStockProducts()).isEqualTo(3L);
+            assertThat(stats.getTotalCategories()).isEqualTo(2L);
+            assertThat(stats.getTotalUnits()).isEqualTo(22L);
+            assertThat(stats.getInventoryValue()).isEqualByComparingTo("8035.00");
+        }
+
+        @Test
+        @DisplayName("Debe agrupar las facetas por categoría, estado de stock y tramo de precio")
+        void countFacets_ShouldGroupByCategoryStatusAndPriceBucket() {
+            List<Object[]> rows = productRepository.countFacets(null, null, null, null);
+
+            assertThat(rows).extracting(row -> ((Number) row[3]).longValue()).containsOnly(1L);
+            assertThat(rows).anySatisfy(row -> {
+                assertThat(row[0]).isEqualTo("Electronics");
+                assertThat(row[1]).isEqualTo(StockStatus.OUT_OF_STOCK);
+                assertThat(((Number) row[2]).intValue()).isEqualTo(5);
+            });
+
+            List<Object[]> filtered = productRepository.countFacets("electronics", null,
+                    BigDecimal.valueOf(20), BigDecimal.valueOf(100));
+            assertThat(filtered).hasSize(2);
+            assertThat(filtered).extracting(row -> ((Number) row[2]).intValue()).containsExactlyInAnyOrder(2, 3);
+        }
+
+        @Test
+        @DisplayName("Debe calcular las estadísticas agrupadas por categoría")
+        void getCategoryStatistics_ShouldGroupCountersByCategory() {
+            List<CategoryStatsDTO> stats = productRepository.getCategoryStatistics();
+
+            assertThat(stats).extracting(CategoryStatsDTO::getCategory)
+                    .containsExactly("Electronics", "Office");
+            CategoryStatsDTO electronics = stats.get(0);
+            assertThat(electronics.getTotalProducts()).isEqualTo(4L);
+            assertThat(electronics.getLowStockProducts()).isEqualTo(2L);
+            assertThat(electronics.getOutOfStockProducts()).isEqualTo(1L);
+            assertThat(electronics.getTotalUnits()).isEqualTo(22L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Diccionario de categorías")
+    class CategoryDictionaryTests {
+
+        @Test
+        @DisplayName("Debe registrar cada categoría una sola vez sin distinguir mayúsculas")
+        void persist_ShouldReuseCategoryIdIgnoringCase() {
+            Product desk = createValidProduct("Escritorio", "OFFICE", BigDecimal.valueOf(120.0), 3, 10);
+            entityManager.persistAndFlush(desk);
+            entityManager.clear();
+
+            Integer officeId = categoryDictionary.findId("office");
+            assertThat(officeId).isNotNull();
+            assertThat(categoryDictionary.findId("Office")).isEqualTo(officeId);
+            assertThat(categoryDictionary.nameOf(officeId)).isEqualTo("Office");
+            assertThat(productRepository.findById(desk.getId())).get()
+                    .extracting(Product::getCategory).isEqualTo("Office");
+            assertThat(productRepository.findByCategoryIgnoreCase("office")).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Debe crear la categoría al cambiarla en un producto existente")
+        void update_ShouldRegisterNewCategory() {
+            laptop.setCategory("Gaming");
+            entityManager.flush();
+            entityManager.clear();
+
+            assertThat(categoryDictionary.findId("gaming")).isNotNull();
+            assertThat(productRepository.findSummariesByCategory("GAMING"))
+                    .extracting(ProductSummaryDTO::getName).containsExactly("Laptop Gaming");
+            assertThat(productRepository.findAllCategories()).containsExactly("Electronics", "Gaming", "Office");
+        }
+
+        @Test
+        @DisplayName("No debe registrar categorías usadas solo como filtro")
+        void filter_ShouldNotCreateUnknownCategory() {
+            assertThat(productRepository.findSummariesByCategory("Jardin")).isEmpty();
+            assertThat(categoryDictionary.findId("Jardin")).isNull();
+        }
+
+        @Test
+        @DisplayName("Debe recordar las categorías inexistentes hasta que llega un producto con ellas")
+        void findId_ShouldCacheMissUntilProductChanged() {
+            // Arrange
+            assertThat(categoryDictionary.findId("Jardin")).isNull();
+            entityManager.getEntityManager()
+                    .createNativeQuery("INSERT INTO categories (name) VALUES ('Jardin')")
+                    .executeUpdate();
+
+            // Act
+            Integer cached = categoryDictionary.findId("jardin");
+            categoryDictionary.onProductChanged(ProductChangedEvent.created(new ProductSnapshot(99L, "Maceta",
+                    null, "Jardin", BigDecimal.valueOf(12.0), 4, 10)));
+
+            // Assert
+            assertThat(cached).isNull();
+            assertThat(categoryDictionary.findId("jardin")).isNotNull();
+        }
     }
 
     @Nested
@@ -364,6 +681,7 @@ class ProductRepositoryTest {
             assertThat(productRepository.findProductsOutOfStock()).isEmpty();
             assertThat(productRepository.findAllCategories()).isEmpty();
             assertThat(productRepository.existsByNameIgnoreCase("cualquier")).isFalse();
+            assertThat(productRepository.getProductStatistics().getTotalProducts()).isZero();
         }
 
         @Test
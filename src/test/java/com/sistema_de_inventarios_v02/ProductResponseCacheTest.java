@@ -0,0 +1,168 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.Config.CachedJson;
+import com.sistema_de_inventarios_v02.Config.CachedJsonInterceptor;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import com.sistema_de_inventarios_v02.service.ProductResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ProductResponseCache Tests")
+public class ProductResponseCacheTest {
+
+    private static final byte[] JSON = "{\"id\":1,\"name\":\"Silla\"}".getBytes(StandardCharsets.UTF_8);
+
+    private ProductResponseCache responseCache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CategoryDictionary categoryDictionary = mock(CategoryDictionary.class);
+        when(categoryDictionary.findId(anyString())).thenAnswer(invocation ->
+                switch (invocation.getArgument(0, String.class).trim().toLowerCase(Locale.ROOT)) {
+                    case "hogar" -> 1;
+                    case "oficina" -> 2;
+                    case "jardín" -> 3;
+                    default -> null;
+                });
+        responseCache = new ProductResponseCache(meterRegistry, categoryDictionary, 1_000_000, 60_000);
+    }
+
+    static class Endpoints {
+        @CachedJson(ProductResponseCache.Region.PRODUCT)
+        public void byId() {}
+    }
+
+    private static ProductSnapshot snapshot(String category, int stock) {
+        return new ProductSnapshot(1L, "Silla", null, category, new BigDecimal("45.00"), stock, 10);
+    }
+
+    private static MockHttpServletRequest productRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/1");
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "1"));
+        return request;
+    }
+
+    @Test
+    @DisplayName("Debe guardar la respuesta en claro y comprimida")
+    void put_ShouldStoreJsonAndGzip() throws Exception {
+        // Act
+        assertNull(responseCache.get("product:1"));
+        responseCache.put("product:1", responseCache.generation(), JSON, null);
+
+        // Assert
+        ProductResponseCache.Entry entry = responseCache.get("product:1");
+        assertArrayEquals(JSON, entry.json());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(entry.gzip()))) {
+            assertArrayEquals(JSON, in.readAllBytes());
+        }
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "productResponses", "result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "productResponses", "result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Debe descartar respuestas leídas antes de una invalidación")
+    void put_ShouldSkipStaleGeneration() {
+        // Arrange
+        long readGeneration = responseCache.generation();
+        responseCache.onProductChanged(ProductChangedEvent.created(snapshot("Hogar", 50)));
+
+        // Act
+        responseCache.put("product:1", readGeneration, JSON, null);
+
+        // Assert
+        assertNull(responseCache.get("product:1"));
+    }
+
+    @Test
+    @DisplayName("Debe invalidar solo las claves afectadas por el cambio")
+    void onProductChanged_ShouldInvalidateAffectedKeysOnly() {
+        // Arrange
+        long generation = responseCache.generation();
+        for (String key : new String[]{"product:1", "product:2", "category:1", "category:2",
+                "category:3", "low-stock", "out-of-stock"}) {
+            responseCache.put(key, generation, JSON, null);
+        }
+
+        // Act: pasa de Hogar con stock normal a Oficina con stock bajo
+        responseCache.onProductChanged(ProductChangedEvent.updated(snapshot("Hogar", 50), snapshot("Oficina", 5)));
+
+        // Assert
+        assertNull(responseCache.get("product:1"));
+        assertNull(responseCache.get("category:1"));
+        assertNull(responseCache.get("category:2"));
+        assertNull(responseCache.get("low-stock"));
+        assertNotNull(responseCache.get("product:2"));
+        assertNotNull(responseCache.get("category:3"));
+        assertNotNull(responseCache.get("out-of-stock"));
+    }
+
+    @Test
+    @DisplayName("Debe servir un acierto sin invocar al controlador")
+    void interceptor_ShouldWriteCachedBytesOnHit() throws Exception {
+        // Arrange
+        CachedJsonInterceptor interceptor = new CachedJsonInterceptor(responseCache);
+        HandlerMethod handler = new HandlerMethod(new Endpoints(), Endpoints.class.getMethod("byId"));
+        MockHttpServletRequest miss = productRequest();
+        assertTrue(interceptor.preHandle(miss, new MockHttpServletResponse(), handler));
+        responseCache.put("product:1", responseCache.generation(), JSON, null);
+
+        MockHttpServletRequest request = productRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, handler);
+
+        // Assert
+        assertFalse(proceed);
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(responseCache.get("product:1").gzip(), response.getContentAsByteArray());
+    }
+
+    @Test
+    @DisplayName("Debe dejar pasar a quien prefiere un formato binario")
+    void interceptor_ShouldBypassNonJsonAccept() throws Exception {
+        // Arrange
+        CachedJsonInterceptor interceptor = new CachedJsonInterceptor(responseCache);
+        HandlerMethod handler = new HandlerMethod(new Endpoints(), Endpoints.class.getMethod("byId"));
+        responseCache.put("product:1", responseCache.generation(), JSON, null);
+        MockHttpServletRequest request = productRequest();
+        request.addHeader(HttpHeaders.ACCEPT, "application/x-protobuf, application/json;q=0.5");
+
+        // Act & Assert
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler));
+    }
+
+    @Test
+    @DisplayName("Debe usar la misma clave para todas las formas de un id o una categoría")
+    void key_ShouldNormalizeLikeTheQuery() {
+        // Act & Assert
+        assertEquals("product:7", responseCache.key(ProductResponseCache.Region.PRODUCT, "007"));
+        assertEquals("category:1", responseCache.key(ProductResponseCache.Region.CATEGORY, " HOGAR "));
+        assertNull(responseCache.key(ProductResponseCache.Region.PRODUCT, "siete"));
+        assertNull(responseCache.key(ProductResponseCache.Region.CATEGORY, "Garaje"));
+    }
+}
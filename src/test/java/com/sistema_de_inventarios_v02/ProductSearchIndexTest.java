@@ -0,0 +1,95 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSearchHitDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import com.sistema_de_inventarios_v02.service.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static com.sistema_de_inventarios_v02.CatalogFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductSearchIndex Tests")
+public class ProductSearchIndexTest {
+
+    @Mock
+    private CatalogSnapshotFile catalogSnapshots;
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        searchIndex = new ProductSearchIndex(catalogSnapshots);
+
+        stubCatalog(catalogSnapshots,
+                product(1L, "Tornillo hexagonal", "Tornillo de acero inoxidable 3/8 para estructuras", "Ferretería"),
+                product(2L, "Tuerca 3/8", "Tuerca de acero galvanizado", "Ferretería"),
+                product(3L, "Taladro percutor", "Incluye brocas para acero y madera", "Herramientas"),
+                product(4L, "Cinta métrica", "Cinta de 5 metros", "Herramientas"));
+        searchIndex.rebuild();
+    }
+
+    private static List<Long> ids(Page<ProductSearchHitDTO> page) {
+        return page.getContent().stream().map(ProductSearchHitDTO::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Debe ordenar por relevancia combinando términos de varios campos")
+    void search_ShouldRankByRelevanceAcrossFields() {
+        Page<ProductSearchHitDTO> results = searchIndex.search("tornillo acero 3/8", PageRequest.of(0, 10));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(results));
+        assertEquals(3, results.getTotalElements());
+        assertTrue(results.getContent().get(0).getScore() > results.getContent().get(1).getScore());
+    }
+
+    @Test
+    @DisplayName("Debe ignorar acentos y mayúsculas y resaltar los términos encontrados")
+    void search_ShouldFoldAccentsAndHighlightMatches() {
+        Page<ProductSearchHitDTO> results = searchIndex.search("FERRETERIA galvanizado", PageRequest.of(0, 10));
+
+        assertEquals(List.of(2L, 1L), ids(results));
+        ProductSearchHitDTO first = results.getContent().get(0);
+        assertEquals("<em>Ferretería</em>", first.getHighlights().get("category"));
+        assertEquals("Tuerca de acero <em>galvanizado</em>", first.getHighlights().get("description"));
+        assertFalse(first.getHighlights().containsKey("name"));
+    }
+
+    @Test
+    @DisplayName("Debe paginar los resultados")
+    void search_ShouldPageResults() {
+        Page<ProductSearchHitDTO> second = searchIndex.search("acero", PageRequest.of(1, 2));
+
+        assertEquals(3, second.getTotalElements());
+        assertEquals(1, second.getContent().size());
+        assertTrue(searchIndex.search("de para", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe actualizarse con altas, cambios y bajas")
+    void onProductChanged_ShouldUpdateIndexIncrementally() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                product(5L, "Llave inglesa", "Llave ajustable de acero", "Herramientas")));
+        searchIndex.onProductChanged(ProductChangedEvent.updated(
+                product(4L, "Cinta métrica", "Cinta de 5 metros", "Herramientas"),
+                product(4L, "Cinta métrica", "Cinta de acero de 5 metros", "Herramientas")));
+        searchIndex.onProductChanged(ProductChangedEvent.deleted(
+                product(3L, "Taladro percutor", "Incluye brocas para acero y madera", "Herramientas")));
+
+        Page<ProductSearchHitDTO> results = searchIndex.search("acero", PageRequest.of(0, 10));
+
+        assertEquals(4, results.getTotalElements());
+        assertFalse(ids(results).contains(3L));
+        assertTrue(ids(results).containsAll(List.of(4L, 5L)));
+        assertEquals(4, searchIndex.size());
+    }
+}
@@ -1,18 +1,29 @@
 package com.sistema_de_inventarios_v02;
 
 import com.sistema_de_inventarios_v02.dto.*;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
 import com.sistema_de_inventarios_v02.exception.DuplicateProductException;
+import com.sistema_de_inventarios_v02.exception.InvalidPageRequestException;
 import com.sistema_de_inventarios_v02.exception.ProductNotFoundException;
 import com.sistema_de_inventarios_v02.model.Product;
 import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import com.sistema_de_inventarios_v02.service.CatalogReadStore;
+import com.sistema_de_inventarios_v02.service.InventoryCounterService;
+import com.sistema_de_inventarios_v02.service.ProductBatchLoader;
+import com.sistema_de_inventarios_v02.service.ProductNameIndex;
+import com.sistema_de_inventarios_v02.service.ProductQueryCache;
+import com.sistema_de_inventarios_v02.service.ProductSearchIndex;
+import com.sistema_de_inventarios_v02.service.ProductSuggestionIndex;
 import com.sistema_de_inventarios_v02.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -22,6 +33,7 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +44,30 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private InventoryCounterService inventoryCounterService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductNameIndex productNameIndex;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductSuggestionIndex productSuggestionIndex;
+
+    @Mock
+    private ProductBatchLoader productBatchLoader;
+
+    @Mock
+    private ProductQueryCache productQueryCache;
+
+    @Mock
+    private CatalogReadStore catalogReadStore;
+
     @InjectMocks
     private ProductService productService;
 
@@ -76,6 +112,12 @@ public class ProductServiceTest {
         stockUpdateDTO = new StockUpdateDTO(20, "Reposición de inventario");
     }
 
+    // Resumen que devolverían las consultas de proyección para testProduct
+    private ProductSummaryDTO testSummary() {
+        return new ProductSummaryDTO(testProduct.getId(), testProduct.getName(), testProduct.getCategory(),
+                testProduct.getPrice(), testProduct.getStock(), "IN_STOCK");
+    }
+
     @Nested
     @DisplayName("Crear Producto")
     class CreateProductTests {
@@ -128,15 +170,12 @@ public class ProductServiceTest {
         @DisplayName("Debe retornar lista de ProductSummaryDTO cuando existen productos")
         void getAllProductsSummary_ShouldReturnListOfProductSummary() {
             // Arrange
-            Product product1 = new Product("Laptop", "Laptop de alta gama", "Electrónicos",
-                    new BigDecimal("1200.00"), 15, 5);
-            product1.setId(1L);
+            ProductSummaryDTO product1 = new ProductSummaryDTO(1L, "Laptop", "Electrónicos",
+                    new BigDecimal("1200.00"), 15, "IN_STOCK");
+            ProductSummaryDTO product2 = new ProductSummaryDTO(2L, "Mouse", "Electrónicos",
+                    new BigDecimal("25.00"), 50, "IN_STOCK");
 
-            Product product2 = new Product("Mouse", "Mouse inalámbrico", "Electrónicos",
-                    new BigDecimal("25.00"), 50, 10);
-            product2.setId(2L);
-
-            when(productRepository.findAll()).thenReturn(List.of(product1, product2));
+            when(productRepository.findAllSummaries()).thenReturn(List.of(product1, product2));
 
             // Act
             List<ProductSummaryDTO> result = productService.getAllProductsSummary();
@@ -153,14 +192,15 @@ public class ProductServiceTest {
             assertEquals(15, firstProduct.getStock());
             assertEquals("IN_STOCK", firstProduct.getStockStatus());
 
-            verify(productRepository, times(1)).findAll();
+            verify(productRepository, times(1)).findAllSummaries();
+            verify(productRepository, never()).findAll();
         }
 
         @Test
         @DisplayName("Debe retornar lista vacía cuando no existen productos")
         void getAllProductsSummary_ShouldReturnEmptyList_WhenNoProductsExist() {
             // Arrange
-            when(productRepository.findAll()).thenReturn(List.of());
+            when(productRepository.findAllSummaries()).thenReturn(List.of());
 
             // Act
             List<ProductSummaryDTO> result = productService.getAllProductsSummary();
@@ -168,14 +208,14 @@ public class ProductServiceTest {
             // Assert
             assertNotNull(result);
             assertTrue(result.isEmpty());
-            verify(productRepository, times(1)).findAll();
+            verify(productRepository, times(1)).findAllSummaries();
         }
 
         @Test
         @DisplayName("Debe retornar ProductResponseDTO completo cuando busca por ID")
         void getProductById_ShouldReturnProductResponseDTO_WhenProductExists() {
             // Arrange
-            when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+            when(productBatchLoader.find(1L)).thenReturn(Optional.of(testProduct));
 
             // Act
             ProductResponseDTO result = productService.getProductById(1L);
@@ -193,21 +233,51 @@ public class ProductServiceTest {
             assertEquals(testProduct.isOutOfStock(), result.isOutOfStock());
             assertNotNull(result.getStockStatus());
 
-            verify(productRepository, times(1)).findById(1L);
+            verify(productBatchLoader, times(1)).find(1L);
+            verify(productRepository, never()).findById(any());
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando el producto no existe")
         void getProductById_ShouldThrowException_WhenProductDoesNotExist() {
             // Arrange
-            when(productRepository.findById(1L)).thenReturn(Optional.empty());
+            when(productBatchLoader.find(1L)).thenReturn(Optional.empty());
 
             // Act & Assert
             assertThrows(ProductNotFoundException.class, () -> {
                 productService.getProductById(1L);
             });
 
-            verify(productRepository, times(1)).findById(1L);
+            verify(productBatchLoader, times(1)).find(1L);
+        }
+
+        @Test
+        @DisplayName("Debe obtener varios productos por id en el orden pedido con una sola consulta")
+        void getProductsByIds_ShouldKeepRequestedOrderAndSkipMissing() {
+            // Arrange
+            Product other = new Product(2L, "Mouse", "Mouse óptico", "Electrónicos",
+                    new BigDecimal("25.00"), 40, 10);
+            when(productRepository.multiLoad(List.of(2L, 1L, 99L))).thenReturn(List.of(testProduct, other));
+
+            // Act
+            List<ProductResponseDTO> result = productService.getProductsByIds(List.of(2L, 1L, 2L, 99L));
+
+            // Assert
+            assertEquals(List.of(2L, 1L), result.stream().map(ProductResponseDTO::getId).toList());
+            verify(productRepository, times(1)).multiLoad(List.of(2L, 1L, 99L));
+            verifyNoInteractions(productBatchLoader);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar lotes con demasiados ids")
+        void getProductsByIds_ShouldRejectTooManyIds() {
+            // Arrange
+            List<Long> ids = LongStream.rangeClosed(1, ProductService.MAX_BATCH_IDS + 1)
+                    .boxed().toList();
+
+            // Act & Assert
+            assertThrows(InvalidPageRequestException.class, () -> productService.getProductsByIds(ids));
+            verify(productRepository, never()).multiLoad(any());
         }
     }
 
@@ -232,6 +302,28 @@ public class ProductServiceTest {
             verify(productRepository, times(1)).save(any(Product.class));
         }
 
+        @Test
+        @DisplayName("Debe publicar baja y alta cuando el cambio de categoría mueve el producto de shard")
+        void updateProduct_ShouldPublishDeleteAndCreate_WhenProductMovesShard() {
+            // Arrange
+            Product moved = new Product("Laptop Actualizada", null, "Hogar", new BigDecimal("1300.00"), 15, 5);
+            moved.setId(2L);
+            updateProductDTO.setCategory("Hogar");
+            when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+            when(productRepository.save(any(Product.class))).thenReturn(moved);
+
+            // Act
+            ProductResponseDTO result = productService.updateProduct(1L, updateProductDTO);
+
+            // Assert
+            assertEquals(2L, result.getId());
+            ArgumentCaptor<ProductChangedEvent> events = ArgumentCaptor.forClass(ProductChangedEvent.class);
+            verify(eventPublisher, times(2)).publishEvent(events.capture());
+            assertEquals(List.of(ProductChangedEvent.ChangeType.DELETED, ProductChangedEvent.ChangeType.CREATED),
+                    events.getAllValues().stream().map(ProductChangedEvent::getType).toList());
+            assertEquals(List.of(1L, 2L), events.getAllValues().stream().map(ProductChangedEvent::getProductId).toList());
+        }
+
         @Test
         @DisplayName("Debe lanzar excepción cuando el producto a actualizar no existe")
         void updateProduct_ShouldThrowException_WhenProductDoesNotExist() {
@@ -272,29 +364,31 @@ public class ProductServiceTest {
         @DisplayName("Debe eliminar producto exitosamente cuando existe")
         void deleteProduct_ShouldDeleteProduct_WhenProductExists() {
             // Arrange
-            when(productRepository.existsById(1L)).thenReturn(true);
+            when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
 
             // Act
             productService.deleteProduct(1L);
 
             // Assert
-            verify(productRepository, times(1)).existsById(1L);
-            verify(productRepository, times(1)).deleteById(1L);
+            verify(productRepository, times(1)).findById(1L);
+            verify(productRepository, times(1)).delete(testProduct);
+            verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando el producto no existe")
         void deleteProduct_ShouldThrowException_WhenProductDoesNotExist() {
             // Arrange
-            when(productRepository.existsById(1L)).thenReturn(false);
+            when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
             // Act & Assert
             assertThrows(ProductNotFoundException.class, () -> {
                 productService.deleteProduct(1L);
             });
 
-            verify(productRepository, times(1)).existsById(1L);
-            verify(productRepository, never()).deleteById(anyLong());
+            verify(productRepository, times(1)).findById(1L);
+            verify(productRepository, never()).delete(any(Product.class));
+            verify(eventPublisher, never()).publishEvent(any(ProductChangedEvent.class));
         }
     }
 
@@ -306,7 +400,7 @@ public class ProductServiceTest {
         @DisplayName("Debe buscar productos por nombre y retornar ProductSummaryDTO")
         void searchProductsByName_ShouldReturnListOfProductSummary_WhenNameMatches() {
             // Arrange
-            when(productRepository.findByNameContainingIgnoreCase("Laptop")).thenReturn(List.of(testProduct));
+            when(productRepository.findSummariesByNameContaining("Laptop")).thenReturn(List.of(testSummary()));
 
             // Act
             List<ProductSummaryDTO> result = productService.searchProductsByName("Laptop");
@@ -317,14 +411,48 @@ public class ProductServiceTest {
             assertEquals(testProduct.getId(), result.get(0).getId());
             assertEquals(testProduct.getName(), result.get(0).getName());
 
-            verify(productRepository, times(1)).findByNameContainingIgnoreCase("Laptop");
+            verify(productRepository, times(1)).findSummariesByNameContaining("Laptop");
+        }
+
+        @Test
+        @DisplayName("Debe usar el índice de trigramas cuando está construido")
+        void searchProductsByName_ShouldUseTrigramIndex_WhenReady() {
+            // Arrange
+            when(productNameIndex.isReady()).thenReturn(true);
+            when(productNameIndex.findContaining("Lap")).thenReturn(List.of(testSummary()));
+
+            // Act
+            List<ProductSummaryDTO> result = productService.searchProductsByName("Lap");
+
+            // Assert
+            assertEquals(1, result.size());
+            verify(productRepository, never()).findSummariesByNameContaining(anyString());
+        }
+
+        @Test
+        @DisplayName("Debe responder con LIKE sin puntuación mientras el índice de texto se construye")
+        void searchProductsFullText_ShouldFallBackToSql_WhenIndexNotReady() {
+            // Arrange
+            Pageable pageable = PageRequest.of(0, 10);
+            when(productSearchIndex.isReady()).thenReturn(false);
+            when(productRepository.findSummariesByText("alta gama", pageable))
+                    .thenReturn(new PageImpl<>(List.of(testSummary())));
+
+            // Act
+            Page<ProductSearchHitDTO> result = productService.searchProductsFullText("alta gama", pageable);
+
+            // Assert
+            assertEquals(1, result.getContent().size());
+            assertEquals(0.0, result.getContent().get(0).getScore());
+            assertTrue(result.getContent().get(0).getHighlights().isEmpty());
+            verify(productSearchIndex, never()).search(anyString(), any());
         }
 
         @Test
         @DisplayName("Debe buscar productos por categoría y retornar ProductSummaryDTO")
         void getProductsByCategory_ShouldReturnListOfProductSummary_WhenCategoryMatches() {
             // Arrange
-            when(productRepository.findByCategoryIgnoreCase("Electrónicos")).thenReturn(List.of(testProduct));
+            when(productRepository.findSummariesByCategory("Electrónicos")).thenReturn(List.of(testSummary()));
 
             // Act
             List<ProductSummaryDTO> result = productService.getProductsByCategory("Electrónicos");
@@ -334,14 +462,29 @@ public class ProductServiceTest {
             assertEquals(1, result.size());
             assertEquals(testProduct.getCategory(), result.get(0).getCategory());
 
-            verify(productRepository, times(1)).findByCategoryIgnoreCase("Electrónicos");
+            verify(productRepository, times(1)).findSummariesByCategory("Electrónicos");
+        }
+
+        @Test
+        @DisplayName("Debe servir la categoría desde el modelo de lectura para usuarios VISITOR")
+        void getProductsByCategory_ShouldUseReadStore_WhenItServesCurrentUser() {
+            // Arrange
+            when(catalogReadStore.servesCurrentUser()).thenReturn(true);
+            when(catalogReadStore.getProductsByCategory("Electrónicos")).thenReturn(List.of(testSummary()));
+
+            // Act
+            List<ProductSummaryDTO> result = productService.getProductsByCategory("Electrónicos");
+
+            // Assert
+            assertEquals(1, result.size());
+            verify(productRepository, never()).findSummariesByCategory(any());
         }
 
         @Test
         @DisplayName("Debe buscar productos por rango de precio y retornar ProductSummaryDTO")
         void getProductsByPriceRange_ShouldReturnListOfProductSummary_WhenPriceRangeMatches() {
             // Arrange
-            when(productRepository.findByPriceBetween(1000.00, 1500.00)).thenReturn(List.of(testProduct));
+            when(productRepository.findSummariesByPriceBetween(1000.00, 1500.00)).thenReturn(List.of(testSummary()));
 
             // Act
             List<ProductSummaryDTO> result = productService.getProductsByPriceRange(1000.00, 1500.00);
@@ -352,7 +495,7 @@ public class ProductServiceTest {
             assertTrue(result.get(0).getPrice().doubleValue() >= 1000.00);
             assertTrue(result.get(0).getPrice().doubleValue() <= 1500.00);
 
-            verify(productRepository, times(1)).findByPriceBetween(1000.00, 1500.00);
+            verify(productRepository, times(1)).findSummariesByPriceBetween(1000.00, 1500.00);
         }
     }
 
@@ -414,18 +557,15 @@ public class ProductServiceTest {
         @DisplayName("Debe retornar productos paginados como ProductSummaryDTO")
         void getAllProductsPaginated_ShouldReturnPaginatedProductSummary_WhenProductsExist() {
             // Arrange
-            Product product1 = new Product("Laptop", "Descripción", "Electrónicos",
-                    new BigDecimal("1200.00"), 10, 5);
-            product1.setId(1L);
+            ProductSummaryDTO product1 = new ProductSummaryDTO(1L, "Laptop", "Electrónicos",
+                    new BigDecimal("1200.00"), 10, "IN_STOCK");
+            ProductSummaryDTO product2 = new ProductSummaryDTO(2L, "Mouse", "Electrónicos",
+                    new BigDecimal("25.00"), 50, "IN_STOCK");
 
-            Product product2 = new Product("Mouse", "Descripción", "Electrónicos",
-                    new BigDecimal("25.00"), 50, 10);
-            product2.setId(2L);
-
-            Page<Product> mockPage = new PageImpl<>(List.of(product1, product2));
+            Page<ProductSummaryDTO> mockPage = new PageImpl<>(List.of(product1, product2));
             Pageable pageable = PageRequest.of(0, 10);
 
-            when(productRepository.findAll(pageable)).thenReturn(mockPage);
+            when(productRepository.findAllSummaries(pageable)).thenReturn(mockPage);
 
             // Act
             Page<ProductSummaryDTO> result = productService.getAllProductsPaginated(pageable);
@@ -439,17 +579,17 @@ public class ProductServiceTest {
             assertEquals("Laptop", firstProduct.getName());
             assertEquals("Electrónicos", firstProduct.getCategory());
 
-            verify(productRepository, times(1)).findAll(pageable);
+            verify(productRepository, times(1)).findAllSummaries(pageable);
         }
 
         @Test
         @DisplayName("Debe buscar con filtros y paginación como ProductSummaryDTO")
         void getProductsWithFilters_ShouldReturnFilteredAndPagedProductSummary() {
             // Arrange
-            Page<Product> mockPage = new PageImpl<>(List.of(testProduct));
+            Page<ProductSummaryDTO> mockPage = new PageImpl<>(List.of(testSummary()));
             Pageable pageable = PageRequest.of(0, 10);
 
-            when(productRepository.findByCategoryAndName("Electrónicos", "Laptop", pageable))
+            when(productRepository.findSummariesByCategoryAndName("Electrónicos", "Laptop", pageable))
                     .thenReturn(mockPage);
 
             // Act
@@ -460,7 +600,27 @@ public class ProductServiceTest {
             assertEquals(1, result.getContent().size());
             assertEquals("Electrónicos", result.getContent().get(0).getCategory());
 
-            verify(productRepository, times(1)).findByCategoryAndName("Electrónicos", "Laptop", pageable);
+            verify(productRepository, times(1)).findSummariesByCategoryAndName("Electrónicos", "Laptop", pageable);
+            verify(productQueryCache).put(any(), anyLong(), eq(new long[]{1L}), eq(1L));
+        }
+
+        @Test
+        @DisplayName("Debe rehacer la página cacheada con los productos cargados por id")
+        void getProductsWithFilters_ShouldServeCachedPageFromIds() {
+            // Arrange
+            Pageable pageable = PageRequest.of(1, 2);
+            Product second = new Product(2L, "Mouse", null, "Electrónicos", new BigDecimal("25.00"), 3, 5);
+            when(productQueryCache.get(any())).thenReturn(new ProductQueryCache.Entry(7L, new long[]{2L, 1L}, 12L));
+            when(productRepository.multiLoad(List.of(2L, 1L))).thenReturn(List.of(testProduct, second));
+
+            // Act
+            Page<ProductSummaryDTO> result = productService.getProductsWithFilters("Electrónicos", null, pageable);
+
+            // Assert
+            assertEquals(List.of(2L, 1L), result.getContent().stream().map(ProductSummaryDTO::getId).toList());
+            assertEquals("LOW_STOCK", result.getContent().get(0).getStockStatus());
+            assertEquals(12L, result.getTotalElements());
+            verify(productRepository, never()).findSummariesByCategoryAndName(any(), any(), any());
         }
     }
 
@@ -491,26 +651,57 @@ public class ProductServiceTest {
         @DisplayName("Debe obtener estadísticas de productos")
         void getProductStats_ShouldReturnCorrectStatistics() {
             // Arrange
-            when(productRepository.findAll()).thenReturn(List.of(testProduct));
-            when(productRepository.findProductsWithLowStock()).thenReturn(List.of());
-            when(productRepository.findProductsOutOfStock()).thenReturn(List.of());
-            when(productRepository.findAllCategories()).thenReturn(List.of("Electrónicos"));
+            when(productRepository.getProductStatistics())
+                    .thenReturn(new ProductStatsDTO(1L, 0L, 0L, 1L, 10L, new BigDecimal("12000.00")));
 
             // Act
             Map<String, Object> result = productService.getProductStats();
 
             // Assert
             assertNotNull(result);
-            assertEquals(1, result.get("totalProducts"));
-            assertEquals(0, result.get("lowStockProducts"));
-            assertEquals(0, result.get("outOfStockProducts"));
-            assertEquals(1, result.get("totalCategories"));
-            assertEquals(1, result.get("inStockProducts"));
+            assertEquals(1L, result.get("totalProducts"));
+            assertEquals(0L, result.get("lowStockProducts"));
+            assertEquals(0L, result.get("outOfStockProducts"));
+            assertEquals(1L, result.get("totalCategories"));
+            assertEquals(1L, result.get("inStockProducts"));
+
+            verify(productRepository, times(1)).getProductStatistics();
+            verify(productRepository, never()).findAll();
+        }
 
-            verify(productRepository, times(1)).findAll();
-            verify(productRepository, times(1)).findProductsWithLowStock();
-            verify(productRepository, times(1)).findProductsOutOfStock();
-            verify(productRepository, times(1)).findAllCategories();
+        @Test
+        @DisplayName("Debe usar los contadores en memoria cuando están sembrados")
+        void getProductStatistics_ShouldUseInMemoryCounters_WhenReady() {
+            // Arrange
+            when(inventoryCounterService.isReady()).thenReturn(true);
+            when(inventoryCounterService.getGlobalStatistics())
+                    .thenReturn(new ProductStatsDTO(3L, 1L, 1L, 2L, 40L, new BigDecimal("500.00")));
+
+            // Act
+            ProductStatsDTO result = productService.getProductStatistics();
+
+            // Assert
+            assertEquals(3L, result.getTotalProducts());
+            assertEquals(40L, result.getTotalUnits());
+            verify(productRepository, never()).getProductStatistics();
+        }
+
+        @Test
+        @DisplayName("Debe devolver ceros cuando el catálogo está vacío")
+        void getProductStatistics_ShouldHandleEmptyCatalog() {
+            // Arrange - SUM devuelve null cuando no hay filas
+            when(productRepository.getProductStatistics())
+                    .thenReturn(new ProductStatsDTO(0L, null, null, 0L, null, null));
+
+            // Act
+            ProductStatsDTO result = productService.getProductStatistics();
+
+            // Assert
+            assertEquals(0L, result.getTotalProducts());
+            assertEquals(0L, result.getLowStockProducts());
+            assertEquals(0L, result.getOutOfStockProducts());
+            assertEquals(0L, result.getInStockProducts());
+            assertEquals(BigDecimal.ZERO, result.getInventoryValue());
         }
     }
 }
\ No newline at end of file
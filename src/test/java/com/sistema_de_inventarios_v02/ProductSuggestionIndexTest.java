@@ -0,0 +1,133 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.dto.ProductSuggestionDTO;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import com.sistema_de_inventarios_v02.repository.ProductHistoryRepository;
+import com.sistema_de_inventarios_v02.service.CatalogSnapshotFile;
+import com.sistema_de_inventarios_v02.service.ProductSuggestionIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sistema_de_inventarios_v02.CatalogFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ProductSuggestionIndex Tests")
+public class ProductSuggestionIndexTest {
+
+    @Mock
+    private CatalogSnapshotFile catalogSnapshots;
+
+    @Mock
+    private ProductHistoryRepository productHistoryRepository;
+
+    // Tramos de una hora, como los cuenta el índice
+    private static final long BUCKET_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final AtomicLong now = new AtomicLong(Duration.ofDays(400).toMillis());
+    private ProductSuggestionIndex suggestionIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        suggestionIndex = new ProductSuggestionIndex(catalogSnapshots, productHistoryRepository, 30, now::get);
+
+        stubCatalog(catalogSnapshots,
+                product(1L, "Laptop Gaming", null, "Electrónicos"),
+                product(2L, "Lámpara de escritorio", null, "Hogar"),
+                product(3L, "Láser de medición", null, "Herramientas"),
+                product(4L, "Mouse Gamer", null, "Electrónicos"));
+        NavigableMap<Long, Map<Long, Long>> movements = new TreeMap<>();
+        movements.put(now.get() / BUCKET_MILLIS - 1, Map.of(3L, 5L, 1L, 2L));
+        when(productHistoryRepository.countStockMovementsSince(
+                now.get() - Duration.ofDays(30).toMillis(), BUCKET_MILLIS)).thenReturn(movements);
+        suggestionIndex.seed();
+    }
+
+    private static List<String> texts(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::getText).toList();
+    }
+
+    @Test
+    @DisplayName("Debe ordenar las sugerencias por movimientos recientes ignorando acentos")
+    void suggest_ShouldRankByPopularityIgnoringAccents() {
+        assertTrue(suggestionIndex.isReady());
+        assertEquals(List.of("Láser de medición", "Laptop Gaming", "Lámpara de escritorio"),
+                texts(suggestionIndex.suggest("LA", 10)));
+        assertEquals(List.of("Láser de medición"), texts(suggestionIndex.suggest("las", 10)));
+    }
+
+    @Test
+    @DisplayName("Debe sugerir por el inicio de cualquier palabra e incluir categorías")
+    void suggest_ShouldMatchWordStartsAndCategories() {
+        assertEquals(List.of("Laptop Gaming", "Mouse Gamer"), texts(suggestionIndex.suggest("gam", 10)));
+
+        List<ProductSuggestionDTO> categories = suggestionIndex.suggest("elec", 10);
+        assertEquals(1, categories.size());
+        assertEquals(ProductSuggestionDTO.CATEGORY, categories.get(0).getType());
+        assertEquals(4L, categories.get(0).getScore());
+    }
+
+    @Test
+    @DisplayName("Debe respetar el límite y no sugerir con prefijos vacíos o desconocidos")
+    void suggest_ShouldHonorLimitAndEmptyPrefixes() {
+        assertEquals(1, suggestionIndex.suggest("la", 1).size());
+        assertTrue(suggestionIndex.suggest("  ", 10).isEmpty());
+        assertTrue(suggestionIndex.suggest("zzz", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe reflejar altas y movimientos de stock tras reconstruir")
+    void onProductChanged_ShouldBeVisibleAfterRebuild() {
+        ProductSnapshot before = new ProductSnapshot(2L, "Lámpara de escritorio", null, "Hogar",
+                new BigDecimal("10.00"), 20, 10);
+        for (int stock = 19; stock >= 10; stock--) {
+            ProductSnapshot after = new ProductSnapshot(2L, "Lámpara de escritorio", null, "Hogar",
+                    new BigDecimal("10.00"), stock, 10);
+            suggestionIndex.onProductChanged(ProductChangedEvent.updated(before, after));
+            before = after;
+        }
+        suggestionIndex.onProductChanged(ProductChangedEvent.created(new ProductSnapshot(5L, "Monitor 4K", null,
+                "Electrónicos", new BigDecimal("300.00"), 5, 10)));
+
+        assertTrue(suggestionIndex.suggest("mon", 10).isEmpty());
+
+        suggestionIndex.rebuildIfDirty();
+
+        assertEquals("Lámpara de escritorio", suggestionIndex.suggest("la", 10).get(0).getText());
+        assertEquals(List.of("Monitor 4K"), texts(suggestionIndex.suggest("mon", 10)));
+    }
+
+    @Test
+    @DisplayName("Debe contar solo cambios de stock y olvidar los movimientos fuera de la ventana")
+    void rebuildIfDirty_ShouldExpireMovementsOutsideWindow() {
+        // Arrange
+        ProductSnapshot lamp = new ProductSnapshot(2L, "Lámpara de escritorio", null, "Hogar",
+                new BigDecimal("10.00"), 20, 10);
+        ProductSnapshot renamed = new ProductSnapshot(2L, "Lámpara de pie", null, "Hogar",
+                new BigDecimal("10.00"), 20, 10);
+        suggestionIndex.onProductChanged(ProductChangedEvent.updated(lamp, renamed));
+        suggestionIndex.rebuildIfDirty();
+        assertEquals(0L, suggestionIndex.suggest("lámpara", 10).get(0).getScore());
+
+        // Act
+        now.addAndGet(Duration.ofDays(31).toMillis());
+        suggestionIndex.rebuildIfDirty();
+
+        // Assert
+        assertEquals(List.of("Laptop Gaming", "Lámpara de pie", "Láser de medición"),
+                texts(suggestionIndex.suggest("la", 10)));
+    }
+}
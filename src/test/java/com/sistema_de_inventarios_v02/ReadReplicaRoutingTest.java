@@ -0,0 +1,140 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.Config.ReplicaConsistency;
+import com.sistema_de_inventarios_v02.Config.ReplicaRoutingDataSource;
+import com.sistema_de_inventarios_v02.Config.ServedRevision;
+import com.sistema_de_inventarios_v02.event.ProductChangedEvent;
+import com.sistema_de_inventarios_v02.event.ProductSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos bases H2 en memoria hacen de primario y réplica
+ */
+@DisplayName("Read replica routing Tests")
+public class ReadReplicaRoutingTest {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReplicaConsistency consistency;
+    private JdbcTemplate routed;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource primaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DriverManagerDataSource replicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "sa", "");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        for (JdbcTemplate database : new JdbcTemplate[]{primary, replica}) {
+            database.execute("CREATE TABLE REVINFO (REV INT PRIMARY KEY)");
+            database.execute("CREATE TABLE node (name VARCHAR(20))");
+            database.update("INSERT INTO REVINFO (REV) VALUES (1)");
+        }
+        primary.update("INSERT INTO node (name) VALUES ('primary')");
+        replica.update("INSERT INTO node (name) VALUES ('replica')");
+
+        consistency = new ReplicaConsistency(primaryDataSource, replicaDataSource, 50, 5);
+        consistency.refreshReplicaRevision();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, consistency);
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consistency.clearCurrentThread();
+        RequestContextHolder.resetRequestAttributes();
+        primary.execute("DROP ALL OBJECTS");
+        replica.execute("DROP ALL OBJECTS");
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> routed.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static ProductChangedEvent changed() {
+        return ProductChangedEvent.created(new ProductSnapshot(1L, "Silla", null, "Hogar",
+                new BigDecimal("45.00"), 3, 10));
+    }
+
+    @Test
+    @DisplayName("Debe enviar las transacciones de solo lectura a la réplica y el resto al primario")
+    void route_ShouldSplitByReadOnlyFlag() {
+        assertEquals("replica", nodeIn(readOnly));
+        assertEquals("primary", nodeIn(readWrite));
+    }
+
+    @Test
+    @DisplayName("Debe seguir leyendo de la réplica sin token aunque vaya por detrás del nodo, sin llenar caches compartidas")
+    void route_ShouldKeepReplicaForClientsWithoutToken() {
+        // Arrange
+        primary.update("INSERT INTO REVINFO (REV) VALUES (2)");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // Act
+        consistency.onProductChanged(changed());
+        String whileLagging = nodeIn(readOnly);
+        boolean shareableWhileLagging = ServedRevision.isShareable();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        replica.update("INSERT INTO REVINFO (REV) VALUES (2)");
+        consistency.refreshReplicaRevision();
+        String caughtUp = nodeIn(readOnly);
+
+        // Assert
+        assertEquals(2L, consistency.getNodeRevision());
+        assertEquals("replica", whileLagging);
+        assertFalse(shareableWhileLagging);
+        assertEquals("replica", caughtUp);
+        assertTrue(ServedRevision.isShareable());
+    }
+
+    @Test
+    @DisplayName("Debe esperar a la réplica por el token y rendirse pasado el tiempo máximo")
+    void awaitReplica_ShouldHonourConsistencyToken() {
+        // Act
+        boolean caughtUp = consistency.awaitReplica(1);
+        boolean lagging = consistency.awaitReplica(3);
+        consistency.usePrimaryForCurrentThread();
+
+        // Assert
+        assertTrue(caughtUp);
+        assertFalse(lagging);
+        assertEquals("primary", nodeIn(readOnly));
+    }
+
+    @Test
+    @DisplayName("Debe leer del primario si la réplica no responde")
+    void route_ShouldFallBackToPrimaryWhenReplicaFails() {
+        // Arrange
+        replica.execute("DROP TABLE REVINFO");
+
+        // Act
+        consistency.refreshReplicaRevision();
+
+        // Assert
+        assertEquals(-1L, consistency.getReplicaRevision());
+        assertEquals("primary", nodeIn(readOnly));
+    }
+}
@@ -0,0 +1,333 @@
+package com.sistema_de_inventarios_v02;
+
+import com.sistema_de_inventarios_v02.Config.ShardRouter;
+import com.sistema_de_inventarios_v02.Config.ShardRoutingDataSource;
+import com.sistema_de_inventarios_v02.Config.ShardedProductRepository;
+import com.sistema_de_inventarios_v02.Config.ShardingConfig;
+import com.sistema_de_inventarios_v02.dto.ProductStatsDTO;
+import com.sistema_de_inventarios_v02.dto.ProductSummaryDTO;
+import com.sistema_de_inventarios_v02.model.Product;
+import com.sistema_de_inventarios_v02.repository.CategoryDictionary;
+import com.sistema_de_inventarios_v02.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tres bases H2 en memoria hacen de shards; el ProductRepository simulado consulta la base
+ * del shard que ha elegido ShardedProductRepository
+ */
+@DisplayName("ShardedProductRepository Tests")
+public class ShardedProductRepositoryTest {
+
+    private static final String HOGAR = "Hogar";
+    private static final String ELECTRONICOS = "Electrónicos";
+    private static final String ROPA = "Ropa";
+
+    private static final RowMapper<Product> PRODUCT = (rs, row) -> new Product(rs.getLong("id"),
+            rs.getString("name"), null, rs.getString("category"), rs.getBigDecimal("price"), rs.getInt("stock"), null);
+    private static final RowMapper<ProductSummaryDTO> SUMMARY = (rs, row) -> new ProductSummaryDTO(rs.getLong("id"),
+            rs.getString("name"), rs.getString("category"), rs.getBigDecimal("price"), rs.getInt("stock"), (String) null);
+
+    private List<JdbcTemplate> shards;
+    private ShardRouter router;
+    private JdbcTemplate routed;
+    private TransactionTemplate readWrite;
+    private ProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        List<DataSource> dataSources = new ArrayList<>();
+        shards = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:catalog_shard" + shard + ";DB_CLOSE_DELAY=-1", "sa", "");
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), " +
+                    "category VARCHAR(100), price DECIMAL(10, 2), stock INT)");
+            jdbc.execute("CREATE TABLE categories (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100))");
+            ShardingConfig.reserveIdRange(jdbc, shard);
+            dataSources.add(dataSource);
+            shards.add(jdbc);
+        }
+        router = new ShardRouter(dataSources);
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(dataSources);
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        repository = ShardedProductRepository.wrap(simulatedRepository(), router, transactionManager, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.forEach(jdbc -> jdbc.execute("DROP ALL OBJECTS"));
+    }
+
+    /**
+     * Cada método lee o escribe con el JdbcTemplate enrutado, es decir, en el shard actual
+     */
+    private ProductRepository simulatedRepository() {
+        ProductRepository target = mock(ProductRepository.class);
+        when(target.save(any(Product.class))).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            KeyHolder keys = new GeneratedKeyHolder();
+            routed.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO products (name, category, price, stock) VALUES (?, ?, ?, ?)", new String[]{"ID"});
+                statement.setString(1, product.getName());
+                statement.setString(2, product.getCategory());
+                statement.setBigDecimal(3, product.getPrice());
+                statement.setInt(4, product.getStock());
+                return statement;
+            }, keys);
+            product.setId(keys.getKey().longValue());
+            return product;
+        });
+        doAnswer(invocation -> routed.update("DELETE FROM products WHERE id = ?",
+                ((Product) invocation.getArgument(0)).getId())).when(target).delete(any(Product.class));
+        doAnswer(invocation -> routed.update("DELETE FROM products WHERE id = ?", (Long) invocation.getArgument(0)))
+                .when(target).deleteById(anyLong());
+        when(target.findById(anyLong())).thenAnswer(invocation -> routed.query(
+                "SELECT * FROM products WHERE id = ?", PRODUCT, (Long) invocation.getArgument(0)).stream().findFirst());
+        when(target.findAllSummaries(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(0);
+            String order = pageable.getSort().stream()
+                    .map(sort -> sort.getProperty() + " " + sort.getDirection())
+                    .collect(Collectors.joining(", "));
+            List<ProductSummaryDTO> content = routed.query("SELECT * FROM products ORDER BY " + order + " LIMIT ? OFFSET ?",
+                    SUMMARY, pageable.getPageSize(), pageable.getOffset());
+            return new PageImpl<>(content, pageable, routed.queryForObject("SELECT COUNT(*) FROM products", Long.class));
+        });
+        when(target.streamAllByOrderByIdAsc()).thenAnswer(invocation ->
+                routed.queryForStream("SELECT * FROM products ORDER BY id", PRODUCT));
+        when(target.getProductStatistics()).thenAnswer(invocation -> routed.queryForObject(
+                "SELECT COUNT(*), COUNT(DISTINCT category), SUM(stock), SUM(price * stock) FROM products",
+                (rs, row) -> new ProductStatsDTO(rs.getLong(1), 0L, 0L, rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4))));
+        return target;
+    }
+
+    private Product save(String name, String category, String price, int stock) {
+        return repository.save(new Product(name, null, category, new BigDecimal(price), stock, 10));
+    }
+
+    private List<String> categoriesIn(int shard) {
+        return shards.get(shard).queryForList("SELECT DISTINCT category FROM products", String.class);
+    }
+
+    @Test
+    @DisplayName("Debe guardar cada categoría en su shard con ids que no se repiten entre shards")
+    void save_ShouldRouteByCategoryWithDisjointIds() {
+        // Act
+        Product chair = save("Silla", HOGAR, "45.00", 20);
+        Product laptop = save("Portátil", ELECTRONICOS, "999.00", 5);
+        Product shirt = save("Camisa", ROPA, "19.90", 40);
+        Product table = save("Mesa", HOGAR, "120.50", 3);
+
+        // Assert
+        assertEquals(3, List.of(router.shardFor(HOGAR), router.shardFor(ELECTRONICOS), router.shardFor(ROPA))
+                .stream().distinct().count());
+        for (Product product : List.of(chair, laptop, shirt, table)) {
+            int shard = router.shardFor(product.getCategory());
+            assertEquals(shard, router.homeShard(product.getId()));
+            assertEquals(List.of(product.getCategory()), categoriesIn(shard));
+        }
+        assertEquals(4, List.of(chair.getId(), laptop.getId(), shirt.getId(), table.getId())
+                .stream().distinct().count());
+        assertEquals("Camisa", repository.findById(shirt.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("Debe crear y buscar la categoría en un único shard aunque cambien mayúsculas y acentos")
+    @SuppressWarnings("unchecked")
+    void categoryDictionary_ShouldUseCollationKeyShard() {
+        // Arrange
+        ObjectProvider<ShardRouter> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(router);
+        CategoryDictionary dictionary = new CategoryDictionary(routed, provider);
+        int shard = router.shardFor(ELECTRONICOS);
+
+        // Act
+        int id = dictionary.getOrCreate(ELECTRONICOS);
+
+        // Assert
+        assertEquals(shard, router.shardFor(" ELECTRONICOS "));
+        assertEquals(shard, id >>> ShardRouter.CATEGORY_ID_BITS);
+        for (int i = 0; i < shards.size(); i++) {
+            assertEquals(i == shard ? 1 : 0, shards.get(i).queryForObject("SELECT COUNT(*) FROM categories", Long.class));
+        }
+        dictionary.clear();
+        assertEquals(id, dictionary.getOrCreate(ELECTRONICOS.toLowerCase()));
+    }
+
+    @Test
+    @DisplayName("Debe mezclar las páginas de todos los shards en el orden pedido y sumar el total")
+    void findAllSummaries_ShouldScatterGatherAndMergePages() {
+        // Arrange
+        String[] categories = {HOGAR, ELECTRONICOS, ROPA};
+        for (int i = 0; i < 9; i++) {
+            save("Producto " + i, categories[i % 3], (90 - i * 10) + ".00", i);
+        }
+        Sort byPrice = Sort.by("price").and(Sort.by("id"));
+
+        // Act
+        Page<ProductSummaryDTO> page = repository.findAllSummaries(PageRequest.of(1, 3, byPrice));
+
+        // Assert
+        assertEquals(9, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(List.of("Producto 5", "Producto 4", "Producto 3"),
+                page.getContent().stream().map(ProductSummaryDTO::getName).toList());
+    }
+
+    @Test
+    @DisplayName("Debe mezclar los nombres como la colación de la base, sin distinguir mayúsculas ni acentos")
+    void findAllSummaries_ShouldMergeNamesByCollation() {
+        // Arrange
+        save("zapatero", HOGAR, "30.00", 1);
+        save("Árbol de luces", ROPA, "12.00", 1);
+        save("mesa", ELECTRONICOS, "80.00", 1);
+        save("Banco", HOGAR, "60.00", 1);
+        Sort byName = Sort.by("name").and(Sort.by("id"));
+
+        // Act
+        Page<ProductSummaryDTO> page = repository.findAllSummaries(PageRequest.of(0, 4, byName));
+
+        // Assert
+        assertEquals(List.of("Árbol de luces", "Banco", "mesa", "zapatero"),
+                page.getContent().stream().map(ProductSummaryDTO::getName).toList());
+    }
+
+    @Test
+    @DisplayName("Debe sumar las estadísticas de todos los shards")
+    void getProductStatistics_ShouldSumShards() {
+        // Arrange
+        save("Silla", HOGAR, "10.00", 2);
+        save("Portátil", ELECTRONICOS, "100.00", 1);
+        save("Camisa", ROPA, "5.00", 4);
+
+        // Act
+        ProductStatsDTO stats = repository.getProductStatistics();
+
+        // Assert
+        assertEquals(3, stats.getTotalProducts());
+        assertEquals(3, stats.getTotalCategories());
+        assertEquals(7, stats.getTotalUnits());
+        assertEquals(0, new BigDecimal("140.00").compareTo(stats.getInventoryValue()));
+    }
+
+    @Test
+    @DisplayName("Debe mover a su shard, con id nuevo, un producto que cambia a una categoría de otro shard")
+    void save_ShouldMoveCategoryChangeAcrossShards() {
+        // Arrange
+        Product chair = save("Silla", HOGAR, "45.00", 20);
+        Product changed = repository.findById(chair.getId()).orElseThrow();
+        changed.setCategory(ROPA);
+
+        // Act
+        Product moved = readWrite.execute(status -> repository.save(changed));
+
+        // Assert
+        assertEquals(router.shardFor(ROPA), router.homeShard(moved.getId()));
+        assertEquals(List.of(), categoriesIn(router.shardFor(HOGAR)));
+        assertEquals(List.of(ROPA), categoriesIn(router.shardFor(ROPA)));
+        assertTrue(repository.findById(chair.getId()).isEmpty());
+        assertEquals("Silla", repository.findById(moved.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("Debe deshacer el movimiento entre shards si la transacción no se confirma")
+    void save_ShouldDiscardMovedCopyOnRollback() {
+        // Arrange
+        Product chair = save("Silla", HOGAR, "45.00", 20);
+
+        // Act
+        readWrite.executeWithoutResult(status -> {
+            Product changed = repository.findById(chair.getId()).orElseThrow();
+            changed.setCategory(ROPA);
+            repository.save(changed);
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(List.of(HOGAR), categoriesIn(router.shardFor(HOGAR)));
+        assertEquals(List.of(), categoriesIn(router.shardFor(ROPA)));
+    }
+
+    @Test
+    @DisplayName("Una transacción debe leer de otros shards pero escribir solo en el suyo")
+    void transaction_ShouldStayOnItsShardForWrites() {
+        // Arrange
+        Product chair = save("Silla", HOGAR, "45.00", 20);
+        Product shirt = save("Camisa", ROPA, "19.90", 40);
+
+        // Act
+        List<Optional<Product>> reads = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> readWrite.executeWithoutResult(status -> {
+            // La primera sentencia liga la transacción al shard de Hogar
+            reads.add(repository.findById(chair.getId()));
+            reads.add(repository.findById(shirt.getId()));
+            save("Pantalón", ROPA, "29.90", 10);
+        }));
+
+        // Assert
+        assertTrue(reads.get(0).isPresent());
+        assertEquals("Camisa", reads.get(1).orElseThrow().getName());
+        assertEquals(1, shards.get(router.shardFor(ROPA)).queryForObject("SELECT COUNT(*) FROM products", Long.class));
+    }
+
+    @Test
+    @DisplayName("Un export en una transacción debe recorrer todos los shards en orden de id")
+    void streamAllByOrderByIdAsc_ShouldStreamOtherShardsInsideTransaction() {
+        // Arrange
+        Product chair = save("Silla", HOGAR, "45.00", 20);
+        save("Portátil", ELECTRONICOS, "999.00", 5);
+        save("Camisa", ROPA, "19.90", 40);
+        save("Mesa", HOGAR, "120.50", 3);
+
+        // Act: la primera lectura liga la transacción al shard de Hogar
+        List<Long> ids = readWrite.execute(status -> {
+            repository.findById(chair.getId());
+            try (Stream<Product> products = repository.streamAllByOrderByIdAsc()) {
+                return products.map(Product::getId).toList();
+            }
+        });
+
+        // Assert
+        assertEquals(4, ids.size());
+        assertEquals(ids.stream().sorted(Comparator.naturalOrder()).toList(), ids);
+    }
+}